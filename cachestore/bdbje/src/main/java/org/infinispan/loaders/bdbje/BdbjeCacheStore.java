@@ -24,6 +24,7 @@
 
 import com.sleepycat.bind.serial.StoredClassCatalog;
 import com.sleepycat.collections.CurrentTransaction;
+import com.sleepycat.collections.StoredIterator;
 import com.sleepycat.collections.StoredMap;
 import com.sleepycat.collections.StoredSortedMap;
 import com.sleepycat.je.Cursor;
@@ -42,8 +43,12 @@
 import org.infinispan.loaders.CacheLoaderConfig;
 import org.infinispan.loaders.CacheLoaderException;
 import org.infinispan.loaders.CacheLoaderMetadata;
+import org.infinispan.loaders.EntryVisitor;
+import org.infinispan.loaders.KeyFilter;
 import org.infinispan.loaders.bdbje.logging.Log;
 import org.infinispan.loaders.modifications.Modification;
+import org.infinispan.loaders.modifications.Remove;
+import org.infinispan.loaders.modifications.Store;
 import org.infinispan.marshall.StreamingMarshaller;
 import org.infinispan.transaction.xa.GlobalTransaction;
 import org.infinispan.util.ReflectionUtil;
@@ -54,6 +59,8 @@
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -435,6 +442,30 @@ public void store(InternalCacheEntry ed) throws CacheLoaderException {
    }
 
 
+   /**
+    * {@inheritDoc} This implementation stores all the entries within a single SleepyCat transaction, via {@link
+    * #applyModifications(java.util.List)}.
+    */
+   @Override
+   public void storeAll(Collection<InternalCacheEntry> entries) throws CacheLoaderException {
+      if (entries == null || entries.isEmpty()) return;
+      List<Modification> mods = new ArrayList<Modification>(entries.size());
+      for (InternalCacheEntry ed : entries) mods.add(new Store(ed));
+      applyModifications(mods);
+   }
+
+   /**
+    * {@inheritDoc} This implementation removes all the keys within a single SleepyCat transaction, via {@link
+    * #applyModifications(java.util.List)}.
+    */
+   @Override
+   public void removeAll(Set<Object> keys) throws CacheLoaderException {
+      if (keys == null || keys.isEmpty()) return;
+      List<Modification> mods = new ArrayList<Modification>(keys.size());
+      for (Object key : keys) mods.add(new Remove(key));
+      applyModifications(mods);
+   }
+
    private void addNewExpiry(InternalCacheEntry entry) throws IOException {
       long expiry = entry.getExpiryTime();
       if (entry.getMaxIdle() > 0) {
@@ -496,6 +527,34 @@ public Set<Object> loadAllKeys(Set<Object> keysToExclude) throws CacheLoaderExce
       }
    }
 
+   /**
+    * {@inheritDoc} This implementation walks a cursor over {@link StoredMap#keySet()} and only deserializes the values
+    * of the accepted keys.  The cursor is closed when the iteration ends or is stopped.
+    */
+   @Override
+   public boolean visitEntries(KeyFilter filter, boolean fetchValues, EntryVisitor visitor) throws CacheLoaderException {
+      Iterator<Object> keys = null;
+      try {
+         keys = cacheMap.keySet().iterator();
+         long currentTimeMillis = System.currentTimeMillis();
+         while (keys.hasNext()) {
+            Object key = keys.next();
+            if (filter != null && !filter.accept(key)) continue;
+            InternalCacheEntry ice = null;
+            if (fetchValues) {
+               ice = cacheMap.get(key);
+               if (ice == null || ice.isExpired(currentTimeMillis)) continue;
+            }
+            if (!visitor.visit(key, ice)) return false;
+         }
+         return true;
+      } catch (RuntimeException caught) {
+         throw convertToCacheLoaderException("error visiting entries", caught);
+      } finally {
+         if (keys != null) StoredIterator.close(keys);
+      }
+   }
+
    /**
     * {@inheritDoc} This implementation reads the number of entries to load from the stream, then begins a transaction.
     * During that transaction, the cachestore is cleared and replaced with entries from the stream.  If there are any
@@ -35,6 +35,8 @@
 
 import org.infinispan.container.entries.InternalCacheEntry;
 import org.infinispan.loaders.CacheLoaderException;
+import org.infinispan.loaders.EntryVisitor;
+import org.infinispan.loaders.KeyFilter;
 import org.infinispan.loaders.jdbc.connectionfactory.ConnectionFactory;
 import org.infinispan.marshall.StreamingMarshaller;
 import org.infinispan.loaders.jdbc.logging.Log;
@@ -226,6 +228,47 @@ public Set<Object> loadAllKeysSupport(Set<Object> keysToExclude) throws CacheLoa
       }
    }
 
+   /**
+    * Streams the rows of the table through the visitor as they are fetched, rather than collecting them first. When
+    * values are not needed only the keys query is run, which for the string based store does not read the data column.
+    */
+   public final boolean visitEntriesSupport(KeyFilter filter, boolean fetchValues, boolean filterExpired, EntryVisitor visitor) throws CacheLoaderException {
+      Connection conn = null;
+      PreparedStatement ps = null;
+      ResultSet rs = null;
+      try {
+         String sql;
+         if (fetchValues) {
+            sql = filterExpired ? tableManipulation.getLoadNonExpiredAllRowsSql() : tableManipulation.getLoadAllRowsSql();
+         } else {
+            sql = getLoadAllKeysSql();
+         }
+         if (log.isTraceEnabled()) {
+            log.tracef("Running sql %s", sql);
+         }
+         conn = connectionFactory.getConnection();
+         ps = conn.prepareStatement(sql);
+         if (fetchValues && filterExpired) {
+            ps.setLong(1, System.currentTimeMillis());
+         }
+         rs = ps.executeQuery();
+         rs.setFetchSize(tableManipulation.getFetchSize());
+         while (rs.next()) {
+            if (!visitEntriesProcess(rs, filter, fetchValues, visitor)) {
+               return false;
+            }
+         }
+         return true;
+      } catch (SQLException e) {
+         log.sqlFailureFetchingAllStoredEntries(e);
+         throw new CacheLoaderException("SQL error while fetching all StoredEntries", e);
+      } finally {
+         JdbcUtil.safeClose(rs);
+         JdbcUtil.safeClose(ps);
+         connectionFactory.releaseConnection(conn);
+      }
+   }
+
    public final Set<InternalCacheEntry> loadSome(int maxEntries) throws CacheLoaderException {
       Connection conn = null;
       PreparedStatement ps = null;
@@ -271,6 +314,13 @@ protected boolean includeKey(Object key, Set<Object> keysToExclude) {
 
    protected abstract void loadAllKeysProcess(ResultSet rs, Set<Object> keys, Set<Object> keysToExclude) throws SQLException, CacheLoaderException;
 
+   /**
+    * Handles a single row of the query run by {@link #visitEntriesSupport(KeyFilter, boolean, boolean, EntryVisitor)}.
+    *
+    * @return false if the visitor stopped the iteration
+    */
+   protected abstract boolean visitEntriesProcess(ResultSet rs, KeyFilter filter, boolean fetchValues, EntryVisitor visitor) throws SQLException, CacheLoaderException;
+
    protected abstract void toStreamProcess(ResultSet rs, InputStream is, ObjectOutput objectOutput) throws CacheLoaderException, SQLException, IOException;
 
    protected abstract boolean fromStreamProcess(Object objFromStream, PreparedStatement ps, ObjectInput objectInput)
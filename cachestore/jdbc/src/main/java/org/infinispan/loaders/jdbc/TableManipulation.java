@@ -23,6 +23,7 @@
 package org.infinispan.loaders.jdbc;
 
 import java.sql.Connection;
+import java.sql.DatabaseMetaData;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
@@ -71,6 +72,8 @@ public class TableManipulation implements Cloneable {
    /* Cache the sql for managing data */
    private String insertRowSql;
    private String updateRowSql;
+   private String upsertRowSql;
+   private boolean upsertRowSqlResolved;
    private String selectRowSql;
    private String deleteRowSql;
    private String loadAllRowsSql;
@@ -272,6 +275,67 @@ public String getUpdateRowSql() {
       return updateRowSql;
    }
 
+   /**
+    * Returns a statement that inserts a row or, if a row with the same id already exists, overwrites it, taking the
+    * same parameters as {@link #getInsertRowSql()}. Only some databases support this in a single statement
+    * (PostgreSQL needs 9.5 or newer); for the others this returns null and callers must fall back to {@link
+    * #getUpdateRowSql()} and {@link #getInsertRowSql()}.
+    *
+    * @see #isUpsertSupported()
+    */
+   public String getUpsertRowSql() {
+      if (!upsertRowSqlResolved) {
+         String columns = dataColumnName + ", " + timestampColumnName + ", " + idColumnName;
+         String mergeUpdate = "WHEN MATCHED THEN UPDATE SET t." + dataColumnName + " = tmp." + dataColumnName + ", t." + timestampColumnName + " = tmp." + timestampColumnName +
+               " WHEN NOT MATCHED THEN INSERT (" + columns + ") VALUES (tmp." + dataColumnName + ", tmp." + timestampColumnName + ", tmp." + idColumnName + ")";
+         switch (getDatabaseType()) {
+            case MYSQL:
+               upsertRowSql = "INSERT INTO " + getTableName() + " (" + columns + ") VALUES(?,?,?) ON DUPLICATE KEY UPDATE " +
+                     dataColumnName + " = VALUES(" + dataColumnName + "), " + timestampColumnName + " = VALUES(" + timestampColumnName + ")";
+               break;
+            case POSTGRES:
+               // INSERT ... ON CONFLICT was introduced in PostgreSQL 9.5
+               if (!isDatabaseVersionAtLeast(9, 5)) {
+                  upsertRowSql = null;
+                  break;
+               }
+               upsertRowSql = "INSERT INTO " + getTableName() + " (" + columns + ") VALUES(?,?,?) ON CONFLICT (" + idColumnName + ") DO UPDATE SET " +
+                     dataColumnName + " = EXCLUDED." + dataColumnName + ", " + timestampColumnName + " = EXCLUDED." + timestampColumnName;
+               break;
+            case H2:
+               upsertRowSql = "MERGE INTO " + getTableName() + " (" + columns + ") KEY(" + idColumnName + ") VALUES(?,?,?)";
+               break;
+            case SQLITE:
+               upsertRowSql = "INSERT OR REPLACE INTO " + getTableName() + " (" + columns + ") VALUES(?,?,?)";
+               break;
+            case ORACLE:
+               upsertRowSql = "MERGE INTO " + getTableName() + " t USING (SELECT ? " + dataColumnName + ", ? " + timestampColumnName + ", ? " + idColumnName + " FROM dual) tmp ON (t." +
+                     idColumnName + " = tmp." + idColumnName + ") " + mergeUpdate;
+               break;
+            case DB2:
+               upsertRowSql = "MERGE INTO " + getTableName() + " t USING (VALUES (CAST(? AS " + dataColumnType + "), CAST(? AS " + timestampColumnType + "), CAST(? AS " + idColumnType + "))) AS tmp (" +
+                     columns + ") ON t." + idColumnName + " = tmp." + idColumnName + " " + mergeUpdate;
+               break;
+            case SQL_SERVER:
+               upsertRowSql = "MERGE " + getTableName() + " WITH (HOLDLOCK) AS t USING (VALUES (?, ?, ?)) AS tmp (" + columns + ") ON t." +
+                     idColumnName + " = tmp." + idColumnName + " " + mergeUpdate + ";";
+               break;
+            default:
+               upsertRowSql = null;
+               break;
+         }
+         upsertRowSqlResolved = true;
+      }
+      return upsertRowSql;
+   }
+
+   /**
+    * @return true if {@link #getUpsertRowSql()} is available for the configured database
+    */
+   public boolean isUpsertSupported() {
+      return getUpsertRowSql() != null;
+   }
+
    public String getSelectRowSql() {
       if (selectRowSql == null) {
          switch(getDatabaseType()) {
@@ -527,6 +591,25 @@ private DatabaseType getDatabaseType() {
       return databaseType;
    }
 
+   private boolean isDatabaseVersionAtLeast(int major, int minor) {
+      Connection conn = null;
+      try {
+         conn = connectionFactory.getConnection();
+         DatabaseMetaData metaData = conn.getMetaData();
+         int dbMajor = metaData.getDatabaseMajorVersion();
+         int dbMinor = metaData.getDatabaseMinorVersion();
+         if (log.isTraceEnabled()) {
+            log.tracef("Database version is %d.%d, required %d.%d", dbMajor, dbMinor, major, minor);
+         }
+         return dbMajor > major || (dbMajor == major && dbMinor >= minor);
+      } catch (Exception e) {
+         log.debug("Unable to read the database version from JDBC metadata.", e);
+         return false;
+      } finally {
+         if (conn != null) connectionFactory.releaseConnection(conn);
+      }
+   }
+
    private DatabaseType guessDatabaseType(String name) {
       DatabaseType type = null;
       if (name != null) {
@@ -28,6 +28,8 @@
 import org.infinispan.loaders.CacheLoaderConfig;
 import org.infinispan.loaders.CacheLoaderException;
 import org.infinispan.loaders.CacheLoaderMetadata;
+import org.infinispan.loaders.EntryVisitor;
+import org.infinispan.loaders.KeyFilter;
 import org.infinispan.loaders.bucket.Bucket;
 import org.infinispan.loaders.bucket.BucketBasedCacheStore;
 import org.infinispan.loaders.jdbc.DataManipulationHelper;
@@ -145,6 +147,23 @@ public void loadAllKeysProcess(ResultSet rs, Set<Object> keys, Set<Object> keysT
             }
          }
 
+         @Override
+         public boolean visitEntriesProcess(ResultSet rs, KeyFilter filter, boolean fetchValues, EntryVisitor visitor) throws SQLException, CacheLoaderException {
+            // both the keys and the rows queries return the bucket in the first column
+            InputStream binaryStream = rs.getBinaryStream(1);
+            Bucket bucket = (Bucket) JdbcUtil.unmarshall(getMarshaller(), binaryStream);
+            long currentTimeMillis = System.currentTimeMillis();
+            for (InternalCacheEntry ice: bucket.getStoredEntries()) {
+               if (ice.isExpired(currentTimeMillis) || (filter != null && !filter.accept(ice.getKey()))) {
+                  continue;
+               }
+               if (!visitor.visit(ice.getKey(), fetchValues ? ice : null)) {
+                  return false;
+               }
+            }
+            return true;
+         }
+
          @Override
          public void toStreamProcess(ResultSet rs, InputStream is, ObjectOutput objectOutput) throws CacheLoaderException, SQLException, IOException {
             Bucket bucket = (Bucket) JdbcUtil.unmarshall(getMarshaller(), is);
@@ -312,6 +331,11 @@ protected Set<InternalCacheEntry> loadLockSafe(int maxEntries) throws CacheLoade
       return dmHelper.loadSome(maxEntries);
    }
 
+   @Override
+   protected boolean visitEntriesLockSafe(KeyFilter filter, boolean fetchValues, EntryVisitor visitor) throws CacheLoaderException {
+      return dmHelper.visitEntriesSupport(filter, fetchValues, false, visitor);
+   }
+
    @Override
    protected void loopOverBuckets(BucketHandler handler) throws CacheLoaderException {
       // this is a no-op.
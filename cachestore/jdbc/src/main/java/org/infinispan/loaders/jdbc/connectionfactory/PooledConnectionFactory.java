@@ -51,6 +51,12 @@ public class PooledConnectionFactory extends ConnectionFactory {
    private static final Log log = LogFactory.getLog(PooledConnectionFactory.class, Log.class);
    private ComboPooledDataSource pooledDataSource;
 
+   /**
+    * Number of prepared statements c3p0 caches for each pooled connection, unless statement caching is configured
+    * through c3p0.properties or c3p0-config.xml. The stores only issue a handful of distinct statements per table.
+    */
+   static final int DEFAULT_MAX_STATEMENTS_PER_CONNECTION = 16;
+
    @Override
    public void start(ConnectionFactoryConfig config, ClassLoader classLoader) throws CacheLoaderException {
       logFileOverride(classLoader);
@@ -70,6 +76,9 @@ public void start(ConnectionFactoryConfig config, ClassLoader classLoader) throw
       pooledDataSource.setJdbcUrl(config.getConnectionUrl());
       pooledDataSource.setUser(config.getUserName());
       pooledDataSource.setPassword(config.getPassword());
+      if (pooledDataSource.getMaxStatements() == 0 && pooledDataSource.getMaxStatementsPerConnection() == 0) {
+         pooledDataSource.setMaxStatementsPerConnection(DEFAULT_MAX_STATEMENTS_PER_CONNECTION);
+      }
       if (log.isTraceEnabled()) {
          log.tracef("Started connection factory with config: %s", config);
       }
@@ -29,6 +29,8 @@
 import org.infinispan.loaders.CacheLoaderException;
 import org.infinispan.loaders.CacheLoaderMetadata;
 import org.infinispan.loaders.CacheStore;
+import org.infinispan.loaders.EntryVisitor;
+import org.infinispan.loaders.KeyFilter;
 import org.infinispan.loaders.jdbc.binary.JdbcBinaryCacheStore;
 import org.infinispan.loaders.jdbc.connectionfactory.ConnectionFactory;
 import org.infinispan.loaders.jdbc.connectionfactory.ConnectionFactoryConfig;
@@ -39,6 +41,10 @@
 
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -168,11 +174,50 @@ public Set<Object> loadAllKeys(Set<Object> keysToExclude) throws CacheLoaderExce
       return fromBuckets;
    }
 
+   /**
+    * {@inheritDoc} A key is only ever held by one of the two stores, so this simply visits one after the other.
+    */
+   @Override
+   public boolean visitEntries(KeyFilter filter, boolean fetchValues, EntryVisitor visitor) throws CacheLoaderException {
+      return stringBasedCacheStore.visitEntries(filter, fetchValues, visitor)
+            && binaryCacheStore.visitEntries(filter, fetchValues, visitor);
+   }
+
    @Override
    public void store(InternalCacheEntry ed) throws CacheLoaderException {
       getCacheStore(ed.getKey()).store(ed);
    }
 
+   @Override
+   public void storeAll(Collection<InternalCacheEntry> entries) throws CacheLoaderException {
+      List<InternalCacheEntry> strings = new ArrayList<InternalCacheEntry>(entries.size());
+      List<InternalCacheEntry> binaries = new ArrayList<InternalCacheEntry>();
+      for (InternalCacheEntry ed : entries) {
+         if (getCacheStore(ed.getKey()) == stringBasedCacheStore) {
+            strings.add(ed);
+         } else {
+            binaries.add(ed);
+         }
+      }
+      stringBasedCacheStore.storeAll(strings);
+      binaryCacheStore.storeAll(binaries);
+   }
+
+   @Override
+   public void removeAll(Set<Object> keys) throws CacheLoaderException {
+      Set<Object> strings = new HashSet<Object>(keys.size());
+      Set<Object> binaries = new HashSet<Object>();
+      for (Object key : keys) {
+         if (getCacheStore(key) == stringBasedCacheStore) {
+            strings.add(key);
+         } else {
+            binaries.add(key);
+         }
+      }
+      stringBasedCacheStore.removeAll(strings);
+      binaryCacheStore.removeAll(binaries);
+   }
+
    @Override
    public void fromStream(ObjectInput inputStream) throws CacheLoaderException {
       binaryCacheStore.fromStream(inputStream);
@@ -29,6 +29,8 @@
 import org.infinispan.loaders.CacheLoaderConfig;
 import org.infinispan.loaders.CacheLoaderException;
 import org.infinispan.loaders.CacheLoaderMetadata;
+import org.infinispan.loaders.EntryVisitor;
+import org.infinispan.loaders.KeyFilter;
 import org.infinispan.loaders.LockSupportCacheStore;
 import org.infinispan.loaders.jdbc.DataManipulationHelper;
 import org.infinispan.loaders.jdbc.JdbcUtil;
@@ -38,6 +40,9 @@
 import org.infinispan.loaders.keymappers.Key2StringMapper;
 import org.infinispan.loaders.keymappers.TwoWayKey2StringMapper;
 import org.infinispan.loaders.keymappers.UnsupportedKeyTypeException;
+import org.infinispan.loaders.modifications.Modification;
+import org.infinispan.loaders.modifications.Remove;
+import org.infinispan.loaders.modifications.Store;
 import org.infinispan.marshall.StreamingMarshaller;
 import org.infinispan.util.logging.LogFactory;
 
@@ -49,6 +54,11 @@
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -160,6 +170,22 @@ public void loadAllKeysProcess(ResultSet rs, Set<Object> keys, Set<Object> keysT
             }
          }
 
+         @Override
+         public boolean visitEntriesProcess(ResultSet rs, KeyFilter filter, boolean fetchValues, EntryVisitor visitor) throws SQLException, CacheLoaderException {
+            // the key is the only column of the keys query, and the second one of the rows query
+            String keyStr = rs.getString(fetchValues ? 2 : 1);
+            Object key = ((TwoWayKey2StringMapper) key2StringMapper).getKeyMapping(keyStr);
+            if (filter != null && !filter.accept(key)) {
+               return true;
+            }
+            InternalCacheEntry entry = null;
+            if (fetchValues) {
+               InternalCacheValue icv = (InternalCacheValue) JdbcUtil.unmarshall(getMarshaller(), rs.getBinaryStream(1));
+               entry = icv.toInternalCacheEntry(key);
+            }
+            return visitor.visit(key, entry);
+         }
+
          @Override
          public void toStreamProcess(ResultSet rs, InputStream is, ObjectOutput objectOutput) throws CacheLoaderException, SQLException, IOException {
             InternalCacheValue icv = (InternalCacheValue) JdbcUtil.unmarshall(getMarshaller(), is);
@@ -220,9 +246,10 @@ protected String getLockFromKey(Object key) throws CacheLoaderException {
 
    @Override
    public void storeLockSafe(InternalCacheEntry ed, String lockingKey) throws CacheLoaderException {
-      InternalCacheEntry existingOne = readStoredEntry(ed, lockingKey);
       String sql;
-      if (existingOne == null) {
+      if (tableManipulation.isUpsertSupported()) {
+         sql = tableManipulation.getUpsertRowSql();
+      } else if (readStoredEntry(ed, lockingKey) == null) {
          sql = tableManipulation.getInsertRowSql();
       } else {
          sql = tableManipulation.getUpdateRowSql();
@@ -279,6 +306,174 @@ public boolean removeLockSafe(Object key, String keyStr) throws CacheLoaderExcep
       }
    }
 
+   /**
+    * Writes all the entries over a single connection and within a single database transaction. When the database
+    * supports upserts the rows are sent as JDBC batches of {@link TableManipulation#getBatchSize()} statements;
+    * otherwise each row is updated in place and only inserted when no row was updated.
+    */
+   @Override
+   protected void storeAllLockSafe(List<InternalCacheEntry> entries, List<String> lockingKeys) throws CacheLoaderException {
+      Connection connection = null;
+      PreparedStatement ps = null;
+      PreparedStatement insertPs = null;
+      boolean autoCommit = true;
+      String lockingKey = null;
+      ByteBuffer byteBuffer = null;
+      try {
+         connection = connectionFactory.getConnection();
+         autoCommit = connection.getAutoCommit();
+         connection.setAutoCommit(false);
+         boolean upsert = tableManipulation.isUpsertSupported();
+         int batchSize = tableManipulation.getBatchSize();
+         ps = connection.prepareStatement(upsert ? tableManipulation.getUpsertRowSql() : tableManipulation.getUpdateRowSql());
+         for (int i = 0; i < entries.size(); i++) {
+            InternalCacheEntry ed = entries.get(i);
+            lockingKey = lockingKeys.get(i);
+            byteBuffer = JdbcUtil.marshall(getMarshaller(), ed.toInternalCacheValue());
+            if (log.isTraceEnabled()) {
+               log.tracef("Storing %s in bulk. Key string is '%s', value size is %d bytes", ed, lockingKey, byteBuffer.getLength());
+            }
+            ps.setBinaryStream(1, byteBuffer.getStream(), byteBuffer.getLength());
+            ps.setLong(2, ed.getExpiryTime());
+            ps.setString(3, lockingKey);
+            if (upsert) {
+               ps.addBatch();
+               if ((i + 1) % batchSize == 0) {
+                  ps.executeBatch();
+               }
+            } else if (ps.executeUpdate() == 0) {
+               if (insertPs == null) {
+                  insertPs = connection.prepareStatement(tableManipulation.getInsertRowSql());
+               }
+               insertPs.setBinaryStream(1, byteBuffer.getStream(), byteBuffer.getLength());
+               insertPs.setLong(2, ed.getExpiryTime());
+               insertPs.setString(3, lockingKey);
+               insertPs.executeUpdate();
+            }
+         }
+         if (upsert && entries.size() % batchSize != 0) {
+            ps.executeBatch();
+         }
+         connection.commit();
+      } catch (SQLException ex) {
+         rollback(connection);
+         int bufferSize = byteBuffer == null ? 0 : byteBuffer.getLength();
+         log.sqlFailureStoringKey(lockingKey, bufferSize, ex);
+         throw new CacheLoaderException(String.format(
+               "Error while storing string keys to database; key: '%s', buffer size of value: %d bytes",
+               lockingKey, bufferSize), ex);
+      } catch (InterruptedException e) {
+         rollback(connection);
+         if (log.isTraceEnabled()) {
+            log.trace("Interrupted while marshalling to store");
+         }
+         Thread.currentThread().interrupt();
+      } finally {
+         JdbcUtil.safeClose(ps);
+         JdbcUtil.safeClose(insertPs);
+         restoreAutoCommit(connection, autoCommit);
+         connectionFactory.releaseConnection(connection);
+      }
+   }
+
+   /**
+    * Removes all the keys over a single connection and within a single database transaction, sending the deletes as
+    * JDBC batches of {@link TableManipulation#getBatchSize()} statements.
+    */
+   @Override
+   protected void removeAllLockSafe(List<Object> keys, List<String> lockingKeys) throws CacheLoaderException {
+      Connection connection = null;
+      PreparedStatement ps = null;
+      boolean autoCommit = true;
+      try {
+         String sql = tableManipulation.getDeleteRowSql();
+         if (log.isTraceEnabled()) {
+            log.tracef("Running sql '%s' on %s keys", sql, lockingKeys.size());
+         }
+         connection = connectionFactory.getConnection();
+         autoCommit = connection.getAutoCommit();
+         connection.setAutoCommit(false);
+         ps = connection.prepareStatement(sql);
+         int batchSize = tableManipulation.getBatchSize();
+         int count = 0;
+         for (String keyStr : lockingKeys) {
+            ps.setString(1, keyStr);
+            ps.addBatch();
+            if (++count % batchSize == 0) {
+               ps.executeBatch();
+            }
+         }
+         if (count % batchSize != 0) {
+            ps.executeBatch();
+         }
+         connection.commit();
+      } catch (SQLException ex) {
+         rollback(connection);
+         log.sqlFailureRemovingKeys(ex);
+         throw new CacheLoaderException("Error while removing string keys from database", ex);
+      } finally {
+         JdbcUtil.safeClose(ps);
+         restoreAutoCommit(connection, autoCommit);
+         connectionFactory.releaseConnection(connection);
+      }
+   }
+
+   /**
+    * Coalesces the modifications of a transaction so only the last one for each key is written, and writes them
+    * through {@link #storeAll(java.util.Collection)} and {@link #removeAll(java.util.Set)} instead of one statement per
+    * modification.
+    */
+   @Override
+   protected void applyModifications(List<? extends Modification> mods) throws CacheLoaderException {
+      Map<Object, Modification> pending = new LinkedHashMap<Object, Modification>();
+      for (Modification m : mods) {
+         switch (m.getType()) {
+            case STORE:
+               pending.put(((Store) m).getStoredEntry().getKey(), m);
+               break;
+            case REMOVE:
+               pending.put(((Remove) m).getKey(), m);
+               break;
+            case CLEAR:
+               // anything written before the clear would be wiped anyway
+               pending.clear();
+               clear();
+               break;
+            default:
+               throw new IllegalArgumentException("Unknown modification type " + m.getType());
+         }
+      }
+      List<InternalCacheEntry> toStore = new ArrayList<InternalCacheEntry>(pending.size());
+      Set<Object> toRemove = new HashSet<Object>();
+      for (Map.Entry<Object, Modification> e : pending.entrySet()) {
+         if (e.getValue().getType() == Modification.Type.STORE) {
+            toStore.add(((Store) e.getValue()).getStoredEntry());
+         } else {
+            toRemove.add(e.getKey());
+         }
+      }
+      storeAll(toStore);
+      removeAll(toRemove);
+   }
+
+   private void rollback(Connection connection) {
+      if (connection == null) return;
+      try {
+         connection.rollback();
+      } catch (SQLException e) {
+         log.sqlFailureUnexpected(e);
+      }
+   }
+
+   private void restoreAutoCommit(Connection connection, boolean autoCommit) {
+      if (connection == null) return;
+      try {
+         connection.setAutoCommit(autoCommit);
+      } catch (SQLException e) {
+         log.sqlFailureUnexpected(e);
+      }
+   }
+
    @Override
    public void fromStreamLockSafe(ObjectInput objectInput) throws CacheLoaderException {
       dmHelper.fromStreamSupport(objectInput);
@@ -309,6 +504,11 @@ protected Set<Object> loadAllKeysLockSafe(Set<Object> keysToExclude) throws Cach
       return dmHelper.loadAllKeysSupport(keysToExclude);
    }
 
+   @Override
+   protected boolean visitEntriesLockSafe(KeyFilter filter, boolean fetchValues, EntryVisitor visitor) throws CacheLoaderException {
+      return dmHelper.visitEntriesSupport(filter, fetchValues, true, visitor);
+   }
+
    @Override
    public void purgeInternal() throws CacheLoaderException {
       Connection conn = null;
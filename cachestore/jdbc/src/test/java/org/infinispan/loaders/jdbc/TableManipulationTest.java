@@ -26,6 +26,7 @@
 import static org.mockito.Mockito.when;
 
 import java.sql.Connection;
+import java.sql.DatabaseMetaData;
 import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -33,6 +34,7 @@
 import java.sql.Statement;
 
 import org.infinispan.loaders.CacheLoaderException;
+import org.infinispan.loaders.jdbc.connectionfactory.ConnectionFactory;
 import org.infinispan.loaders.jdbc.connectionfactory.ConnectionFactoryConfig;
 import org.infinispan.test.fwk.UnitTestDatabaseManager;
 import org.testng.annotations.AfterTest;
@@ -165,6 +167,55 @@ public void testTableQuoting() throws Exception {
       assert existsTable(connection, tableManipulation.getTableName());
    }
 
+   public void testUpsertRow() throws Exception {
+      TableManipulation other = tableManipulation.clone();
+      other.setCacheName("upsert");
+      assert other.isUpsertSupported();
+      other.createTable(connection);
+      PreparedStatement ps = null;
+      ResultSet rs = null;
+      try {
+         ps = connection.prepareStatement(other.getUpsertRowSql());
+         for (long timestamp = 1; timestamp <= 2; timestamp++) {
+            ps.setBytes(1, new byte[]{(byte) timestamp});
+            ps.setLong(2, timestamp);
+            ps.setString(3, "key");
+            ps.executeUpdate();
+         }
+         JdbcUtil.safeClose(ps);
+         ps = connection.prepareStatement("SELECT " + other.getTimestampColumnName() + " FROM " + other.getTableName());
+         rs = ps.executeQuery();
+         assert rs.next();
+         assert 2 == rs.getLong(1);
+         assert !rs.next() : "upsert should not have inserted a second row";
+      } finally {
+         JdbcUtil.safeClose(rs);
+         JdbcUtil.safeClose(ps);
+         other.dropTable(connection);
+      }
+   }
+
+   public void testPostgresUpsertNeedsVersion95() throws Exception {
+      assert !postgresTableManipulation(9, 4).isUpsertSupported();
+      assert postgresTableManipulation(9, 5).isUpsertSupported();
+      assert postgresTableManipulation(10, 0).isUpsertSupported();
+   }
+
+   private TableManipulation postgresTableManipulation(int majorVersion, int minorVersion) throws Exception {
+      DatabaseMetaData mockMetaData = mock(DatabaseMetaData.class);
+      when(mockMetaData.getDatabaseMajorVersion()).thenReturn(majorVersion);
+      when(mockMetaData.getDatabaseMinorVersion()).thenReturn(minorVersion);
+      Connection mockConnection = mock(Connection.class);
+      when(mockConnection.getMetaData()).thenReturn(mockMetaData);
+      ConnectionFactory mockFactory = mock(ConnectionFactory.class);
+      when(mockFactory.getConnection()).thenReturn(mockConnection);
+      TableManipulation other = tableManipulation.clone();
+      other.databaseType = DatabaseType.POSTGRES;
+      other.setCreateTableOnStart(false);
+      other.start(mockFactory);
+      return other;
+   }
+
    static boolean existsTable(Connection connection, String tableName) throws Exception {
       Statement st = connection.createStatement();
       ResultSet rs = null;
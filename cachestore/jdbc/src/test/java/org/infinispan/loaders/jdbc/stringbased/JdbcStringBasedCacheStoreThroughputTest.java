@@ -0,0 +1,116 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.loaders.jdbc.stringbased;
+
+import org.infinispan.CacheImpl;
+import org.infinispan.container.entries.InternalCacheEntry;
+import org.infinispan.loaders.jdbc.DatabaseType;
+import org.infinispan.loaders.jdbc.TableManipulation;
+import org.infinispan.loaders.modifications.Modification;
+import org.infinispan.loaders.modifications.Store;
+import org.infinispan.marshall.TestObjectStreamMarshaller;
+import org.infinispan.test.AbstractInfinispanTest;
+import org.infinispan.test.fwk.TestInternalCacheEntryFactory;
+import org.infinispan.test.fwk.UnitTestDatabaseManager;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures the write throughput of {@link JdbcStringBasedCacheStore} against an in-memory H2 database, comparing
+ * single entry stores with and without upsert support against bulk stores and one phase transactions that are sent
+ * to the database as JDBC batches.
+ *
+ * @since 5.2
+ */
+@Test(groups = "profiling", testName = "loaders.jdbc.stringbased.JdbcStringBasedCacheStoreThroughputTest")
+public class JdbcStringBasedCacheStoreThroughputTest extends AbstractInfinispanTest {
+
+   private static final int NUM_KEYS = 10000;
+   private static final int VALUE_SIZE = 512;
+   private static final int ROUNDS = 3;
+   private static final int BATCH = 100;
+
+   private enum Mode {
+      STORE, STORE_ALL, ONE_PHASE_TX
+   }
+
+   @Test(enabled = false, description = "Disabled by default, designed to be run manually.")
+   public void testWriteThroughput() throws Exception {
+      // the DERBY dialect makes the store fall back to select + insert/update, which H2 understands as well
+      benchmark("store (select + insert/update)", DatabaseType.DERBY, Mode.STORE);
+      benchmark("store (upsert)", DatabaseType.H2, Mode.STORE);
+      benchmark("storeAll (batched upsert)", DatabaseType.H2, Mode.STORE_ALL);
+      benchmark("1PC prepare (batched upsert)", DatabaseType.H2, Mode.ONE_PHASE_TX);
+   }
+
+   private void benchmark(String name, DatabaseType databaseType, Mode mode) throws Exception {
+      TableManipulation tm = UnitTestDatabaseManager.buildStringTableManipulation();
+      tm.databaseType = databaseType;
+      tm.setBatchSize(BATCH);
+      JdbcStringBasedCacheStoreConfig config = new JdbcStringBasedCacheStoreConfig(
+            UnitTestDatabaseManager.getUniqueConnectionFactoryConfig(), tm);
+      config.setDropTableOnExit(true);
+      JdbcStringBasedCacheStore store = new JdbcStringBasedCacheStore();
+      store.init(config, new CacheImpl("throughput"), new TestObjectStreamMarshaller(false));
+      store.start();
+      try {
+         byte[] value = new byte[VALUE_SIZE];
+         // first round inserts, the following ones overwrite; the first is also the warm up
+         for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            write(store, mode, value);
+            long duration = System.nanoTime() - start;
+            if (round > 0) {
+               System.out.printf("%-32s round %d: %9.0f writes/s%n", name, round,
+                                 NUM_KEYS / (duration / 1000000000.0));
+            }
+         }
+      } finally {
+         store.stop();
+      }
+   }
+
+   private void write(JdbcStringBasedCacheStore store, Mode mode, byte[] value) throws Exception {
+      List<InternalCacheEntry> entries = new ArrayList<InternalCacheEntry>(BATCH);
+      for (int i = 0; i < NUM_KEYS; i++) {
+         InternalCacheEntry entry = TestInternalCacheEntryFactory.create("key" + i, value);
+         if (mode == Mode.STORE) {
+            store.store(entry);
+            continue;
+         }
+         entries.add(entry);
+         if (entries.size() == BATCH || i == NUM_KEYS - 1) {
+            if (mode == Mode.STORE_ALL) {
+               store.storeAll(entries);
+            } else {
+               List<Modification> mods = new ArrayList<Modification>(entries.size());
+               for (InternalCacheEntry e : entries) mods.add(new Store(e));
+               store.prepare(mods, null, true);
+            }
+            entries.clear();
+         }
+      }
+   }
+}
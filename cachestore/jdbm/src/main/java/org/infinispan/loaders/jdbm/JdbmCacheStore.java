@@ -39,6 +39,8 @@
 import org.infinispan.loaders.CacheLoaderConfig;
 import org.infinispan.loaders.CacheLoaderException;
 import org.infinispan.loaders.CacheLoaderMetadata;
+import org.infinispan.loaders.EntryVisitor;
+import org.infinispan.loaders.KeyFilter;
 import org.infinispan.loaders.modifications.Modification;
 import org.infinispan.loaders.modifications.Remove;
 import org.infinispan.loaders.modifications.Store;
@@ -191,6 +193,33 @@ public Set<Object> loadAllKeys(Set<Object> keysToExclude) throws CacheLoaderExce
       }
    }
 
+   /**
+    * {@inheritDoc} This implementation walks the keys of the tree and only reads and unmarshalls the values of the
+    * accepted keys.  Expired entries are skipped, and left for {@link #purgeInternal()} to remove.
+    */
+   @Override
+   public boolean visitEntries(KeyFilter filter, boolean fetchValues, EntryVisitor visitor) throws CacheLoaderException {
+      try {
+         FastIterator fi = tree.keys();
+         long currentTimeMillis = System.currentTimeMillis();
+         Object key;
+         while ((key = fi.next()) != null) {
+            if (filter != null && !filter.accept(key)) continue;
+            InternalCacheEntry ice = null;
+            if (fetchValues) {
+               ice = unmarshall(tree.get(key), key);
+               if (ice == null || ice.isExpired(currentTimeMillis)) continue;
+            }
+            if (!visitor.visit(key, ice)) return false;
+         }
+         return true;
+      } catch (IOException e) {
+         throw new CacheLoaderException(e);
+      } catch (ClassNotFoundException e) {
+         throw new CacheException(e);
+      }
+   }
+
    /**
     * Opens all databases and initializes database related information.
     */
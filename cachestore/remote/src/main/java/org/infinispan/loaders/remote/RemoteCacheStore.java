@@ -33,6 +33,8 @@
 import org.infinispan.loaders.CacheLoaderConfig;
 import org.infinispan.loaders.CacheLoaderException;
 import org.infinispan.loaders.CacheLoaderMetadata;
+import org.infinispan.loaders.EntryVisitor;
+import org.infinispan.loaders.KeyFilter;
 import org.infinispan.loaders.remote.logging.Log;
 import org.infinispan.marshall.StreamingMarshaller;
 import org.infinispan.util.logging.LogFactory;
@@ -149,6 +151,20 @@ public Set<Object> loadAllKeys(Set<Object> keysToExclude) throws CacheLoaderExce
       throw new CacheLoaderException("RemoteCacheStore can only run in shared mode! This method shouldn't be called in shared mode");
    }
 
+   /**
+    * {@inheritDoc} Hot Rod cannot list the keys on their own, so this fetches all the entries in bulk, as
+    * {@link #loadAll()} does, and filters them locally.
+    */
+   @Override
+   public boolean visitEntries(KeyFilter filter, boolean fetchValues, EntryVisitor visitor) throws CacheLoaderException {
+      Map<Object, Object> map = remoteCache.getBulk();
+      for (Map.Entry<Object, Object> e : map.entrySet()) {
+         if (filter != null && !filter.accept(e.getKey())) continue;
+         if (!visitor.visit(e.getKey(), fetchValues ? (InternalCacheEntry) e.getValue() : null)) return false;
+      }
+      return true;
+   }
+
    @Override
    public void init(CacheLoaderConfig config, Cache<?, ?> cache, StreamingMarshaller m) throws CacheLoaderException {
       super.init(config, cache, m);
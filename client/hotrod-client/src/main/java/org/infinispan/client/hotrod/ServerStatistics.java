@@ -80,6 +80,22 @@ public interface ServerStatistics {
     */
    String REMOVE_MISSES = "removeMisses";
 
+   /**
+    * Number of reads served by the client side near cache. Only present if near caching is enabled.
+    */
+   String NEAR_CACHE_HITS = "nearCacheHits";
+
+   /**
+    * Number of reads that had to go to the server because the key was not near cached, or needed revalidating. Only
+    * present if near caching is enabled.
+    */
+   String NEAR_CACHE_MISSES = "nearCacheMisses";
+
+   /**
+    * Number of entries in the client side near cache. Only present if near caching is enabled.
+    */
+   String NEAR_CACHE_SIZE = "nearCacheSize";
+
    Map<String, String> getStatsMap();
 
    String getStatistic(String statsName);
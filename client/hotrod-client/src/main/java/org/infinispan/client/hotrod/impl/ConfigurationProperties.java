@@ -57,6 +57,9 @@ public class ConfigurationProperties {
    public static final String SO_TIMEOUT = "infinispan.client.hotrod.socket_timeout";
    public static final String CONNECT_TIMEOUT = "infinispan.client.hotrod.connect_timeout";
    public static final String PROTOCOL_VERSION = "infinispan.client.hotrod.protocol_version";
+   public static final String NIO_CONNECTIONS_PER_SERVER = "infinispan.client.hotrod.nio.connections_per_server";
+   public static final String NEAR_CACHE_MAX_ENTRIES = "infinispan.client.hotrod.near_cache.max_entries";
+   public static final String NEAR_CACHE_VALIDATION_INTERVAL = "infinispan.client.hotrod.near_cache.validation_interval";
 
    // defaults
 
@@ -65,9 +68,12 @@ public class ConfigurationProperties {
    private static final int DEFAULT_HOTROD_PORT = 11222;
    private static final int DEFAULT_SO_TIMEOUT = 60000;
    private static final int DEFAULT_CONNECT_TIMEOUT = 60000;
+   private static final int DEFAULT_NIO_CONNECTIONS_PER_SERVER = 2;
+   private static final long DEFAULT_NEAR_CACHE_VALIDATION_INTERVAL = 1000;
+   public static final String PROTOCOL_VERSION_12 = "1.2";
    public static final String PROTOCOL_VERSION_11 = "1.1";
    public static final String PROTOCOL_VERSION_10 = "1.0";
-   private static final String DEFAULT_PROTOCOL_VERSION = PROTOCOL_VERSION_11;
+   private static final String DEFAULT_PROTOCOL_VERSION = PROTOCOL_VERSION_12;
 
    private final TypedProperties props;
 
@@ -161,4 +167,22 @@ public int getConnectTimeout() {
       return props.getIntProperty(CONNECT_TIMEOUT, DEFAULT_CONNECT_TIMEOUT);
    }
 
+   public int getNioConnectionsPerServer() {
+      return props.getIntProperty(NIO_CONNECTIONS_PER_SERVER, DEFAULT_NIO_CONNECTIONS_PER_SERVER);
+   }
+
+   /**
+    * Maximum number of entries kept in the near cache of each remote cache; 0, the default, disables near caching.
+    */
+   public int getNearCacheMaxEntries() {
+      return props.getIntProperty(NEAR_CACHE_MAX_ENTRIES, 0);
+   }
+
+   /**
+    * Milliseconds a near cached entry is served before being revalidated against the server.
+    */
+   public long getNearCacheValidationInterval() {
+      return props.getLongProperty(NEAR_CACHE_VALIDATION_INTERVAL, DEFAULT_NEAR_CACHE_VALIDATION_INTERVAL);
+   }
+
 }
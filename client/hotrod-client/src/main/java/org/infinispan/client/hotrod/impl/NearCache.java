@@ -0,0 +1,158 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.client.hotrod.impl;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.jcip.annotations.ThreadSafe;
+
+import org.infinispan.util.ByteArrayKey;
+import org.infinispan.util.concurrent.BoundedConcurrentHashMap;
+import org.infinispan.util.concurrent.BoundedConcurrentHashMap.Eviction;
+
+/**
+ * Bounded, LRU evicted, client side copy of the most recently read entries of a remote cache, keyed by the marshalled
+ * key bytes.
+ * <p/>
+ * Writes issued through the owning {@link RemoteCacheImpl} invalidate the corresponding entry straight away. Writes
+ * issued by other clients are detected through the entry versions: once an entry has been served for longer than the
+ * validation interval it's considered stale, and the next read revalidates it with a versioned get, reusing the
+ * unmarshalled value if the version has not changed. The validation interval is therefore the upper bound on how
+ * stale a near cached value can be.
+ *
+ * @since 5.2
+ */
+@ThreadSafe
+public class NearCache<V> {
+
+   private static final int CONCURRENCY_LEVEL = 32;
+
+   private final ConcurrentMap<ByteArrayKey, Entry<V>> entries;
+   private final long validationIntervalNanos;
+   /**
+    * Bumped by every invalidation, so that a read racing with a local write doesn't store the value it fetched before
+    * the write completed.
+    */
+   private final AtomicLong invalidationSequence = new AtomicLong();
+   private final AtomicLong hits = new AtomicLong();
+   private final AtomicLong misses = new AtomicLong();
+
+   public NearCache(int maxEntries, long validationIntervalMillis) {
+      this.entries = new BoundedConcurrentHashMap<ByteArrayKey, Entry<V>>(maxEntries, CONCURRENCY_LEVEL, Eviction.LRU);
+      this.validationIntervalNanos = MILLISECONDS.toNanos(validationIntervalMillis);
+   }
+
+   /**
+    * Returns the near cached value if it doesn't need revalidating, <code>null</code> otherwise.
+    */
+   public V getIfValid(byte[] key) {
+      Entry<V> entry = entries.get(new ByteArrayKey(key));
+      if (entry != null && entry.isValid(System.nanoTime())) {
+         hits.incrementAndGet();
+         return entry.value;
+      }
+      misses.incrementAndGet();
+      return null;
+   }
+
+   /**
+    * Returns the near cached entry, whether it needs revalidating or not.
+    */
+   public Entry<V> getEntry(byte[] key) {
+      return entries.get(new ByteArrayKey(key));
+   }
+
+   /**
+    * Returns the current invalidation sequence, to be passed to {@link #put(byte[], long, Object, long)} once the
+    * value has been read from the server.
+    */
+   public long getInvalidationSequence() {
+      return invalidationSequence.get();
+   }
+
+   /**
+    * Stores a value read from the server, unless an invalidation happened since <code>sequence</code> was obtained.
+    */
+   public void put(byte[] key, long version, V value, long sequence) {
+      ByteArrayKey cacheKey = new ByteArrayKey(key);
+      entries.put(cacheKey, new Entry<V>(version, value, System.nanoTime() + validationIntervalNanos));
+      if (invalidationSequence.get() != sequence)
+         entries.remove(cacheKey);
+   }
+
+   /**
+    * Discards a value known not to exist on the server anymore.
+    */
+   public void remove(byte[] key) {
+      entries.remove(new ByteArrayKey(key));
+   }
+
+   public void invalidate(byte[] key) {
+      invalidationSequence.incrementAndGet();
+      entries.remove(new ByteArrayKey(key));
+   }
+
+   public void clear() {
+      invalidationSequence.incrementAndGet();
+      entries.clear();
+   }
+
+   public int size() {
+      return entries.size();
+   }
+
+   public long getHits() {
+      return hits.get();
+   }
+
+   public long getMisses() {
+      return misses.get();
+   }
+
+   public static final class Entry<V> {
+      private final long version;
+      private final V value;
+      private final long validUntil;
+
+      Entry(long version, V value, long validUntil) {
+         this.version = version;
+         this.value = value;
+         this.validUntil = validUntil;
+      }
+
+      public long getVersion() {
+         return version;
+      }
+
+      public V getValue() {
+         return value;
+      }
+
+      boolean isValid(long now) {
+         return now - validUntil < 0;
+      }
+   }
+}
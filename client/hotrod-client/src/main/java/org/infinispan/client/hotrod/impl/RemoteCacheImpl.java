@@ -25,12 +25,18 @@
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
 
 import org.infinispan.client.hotrod.Flag;
@@ -39,16 +45,20 @@
 import org.infinispan.client.hotrod.ServerStatistics;
 import org.infinispan.client.hotrod.Version;
 import org.infinispan.client.hotrod.VersionedValue;
+import org.infinispan.client.hotrod.exceptions.HotRodClientException;
 import org.infinispan.client.hotrod.exceptions.RemoteCacheManagerNotStartedException;
 import org.infinispan.client.hotrod.exceptions.TransportException;
 import org.infinispan.client.hotrod.impl.async.NotifyingFutureImpl;
+import org.infinispan.client.hotrod.impl.operations.AbstractKeyOperation;
 import org.infinispan.client.hotrod.impl.operations.BulkGetOperation;
 import org.infinispan.client.hotrod.impl.operations.ClearOperation;
 import org.infinispan.client.hotrod.impl.operations.ContainsKeyOperation;
 import org.infinispan.client.hotrod.impl.operations.GetOperation;
 import org.infinispan.client.hotrod.impl.operations.GetWithVersionOperation;
+import org.infinispan.client.hotrod.impl.operations.MultiGetOperation;
 import org.infinispan.client.hotrod.impl.operations.OperationsFactory;
 import org.infinispan.client.hotrod.impl.operations.PingOperation;
+import org.infinispan.client.hotrod.impl.operations.PutAllOperation;
 import org.infinispan.client.hotrod.impl.operations.PutIfAbsentOperation;
 import org.infinispan.client.hotrod.impl.operations.PutOperation;
 import org.infinispan.client.hotrod.impl.operations.RemoveIfUnmodifiedOperation;
@@ -56,6 +66,12 @@
 import org.infinispan.client.hotrod.impl.operations.ReplaceIfUnmodifiedOperation;
 import org.infinispan.client.hotrod.impl.operations.ReplaceOperation;
 import org.infinispan.client.hotrod.impl.operations.StatsOperation;
+import org.infinispan.client.hotrod.impl.protocol.HeaderParams;
+import org.infinispan.client.hotrod.impl.transport.Transport;
+import org.infinispan.client.hotrod.impl.transport.TransportFactory;
+import org.infinispan.client.hotrod.impl.transport.nio.NioTransportFactory;
+import org.infinispan.client.hotrod.impl.transport.nio.PipelinedRequest;
+import org.infinispan.client.hotrod.impl.transport.tcp.TcpTransportFactory;
 import org.infinispan.client.hotrod.logging.Log;
 import org.infinispan.client.hotrod.logging.LogFactory;
 import org.infinispan.marshall.Marshaller;
@@ -74,6 +90,9 @@
    private final RemoteCacheManager remoteCacheManager;
    private volatile ExecutorService executorService;
    private OperationsFactory operationsFactory;
+   private NioTransportFactory pipelinedTransportFactory;
+   private TcpTransportFactory tcpTransportFactory;
+   private NearCache<V> nearCache;
    private int estimateKeySize;
    private int estimateValueSize;
 
@@ -86,12 +105,17 @@ public RemoteCacheImpl(RemoteCacheManager rcm, String name) {
       this.remoteCacheManager = rcm;
    }
 
-   public void init(Marshaller marshaller, ExecutorService executorService, OperationsFactory operationsFactory, int estimateKeySize, int estimateValueSize) {
+   public void init(Marshaller marshaller, ExecutorService executorService, OperationsFactory operationsFactory, int estimateKeySize, int estimateValueSize,
+                    int nearCacheMaxEntries, long nearCacheValidationInterval) {
       this.marshaller = marshaller;
       this.executorService = executorService;
       this.operationsFactory = operationsFactory;
+      TransportFactory transportFactory = operationsFactory.getTransportFactory();
+      this.pipelinedTransportFactory = transportFactory instanceof NioTransportFactory ? (NioTransportFactory) transportFactory : null;
+      this.tcpTransportFactory = transportFactory instanceof TcpTransportFactory ? (TcpTransportFactory) transportFactory : null;
       this.estimateKeySize = estimateKeySize;
       this.estimateValueSize = estimateValueSize;
+      this.nearCache = nearCacheMaxEntries > 0 ? new NearCache<V>(nearCacheMaxEntries, nearCacheValidationInterval) : null;
    }
 
    @Override
@@ -103,13 +127,16 @@ public RemoteCacheManager getRemoteCacheManager() {
    public boolean removeWithVersion(K key, long version) {
       assertRemoteCacheManagerIsStarted();
       RemoveIfUnmodifiedOperation op = operationsFactory.newRemoveIfUnmodifiedOperation(obj2bytes(key, true), version);
-      VersionedOperationResponse response = (VersionedOperationResponse) op.execute();
+      VersionedOperationResponse response = executeWrite(op);
       return response.getCode().isUpdated();
    }
 
    @Override
    public NotifyingFuture<Boolean> removeWithVersionAsync(final K key, final long version) {
       assertRemoteCacheManagerIsStarted();
+      if (pipelinedTransportFactory != null) {
+         return executePipelinedVersioned(operationsFactory.newRemoveIfUnmodifiedOperation(obj2bytes(key, true), version));
+      }
       final NotifyingFutureImpl<Boolean> result = new NotifyingFutureImpl<Boolean>();
       Future<Boolean> future = executorService.submit(new Callable<Boolean>() {
          @Override
@@ -127,13 +154,17 @@ public Boolean call() throws Exception {
    public boolean replaceWithVersion(K key, V newValue, long version, int lifespanSeconds, int maxIdleTimeSeconds) {
       assertRemoteCacheManagerIsStarted();
       ReplaceIfUnmodifiedOperation op = operationsFactory.newReplaceIfUnmodifiedOperation(obj2bytes(key, true), obj2bytes(newValue, false), lifespanSeconds, maxIdleTimeSeconds, version);
-      VersionedOperationResponse response = (VersionedOperationResponse) op.execute();
+      VersionedOperationResponse response = executeWrite(op);
       return response.getCode().isUpdated();
    }
 
    @Override
    public NotifyingFuture<Boolean> replaceWithVersionAsync(final K key, final V newValue, final long version, final int lifespanSeconds, final int maxIdleSeconds) {
       assertRemoteCacheManagerIsStarted();
+      if (pipelinedTransportFactory != null) {
+         return executePipelinedVersioned(operationsFactory.newReplaceIfUnmodifiedOperation(
+               obj2bytes(key, true), obj2bytes(newValue, false), lifespanSeconds, maxIdleSeconds, version));
+      }
       final NotifyingFutureImpl<Boolean> result = new NotifyingFutureImpl<Boolean>();
       Future<Boolean> future = executorService.submit(new Callable<Boolean>() {
          @Override
@@ -150,16 +181,49 @@ public Boolean call() throws Exception {
    @Override
    public VersionedValue<V> getVersioned(K key) {
       assertRemoteCacheManagerIsStarted();
-      GetWithVersionOperation op = operationsFactory.newGetWithVersionOperation(obj2bytes(key, true));
+      byte[] keyBytes = obj2bytes(key, true);
+      GetWithVersionOperation op = operationsFactory.newGetWithVersionOperation(keyBytes);
+      long invalidationSequence = nearCache != null ? nearCache.getInvalidationSequence() : 0;
       BinaryVersionedValue value = (BinaryVersionedValue) op.execute();
-      return binary2VersionedValue(value);
+      VersionedValue<V> versionedValue = binary2VersionedValue(value);
+      if (nearCache != null) {
+         if (versionedValue == null)
+            nearCache.remove(keyBytes);
+         else
+            nearCache.put(keyBytes, versionedValue.getVersion(), versionedValue.getValue(), invalidationSequence);
+      }
+      return versionedValue;
    }
 
    @Override
    public void putAll(Map<? extends K, ? extends V> map, long lifespan, TimeUnit lifespanUnit, long maxIdleTime, TimeUnit maxIdleTimeUnit) {
       assertRemoteCacheManagerIsStarted();
+      if (!operationsFactory.isMultiKeySupported()) {
+         // servers speaking a protocol older than 1.2 only understand single key puts
+         for (Entry<? extends K, ? extends V> entry : map.entrySet()) {
+            put(entry.getKey(), entry.getValue(), lifespan, lifespanUnit, maxIdleTime, maxIdleTimeUnit);
+         }
+         return;
+      }
+      int lifespanSecs = toSeconds(lifespan, lifespanUnit);
+      int maxIdleSecs = toSeconds(maxIdleTime, maxIdleTimeUnit);
+      Map<byte[], byte[]> entries = new HashMap<byte[], byte[]>();
       for (Entry<? extends K, ? extends V> entry : map.entrySet()) {
-         put(entry.getKey(), entry.getValue(), lifespan, lifespanUnit, maxIdleTime, maxIdleTimeUnit);
+         entries.put(obj2bytes(entry.getKey(), true), obj2bytes(entry.getValue(), false));
+      }
+      if (log.isTraceEnabled()) {
+         log.tracef("About to add %d entries, lifespanSecs:%d, maxIdleSecs:%d", entries.size(), lifespanSecs, maxIdleSecs);
+      }
+      List<PutAllOperation> ops = operationsFactory.newPutAllOperations(
+            groupKeysByServer(entries.keySet()), entries, lifespanSecs, maxIdleSecs);
+      // Each server gets a single request holding all the entries it owns
+      for (PutAllOperation op : ops) {
+         invalidateNearCache(op.getKeys());
+         try {
+            op.execute();
+         } finally {
+            invalidateNearCache(op.getKeys());
+         }
       }
    }
 
@@ -203,6 +267,11 @@ public ServerStatistics stats() {
       for (Map.Entry<String, String> entry : statsMap.entrySet()) {
          stats.addStats(entry.getKey(), entry.getValue());
       }
+      if (nearCache != null) {
+         stats.addStats(ServerStatistics.NEAR_CACHE_HITS, String.valueOf(nearCache.getHits()));
+         stats.addStats(ServerStatistics.NEAR_CACHE_MISSES, String.valueOf(nearCache.getMisses()));
+         stats.addStats(ServerStatistics.NEAR_CACHE_SIZE, String.valueOf(nearCache.size()));
+      }
       return stats;
    }
 
@@ -216,7 +285,7 @@ public V put(K key, V value, long lifespan, TimeUnit lifespanUnit, long maxIdleT
          log.tracef("About to add (K,V): (%s, %s) lifespanSecs:%d, maxIdleSecs:%d", key, value, lifespanSecs, maxIdleSecs);
       }
       PutOperation op = operationsFactory.newPutKeyValueOperation(obj2bytes(key, true), obj2bytes(value, false), lifespanSecs, maxIdleSecs);
-      byte[] result = (byte[]) op.execute();
+      byte[] result = executeWrite(op);
       return (V) bytes2obj(result);
    }
 
@@ -228,7 +297,7 @@ public V putIfAbsent(K key, V value, long lifespan, TimeUnit lifespanUnit, long
       int lifespanSecs = toSeconds(lifespan, lifespanUnit);
       int maxIdleSecs = toSeconds(maxIdleTime, maxIdleTimeUnit);
       PutIfAbsentOperation op = operationsFactory.newPutIfAbsentOperation(obj2bytes(key, true), obj2bytes(value, false), lifespanSecs, maxIdleSecs);
-      byte[] bytes = (byte[]) op.execute();
+      byte[] bytes = executeWrite(op);
       return (V) bytes2obj(bytes);
    }
 
@@ -239,13 +308,17 @@ public V replace(K key, V value, long lifespan, TimeUnit lifespanUnit, long maxI
       int lifespanSecs = toSeconds(lifespan, lifespanUnit);
       int maxIdleSecs = toSeconds(maxIdleTime, maxIdleTimeUnit);
       ReplaceOperation op = operationsFactory.newReplaceOperation(obj2bytes(key, true), obj2bytes(value, false), lifespanSecs, maxIdleSecs);
-      byte[] bytes = (byte[]) op.execute();
+      byte[] bytes = executeWrite(op);
       return (V) bytes2obj(bytes);
    }
 
    @Override
    public NotifyingFuture<V> putAsync(final K key, final V value, final long lifespan, final TimeUnit lifespanUnit, final long maxIdle, final TimeUnit maxIdleUnit) {
       assertRemoteCacheManagerIsStarted();
+      if (pipelinedTransportFactory != null) {
+         return executePipelined(operationsFactory.newPutKeyValueOperation(obj2bytes(key, true), obj2bytes(value, false),
+               toSeconds(lifespan, lifespanUnit), toSeconds(maxIdle, maxIdleUnit)), true);
+      }
       final NotifyingFutureImpl<V> result = new NotifyingFutureImpl<V>();
       Future<V> future = executorService.submit(new Callable<V>() {
          @Override
@@ -278,6 +351,10 @@ public Void call() throws Exception {
    @Override
    public NotifyingFuture<V> putIfAbsentAsync(final K key,final V value,final long lifespan,final TimeUnit lifespanUnit,final long maxIdle,final TimeUnit maxIdleUnit) {
       assertRemoteCacheManagerIsStarted();
+      if (pipelinedTransportFactory != null) {
+         return executePipelined(operationsFactory.newPutIfAbsentOperation(obj2bytes(key, true), obj2bytes(value, false),
+               toSeconds(lifespan, lifespanUnit), toSeconds(maxIdle, maxIdleUnit)), true);
+      }
       final NotifyingFutureImpl<V> result = new NotifyingFutureImpl<V>();
       Future<V> future = executorService.submit(new Callable<V>() {
          @Override
@@ -294,6 +371,9 @@ public V call() throws Exception {
    @Override
    public NotifyingFuture<V> removeAsync(final Object key) {
       assertRemoteCacheManagerIsStarted();
+      if (pipelinedTransportFactory != null) {
+         return executePipelined(operationsFactory.newRemoveOperation(obj2bytes(key, true)), true);
+      }
       final NotifyingFutureImpl<V> result = new NotifyingFutureImpl<V>();
       Future<V> future = executorService.submit(new Callable<V>() {
          @Override
@@ -310,6 +390,10 @@ public V call() throws Exception {
    @Override
    public NotifyingFuture<V> replaceAsync(final K key,final V value,final long lifespan,final TimeUnit lifespanUnit,final long maxIdle,final TimeUnit maxIdleUnit) {
       assertRemoteCacheManagerIsStarted();
+      if (pipelinedTransportFactory != null) {
+         return executePipelined(operationsFactory.newReplaceOperation(obj2bytes(key, true), obj2bytes(value, false),
+               toSeconds(lifespan, lifespanUnit), toSeconds(maxIdle, maxIdleUnit)), true);
+      }
       final NotifyingFutureImpl<V> result = new NotifyingFutureImpl<V>();
       Future<V> future = executorService.submit(new Callable<V>() {
          @Override
@@ -335,15 +419,104 @@ public boolean containsKey(Object key) {
    public V get(Object key) {
       assertRemoteCacheManagerIsStarted();
       byte[] keyBytes = obj2bytes(key, true);
-      GetOperation gco = operationsFactory.newGetKeyOperation(keyBytes);
-      byte[] bytes = (byte[]) gco.execute();
-      V result = (V) bytes2obj(bytes);
+      V result;
+      if (nearCache != null) {
+         result = getThroughNearCache(keyBytes);
+      } else {
+         GetOperation gco = operationsFactory.newGetKeyOperation(keyBytes);
+         byte[] bytes = (byte[]) gco.execute();
+         result = (V) bytes2obj(bytes);
+      }
       if (log.isTraceEnabled()) {
          log.tracef("For key(%s) returning %s", key, result);
       }
       return result;
    }
 
+   @Override
+   @SuppressWarnings("unchecked")
+   public Map<K, V> getAll(Set<? extends K> keys) {
+      assertRemoteCacheManagerIsStarted();
+      Map<K, V> result = new HashMap<K, V>();
+      if (!operationsFactory.isMultiKeySupported()) {
+         getAllPerKey(keys, result);
+         return Collections.unmodifiableMap(result);
+      }
+      List<byte[]> toFetch = new ArrayList<byte[]>(keys.size());
+      for (K key : keys) {
+         byte[] keyBytes = obj2bytes(key, true);
+         V nearCached = nearCache != null ? nearCache.getIfValid(keyBytes) : null;
+         if (nearCached != null) {
+            result.put(key, nearCached);
+         } else {
+            toFetch.add(keyBytes);
+         }
+      }
+      // Each server gets a single request for all the keys it owns
+      for (MultiGetOperation op : operationsFactory.newMultiGetOperations(groupKeysByServer(toFetch))) {
+         for (Map.Entry<byte[], byte[]> entry : op.execute().entrySet()) {
+            result.put((K) bytes2obj(entry.getKey()), (V) bytes2obj(entry.getValue()));
+         }
+      }
+      if (log.isTraceEnabled()) {
+         log.tracef("For %d keys returning %d entries, %d of them fetched remotely", keys.size(), result.size(), toFetch.size());
+      }
+      return Collections.unmodifiableMap(result);
+   }
+
+   private void getAllPerKey(Set<? extends K> keys, Map<K, V> result) {
+      if (pipelinedTransportFactory != null) {
+         // all the gets are in flight at the same time over the multiplexed connections
+         Map<K, NotifyingFuture<V>> futures = new HashMap<K, NotifyingFuture<V>>();
+         for (K key : keys) futures.put(key, getAsync(key));
+         for (Map.Entry<K, NotifyingFuture<V>> e : futures.entrySet()) {
+            V value = awaitPipelined(e.getValue());
+            if (value != null) result.put(e.getKey(), value);
+         }
+      } else {
+         for (K key : keys) {
+            V value = get(key);
+            if (value != null) result.put(key, value);
+         }
+      }
+   }
+
+   private V awaitPipelined(NotifyingFuture<V> future) {
+      try {
+         return future.get();
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new HotRodClientException(e);
+      } catch (ExecutionException e) {
+         if (e.getCause() instanceof HotRodClientException) throw (HotRodClientException) e.getCause();
+         throw new HotRodClientException(e.getCause());
+      }
+   }
+
+   private Collection<List<byte[]>> groupKeysByServer(Collection<byte[]> keys) {
+      if (tcpTransportFactory != null) {
+         return tcpTransportFactory.groupKeysByServer(keys);
+      }
+      return keys.isEmpty() ? Collections.<List<byte[]>>emptyList()
+            : Collections.singletonList((List<byte[]>) new ArrayList<byte[]>(keys));
+   }
+
+   @Override
+   public NotifyingFuture<Map<K, V>> getAllAsync(final Set<? extends K> keys) {
+      assertRemoteCacheManagerIsStarted();
+      final NotifyingFutureImpl<Map<K, V>> result = new NotifyingFutureImpl<Map<K, V>>();
+      Future<Map<K, V>> future = executorService.submit(new Callable<Map<K, V>>() {
+         @Override
+         public Map<K, V> call() throws Exception {
+            Map<K, V> toReturn = getAll(keys);
+            result.notifyFutureCompletion();
+            return toReturn;
+         }
+      });
+      result.setExecuting(future);
+      return result;
+   }
+
    @Override
    public Map<K, V> getBulk() {
       return getBulk(0);
@@ -369,7 +542,7 @@ public Map<K, V> getBulk(int size) {
    public V remove(Object key) {
       assertRemoteCacheManagerIsStarted();
       RemoveOperation removeOperation = operationsFactory.newRemoveOperation(obj2bytes(key, true));
-      byte[] existingValue = (byte[]) removeOperation.execute();
+      byte[] existingValue = executeWrite(removeOperation);
       // TODO: It sucks that you need the prev value to see if it works...
       // We need to find a better API for RemoteCache...
       return (V) bytes2obj(existingValue);
@@ -379,7 +552,16 @@ public V remove(Object key) {
    public void clear() {
       assertRemoteCacheManagerIsStarted();
       ClearOperation op = operationsFactory.newClearOperation() ;
-      op.execute();
+      if (nearCache == null) {
+         op.execute();
+      } else {
+         nearCache.clear();
+         try {
+            op.execute();
+         } finally {
+            nearCache.clear();
+         }
+      }
    }
 
    @Override
@@ -415,6 +597,14 @@ public RemoteCache<K, V> withFlags(Flag... flags) {
    @Override
    public NotifyingFuture<V> getAsync(final K key) {
       assertRemoteCacheManagerIsStarted();
+      if (pipelinedTransportFactory != null) {
+         byte[] keyBytes = obj2bytes(key, true);
+         V nearCached = nearCache != null ? nearCache.getIfValid(keyBytes) : null;
+         if (nearCached != null) {
+            return completedFuture(nearCached);
+         }
+         return executePipelined(operationsFactory.newGetKeyOperation(keyBytes), false);
+      }
       final NotifyingFutureImpl<V> result = new NotifyingFutureImpl<V>();
       Future<V> future = executorService.submit(new Callable<V>() {
          @Override
@@ -432,6 +622,110 @@ public PingOperation.PingResult ping() {
       return operationsFactory.newFaultTolerantPingOperation().execute();
    }
 
+   /**
+    * Sends the operation through the multiplexed connections, the returned future being completed by the I/O thread.
+    */
+   private NotifyingFuture<V> executePipelined(final AbstractKeyOperation<byte[]> op, final boolean write) {
+      if (write) invalidateNearCache(op.getKey());
+      return pipelinedTransportFactory.execute(new PipelinedRequest<V>() {
+         @Override
+         public HeaderParams writeRequest(Transport transport) {
+            return op.writeRequest(transport);
+         }
+
+         @Override
+         @SuppressWarnings("unchecked")
+         public V readResponse(Transport transport, HeaderParams params) {
+            byte[] bytes = op.readResponse(transport, params);
+            if (write) invalidateNearCache(op.getKey());
+            return (V) bytes2obj(bytes);
+         }
+      }, op.getKey());
+   }
+
+   private NotifyingFuture<Boolean> executePipelinedVersioned(final AbstractKeyOperation<VersionedOperationResponse> op) {
+      invalidateNearCache(op.getKey());
+      return pipelinedTransportFactory.execute(new PipelinedRequest<Boolean>() {
+         @Override
+         public HeaderParams writeRequest(Transport transport) {
+            return op.writeRequest(transport);
+         }
+
+         @Override
+         public Boolean readResponse(Transport transport, HeaderParams params) {
+            VersionedOperationResponse response = op.readResponse(transport, params);
+            invalidateNearCache(op.getKey());
+            return response.getCode().isUpdated();
+         }
+      }, op.getKey());
+   }
+
+   private <T> NotifyingFuture<T> completedFuture(final T value) {
+      NotifyingFutureImpl<T> result = new NotifyingFutureImpl<T>();
+      FutureTask<T> task = new FutureTask<T>(new Callable<T>() {
+         @Override
+         public T call() {
+            return value;
+         }
+      });
+      task.run();
+      result.setExecuting(task);
+      return result;
+   }
+
+   /**
+    * Reads the key from the near cache, falling back to a versioned get if the key is not near cached or if its entry
+    * needs revalidating. A revalidated entry whose version didn't change keeps its already unmarshalled value.
+    */
+   @SuppressWarnings("unchecked")
+   private V getThroughNearCache(byte[] keyBytes) {
+      V value = nearCache.getIfValid(keyBytes);
+      if (value != null) {
+         return value;
+      }
+      NearCache.Entry<V> stale = nearCache.getEntry(keyBytes);
+      long invalidationSequence = nearCache.getInvalidationSequence();
+      GetWithVersionOperation op = operationsFactory.newGetWithVersionOperation(keyBytes);
+      BinaryVersionedValue versioned = (BinaryVersionedValue) op.execute();
+      if (versioned == null) {
+         nearCache.remove(keyBytes);
+         return null;
+      }
+      if (stale != null && stale.getVersion() == versioned.getVersion()) {
+         value = stale.getValue();
+      } else {
+         value = (V) bytes2obj(versioned.getValue());
+      }
+      nearCache.put(keyBytes, versioned.getVersion(), value, invalidationSequence);
+      return value;
+   }
+
+   /**
+    * Executes a write operation, invalidating the near cached key both before, so that no stale read is served while
+    * the write is in progress, and after, to discard any value a concurrent read might have fetched in between.
+    */
+   private <T> T executeWrite(AbstractKeyOperation<T> op) {
+      if (nearCache == null) {
+         return op.execute();
+      }
+      nearCache.invalidate(op.getKey());
+      try {
+         return op.execute();
+      } finally {
+         nearCache.invalidate(op.getKey());
+      }
+   }
+
+   private void invalidateNearCache(byte[] keyBytes) {
+      if (nearCache != null) nearCache.invalidate(keyBytes);
+   }
+
+   private void invalidateNearCache(Collection<byte[]> keys) {
+      if (nearCache != null) {
+         for (byte[] keyBytes : keys) nearCache.invalidate(keyBytes);
+      }
+   }
+
    private byte[] obj2bytes(Object o, boolean isKey) {
       try {
          return marshaller.objectToByteBuffer(o, isKey ? estimateKeySize : estimateValueSize);
@@ -32,6 +32,7 @@
 import org.infinispan.client.hotrod.impl.protocol.HeaderParams;
 import org.infinispan.client.hotrod.impl.transport.Transport;
 import org.infinispan.client.hotrod.impl.transport.TransportFactory;
+import org.infinispan.client.hotrod.impl.transport.nio.PipelinedRequest;
 import org.infinispan.util.Util;
 import org.infinispan.util.logging.BasicLogFactory;
 import org.jboss.logging.BasicLogger;
@@ -43,7 +44,7 @@
  * @since 4.1
  */
 @Immutable
-public abstract class AbstractKeyOperation<T> extends RetryOnFailureOperation<T> {
+public abstract class AbstractKeyOperation<T> extends RetryOnFailureOperation<T> implements PipelinedRequest<T> {
 
    private static final BasicLogger log = BasicLogFactory.getLog(AbstractKeyOperation.class);
 
@@ -64,14 +65,22 @@ protected Transport getTransport(int retryCount) {
       }
    }
 
-   protected short sendKeyOperation(byte[] key, Transport transport, byte opCode, byte opRespCode) {
-      // 1) write [header][key length][key]
-      HeaderParams params = writeHeader(transport, opCode);
-      transport.writeArray(key);
+   public byte[] getKey() {
+      return key;
+   }
+
+   @Override
+   protected T executeOperation(Transport transport) {
+      HeaderParams params = writeRequest(transport);
       transport.flush();
+      return readResponse(transport, params);
+   }
 
-      // 2) now read the header
-      return readHeaderAndValidate(transport, params);
+   protected HeaderParams writeKeyRequest(Transport transport, short opCode) {
+      // [header][key length][key]
+      HeaderParams params = writeHeader(transport, opCode);
+      transport.writeArray(key);
+      return params;
    }
 
    protected byte[] returnPossiblePrevValue(Transport transport) {
@@ -31,6 +31,10 @@
 import org.infinispan.client.hotrod.impl.transport.Transport;
 import org.infinispan.client.hotrod.impl.transport.TransportFactory;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -66,6 +70,18 @@ public OperationsFactory(TransportFactory transportFactory, String cacheName,
       this.codec = codec;
    }
 
+   public TransportFactory getTransportFactory() {
+      return transportFactory;
+   }
+
+   /**
+    * @return true if the configured protocol version supports sending several keys in a single multi-get or bulk put
+    *         request
+    */
+   public boolean isMultiKeySupported() {
+      return codec.isMultiKeySupported();
+   }
+
    public GetOperation newGetKeyOperation(byte[] key) {
       return new GetOperation(
             codec, transportFactory, key, cacheNameBytes, topologyId, flags());
@@ -134,6 +150,40 @@ public BulkGetOperation newBulkGetOperation(int size) {
             codec, transportFactory, cacheNameBytes, topologyId, flags(), size);
    }
 
+   /**
+    * Construct one multi-get request per group of keys, all of them sharing the flags currently set.
+    *
+    * @param keyGroups keys grouped by the server owning them
+    * @return a multi-get operation for each group
+    */
+   public List<MultiGetOperation> newMultiGetOperations(Collection<List<byte[]>> keyGroups) {
+      Flag[] flags = flags();
+      List<MultiGetOperation> ops = new ArrayList<MultiGetOperation>(keyGroups.size());
+      for (List<byte[]> keys : keyGroups) {
+         ops.add(new MultiGetOperation(
+               codec, transportFactory, cacheNameBytes, topologyId, flags, keys));
+      }
+      return ops;
+   }
+
+   /**
+    * Construct one bulk put request per group of keys, all of them sharing the flags currently set.
+    *
+    * @param keyGroups keys grouped by the server owning them
+    * @param entries the values to store, mapped by the very key instances found in the groups
+    * @return a bulk put operation for each group
+    */
+   public List<PutAllOperation> newPutAllOperations(Collection<List<byte[]>> keyGroups, Map<byte[], byte[]> entries,
+            int lifespanSecs, int maxIdleSecs) {
+      Flag[] flags = flags();
+      List<PutAllOperation> ops = new ArrayList<PutAllOperation>(keyGroups.size());
+      for (List<byte[]> keys : keyGroups) {
+         ops.add(new PutAllOperation(
+               codec, transportFactory, cacheNameBytes, topologyId, flags, keys, entries, lifespanSecs, maxIdleSecs));
+      }
+      return ops;
+   }
+
    /**
     * Construct a ping request directed to a particular node.
     *
@@ -42,6 +42,12 @@ public interface Codec {
     */
    short readHeader(Transport transport, HeaderParams params);
 
+   /**
+    * Whether the multi-get and bulk put operations, added in version 1.2 of
+    * the protocol, can be sent to the server
+    */
+   boolean isMultiKeySupported();
+
    /**
     * Logger for Hot Rod client codec
     */
@@ -55,6 +55,11 @@ public HeaderParams writeHeader(Transport transport, HeaderParams params) {
       return writeHeader(transport, params, HotRodConstants.VERSION_10);
    }
 
+   @Override
+   public boolean isMultiKeySupported() {
+      return false;
+   }
+
    protected HeaderParams writeHeader(
             Transport transport, HeaderParams params, byte version) {
       transport.writeByte(HotRodConstants.REQUEST_MAGIC);
@@ -76,6 +76,10 @@ public HeaderParams messageId(long messageId) {
       return this;
    }
 
+   public long getMessageId() {
+      return messageId;
+   }
+
    private short toOpRespCode(short opCode) {
       switch (opCode) {
          case HotRodConstants.PUT_REQUEST:
@@ -104,6 +108,10 @@ private short toOpRespCode(short opCode) {
             return HotRodConstants.PING_RESPONSE;
          case HotRodConstants.BULK_GET_REQUEST:
             return HotRodConstants.BULK_GET_RESPONSE;
+         case HotRodConstants.MULTI_GET_REQUEST:
+            return HotRodConstants.MULTI_GET_RESPONSE;
+         case HotRodConstants.PUT_ALL_REQUEST:
+            return HotRodConstants.PUT_ALL_RESPONSE;
          default:
             throw new IllegalStateException("Unknown operation code: " + opCode);
       }
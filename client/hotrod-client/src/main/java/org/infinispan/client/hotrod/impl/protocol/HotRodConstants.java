@@ -37,6 +37,7 @@ public interface HotRodConstants {
 
    static final byte VERSION_10 = 10;
    static final byte VERSION_11 = 11;
+   static final byte VERSION_12 = 12;
 
    //requests
    static final byte PUT_REQUEST = 0x01;
@@ -52,6 +53,8 @@ public interface HotRodConstants {
    static final byte STATS_REQUEST = 0x15;
    static final byte PING_REQUEST = 0x17;
    static final byte BULK_GET_REQUEST = 0x19;
+   static final byte MULTI_GET_REQUEST = 0x1B;
+   static final byte PUT_ALL_REQUEST = 0x1D;
 
 
    //responses
@@ -68,6 +71,8 @@ public interface HotRodConstants {
    static final byte STATS_RESPONSE = 0x16;
    static final byte PING_RESPONSE = 0x18;
    static final byte BULK_GET_RESPONSE = 0x1A;
+   static final byte MULTI_GET_RESPONSE = 0x1C;
+   static final byte PUT_ALL_RESPONSE = 0x1E;
    static final byte ERROR_RESPONSE = 0x50;
 
    //response status
@@ -0,0 +1,317 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.client.hotrod.impl.transport.nio;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.infinispan.client.hotrod.exceptions.HotRodClientException;
+import org.infinispan.client.hotrod.exceptions.HotRodTimeoutException;
+import org.infinispan.client.hotrod.exceptions.InvalidResponseException;
+import org.infinispan.client.hotrod.exceptions.TransportException;
+import org.infinispan.client.hotrod.impl.protocol.HotRodConstants;
+import org.infinispan.client.hotrod.logging.Log;
+import org.infinispan.client.hotrod.logging.LogFactory;
+import org.infinispan.util.Util;
+
+/**
+ * A non-blocking connection to a Hot Rod server shared by any number of concurrent requests. Requests are written
+ * back to back without waiting for the previous responses, and each response is matched to its request through the
+ * message id of the Hot Rod header, so the server is free to answer them in any order.
+ * <p/>
+ * Requests can be sent from any thread, everything else is executed by the {@link NioEventLoop} thread.
+ *
+ * @since 5.2
+ */
+final class MultiplexedConnection {
+
+   private static final Log log = LogFactory.getLog(MultiplexedConnection.class, Log.class);
+   private static final boolean trace = log.isTraceEnabled();
+
+   private static final int MAX_GATHERED_WRITES = 64;
+   private static final int INITIAL_READ_BUFFER_SIZE = 8 * 1024;
+
+   private final InetSocketAddress server;
+   private final NioEventLoop eventLoop;
+   private final NioTransportFactory transportFactory;
+   private final ConcurrentMap<Long, PendingResponse<?>> pendingResponses = new ConcurrentHashMap<Long, PendingResponse<?>>();
+   private final Queue<ByteBuffer> outbound = new ConcurrentLinkedQueue<ByteBuffer>();
+   private final AtomicBoolean flushScheduled = new AtomicBoolean();
+   private final Runnable flushTask = new Runnable() {
+      @Override
+      public void run() {
+         flushScheduled.set(false);
+         flush();
+      }
+   };
+
+   // only accessed by the event loop thread
+   private final ResponseReader reader;
+   private final ByteBuffer[] gatheredWrites = new ByteBuffer[MAX_GATHERED_WRITES];
+   private ByteBuffer inbound = ByteBuffer.allocate(INITIAL_READ_BUFFER_SIZE);
+   private SocketChannel channel;
+   private SelectionKey selectionKey;
+   private long connectDeadline;
+
+   private volatile boolean closed;
+
+   MultiplexedConnection(InetSocketAddress server, NioEventLoop eventLoop, NioTransportFactory transportFactory) {
+      this.server = server;
+      this.eventLoop = eventLoop;
+      this.transportFactory = transportFactory;
+      this.reader = new ResponseReader(transportFactory, server);
+   }
+
+   InetSocketAddress getServer() {
+      return server;
+   }
+
+   boolean isClosed() {
+      return closed;
+   }
+
+   void open() {
+      eventLoop.execute(new Runnable() {
+         @Override
+         public void run() {
+            connect();
+         }
+      });
+   }
+
+   /**
+    * Queues a request for sending; the response will be delivered through the given pending response.
+    */
+   void send(PendingResponse<?> response, ByteBuffer request) {
+      if (closed) {
+         response.fail(new TransportException("Connection to " + server + " is closed"));
+         return;
+      }
+      long messageId = response.getMessageId();
+      pendingResponses.put(messageId, response);
+      outbound.add(request);
+      if (closed) {
+         // lost the race with close(), which might not have seen this request
+         if (pendingResponses.remove(messageId) != null)
+            response.fail(new TransportException("Connection to " + server + " is closed"));
+         return;
+      }
+      if (flushScheduled.compareAndSet(false, true))
+         eventLoop.execute(flushTask);
+   }
+
+   private void connect() {
+      if (closed) return;
+      try {
+         channel = SocketChannel.open();
+         channel.configureBlocking(false);
+         channel.socket().setTcpNoDelay(transportFactory.isTcpNoDelay());
+         if (channel.connect(server)) {
+            selectionKey = eventLoop.register(channel, SelectionKey.OP_READ, this);
+            flush();
+         } else {
+            connectDeadline = System.nanoTime() + MILLISECONDS.toNanos(transportFactory.getConnectTimeout());
+            selectionKey = eventLoop.register(channel, SelectionKey.OP_CONNECT, this);
+         }
+      } catch (IOException e) {
+         close(new TransportException(String.format("Could not connect to server: %s", server), e));
+      }
+   }
+
+   void finishConnect() {
+      try {
+         if (channel.finishConnect()) {
+            connectDeadline = 0;
+            if (trace) log.tracef("Connected to %s", server);
+            selectionKey.interestOps(SelectionKey.OP_READ);
+            flush();
+         }
+      } catch (IOException e) {
+         close(new TransportException(String.format("Could not connect to server: %s", server), e));
+      }
+   }
+
+   /**
+    * Writes as many queued requests as the socket accepts, gathering them in a single system call.
+    */
+   void flush() {
+      if (closed || channel == null || !channel.isConnected()) return;
+      try {
+         while (!outbound.isEmpty()) {
+            int count = 0;
+            for (Iterator<ByteBuffer> it = outbound.iterator(); it.hasNext() && count < MAX_GATHERED_WRITES; ) {
+               gatheredWrites[count++] = it.next();
+            }
+            long written = channel.write(gatheredWrites, 0, count);
+            int completed = 0;
+            while (completed < count && !gatheredWrites[completed].hasRemaining()) {
+               outbound.poll();
+               completed++;
+            }
+            Arrays.fill(gatheredWrites, 0, count, null);
+            if (trace) log.tracef("Wrote %d bytes (%d requests) to %s", written, completed, server);
+            if (completed < count) {
+               // the socket buffer is full, resume once it's writable again
+               selectionKey.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+               return;
+            }
+         }
+         selectionKey.interestOps(SelectionKey.OP_READ);
+      } catch (IOException e) {
+         close(new TransportException(e));
+      }
+   }
+
+   void read() {
+      try {
+         int read = channel.read(inbound);
+         if (read < 0) {
+            close(new TransportException("Connection closed by server " + server));
+            return;
+         }
+         inbound.flip();
+         decode();
+         inbound.compact();
+         if (!inbound.hasRemaining()) {
+            // a single response doesn't fit in the buffer
+            ByteBuffer larger = ByteBuffer.allocate(inbound.capacity() * 2);
+            inbound.flip();
+            larger.put(inbound);
+            inbound = larger;
+         }
+      } catch (IOException e) {
+         close(new TransportException(e));
+      }
+   }
+
+   /**
+    * Decodes every complete response in the inbound buffer. Responses are decoded optimistically, in the manner of
+    * Netty's {@code ReplayingDecoder}: running out of bytes rewinds the buffer to the start of the response. The
+    * response remembers how many bytes it needs at least, from the read that ran short, and is only decoded again once
+    * that many bytes have been received, so a large value is decoded once rather than after every read.
+    */
+   private void decode() {
+      reader.setBuffer(inbound);
+      while (inbound.hasRemaining() && !closed) {
+         int start = inbound.position();
+         PendingResponse<?> response = null;
+         reader.resetRequiredLimit();
+         try {
+            short magic = reader.readByte();
+            if (magic != HotRodConstants.RESPONSE_MAGIC) {
+               log.invalidMagicNumber(HotRodConstants.RESPONSE_MAGIC, magic);
+               throw new InvalidResponseException(String.format(
+                     "Invalid magic number. Expected %#x and received %#x", HotRodConstants.RESPONSE_MAGIC, magic));
+            }
+            long messageId = reader.readVLong();
+            response = pendingResponses.get(messageId);
+            if (response == null) {
+               throw new InvalidResponseException(String.format(
+                     "Received response for unknown message id %d from %s", messageId, server));
+            }
+            inbound.position(start);
+            if (inbound.remaining() < response.getRequiredBytes()) return;
+            response.decode(reader);
+            pendingResponses.remove(messageId);
+         } catch (BufferUnderflowException e) {
+            if (response != null) response.setRequiredBytes(reader.getRequiredLimit() - start);
+            inbound.position(start);
+            return;
+         } catch (HotRodClientException e) {
+            close(e);
+         } catch (RuntimeException e) {
+            close(new TransportException(e));
+         }
+      }
+   }
+
+   void expire(long now) {
+      if (connectDeadline != 0 && now - connectDeadline > 0) {
+         close(new TransportException(String.format("Could not connect to server %s within %d ms", server,
+               transportFactory.getConnectTimeout())));
+         return;
+      }
+      for (PendingResponse<?> response : pendingResponses.values()) {
+         if (response.isExpired(now)) {
+            // the server is hung or too slow: rather than keeping the response around until it arrives, give up on
+            // the connection, the next request opens a new one
+            pendingResponses.remove(response.getMessageId());
+            response.fail(new HotRodTimeoutException(String.format(
+                  "No response received from %s for message id %d within %d ms", server,
+                  response.getMessageId(), transportFactory.getSoTimeout())));
+            close(new TransportException(String.format(
+                  "Closed connection to %s after a request timed out", server)));
+            return;
+         }
+      }
+   }
+
+   /**
+    * Closes the connection, failing all the requests still waiting for a response.
+    */
+   void close(final HotRodClientException cause) {
+      if (!eventLoop.inEventLoop()) {
+         eventLoop.execute(new Runnable() {
+            @Override
+            public void run() {
+               close(cause);
+            }
+         });
+         return;
+      }
+      if (closed) return;
+      closed = true;
+      if (trace) log.tracef(cause, "Closing connection to %s", server);
+      if (selectionKey != null) selectionKey.cancel();
+      Util.close(channel);
+      outbound.clear();
+      for (Iterator<Map.Entry<Long, PendingResponse<?>>> it = pendingResponses.entrySet().iterator(); it.hasNext(); ) {
+         PendingResponse<?> response = it.next().getValue();
+         it.remove();
+         response.fail(cause);
+      }
+   }
+
+   @Override
+   public String toString() {
+      return "MultiplexedConnection{" +
+            "server=" + server +
+            ", pendingResponses=" + pendingResponses.size() +
+            ", closed=" + closed +
+            '}';
+   }
+}
@@ -0,0 +1,173 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.client.hotrod.impl.transport.nio;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.io.IOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.infinispan.client.hotrod.exceptions.TransportException;
+import org.infinispan.client.hotrod.logging.Log;
+import org.infinispan.client.hotrod.logging.LogFactory;
+
+/**
+ * Single I/O thread driving all the {@link MultiplexedConnection}s of a {@link NioTransportFactory}: it connects,
+ * writes the queued requests, decodes the responses and expires requests whose socket timeout has elapsed. Any state
+ * of a connection other than its queues is confined to this thread; other threads hand work over through
+ * {@link #execute(Runnable)}.
+ *
+ * @since 5.2
+ */
+final class NioEventLoop implements Runnable {
+
+   private static final Log log = LogFactory.getLog(NioEventLoop.class, Log.class);
+
+   private final Selector selector;
+   private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+   private final AtomicBoolean wakeupPending = new AtomicBoolean();
+   private final long expirationIntervalMillis;
+   private final Thread thread;
+
+   private volatile boolean running = true;
+
+   NioEventLoop(String threadName, long expirationIntervalMillis) {
+      try {
+         this.selector = Selector.open();
+      } catch (IOException e) {
+         throw new TransportException("Could not open selector", e);
+      }
+      this.expirationIntervalMillis = expirationIntervalMillis;
+      this.thread = new Thread(this, threadName);
+      this.thread.setDaemon(true);
+   }
+
+   void start() {
+      thread.start();
+   }
+
+   void stop() {
+      running = false;
+      selector.wakeup();
+      if (!inEventLoop()) {
+         try {
+            thread.join(expirationIntervalMillis);
+         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+         }
+      }
+   }
+
+   boolean inEventLoop() {
+      return Thread.currentThread() == thread;
+   }
+
+   void execute(Runnable task) {
+      tasks.add(task);
+      if (!inEventLoop() && wakeupPending.compareAndSet(false, true))
+         selector.wakeup();
+   }
+
+   SelectionKey register(SelectableChannel channel, int interestOps, MultiplexedConnection connection) throws ClosedChannelException {
+      return channel.register(selector, interestOps, connection);
+   }
+
+   @Override
+   public void run() {
+      long nextExpiration = System.nanoTime() + MILLISECONDS.toNanos(expirationIntervalMillis);
+      while (running) {
+         try {
+            selector.select(expirationIntervalMillis);
+            wakeupPending.set(false);
+            processSelectedKeys();
+            runTasks();
+            long now = System.nanoTime();
+            if (now - nextExpiration >= 0) {
+               expire(now);
+               nextExpiration = now + MILLISECONDS.toNanos(expirationIntervalMillis);
+            }
+         } catch (Throwable t) {
+            log.warn("Unexpected error in the Hot Rod client I/O thread", t);
+         }
+      }
+      runTasks();
+      closeConnections();
+   }
+
+   private void processSelectedKeys() {
+      Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+      while (keys.hasNext()) {
+         SelectionKey key = keys.next();
+         keys.remove();
+         MultiplexedConnection connection = (MultiplexedConnection) key.attachment();
+         try {
+            int readyOps = key.readyOps();
+            if ((readyOps & SelectionKey.OP_CONNECT) != 0)
+               connection.finishConnect();
+            if (key.isValid() && (readyOps & SelectionKey.OP_READ) != 0)
+               connection.read();
+            if (key.isValid() && (readyOps & SelectionKey.OP_WRITE) != 0)
+               connection.flush();
+         } catch (CancelledKeyException e) {
+            // the connection has been closed in the meantime
+         }
+      }
+   }
+
+   private void runTasks() {
+      Runnable task;
+      while ((task = tasks.poll()) != null) {
+         try {
+            task.run();
+         } catch (Throwable t) {
+            log.warn("Unexpected error in the Hot Rod client I/O thread", t);
+         }
+      }
+   }
+
+   private void expire(long now) {
+      for (SelectionKey key : selector.keys()) {
+         if (key.isValid())
+            ((MultiplexedConnection) key.attachment()).expire(now);
+      }
+   }
+
+   private void closeConnections() {
+      for (SelectionKey key : selector.keys()) {
+         ((MultiplexedConnection) key.attachment()).close(new TransportException("Transport factory stopped"));
+      }
+      try {
+         selector.close();
+      } catch (IOException e) {
+         log.debug("Error closing selector", e);
+      }
+   }
+}
@@ -0,0 +1,179 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.client.hotrod.impl.transport.nio;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import net.jcip.annotations.ThreadSafe;
+
+import org.infinispan.client.hotrod.exceptions.TransportException;
+import org.infinispan.client.hotrod.impl.ConfigurationProperties;
+import org.infinispan.client.hotrod.impl.async.NotifyingFutureImpl;
+import org.infinispan.client.hotrod.impl.protocol.Codec;
+import org.infinispan.client.hotrod.impl.protocol.HeaderParams;
+import org.infinispan.client.hotrod.impl.transport.tcp.TcpTransportFactory;
+import org.infinispan.client.hotrod.logging.Log;
+import org.infinispan.client.hotrod.logging.LogFactory;
+import org.infinispan.util.concurrent.NotifyingFuture;
+
+/**
+ * Transport factory that, on top of the pooled blocking transports of {@link TcpTransportFactory}, pipelines requests
+ * over a few non-blocking {@link MultiplexedConnection}s per server. Asynchronous operations submitted through
+ * {@link #execute(PipelinedRequest, byte[])} don't hold a thread or a pooled socket while waiting for their response:
+ * their futures are completed by a single I/O thread as soon as the response carrying their message id is decoded.
+ * <p/>
+ * Listeners attached to those futures are therefore notified from the I/O thread and must not block.
+ * <p/>
+ * Enable it by setting {@link ConfigurationProperties#TRANSPORT_FACTORY} to this class; the number of multiplexed
+ * connections per server is configured through {@link ConfigurationProperties#NIO_CONNECTIONS_PER_SERVER}.
+ *
+ * @since 5.2
+ */
+@ThreadSafe
+public class NioTransportFactory extends TcpTransportFactory {
+
+   private static final Log log = LogFactory.getLog(NioTransportFactory.class, Log.class);
+
+   private static final int HEADER_SIZE_ESTIMATE = 32;
+   private static final long MAX_EXPIRATION_INTERVAL_MILLIS = 1000;
+   private static final AtomicInteger FACTORY_COUNTER = new AtomicInteger();
+
+   private final ConcurrentMap<SocketAddress, AtomicReferenceArray<MultiplexedConnection>> connections =
+         new ConcurrentHashMap<SocketAddress, AtomicReferenceArray<MultiplexedConnection>>();
+   private final AtomicLong connectionSelector = new AtomicLong();
+
+   private volatile NioEventLoop eventLoop;
+   private volatile ExecutorService topologyUpdater;
+   private volatile int connectionsPerServer;
+   private volatile int requestSizeEstimate;
+
+   @Override
+   public void start(Codec codec, ConfigurationProperties cfg, Collection<SocketAddress> staticConfiguredServers,
+                     AtomicInteger topologyId, ClassLoader classLoader) {
+      super.start(codec, cfg, staticConfiguredServers, topologyId, classLoader);
+      connectionsPerServer = cfg.getNioConnectionsPerServer();
+      requestSizeEstimate = HEADER_SIZE_ESTIMATE + cfg.getKeySizeEstimate() + cfg.getValueSizeEstimate();
+      final int id = FACTORY_COUNTER.incrementAndGet();
+      eventLoop = new NioEventLoop("HotRodClient-IO-" + id, Math.min(getSoTimeout(), MAX_EXPIRATION_INTERVAL_MILLIS));
+      eventLoop.start();
+      topologyUpdater = Executors.newSingleThreadExecutor(new ThreadFactory() {
+         @Override
+         public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "HotRodClient-TopologyUpdater-" + id);
+            thread.setDaemon(true);
+            return thread;
+         }
+      });
+      if (log.isDebugEnabled()) {
+         log.debugf("Pipelining asynchronous requests over %d connection(s) per server", connectionsPerServer);
+      }
+   }
+
+   /**
+    * Writes the request to one of the multiplexed connections of the server owning the given key, or of the next
+    * server chosen by the balancer if the key is <code>null</code>, without waiting for the response.
+    */
+   public <T> NotifyingFuture<T> execute(PipelinedRequest<T> request, byte[] key) {
+      SocketAddress server = key == null ? nextServer() : getServer(key);
+      RequestWriter writer = new RequestWriter(this, server, requestSizeEstimate);
+      HeaderParams params = request.writeRequest(writer);
+      NotifyingFutureImpl<T> future = new NotifyingFutureImpl<T>();
+      PendingResponse<T> response = new PendingResponse<T>(request, params, future, getSoTimeout());
+      future.setExecuting(response);
+      getConnection(server).send(response, writer.toByteBuffer());
+      return future;
+   }
+
+   private MultiplexedConnection getConnection(SocketAddress server) {
+      AtomicReferenceArray<MultiplexedConnection> serverConnections = connections.get(server);
+      if (serverConnections == null) {
+         serverConnections = new AtomicReferenceArray<MultiplexedConnection>(connectionsPerServer);
+         AtomicReferenceArray<MultiplexedConnection> existing = connections.putIfAbsent(server, serverConnections);
+         if (existing != null) serverConnections = existing;
+      }
+      int index = (int) ((connectionSelector.getAndIncrement() & Long.MAX_VALUE) % serverConnections.length());
+      while (true) {
+         MultiplexedConnection connection = serverConnections.get(index);
+         if (connection != null && !connection.isClosed())
+            return connection;
+         MultiplexedConnection newConnection = new MultiplexedConnection((InetSocketAddress) server, eventLoop, this);
+         if (serverConnections.compareAndSet(index, connection, newConnection)) {
+            newConnection.open();
+            return newConnection;
+         }
+      }
+   }
+
+   @Override
+   public void updateServers(final Collection<SocketAddress> newServers) {
+      if (eventLoop.inEventLoop()) {
+         // topology changes are read by the I/O thread, which must not block on the pooled connections
+         topologyUpdater.execute(new Runnable() {
+            @Override
+            public void run() {
+               updateServers(newServers);
+            }
+         });
+         return;
+      }
+      super.updateServers(newServers);
+      Collection<SocketAddress> servers = getServers();
+      for (Iterator<Map.Entry<SocketAddress, AtomicReferenceArray<MultiplexedConnection>>> it = connections.entrySet().iterator(); it.hasNext(); ) {
+         Map.Entry<SocketAddress, AtomicReferenceArray<MultiplexedConnection>> entry = it.next();
+         if (!servers.contains(entry.getKey())) {
+            it.remove();
+            closeAll(entry.getValue(), "Server " + entry.getKey() + " is no longer part of the cluster");
+         }
+      }
+   }
+
+   @Override
+   public void destroy() {
+      for (AtomicReferenceArray<MultiplexedConnection> serverConnections : connections.values()) {
+         closeAll(serverConnections, "Transport factory stopped");
+      }
+      connections.clear();
+      eventLoop.stop();
+      topologyUpdater.shutdownNow();
+      super.destroy();
+   }
+
+   private void closeAll(AtomicReferenceArray<MultiplexedConnection> serverConnections, String reason) {
+      for (int i = 0; i < serverConnections.length(); i++) {
+         MultiplexedConnection connection = serverConnections.get(i);
+         if (connection != null) connection.close(new TransportException(reason));
+      }
+   }
+}
@@ -0,0 +1,122 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.client.hotrod.impl.transport.nio;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.nio.BufferUnderflowException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+
+import org.infinispan.client.hotrod.exceptions.HotRodClientException;
+import org.infinispan.client.hotrod.exceptions.InvalidResponseException;
+import org.infinispan.client.hotrod.impl.async.NotifyingFutureImpl;
+import org.infinispan.client.hotrod.impl.protocol.HeaderParams;
+import org.infinispan.client.hotrod.impl.transport.Transport;
+
+/**
+ * A request sent over a {@link MultiplexedConnection} and still waiting for its response. The outcome is published
+ * through the {@link FutureTask} machinery, but the task itself is never run: it is completed by the I/O thread when
+ * the response with the same message id has been decoded, or failed when the connection breaks or the socket timeout
+ * elapses.
+ *
+ * @since 5.2
+ */
+class PendingResponse<T> extends FutureTask<T> {
+
+   private static final Callable<Object> NOT_RUNNABLE = new Callable<Object>() {
+      @Override
+      public Object call() {
+         throw new IllegalStateException("Pending responses are completed by the I/O thread");
+      }
+   };
+
+   private final PipelinedRequest<T> request;
+   private final HeaderParams params;
+   private final NotifyingFutureImpl<T> notifyingFuture;
+   private final long deadline;
+   // only accessed by the I/O thread
+   private int requiredBytes;
+
+   @SuppressWarnings("unchecked")
+   PendingResponse(PipelinedRequest<T> request, HeaderParams params, NotifyingFutureImpl<T> notifyingFuture, long timeoutMillis) {
+      super((Callable<T>) NOT_RUNNABLE);
+      this.request = request;
+      this.params = params;
+      this.notifyingFuture = notifyingFuture;
+      this.deadline = System.nanoTime() + MILLISECONDS.toNanos(timeoutMillis);
+   }
+
+   long getMessageId() {
+      return params.getMessageId();
+   }
+
+   /**
+    * Decodes the response and completes this future. Errors reported by the server complete the future exceptionally,
+    * whereas exceptions leaving the connection in an unknown state are rethrown after failing the future.
+    *
+    * @throws BufferUnderflowException if the response has not been fully received yet
+    */
+   void decode(Transport reader) {
+      try {
+         set(request.readResponse(reader, params));
+      } catch (BufferUnderflowException e) {
+         throw e;
+      } catch (InvalidResponseException e) {
+         setException(e);
+         throw e;
+      } catch (HotRodClientException e) {
+         // the error response has been consumed entirely, the stream is still usable
+         setException(e);
+      } catch (RuntimeException e) {
+         setException(e);
+         throw e;
+      }
+   }
+
+   /**
+    * @return the least number of bytes the response is known to span, learnt from the previous decoding attempts
+    */
+   int getRequiredBytes() {
+      return requiredBytes;
+   }
+
+   void setRequiredBytes(int requiredBytes) {
+      this.requiredBytes = requiredBytes;
+   }
+
+   void fail(Throwable cause) {
+      setException(cause);
+   }
+
+   boolean isExpired(long now) {
+      return !isDone() && now - deadline > 0;
+   }
+
+   @Override
+   protected void done() {
+      // NotifyingFutureImpl.cancel() notifies the listeners itself
+      if (!isCancelled())
+         notifyingFuture.notifyFutureCompletion();
+   }
+}
@@ -0,0 +1,54 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.client.hotrod.impl.transport.nio;
+
+import org.infinispan.client.hotrod.impl.protocol.HeaderParams;
+import org.infinispan.client.hotrod.impl.transport.Transport;
+
+/**
+ * A Hot Rod request whose encoding and decoding are separated, so that it can be written by the calling thread and its
+ * response decoded later by the I/O thread of a {@link NioTransportFactory}, once a response carrying the same message
+ * id arrives.
+ * <p/>
+ * {@link #readResponse(Transport, HeaderParams)} might be invoked several times for the same response: if the bytes
+ * received so far are not enough to decode it, the attempt is abandoned with a
+ * {@link java.nio.BufferUnderflowException} and repeated once more data is available. Implementations must therefore
+ * not keep any state between attempts.
+ *
+ * @since 5.2
+ */
+public interface PipelinedRequest<T> {
+
+   /**
+    * Writes the whole request, header included, without flushing the transport.
+    *
+    * @return the header parameters the response is to be validated against
+    */
+   HeaderParams writeRequest(Transport transport);
+
+   /**
+    * Reads the response, header included, of a request previously written with {@link #writeRequest(Transport)}.
+    */
+   T readResponse(Transport transport, HeaderParams params);
+
+}
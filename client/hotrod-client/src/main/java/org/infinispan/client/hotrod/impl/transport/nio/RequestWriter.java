@@ -0,0 +1,125 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.client.hotrod.impl.transport.nio;
+
+import static org.infinispan.io.UnsignedNumeric.writeUnsignedInt;
+import static org.infinispan.io.UnsignedNumeric.writeUnsignedLong;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+
+import org.infinispan.client.hotrod.exceptions.TransportException;
+import org.infinispan.client.hotrod.impl.transport.AbstractTransport;
+import org.infinispan.client.hotrod.impl.transport.TransportFactory;
+import org.infinispan.io.ExposedByteArrayOutputStream;
+
+/**
+ * Write-only {@link org.infinispan.client.hotrod.impl.transport.Transport} that encodes a request in memory, so that
+ * it can be handed over to a {@link MultiplexedConnection} as a single buffer.
+ *
+ * @since 5.2
+ */
+class RequestWriter extends AbstractTransport {
+
+   private final ExposedByteArrayOutputStream out;
+   private final SocketAddress server;
+
+   RequestWriter(TransportFactory transportFactory, SocketAddress server, int sizeEstimate) {
+      super(transportFactory);
+      this.server = server;
+      this.out = new ExposedByteArrayOutputStream(sizeEstimate);
+   }
+
+   ByteBuffer toByteBuffer() {
+      return ByteBuffer.wrap(out.getRawBuffer(), 0, out.size());
+   }
+
+   @Override
+   protected void writeBytes(byte[] toAppend) {
+      out.write(toAppend, 0, toAppend.length);
+   }
+
+   @Override
+   public void writeByte(short toWrite) {
+      out.write(toWrite);
+   }
+
+   @Override
+   public void writeVInt(int vint) {
+      try {
+         writeUnsignedInt(out, vint);
+      } catch (IOException e) {
+         throw new TransportException(e);
+      }
+   }
+
+   @Override
+   public void writeVLong(long l) {
+      try {
+         writeUnsignedLong(out, l);
+      } catch (IOException e) {
+         throw new TransportException(e);
+      }
+   }
+
+   @Override
+   public void flush() {
+      // the request is sent as a whole by the connection
+   }
+
+   @Override
+   public void release() {
+      // nothing to release
+   }
+
+   @Override
+   public long readVLong() {
+      throw new UnsupportedOperationException();
+   }
+
+   @Override
+   public int readVInt() {
+      throw new UnsupportedOperationException();
+   }
+
+   @Override
+   public short readByte() {
+      throw new UnsupportedOperationException();
+   }
+
+   @Override
+   public byte[] readByteArray(int size) {
+      throw new UnsupportedOperationException();
+   }
+
+   @Override
+   public byte[] dumpStream() {
+      return new byte[0];
+   }
+
+   @Override
+   public SocketAddress getRemoteSocketAddress() {
+      return server;
+   }
+}
@@ -0,0 +1,135 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.client.hotrod.impl.transport.nio;
+
+import static org.infinispan.io.UnsignedNumeric.readUnsignedInt;
+import static org.infinispan.io.UnsignedNumeric.readUnsignedLong;
+
+import java.net.SocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+import org.infinispan.client.hotrod.impl.transport.AbstractTransport;
+import org.infinispan.client.hotrod.impl.transport.TransportFactory;
+
+/**
+ * Read-only {@link org.infinispan.client.hotrod.impl.transport.Transport} decoding responses out of the bytes a
+ * {@link MultiplexedConnection} has received so far. Reading past the available bytes throws a
+ * {@link BufferUnderflowException}, upon which the connection rewinds the buffer and retries once more bytes arrive.
+ *
+ * @since 5.2
+ */
+class ResponseReader extends AbstractTransport {
+
+   private final SocketAddress server;
+   private ByteBuffer buffer;
+   private int requiredLimit;
+
+   ResponseReader(TransportFactory transportFactory, SocketAddress server) {
+      super(transportFactory);
+      this.server = server;
+   }
+
+   void setBuffer(ByteBuffer buffer) {
+      this.buffer = buffer;
+   }
+
+   /**
+    * @return the buffer limit needed by the last read which ran out of bytes, at least one byte past the current limit
+    */
+   int getRequiredLimit() {
+      return Math.max(requiredLimit, buffer.limit() + 1);
+   }
+
+   void resetRequiredLimit() {
+      requiredLimit = 0;
+   }
+
+   @Override
+   public short readByte() {
+      return (short) (buffer.get() & 0xFF);
+   }
+
+   @Override
+   public int readVInt() {
+      return readUnsignedInt(buffer);
+   }
+
+   @Override
+   public long readVLong() {
+      return readUnsignedLong(buffer);
+   }
+
+   @Override
+   public byte[] readByteArray(int size) {
+      if (buffer.remaining() < size) {
+         requiredLimit = buffer.position() + size;
+         throw new BufferUnderflowException();
+      }
+      byte[] result = new byte[size];
+      buffer.get(result);
+      return result;
+   }
+
+   @Override
+   public byte[] dumpStream() {
+      byte[] remaining = new byte[buffer.remaining()];
+      buffer.get(remaining);
+      return remaining;
+   }
+
+   @Override
+   public SocketAddress getRemoteSocketAddress() {
+      return server;
+   }
+
+   @Override
+   public void flush() {
+      throw new UnsupportedOperationException();
+   }
+
+   @Override
+   public void release() {
+      // nothing to release
+   }
+
+   @Override
+   protected void writeBytes(byte[] toAppend) {
+      throw new UnsupportedOperationException();
+   }
+
+   @Override
+   public void writeByte(short toWrite) {
+      throw new UnsupportedOperationException();
+   }
+
+   @Override
+   public void writeVInt(int vint) {
+      throw new UnsupportedOperationException();
+   }
+
+   @Override
+   public void writeVLong(long l) {
+      throw new UnsupportedOperationException();
+   }
+}
@@ -26,7 +26,9 @@
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -138,15 +140,50 @@ public void updateHashFunction(Map<SocketAddress, Set<Integer>> servers2Hash, in
 
    @Override
    public Transport getTransport() {
-      SocketAddress server;
-      synchronized (lock) {
-         server = balancer.nextServer();
-      }
-      return borrowTransportFromPool(server);
+      return borrowTransportFromPool(nextServer());
    }
 
    @Override
    public Transport getTransport(byte[] key) {
+      return borrowTransportFromPool(getServer(key));
+   }
+
+   /**
+    * Groups the given keys by the server owning them, so that multi-key operations can be sent once to each server.
+    * When no consistent hash is known all the keys are grouped under the server picked by the request balancer.
+    */
+   public Collection<List<byte[]>> groupKeysByServer(Collection<byte[]> keys) {
+      if (keys.isEmpty()) {
+         return Collections.emptyList();
+      }
+      Map<SocketAddress, List<byte[]>> groups = new HashMap<SocketAddress, List<byte[]>>();
+      synchronized (lock) {
+         if (consistentHash == null) {
+            return Collections.singletonList((List<byte[]>) new ArrayList<byte[]>(keys));
+         }
+         for (byte[] key : keys) {
+            SocketAddress server = consistentHash.getServer(key);
+            List<byte[]> group = groups.get(server);
+            if (group == null) {
+               group = new ArrayList<byte[]>();
+               groups.put(server, group);
+            }
+            group.add(key);
+         }
+      }
+      return groups.values();
+   }
+
+   protected SocketAddress nextServer() {
+      synchronized (lock) {
+         return balancer.nextServer();
+      }
+   }
+
+   /**
+    * Returns the server owning the given key, falling back to the request balancer when no consistent hash is known.
+    */
+   protected SocketAddress getServer(byte[] key) {
       SocketAddress server;
       synchronized (lock) {
          if (consistentHash != null) {
@@ -161,7 +198,7 @@ public Transport getTransport(byte[] key) {
             }
          }
       }
-      return borrowTransportFromPool(server);
+      return server;
    }
 
    @Override
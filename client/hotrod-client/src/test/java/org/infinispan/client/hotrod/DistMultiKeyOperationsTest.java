@@ -0,0 +1,89 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.client.hotrod;
+
+import org.infinispan.client.hotrod.test.MultiHotRodServersTest;
+import org.infinispan.config.Configuration;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.infinispan.test.TestingUtil.k;
+import static org.infinispan.test.TestingUtil.v;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+/**
+ * Tests the multi-key get and bulk put operations against a distributed cluster, where each operation is split into
+ * one request per server.
+ *
+ * @since 5.2
+ */
+@Test(groups = "functional", testName = "client.hotrod.DistMultiKeyOperationsTest")
+public class DistMultiKeyOperationsTest extends MultiHotRodServersTest {
+
+   @Override
+   protected void createCacheManagers() throws Throwable {
+      Configuration cfg = getDefaultClusteredConfig(Configuration.CacheMode.DIST_SYNC);
+      cfg.setNumOwners(1);
+      createHotRodServers(3, cfg);
+   }
+
+   public void testPutAllThenGetAll(Method m) {
+      RemoteCache<String, String> remoteCache = client(0).getCache();
+      // Make sure the client has received the cluster topology
+      remoteCache.put(k(m), v(m));
+
+      Map<String, String> entries = new HashMap<String, String>();
+      for (int i = 0; i < 50; i++) entries.put(k(m, i), v(m, i));
+      remoteCache.putAll(entries);
+
+      RemoteCache<String, String> otherCache = client(1).getCache();
+      for (Map.Entry<String, String> entry : entries.entrySet())
+         assertEquals(entry.getValue(), otherCache.get(entry.getKey()));
+
+      Set<String> keys = new HashSet<String>(entries.keySet());
+      keys.add(k(m, 1000));
+      assertEquals(entries, remoteCache.getAll(keys));
+   }
+
+   public void testGetAllNoKeys() {
+      RemoteCache<String, String> remoteCache = client(0).getCache();
+      assertTrue(remoteCache.getAll(Collections.<String>emptySet()).isEmpty());
+   }
+
+   public void testPutAllOverwrites(Method m) {
+      RemoteCache<String, String> remoteCache = client(2).getCache();
+      remoteCache.put(k(m, 1), v(m, 1));
+      remoteCache.putAll(Collections.singletonMap(k(m, 1), v(m, 2)));
+      assertEquals(v(m, 2), remoteCache.get(k(m, 1)));
+      assertEquals(Collections.singletonMap(k(m, 1), v(m, 2)),
+            remoteCache.getAll(Collections.singleton(k(m, 1))));
+   }
+
+}
@@ -0,0 +1,110 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.client.hotrod;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNull;
+
+import java.util.Properties;
+
+import org.infinispan.client.hotrod.impl.ConfigurationProperties;
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.infinispan.server.hotrod.HotRodServer;
+import org.infinispan.test.SingleCacheManagerTest;
+import org.infinispan.test.TestingUtil;
+import org.infinispan.test.fwk.TestCacheManagerFactory;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the client side near cache.
+ *
+ * @since 5.2
+ */
+@Test(groups = "functional", testName = "client.hotrod.NearCacheTest")
+public class NearCacheTest extends SingleCacheManagerTest {
+
+   private static final long VALIDATION_INTERVAL = 500;
+
+   private HotRodServer hotrodServer;
+   private RemoteCacheManager rcm;
+   private RemoteCacheManager otherClientRcm;
+   private RemoteCache<String, String> remoteCache;
+
+   @Override
+   protected EmbeddedCacheManager createCacheManager() throws Exception {
+      EmbeddedCacheManager cm = TestCacheManagerFactory.createLocalCacheManager(false);
+      cache = cm.getCache();
+      hotrodServer = TestHelper.startHotRodServer(cm);
+      Properties props = new Properties();
+      props.put(ConfigurationProperties.SERVER_LIST, "127.0.0.1:" + hotrodServer.getPort());
+      props.put(ConfigurationProperties.NEAR_CACHE_MAX_ENTRIES, "100");
+      props.put(ConfigurationProperties.NEAR_CACHE_VALIDATION_INTERVAL, String.valueOf(VALIDATION_INTERVAL));
+      rcm = new RemoteCacheManager(props);
+      remoteCache = rcm.getCache();
+      otherClientRcm = new RemoteCacheManager("127.0.0.1", hotrodServer.getPort());
+      return cm;
+   }
+
+   @AfterClass(alwaysRun = true)
+   @Override
+   protected void destroyAfterClass() {
+      super.destroyAfterClass();
+      rcm.stop();
+      otherClientRcm.stop();
+      hotrodServer.stop();
+   }
+
+   public void testRepeatedReadsAreServedLocally() {
+      remoteCache.put("k1", "v1");
+      long hits = nearCacheStat(ServerStatistics.NEAR_CACHE_HITS);
+      long misses = nearCacheStat(ServerStatistics.NEAR_CACHE_MISSES);
+      assertEquals("v1", remoteCache.get("k1"));
+      assertEquals("v1", remoteCache.get("k1"));
+      assertEquals("v1", remoteCache.get("k1"));
+      assertEquals(misses + 1, nearCacheStat(ServerStatistics.NEAR_CACHE_MISSES));
+      assertEquals(hits + 2, nearCacheStat(ServerStatistics.NEAR_CACHE_HITS));
+   }
+
+   public void testLocalWritesInvalidate() {
+      remoteCache.put("k2", "v1");
+      assertEquals("v1", remoteCache.get("k2"));
+      remoteCache.put("k2", "v2");
+      assertEquals("v2", remoteCache.get("k2"));
+      remoteCache.remove("k2");
+      assertNull(remoteCache.get("k2"));
+   }
+
+   public void testRemoteWritesAreSeenAfterRevalidation() {
+      remoteCache.put("k3", "v1");
+      assertEquals("v1", remoteCache.get("k3"));
+      // written by another client, so the near cache doesn't know about it
+      otherClientRcm.<String, String>getCache().put("k3", "v2");
+      TestingUtil.sleepThread(VALIDATION_INTERVAL * 2);
+      assertEquals("v2", remoteCache.get("k3"));
+   }
+
+   private long nearCacheStat(String name) {
+      return Long.parseLong(remoteCache.stats().getStatistic(name));
+   }
+}
@@ -0,0 +1,80 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.client.hotrod;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.infinispan.client.hotrod.impl.ConfigurationProperties;
+import org.infinispan.client.hotrod.impl.transport.nio.NioTransportFactory;
+import org.infinispan.util.concurrent.FutureListener;
+import org.infinispan.util.concurrent.NotifyingFuture;
+import org.testng.annotations.Test;
+
+/**
+ * Runs the asynchronous API tests with requests pipelined over multiplexed connections.
+ *
+ * @since 5.2
+ */
+@Test(groups = "functional", testName = "client.hotrod.PipelinedAsyncAPITest")
+public class PipelinedAsyncAPITest extends RemoteAsyncAPITest {
+
+   @Override
+   protected void configure(Properties props) {
+      props.put(ConfigurationProperties.TRANSPORT_FACTORY, NioTransportFactory.class.getName());
+      props.put(ConfigurationProperties.NIO_CONNECTIONS_PER_SERVER, "1");
+   }
+
+   public void testManyConcurrentRequestsOverOneConnection() throws Exception {
+      int numRequests = 1000;
+      final CountDownLatch completed = new CountDownLatch(numRequests);
+      FutureListener<String> listener = new FutureListener<String>() {
+         @Override
+         public void futureDone(Future<String> future) {
+            completed.countDown();
+         }
+      };
+      List<NotifyingFuture<String>> puts = new ArrayList<NotifyingFuture<String>>(numRequests);
+      for (int i = 0; i < numRequests; i++) {
+         puts.add(c.putAsync("pipelined" + i, "v" + i).attachListener(listener));
+      }
+      for (NotifyingFuture<String> put : puts) {
+         put.get(10, TimeUnit.SECONDS);
+      }
+
+      List<NotifyingFuture<String>> gets = new ArrayList<NotifyingFuture<String>>(numRequests);
+      for (int i = 0; i < numRequests; i++) {
+         gets.add(c.getAsync("pipelined" + i));
+      }
+      for (int i = 0; i < numRequests; i++) {
+         assertEquals("v" + i, gets.get(i).get(10, TimeUnit.SECONDS));
+      }
+      assert completed.await(10, TimeUnit.SECONDS);
+   }
+}
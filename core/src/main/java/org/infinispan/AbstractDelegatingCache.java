@@ -303,6 +303,11 @@ public V get(Object key) {
       return cache.get(key);
    }
 
+   @Override
+   public Map<K, V> getAll(Set<? extends K> keys) {
+      return cache.getAll(keys);
+   }
+
    @Override
    public V put(K key, V value) {
       return cache.put(key, value);
@@ -367,6 +372,11 @@ public Set<Object> getListeners() {
    public NotifyingFuture<V> getAsync(K key) {
       return cache.getAsync(key);
    }
+
+   @Override
+   public NotifyingFuture<Map<K, V>> getAllAsync(Set<? extends K> keys) {
+      return cache.getAllAsync(keys);
+   }
    
    @Override
    public String toString() {
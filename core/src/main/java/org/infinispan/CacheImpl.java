@@ -28,6 +28,7 @@
 import org.infinispan.commands.VisitableCommand;
 import org.infinispan.commands.control.LockControlCommand;
 import org.infinispan.commands.read.EntrySetCommand;
+import org.infinispan.commands.read.GetAllCommand;
 import org.infinispan.commands.read.GetKeyValueCommand;
 import org.infinispan.commands.read.KeySetCommand;
 import org.infinispan.commands.read.SizeCommand;
@@ -92,8 +93,10 @@
 import javax.transaction.Transaction;
 import javax.transaction.TransactionManager;
 import javax.transaction.xa.XAResource;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
@@ -281,6 +284,20 @@ final V get(Object key, EnumSet<Flag> explicitFlags, ClassLoader explicitClassLo
       return (V) invoker.invoke(ctx, command);
    }
 
+   @Override
+   public final Map<K, V> getAll(Set<? extends K> keys) {
+      return getAll(keys, null, null);
+   }
+
+   @SuppressWarnings("unchecked")
+   final Map<K, V> getAll(Set<? extends K> keys, EnumSet<Flag> explicitFlags, ClassLoader explicitClassLoader) {
+      for (K key : keys) assertKeyNotNull(key);
+      if (keys.isEmpty()) return Collections.emptyMap();
+      InvocationContext ctx = getInvocationContextForRead(null, explicitFlags, explicitClassLoader, keys.size());
+      GetAllCommand command = commandsFactory.buildGetAllCommand(new ArrayList<Object>(keys), ctx.getFlags());
+      return (Map<K, V>) invoker.invoke(ctx, command);
+   }
+
    @Override
    public final V remove(Object key) {
       return remove(key, null, null);
@@ -925,6 +942,51 @@ public V call() throws Exception {
       }
    }
 
+   @Override
+   public NotifyingFuture<Map<K, V>> getAllAsync(Set<? extends K> keys) {
+      return getAllAsync(keys, null, null);
+   }
+
+   @SuppressWarnings("unchecked")
+   NotifyingFuture<Map<K, V>> getAllAsync(final Set<? extends K> keys, final EnumSet<Flag> explicitFlags, final ClassLoader explicitClassLoader) {
+      final Transaction tx = getOngoingTransaction();
+      final NotifyingNotifiableFuture<Map<K, V>> f = new DeferredReturnFuture<Map<K, V>>();
+
+      // Optimization to not start a new thread only when the operation is cheap for all the keys:
+      boolean skipThread = true;
+      for (K key : keys) {
+         if (!asyncSkipsThread(explicitFlags, key)) {
+            skipThread = false;
+            break;
+         }
+      }
+      if (skipThread) {
+         return wrapInFuture(getAll(keys, explicitFlags, explicitClassLoader));
+      } else {
+         // Make sure the flags are cleared
+         final EnumSet<Flag> appliedFlags;
+         if (explicitFlags == null) {
+            appliedFlags = null;
+         } else {
+            appliedFlags = explicitFlags.clone();
+            explicitFlags.clear();
+         }
+         Callable<Map<K, V>> c = new Callable<Map<K, V>>() {
+            @Override
+            public Map<K, V> call() throws Exception {
+               for (K key : keys) assertKeyNotNull(key);
+               InvocationContext ctx = getInvocationContextForRead(tx, appliedFlags, explicitClassLoader, keys.size());
+               GetAllCommand command = commandsFactory.buildGetAllCommand(new ArrayList<Object>(keys), appliedFlags);
+               Object ret = invoker.invoke(ctx, command);
+               f.notifyDone();
+               return (Map<K, V>) ret;
+            }
+         };
+         f.setNetworkFuture(asyncExecutor.submit(c));
+         return f;
+      }
+   }
+
    /**
     * Encodes the cases for an asyncGet operation in which it makes sense to actually perform the operation in sync.
     *
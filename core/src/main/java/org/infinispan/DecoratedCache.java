@@ -294,6 +294,11 @@ public NotifyingFuture<V> getAsync(K key) {
       return cacheImplementation.getAsync(key, flags, classLoader);
    }
 
+   @Override
+   public NotifyingFuture<Map<K, V>> getAllAsync(Set<? extends K> keys) {
+      return cacheImplementation.getAllAsync(keys, flags, classLoader);
+   }
+
    @Override
    public int size() {
       return cacheImplementation.size(flags, classLoader);
@@ -314,6 +319,11 @@ public V get(Object key) {
       return cacheImplementation.get(key, flags, classLoader);
    }
 
+   @Override
+   public Map<K, V> getAll(Set<? extends K> keys) {
+      return cacheImplementation.getAll(keys, flags, classLoader);
+   }
+
    @Override
    public V put(K key, V value) {
       return cacheImplementation.put(key, value, cacheImplementation.defaultLifespan, MILLISECONDS, cacheImplementation.defaultMaxIdleTime, MILLISECONDS, flags, classLoader);
@@ -26,6 +26,7 @@
 import org.infinispan.util.concurrent.NotifyingFuture;
 
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 
@@ -465,4 +466,23 @@
     * follows the same rules as {@link #get(Object)}
     */
    NotifyingFuture<V> getAsync(K key);
+
+   /**
+    * Retrieves the values associated with several keys at once.  This is equivalent to calling {@link #get(Object)}
+    * for each of the keys, but the lookup is performed as a single operation: in a distributed cache the keys are
+    * grouped by owner and each owner is contacted once, all owners being contacted in parallel.
+    *
+    * @param keys keys to retrieve
+    * @return a map containing the keys that were found, along with their values.  Keys that do not exist in the cache
+    * are not part of the returned map.
+    */
+   Map<K, V> getAll(Set<? extends K> keys);
+
+   /**
+    * Asynchronous version of {@link #getAll(java.util.Set)}.
+    *
+    * @param keys keys to retrieve
+    * @return a future containing the map of keys that were found, along with their values
+    */
+   NotifyingFuture<Map<K, V>> getAllAsync(Set<? extends K> keys);
 }
@@ -25,14 +25,17 @@
 import org.infinispan.atomic.Delta;
 import org.infinispan.commands.control.LockControlCommand;
 import org.infinispan.commands.control.StateTransferControlCommand;
+import org.infinispan.commands.control.TotalOrderControlCommand;
 import org.infinispan.commands.read.DistributedExecuteCommand;
 import org.infinispan.commands.read.EntrySetCommand;
+import org.infinispan.commands.read.GetAllCommand;
 import org.infinispan.commands.read.GetKeyValueCommand;
 import org.infinispan.commands.read.KeySetCommand;
 import org.infinispan.commands.read.MapCombineCommand;
 import org.infinispan.commands.read.ReduceCommand;
 import org.infinispan.commands.read.SizeCommand;
 import org.infinispan.commands.read.ValuesCommand;
+import org.infinispan.commands.remote.ClusteredGetAllCommand;
 import org.infinispan.commands.remote.ClusteredGetCommand;
 import org.infinispan.commands.remote.MultipleRpcCommand;
 import org.infinispan.commands.remote.SingleRpcCommand;
@@ -159,6 +162,13 @@ public interface CommandsFactory {
     */
    GetKeyValueCommand buildGetKeyValueCommand(Object key, Set<Flag> flags);
 
+   /**
+    * Builds a GetAllCommand
+    * @param keys keys to get
+    * @return a GetAllCommand
+    */
+   GetAllCommand buildGetAllCommand(Collection<Object> keys, Set<Flag> flags);
+
    /**
     * Builds a KeySetCommand
     * @return a KeySetCommand
@@ -218,6 +228,19 @@ public interface CommandsFactory {
     */
    VersionedPrepareCommand buildVersionedPrepareCommand(GlobalTransaction gtx, List<WriteCommand> modifications, boolean onePhase);
 
+   /**
+    * Builds a TotalOrderControlCommand, used by the total order transaction protocol to sequence and deliver prepares
+    * @param type type of TotalOrderControlCommand
+    * @param epoch the view id in which the sender became the sequencer, for DELIVER and RECOVER
+    * @param sequenceNumber the sequence number of the prepare, for DELIVER
+    * @param stableSequenceNumber the highest sequence number delivered to every node, for DELIVER
+    * @param prepareCommand the prepare to sequence or deliver
+    * @return a TotalOrderControlCommand
+    */
+   TotalOrderControlCommand buildTotalOrderControlCommand(TotalOrderControlCommand.Type type, int epoch,
+                                                          long sequenceNumber, long stableSequenceNumber,
+                                                          PrepareCommand prepareCommand);
+
    /**
     * Builds a CommitCommand
     * @param gtx global transaction associated with the commit
@@ -273,6 +296,13 @@ public interface CommandsFactory {
     */
    ClusteredGetCommand buildClusteredGetCommand(Object key, Set<Flag> flags, boolean acquireRemoteLock, GlobalTransaction gtx);
 
+   /**
+    * Builds a ClusteredGetAllCommand, which is a remote lookup command for several keys owned by the same node
+    * @param keys keys to look up
+    * @return a ClusteredGetAllCommand
+    */
+   ClusteredGetAllCommand buildClusteredGetAllCommand(List<Object> keys, Set<Flag> flags);
+
    /**
     * Builds a LockControlCommand to control explicit remote locking
     *
@@ -26,15 +26,18 @@
 import org.infinispan.atomic.Delta;
 import org.infinispan.commands.control.LockControlCommand;
 import org.infinispan.commands.control.StateTransferControlCommand;
+import org.infinispan.commands.control.TotalOrderControlCommand;
 import org.infinispan.commands.module.ModuleCommandInitializer;
 import org.infinispan.commands.read.DistributedExecuteCommand;
 import org.infinispan.commands.read.EntrySetCommand;
+import org.infinispan.commands.read.GetAllCommand;
 import org.infinispan.commands.read.GetKeyValueCommand;
 import org.infinispan.commands.read.KeySetCommand;
 import org.infinispan.commands.read.MapCombineCommand;
 import org.infinispan.commands.read.ReduceCommand;
 import org.infinispan.commands.read.SizeCommand;
 import org.infinispan.commands.read.ValuesCommand;
+import org.infinispan.commands.remote.ClusteredGetAllCommand;
 import org.infinispan.commands.remote.ClusteredGetCommand;
 import org.infinispan.commands.remote.MultipleRpcCommand;
 import org.infinispan.commands.remote.SingleRpcCommand;
@@ -80,6 +83,7 @@
 import org.infinispan.statetransfer.StateTransferManager;
 import org.infinispan.transaction.RemoteTransaction;
 import org.infinispan.transaction.TransactionTable;
+import org.infinispan.transaction.totalorder.TotalOrderManager;
 import org.infinispan.transaction.xa.DldGlobalTransaction;
 import org.infinispan.transaction.xa.GlobalTransaction;
 import org.infinispan.transaction.xa.recovery.RecoveryManager;
@@ -126,6 +130,7 @@ public class CommandsFactoryImpl implements CommandsFactory {
    private LockManager lockManager;
    private InternalEntryFactory entryFactory;
    private MapReduceManager mapReduceManager;
+   private TotalOrderManager totalOrderManager;
 
    private Map<Byte, ModuleCommandInitializer> moduleCommandInitializers;
 
@@ -135,7 +140,8 @@ public void setupDependencies(DataContainer container, CacheNotifier notifier, C
                                  InvocationContextContainer icc, TransactionTable txTable, Configuration configuration,
                                  @ComponentName(KnownComponentNames.MODULE_COMMAND_INITIALIZERS) Map<Byte, ModuleCommandInitializer> moduleCommandInitializers,
                                  RecoveryManager recoveryManager, StateTransferManager stateTransferManager, LockManager lockManager,
-                                 InternalEntryFactory entryFactory, MapReduceManager mapReduceManager) {
+                                 InternalEntryFactory entryFactory, MapReduceManager mapReduceManager,
+                                 TotalOrderManager totalOrderManager) {
       this.dataContainer = container;
       this.notifier = notifier;
       this.cache = cache;
@@ -150,6 +156,7 @@ public void setupDependencies(DataContainer container, CacheNotifier notifier, C
       this.lockManager = lockManager;
       this.entryFactory = entryFactory;
       this.mapReduceManager = mapReduceManager;
+      this.totalOrderManager = totalOrderManager;
    }
 
    @Start(priority = 1)
@@ -235,6 +242,11 @@ public GetKeyValueCommand buildGetKeyValueCommand(Object key, Set<Flag> flags) {
       return new GetKeyValueCommand(key, notifier, flags);
    }
 
+   @Override
+   public GetAllCommand buildGetAllCommand(Collection<Object> keys, Set<Flag> flags) {
+      return new GetAllCommand(keys, notifier, flags);
+   }
+
    @Override
    public PutMapCommand buildPutMapCommand(Map<?, ?> map, long lifespan, long maxIdleTimeMillis, Set<Flag> flags) {
       return new PutMapCommand(map, notifier, lifespan, maxIdleTimeMillis, flags);
@@ -260,6 +272,13 @@ public VersionedPrepareCommand buildVersionedPrepareCommand(GlobalTransaction gt
       return new VersionedPrepareCommand(cacheName, gtx, modifications, onePhase);
    }
 
+   @Override
+   public TotalOrderControlCommand buildTotalOrderControlCommand(TotalOrderControlCommand.Type type, int epoch,
+                                                                 long sequenceNumber, long stableSequenceNumber,
+                                                                 PrepareCommand prepareCommand) {
+      return new TotalOrderControlCommand(cacheName, type, epoch, sequenceNumber, stableSequenceNumber, prepareCommand);
+   }
+
    @Override
    public CommitCommand buildCommitCommand(GlobalTransaction gtx) {
       return new CommitCommand(cacheName, gtx);
@@ -290,6 +309,11 @@ public ClusteredGetCommand buildClusteredGetCommand(Object key, Set<Flag> flags,
       return new ClusteredGetCommand(key, cacheName, flags, acquireRemoteLock, gtx);
    }
 
+   @Override
+   public ClusteredGetAllCommand buildClusteredGetAllCommand(List<Object> keys, Set<Flag> flags) {
+      return new ClusteredGetAllCommand(keys, cacheName, flags);
+   }
+
    /**
     * @param isRemote true if the command is deserialized and is executed remote.
     */
@@ -348,6 +372,12 @@ public void initializeReplicableCommand(ReplicableCommand c, boolean isRemote) {
                transaction.setLocksHeldAtOrigin(pc.getAffectedKeys());
             }
             break;
+         case TotalOrderControlCommand.COMMAND_ID:
+            TotalOrderControlCommand totalOrderCommand = (TotalOrderControlCommand) c;
+            totalOrderCommand.init(totalOrderManager);
+            if (totalOrderCommand.getPrepareCommand() != null)
+               initializeReplicableCommand(totalOrderCommand.getPrepareCommand(), isRemote);
+            break;
          case CommitCommand.COMMAND_ID:
          case VersionedCommitCommand.COMMAND_ID:
             CommitCommand commitCommand = (CommitCommand) c;
@@ -367,6 +397,10 @@ public void initializeReplicableCommand(ReplicableCommand c, boolean isRemote) {
             ClusteredGetCommand clusteredGetCommand = (ClusteredGetCommand) c;
             clusteredGetCommand.initialize(icc, this, entryFactory, interceptorChain, distributionManager, txTable);
             break;
+         case ClusteredGetAllCommand.COMMAND_ID:
+            ClusteredGetAllCommand clusteredGetAllCommand = (ClusteredGetAllCommand) c;
+            clusteredGetAllCommand.initialize(icc, this, entryFactory, interceptorChain, distributionManager);
+            break;
          case LockControlCommand.COMMAND_ID:
             LockControlCommand lcc = (LockControlCommand) c;
             lcc.init(interceptorChain, icc, txTable);
@@ -26,6 +26,7 @@
 import org.infinispan.commands.control.CacheViewControlCommand;
 import org.infinispan.commands.control.LockControlCommand;
 import org.infinispan.commands.control.StateTransferControlCommand;
+import org.infinispan.commands.control.TotalOrderControlCommand;
 import org.infinispan.commands.module.ExtendedModuleCommandFactory;
 import org.infinispan.commands.module.ModuleCommandFactory;
 import org.infinispan.commands.read.DistributedExecuteCommand;
@@ -33,6 +34,7 @@
 import org.infinispan.commands.read.MapCombineCommand;
 import org.infinispan.commands.read.ReduceCommand;
 import org.infinispan.commands.remote.CacheRpcCommand;
+import org.infinispan.commands.remote.ClusteredGetAllCommand;
 import org.infinispan.commands.remote.ClusteredGetCommand;
 import org.infinispan.commands.remote.MultipleRpcCommand;
 import org.infinispan.commands.remote.SingleRpcCommand;
@@ -177,6 +179,9 @@ public CacheRpcCommand fromStream(byte id, Object[] parameters, byte type, Strin
             case VersionedPrepareCommand.COMMAND_ID:
                command = new VersionedPrepareCommand(cacheName);
                break;
+            case TotalOrderControlCommand.COMMAND_ID:
+               command = new TotalOrderControlCommand(cacheName);
+               break;
             case CommitCommand.COMMAND_ID:
                command = new CommitCommand(cacheName);
                break;
@@ -195,6 +200,9 @@ public CacheRpcCommand fromStream(byte id, Object[] parameters, byte type, Strin
             case ClusteredGetCommand.COMMAND_ID:
                command = new ClusteredGetCommand(cacheName);
                break;
+            case ClusteredGetAllCommand.COMMAND_ID:
+               command = new ClusteredGetAllCommand(cacheName);
+               break;
             case StateTransferControlCommand.COMMAND_ID:
                command = new StateTransferControlCommand(cacheName);
                break;
@@ -0,0 +1,143 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.commands.control;
+
+import org.infinispan.CacheException;
+import org.infinispan.commands.remote.BaseRpcCommand;
+import org.infinispan.commands.tx.PrepareCommand;
+import org.infinispan.context.InvocationContext;
+import org.infinispan.transaction.totalorder.TotalOrderManager;
+
+/**
+ * A control command of the {@link org.infinispan.transaction.TransactionProtocol#TOTAL_ORDER total order} transaction
+ * protocol. The originator of a transaction sends FORWARD to the coordinator, which sequences the prepare and sends
+ * it to every other node in a DELIVER command. When the coordinator changes, the new coordinator sends RECOVER to all
+ * the nodes to retrieve the prepares they delivered but which are not known to have reached every node yet.
+ *
+ * @see TotalOrderManager
+ * @since 5.2
+ */
+public class TotalOrderControlCommand extends BaseRpcCommand {
+
+   public enum Type {
+      // the originator of a transaction asks the coordinator to sequence its prepare
+      FORWARD,
+      // the coordinator sends a sequenced prepare, to be applied in sequence order
+      DELIVER,
+      // a new coordinator retrieves the prepares delivered by a node and not yet stable
+      RECOVER
+   }
+
+   public static final byte COMMAND_ID = 33;
+
+   private Type type;
+   private int epoch;
+   private long sequenceNumber;
+   private long stableSequenceNumber;
+   private PrepareCommand prepareCommand;
+   private TotalOrderManager totalOrderManager;
+
+   private TotalOrderControlCommand() {
+      super(null); // For command id uniqueness test
+   }
+
+   public TotalOrderControlCommand(String cacheName) {
+      super(cacheName);
+   }
+
+   public TotalOrderControlCommand(String cacheName, Type type, int epoch, long sequenceNumber,
+                                   long stableSequenceNumber, PrepareCommand prepareCommand) {
+      super(cacheName);
+      this.type = type;
+      this.epoch = epoch;
+      this.sequenceNumber = sequenceNumber;
+      this.stableSequenceNumber = stableSequenceNumber;
+      this.prepareCommand = prepareCommand;
+   }
+
+   public void init(TotalOrderManager totalOrderManager) {
+      this.totalOrderManager = totalOrderManager;
+   }
+
+   @Override
+   public Object perform(InvocationContext ctx) throws Throwable {
+      if (prepareCommand != null) prepareCommand.setOrigin(getOrigin());
+      switch (type) {
+         case FORWARD:
+            return totalOrderManager.handleForward(prepareCommand);
+         case DELIVER:
+            totalOrderManager.handleDeliver(epoch, sequenceNumber, stableSequenceNumber, prepareCommand);
+            return null;
+         case RECOVER:
+            return totalOrderManager.handleRecover(epoch);
+         default:
+            throw new CacheException("Unknown total order control command type " + type);
+      }
+   }
+
+   public Type getType() {
+      return type;
+   }
+
+   public PrepareCommand getPrepareCommand() {
+      return prepareCommand;
+   }
+
+   @Override
+   public byte getCommandId() {
+      return COMMAND_ID;
+   }
+
+   @Override
+   public Object[] getParameters() {
+      return new Object[]{(byte) type.ordinal(), epoch, sequenceNumber, stableSequenceNumber, prepareCommand};
+   }
+
+   @Override
+   public void setParameters(int commandId, Object[] parameters) {
+      if (commandId != COMMAND_ID) throw new IllegalStateException("Unsupported command id:" + commandId);
+      int i = 0;
+      type = Type.values()[(Byte) parameters[i++]];
+      epoch = (Integer) parameters[i++];
+      sequenceNumber = (Long) parameters[i++];
+      stableSequenceNumber = (Long) parameters[i++];
+      prepareCommand = (PrepareCommand) parameters[i++];
+   }
+
+   @Override
+   public boolean isReturnValueExpected() {
+      return true;
+   }
+
+   @Override
+   public String toString() {
+      return "TotalOrderControlCommand{" +
+            "cacheName='" + cacheName + '\'' +
+            ", type=" + type +
+            ", epoch=" + epoch +
+            ", sequenceNumber=" + sequenceNumber +
+            ", stableSequenceNumber=" + stableSequenceNumber +
+            ", prepareCommand=" + prepareCommand +
+            '}';
+   }
+}
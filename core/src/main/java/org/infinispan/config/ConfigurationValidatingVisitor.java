@@ -74,9 +74,6 @@ public void visitClusteringType(Configuration.ClusteringType clusteringType) {
       if (mode.isInvalidation() && state.fetchInMemoryState)
          throw new ConfigurationException("Cache cannot use INVALIDATION mode and have fetchInMemoryState set to true.");
 
-      if (mode.isDistributed() && async.useReplQueue)
-         throw new ConfigurationException("Use of the replication queue is invalid when using DISTRIBUTED mode.");
-
       if (mode.isSynchronous() && async.useReplQueue)
          throw new ConfigurationException("Use of the replication queue is only allowed with an ASYNCHRONOUS cluster mode.");
 
@@ -33,15 +33,20 @@ public class AsyncConfiguration {
    private final ReplicationQueue replicationQueue;
    private final long replicationQueueInterval;
    private final int replicationQueueMaxElements;
+   private final long replicationQueueMaxBytes;
    private final boolean useReplicationQueue;
+   private final int remoteCommandStripes;
 
    AsyncConfiguration(boolean asyncMarshalling, ReplicationQueue replicationQueue, long replicationQueueInterval,
-         int replicationQueueMaxElements, boolean useReplicationQueue) {
+         int replicationQueueMaxElements, long replicationQueueMaxBytes, boolean useReplicationQueue,
+         int remoteCommandStripes) {
       this.asyncMarshalling = asyncMarshalling;
       this.replicationQueue = replicationQueue;
       this.replicationQueueInterval = replicationQueueInterval;
       this.replicationQueueMaxElements = replicationQueueMaxElements;
+      this.replicationQueueMaxBytes = replicationQueueMaxBytes;
       this.useReplicationQueue = useReplicationQueue;
+      this.remoteCommandStripes = remoteCommandStripes;
    }
 
    /**
@@ -77,6 +82,17 @@ public int replQueueMaxElements() {
       return replicationQueueMaxElements;
    }
 
+   /**
+    * If useReplQueue is set to true, this attribute can be used to trigger flushing of the queue
+    * when the estimated size of the queued commands reaches a specific number of bytes.  0 means
+    * the queue is never flushed because of its size in bytes.  Commands are only marshalled when
+    * the queue is flushed, so the size of each is predicted from the commands of the same type
+    * marshalled before, and the threshold is only approximate.
+    */
+   public long replQueueMaxBytes() {
+      return replicationQueueMaxBytes;
+   }
+
    /**
     * If true, this forces all async communications to be queued up and sent out periodically as a
     * batch.
@@ -85,6 +101,16 @@ public boolean useReplQueue() {
       return useReplicationQueue;
    }
 
+   /**
+    * The number of ordered executors that remotely originating write commands are spread over,
+    * according to the keys they affect. Commands affecting the same key are always applied in the
+    * order they were received, while commands affecting different keys run in parallel. 0 means
+    * remote commands are applied by the thread that received them.
+    */
+   public int remoteCommandStripes() {
+      return remoteCommandStripes;
+   }
+
    @Override
    public String toString() {
       return "AsyncConfiguration{" +
@@ -92,7 +118,9 @@ public String toString() {
             ", replicationQueue=" + replicationQueue +
             ", replicationQueueInterval=" + replicationQueueInterval +
             ", replicationQueueMaxElements=" + replicationQueueMaxElements +
+            ", replicationQueueMaxBytes=" + replicationQueueMaxBytes +
             ", useReplicationQueue=" + useReplicationQueue +
+            ", remoteCommandStripes=" + remoteCommandStripes +
             '}';
    }
 
@@ -108,7 +136,10 @@ public boolean equals(Object o) {
          return false;
       if (replicationQueueMaxElements != that.replicationQueueMaxElements)
          return false;
+      if (replicationQueueMaxBytes != that.replicationQueueMaxBytes)
+         return false;
       if (useReplicationQueue != that.useReplicationQueue) return false;
+      if (remoteCommandStripes != that.remoteCommandStripes) return false;
       if (replicationQueue != null ? !replicationQueue.equals(that.replicationQueue) : that.replicationQueue != null)
          return false;
 
@@ -121,7 +152,9 @@ public int hashCode() {
       result = 31 * result + (replicationQueue != null ? replicationQueue.hashCode() : 0);
       result = 31 * result + (int) (replicationQueueInterval ^ (replicationQueueInterval >>> 32));
       result = 31 * result + replicationQueueMaxElements;
+      result = 31 * result + (int) (replicationQueueMaxBytes ^ (replicationQueueMaxBytes >>> 32));
       result = 31 * result + (useReplicationQueue ? 1 : 0);
+      result = 31 * result + remoteCommandStripes;
       return result;
    }
 
@@ -21,6 +21,7 @@
 import java.util.concurrent.TimeUnit;
 
 import org.infinispan.config.ConfigurationException;
+import org.infinispan.remoting.RecipientAwareReplicationQueue;
 import org.infinispan.remoting.ReplicationQueue;
 import org.infinispan.remoting.ReplicationQueueImpl;
 
@@ -36,7 +37,9 @@ public class AsyncConfigurationBuilder extends AbstractClusteringConfigurationCh
    private ReplicationQueue replicationQueue = new ReplicationQueueImpl();
    private long replicationQueueInterval = TimeUnit.SECONDS.toMillis(5);
    private int replicationQueueMaxElements = 1000;
+   private long replicationQueueMaxBytes = 0;
    private boolean useReplicationQueue = false;
+   private int remoteCommandStripes = 0;
 
    protected AsyncConfigurationBuilder(ClusteringConfigurationBuilder builder) {
       super(builder);
@@ -106,27 +109,61 @@ public AsyncConfigurationBuilder replQueueMaxElements(int elements) {
       return this;
    }
 
+   /**
+    * If useReplQueue is set to true, this attribute can be used to trigger flushing of the queue
+    * when the estimated size of the queued commands reaches a specific number of bytes.  0, the
+    * default, disables this threshold.  Commands are only marshalled when the queue is flushed,
+    * so the size of each is predicted from the commands of the same type marshalled before, and
+    * the threshold is only approximate.
+    */
+   public AsyncConfigurationBuilder replQueueMaxBytes(long bytes) {
+      this.replicationQueueMaxBytes = bytes;
+      return this;
+   }
+
    /**
     * If true, forces all async communications to be queued up and sent out periodically as a
-    * batch.
+    * batch.  In DIST_ASYNC mode the commands are batched separately for each of their
+    * destinations.
     */
    public AsyncConfigurationBuilder useReplQueue(boolean use) {
       this.useReplicationQueue = use;
       return this;
    }
 
+   /**
+    * Spreads remotely originating write commands over the given number of ordered executors,
+    * according to the keys they affect. Commands for different keys coming from the same node are
+    * then applied in parallel, while commands for the same key are still applied in order. Only
+    * used by non-transactional caches in an ASYNCHRONOUS cluster mode. 0, the default, applies
+    * remote commands in the thread that received them.
+    */
+   public AsyncConfigurationBuilder remoteCommandStripes(int stripes) {
+      this.remoteCommandStripes = stripes;
+      return this;
+   }
+
    @Override
    void validate() {
-      if (useReplicationQueue && getClusteringBuilder().cacheMode().isDistributed())
-         throw new ConfigurationException("Use of the replication queue is invalid when using DISTRIBUTED mode.");
-
       if (useReplicationQueue && getClusteringBuilder().cacheMode().isSynchronous())
          throw new ConfigurationException("Use of the replication queue is only allowed with an ASYNCHRONOUS cluster mode.");
+
+      if (useReplicationQueue && getClusteringBuilder().cacheMode().isDistributed()
+            && !(replicationQueue instanceof RecipientAwareReplicationQueue))
+         throw new ConfigurationException("Use of the replication queue in DISTRIBUTED mode requires a queue implementing "
+               + RecipientAwareReplicationQueue.class.getName());
+
+      if (replicationQueueMaxBytes < 0)
+         throw new ConfigurationException("replQueueMaxBytes cannot be negative");
+
+      if (remoteCommandStripes < 0)
+         throw new ConfigurationException("remoteCommandStripes cannot be negative");
    }
 
    @Override
    AsyncConfiguration create() {
-      return new AsyncConfiguration(asyncMarshalling, replicationQueue, replicationQueueInterval, replicationQueueMaxElements, useReplicationQueue);
+      return new AsyncConfiguration(asyncMarshalling, replicationQueue, replicationQueueInterval, replicationQueueMaxElements, replicationQueueMaxBytes, useReplicationQueue,
+            remoteCommandStripes);
    }
    
    @Override
@@ -135,7 +172,9 @@ public AsyncConfigurationBuilder read(AsyncConfiguration template) {
       this.replicationQueue = template.replQueue();
       this.replicationQueueInterval = template.replQueueInterval();
       this.replicationQueueMaxElements = template.replQueueMaxElements();
+      this.replicationQueueMaxBytes = template.replQueueMaxBytes();
       this.useReplicationQueue = template.useReplQueue();
+      this.remoteCommandStripes = template.remoteCommandStripes();
 
       return this;
    }
@@ -147,7 +186,9 @@ public String toString() {
             ", replicationQueue=" + replicationQueue +
             ", replicationQueueInterval=" + replicationQueueInterval +
             ", replicationQueueMaxElements=" + replicationQueueMaxElements +
+            ", replicationQueueMaxBytes=" + replicationQueueMaxBytes +
             ", useReplicationQueue=" + useReplicationQueue +
+            ", remoteCommandStripes=" + remoteCommandStripes +
             '}';
    }
 
@@ -32,14 +32,18 @@ public class AsyncLoaderConfiguration {
    private final int modificationQueueSize;
    private long shutdownTimeout;
    private final int threadPoolSize;
+   private final int batchSize;
+   private final long maxBatchLatency;
 
    AsyncLoaderConfiguration(boolean enabled, long flushLockTimeout, int modificationQueueSize, long shutdownTimeout,
-         int threadPoolSize) {
+         int threadPoolSize, int batchSize, long maxBatchLatency) {
       this.enabled = enabled;
       this.flushLockTimeout = flushLockTimeout;
       this.modificationQueueSize = modificationQueueSize;
       this.shutdownTimeout = shutdownTimeout;
       this.threadPoolSize = threadPoolSize;
+      this.batchSize = batchSize;
+      this.maxBatchLatency = maxBatchLatency;
    }
 
    /**
@@ -99,6 +103,22 @@ public int threadPoolSize() {
       return threadPoolSize;
    }
 
+   /**
+    * Maximum number of coalesced modifications handed to the underlying store in a single bulk
+    * write.
+    */
+   public int batchSize() {
+      return batchSize;
+   }
+
+   /**
+    * Maximum time in milliseconds a modification may wait for a batch to fill up before it is
+    * flushed to the underlying store anyway. 0 means modifications are flushed as soon as possible.
+    */
+   public long maxBatchLatency() {
+      return maxBatchLatency;
+   }
+
    @Override
    public String toString() {
       return "AsyncLoaderConfiguration{" +
@@ -107,6 +127,8 @@ public String toString() {
             ", modificationQueueSize=" + modificationQueueSize +
             ", shutdownTimeout=" + shutdownTimeout +
             ", threadPoolSize=" + threadPoolSize +
+            ", batchSize=" + batchSize +
+            ", maxBatchLatency=" + maxBatchLatency +
             '}';
    }
 
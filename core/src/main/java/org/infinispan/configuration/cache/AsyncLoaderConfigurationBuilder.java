@@ -18,6 +18,8 @@
  */
 package org.infinispan.configuration.cache;
 
+import org.infinispan.config.ConfigurationException;
+
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -34,6 +36,8 @@ public class AsyncLoaderConfigurationBuilder extends AbstractLoaderConfiguration
    private int modificationQueueSize = 1024;
    private long shutdownTimeout = TimeUnit.SECONDS.toMillis(25);
    private int threadPoolSize = 1;
+   private int batchSize = 100;
+   private long maxBatchLatency = 0;
 
    AsyncLoaderConfigurationBuilder(AbstractLoaderConfigurationBuilder<? extends AbstractLoaderConfiguration> builder) {
       super(builder);
@@ -112,13 +116,44 @@ public AsyncLoaderConfigurationBuilder threadPoolSize(int i) {
       return this;
    }
 
+   /**
+    * Maximum number of coalesced modifications handed to the underlying store in a single bulk
+    * write.
+    */
+   public AsyncLoaderConfigurationBuilder batchSize(int i) {
+      this.batchSize = i;
+      return this;
+   }
+
+   /**
+    * Maximum time in milliseconds a modification may wait for a batch to fill up before it is
+    * flushed to the underlying store anyway. 0 means modifications are flushed as soon as possible.
+    */
+   public AsyncLoaderConfigurationBuilder maxBatchLatency(long l) {
+      this.maxBatchLatency = l;
+      return this;
+   }
+
+   /**
+    * Maximum time a modification may wait for a batch to fill up before it is flushed to the
+    * underlying store anyway.
+    */
+   public AsyncLoaderConfigurationBuilder maxBatchLatency(long l, TimeUnit unit) {
+      return maxBatchLatency(unit.toMillis(l));
+   }
+
    @Override
    void validate() {
+      if (batchSize < 1)
+         throw new ConfigurationException("Async store batchSize must be greater than 0, was " + batchSize);
+      if (maxBatchLatency < 0)
+         throw new ConfigurationException("Async store maxBatchLatency cannot be negative, was " + maxBatchLatency);
    }
 
    @Override
    AsyncLoaderConfiguration create() {
-      return new AsyncLoaderConfiguration(enabled, flushLockTimeout, modificationQueueSize, shutdownTimeout, threadPoolSize);
+      return new AsyncLoaderConfiguration(enabled, flushLockTimeout, modificationQueueSize, shutdownTimeout, threadPoolSize,
+            batchSize, maxBatchLatency);
    }
 
    @Override
@@ -128,6 +163,8 @@ public AsyncLoaderConfigurationBuilder read(AsyncLoaderConfiguration template) {
       this.modificationQueueSize = template.modificationQueueSize();
       this.shutdownTimeout = template.shutdownTimeout();
       this.threadPoolSize = template.threadPoolSize();
+      this.batchSize = template.batchSize();
+      this.maxBatchLatency = template.maxBatchLatency();
 
       return this;
    }
@@ -140,6 +177,8 @@ public String toString() {
             ", modificationQueueSize=" + modificationQueueSize +
             ", shutdownTimeout=" + shutdownTimeout +
             ", threadPoolSize=" + threadPoolSize +
+            ", batchSize=" + batchSize +
+            ", maxBatchLatency=" + maxBatchLatency +
             '}';
    }
 
@@ -42,7 +42,8 @@ public static boolean isSecondPhaseAsync(Configuration cfg) {
 
    public static boolean isOnePhaseCommit(Configuration cfg) {
       return !cfg.clustering().cacheMode().isSynchronous() ||
-            cfg.transaction().lockingMode() == LockingMode.PESSIMISTIC;
+            cfg.transaction().lockingMode() == LockingMode.PESSIMISTIC ||
+            cfg.transaction().transactionProtocol().isTotalOrder();
    }
 
    public static boolean isStateTransferEnabled(Configuration cfg) {
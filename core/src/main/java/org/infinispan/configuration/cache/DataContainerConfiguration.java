@@ -31,10 +31,17 @@
 public class DataContainerConfiguration extends AbstractTypedPropertiesConfiguration {
 
    private final DataContainer dataContainer;
+   private final boolean offHeap;
+   private final int addressCount;
+   private final int slabSize;
 
-   DataContainerConfiguration(DataContainer dataContainer, TypedProperties properties) {
+   DataContainerConfiguration(DataContainer dataContainer, boolean offHeap, int addressCount, int slabSize,
+         TypedProperties properties) {
       super(properties);
       this.dataContainer = dataContainer;
+      this.offHeap = offHeap;
+      this.addressCount = addressCount;
+      this.slabSize = slabSize;
    }
    
    /**
@@ -45,10 +52,35 @@ public DataContainer dataContainer() {
       return dataContainer;
    }
 
+   /**
+    * Whether entries are stored in off-heap memory rather than on the Java heap. Only used if no
+    * {@link #dataContainer()} is specified.
+    */
+   public boolean offHeap() {
+      return offHeap;
+   }
+
+   /**
+    * Number of slots in the hash index of the off-heap data container
+    */
+   public int addressCount() {
+      return addressCount;
+   }
+
+   /**
+    * Size, in bytes, of the memory slabs the off-heap data container allocates entries from
+    */
+   public int slabSize() {
+      return slabSize;
+   }
+
    @Override
    public String toString() {
       return "DataContainerConfiguration{" +
             "dataContainer=" + dataContainer +
+            ", offHeap=" + offHeap +
+            ", addressCount=" + addressCount +
+            ", slabSize=" + slabSize +
             '}';
    }
 
@@ -59,6 +91,9 @@ public boolean equals(Object o) {
 
       DataContainerConfiguration that = (DataContainerConfiguration) o;
 
+      if (offHeap != that.offHeap) return false;
+      if (addressCount != that.addressCount) return false;
+      if (slabSize != that.slabSize) return false;
       if (dataContainer != null ? !dataContainer.equals(that.dataContainer) : that.dataContainer != null)
          return false;
 
@@ -67,7 +102,11 @@ public boolean equals(Object o) {
 
    @Override
    public int hashCode() {
-      return dataContainer != null ? dataContainer.hashCode() : 0;
+      int result = dataContainer != null ? dataContainer.hashCode() : 0;
+      result = 31 * result + (offHeap ? 1 : 0);
+      result = 31 * result + addressCount;
+      result = 31 * result + slabSize;
+      return result;
    }
 
 }
@@ -20,6 +20,7 @@
 
 import java.util.Properties;
 
+import org.infinispan.config.ConfigurationException;
 import org.infinispan.container.DataContainer;
 import org.infinispan.util.TypedProperties;
 
@@ -33,6 +34,9 @@ public class DataContainerConfigurationBuilder extends AbstractConfigurationChil
 
    // No default here. DataContainerFactory figures out default.
    private DataContainer dataContainer;
+   private boolean offHeap = false;
+   private int addressCount = 1048576;
+   private int slabSize = 4194304;
    private Properties properties = new Properties();
    
    DataContainerConfigurationBuilder(ConfigurationBuilder builder) {
@@ -49,6 +53,40 @@ public DataContainerConfigurationBuilder dataContainer(DataContainer dataContain
       return this;
    }
    
+   /**
+    * Store entries in off-heap memory rather than on the Java heap. Keys, values and versions are
+    * kept in their marshalled form, so they must be marshallable. Ignored if a specific
+    * {@link #dataContainer(DataContainer)} is configured.
+    * @param offHeap
+    * @return
+    */
+   public DataContainerConfigurationBuilder offHeap(boolean offHeap) {
+      this.offHeap = offHeap;
+      return this;
+   }
+
+   /**
+    * Number of slots in the hash index of the off-heap data container. The index does not grow, so
+    * this should be in the order of the expected number of entries.
+    * @param addressCount
+    * @return
+    */
+   public DataContainerConfigurationBuilder addressCount(int addressCount) {
+      this.addressCount = addressCount;
+      return this;
+   }
+
+   /**
+    * Size, in bytes, of the memory slabs the off-heap data container allocates entries from.
+    * Entries larger than a slab get their own dedicated memory region.
+    * @param slabSize
+    * @return
+    */
+   public DataContainerConfigurationBuilder slabSize(int slabSize) {
+      this.slabSize = slabSize;
+      return this;
+   }
+
    /**
     * Add key/value property pair to this data container configuration
     *
@@ -74,16 +112,23 @@ public DataContainerConfigurationBuilder withProperties(Properties props) {
 
    @Override
    void validate() {
+      if (offHeap && addressCount <= 0)
+         throw new ConfigurationException("Off-heap address count must be greater than zero");
+      if (offHeap && slabSize < 64)
+         throw new ConfigurationException("Off-heap slab size must be at least 64 bytes");
    }
 
    @Override
    DataContainerConfiguration create() {
-      return new DataContainerConfiguration(dataContainer, TypedProperties.toTypedProperties(properties));
+      return new DataContainerConfiguration(dataContainer, offHeap, addressCount, slabSize, TypedProperties.toTypedProperties(properties));
    }
    
    @Override
    public DataContainerConfigurationBuilder read(DataContainerConfiguration template) {
       this.dataContainer = template.dataContainer();
+      this.offHeap = template.offHeap();
+      this.addressCount = template.addressCount();
+      this.slabSize = template.slabSize();
       this.properties = template.properties();
       
       return this;
@@ -93,6 +138,9 @@ public DataContainerConfigurationBuilder read(DataContainerConfiguration templat
    public String toString() {
       return "DataContainerConfigurationBuilder{" +
             "dataContainer=" + dataContainer +
+            ", offHeap=" + offHeap +
+            ", addressCount=" + addressCount +
+            ", slabSize=" + slabSize +
             ", properties=" + properties +
             '}';
    }
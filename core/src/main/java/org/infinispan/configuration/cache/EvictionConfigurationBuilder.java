@@ -20,7 +20,9 @@
 
 import org.infinispan.config.ConfigurationException;
 import org.infinispan.eviction.EvictionStrategy;
+import org.infinispan.container.DefaultEntrySizeCalculator;
 import org.infinispan.eviction.EvictionThreadPolicy;
+import org.infinispan.util.concurrent.BoundedConcurrentHashMap.EntrySizeCalculator;
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
 
@@ -34,6 +36,8 @@ public class EvictionConfigurationBuilder extends AbstractConfigurationChildBuil
    private int maxEntries = -1;
    private EvictionStrategy strategy = EvictionStrategy.NONE;
    private EvictionThreadPolicy threadPolicy = EvictionThreadPolicy.DEFAULT;
+   private long maxMemory = -1;
+   private EntrySizeCalculator<Object, Object> sizeCalculator = new DefaultEntrySizeCalculator();
    
    EvictionConfigurationBuilder(ConfigurationBuilder builder) {
       super(builder);
@@ -41,7 +45,7 @@ public class EvictionConfigurationBuilder extends AbstractConfigurationChildBuil
 
    
    /**
-    * Eviction strategy. Available options are 'UNORDERED', 'LRU', 'LIRS' and 'NONE' (to disable
+    * Eviction strategy. Available options are 'UNORDERED', 'LRU', 'LIRS', 'TINY_LFU' and 'NONE' (to disable
     * eviction).
     *
     * @param evictionStrategy
@@ -73,23 +77,54 @@ public EvictionConfigurationBuilder maxEntries(int maxEntries) {
       return this;
    }
 
+   /**
+    * Maximum amount of memory, in bytes, used by the entries of a cache instance. Eviction is bounded
+    * either by memory or by {@link #maxEntries(int)}, not both. The memory used by each entry is
+    * estimated by the {@link #sizeCalculator(EntrySizeCalculator)}.
+    *
+    * @param maxMemory
+    */
+   public EvictionConfigurationBuilder maxMemory(long maxMemory) {
+      this.maxMemory = maxMemory;
+      return this;
+   }
+
+   /**
+    * Estimates the memory used by each entry when eviction is bounded by memory. Defaults to
+    * {@link DefaultEntrySizeCalculator}, which is accurate for caches storing values as binary.
+    *
+    * @param sizeCalculator
+    */
+   public EvictionConfigurationBuilder sizeCalculator(EntrySizeCalculator<Object, Object> sizeCalculator) {
+      this.sizeCalculator = sizeCalculator;
+      return this;
+   }
+
    @Override
    void validate() {
       if (!strategy.isEnabled() && getBuilder().loaders().passivation())
          log.passivationWithoutEviction();
       if(strategy == EvictionStrategy.FIFO)
          log.warn("FIFO strategy is deprecated, LRU will be used instead");
-      if (strategy.isEnabled() && maxEntries <= 0)
+      if (maxEntries > 0 && maxMemory > 0)
+         throw new ConfigurationException("Eviction can be bounded by either maxEntries or maxMemory, not both");
+      if (strategy.isEnabled() && maxEntries <= 0 && maxMemory <= 0)
          throw new ConfigurationException("Eviction maxEntries value cannot be less than or equal to zero if eviction is enabled");
+      if (maxMemory > 0 && sizeCalculator == null)
+         throw new ConfigurationException("Eviction bounded by maxMemory requires a sizeCalculator");
       if (maxEntries > 0 && !strategy.isEnabled()) {
          strategy = EvictionStrategy.LIRS;
          log.debugf("Max entries configured (%d) without eviction strategy. Eviction strategy overriden to %s", maxEntries, strategy);
       }
+      if (maxMemory > 0 && !strategy.isEnabled()) {
+         strategy = EvictionStrategy.LIRS;
+         log.debugf("Max memory configured (%d) without eviction strategy. Eviction strategy overriden to %s", maxMemory, strategy);
+      }
    }
 
    @Override
    EvictionConfiguration create() {
-      return new EvictionConfiguration(maxEntries, strategy, threadPolicy);
+      return new EvictionConfiguration(maxEntries, strategy, threadPolicy, maxMemory, sizeCalculator);
    }
    
    @Override
@@ -97,6 +132,8 @@ public EvictionConfigurationBuilder read(EvictionConfiguration template) {
       this.maxEntries = template.maxEntries();
       this.strategy = template.strategy();
       this.threadPolicy = template.threadPolicy();
+      this.maxMemory = template.maxMemory();
+      this.sizeCalculator = template.sizeCalculator();
       
       return this;
    }
@@ -107,6 +144,8 @@ public String toString() {
             "maxEntries=" + maxEntries +
             ", strategy=" + strategy +
             ", threadPolicy=" + threadPolicy +
+            ", maxMemory=" + maxMemory +
+            ", sizeCalculator=" + sizeCalculator +
             '}';
    }
 
@@ -274,6 +274,8 @@ public static CacheLoaderConfig adapt(AbstractLoaderConfiguration loader) {
          csc.getAsyncStoreConfig().modificationQueueSize(loader.async().modificationQueueSize());
          csc.getAsyncStoreConfig().shutdownTimeout(loader.async().shutdownTimeout());
          csc.getAsyncStoreConfig().threadPoolSize(loader.async().threadPoolSize());
+         csc.getAsyncStoreConfig().batchSize(loader.async().batchSize());
+         csc.getAsyncStoreConfig().maxBatchLatency(loader.async().maxBatchLatency());
 
          csc.getSingletonStoreConfig().enabled(loader.singletonStore().enabled());
          csc.getSingletonStoreConfig().pushStateTimeout(loader.singletonStore().pushStateTimeout());
@@ -542,6 +544,8 @@ public static void adapt(ClassLoader cl, ConfigurationBuilder builder, CacheLoad
          loaderBuilder.async().modificationQueueSize(csc.getAsyncStoreConfig().getModificationQueueSize());
          loaderBuilder.async().shutdownTimeout(csc.getAsyncStoreConfig().getShutdownTimeout());
          loaderBuilder.async().threadPoolSize(csc.getAsyncStoreConfig().getThreadPoolSize());
+         loaderBuilder.async().batchSize(csc.getAsyncStoreConfig().getBatchSize());
+         loaderBuilder.async().maxBatchLatency(csc.getAsyncStoreConfig().getMaxBatchLatency());
          loaderBuilder.singletonStore().enabled(csc.getSingletonStoreConfig().isSingletonStoreEnabled());
          loaderBuilder.singletonStore().pushStateTimeout(csc.getSingletonStoreConfig().getPushStateTimeout());
          loaderBuilder.singletonStore().pushStateWhenCoordinator(csc.getSingletonStoreConfig().isPushStateWhenCoordinator());
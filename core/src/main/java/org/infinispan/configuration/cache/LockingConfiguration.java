@@ -33,14 +33,16 @@ public class LockingConfiguration {
    private long lockAcquisitionTimeout;
    private final boolean useLockStriping;
    private final boolean writeSkewCheck;
+   private final boolean stampedReads;
 
    LockingConfiguration(int concurrencyLevel, IsolationLevel isolationLevel, long lockAcquisitionTimeout,
-         boolean useLockStriping, boolean writeSkewCheck) {
+         boolean useLockStriping, boolean writeSkewCheck, boolean stampedReads) {
       this.concurrencyLevel = concurrencyLevel;
       this.isolationLevel = isolationLevel;
       this.lockAcquisitionTimeout = lockAcquisitionTimeout;
       this.useLockStriping = useLockStriping;
       this.writeSkewCheck = writeSkewCheck;
+      this.stampedReads = stampedReads;
    }
 
    /**
@@ -93,6 +95,16 @@ public boolean writeSkewCheck() {
       return writeSkewCheck;
    }
 
+   /**
+    * This setting is only applicable in the case of REPEATABLE_READ. If true, the data container
+    * never updates an entry in place but replaces it with a new entry carrying a higher stamp.
+    * Reads can then keep a reference to the container's entry rather than copying it into a
+    * wrapper, and a later write in the same context validates the stamp it read.
+    */
+   public boolean stampedReads() {
+      return stampedReads;
+   }
+
    @Override
    public String toString() {
       return "LockingConfiguration{" +
@@ -101,6 +113,7 @@ public String toString() {
             ", lockAcquisitionTimeout=" + lockAcquisitionTimeout +
             ", useLockStriping=" + useLockStriping +
             ", writeSkewCheck=" + writeSkewCheck +
+            ", stampedReads=" + stampedReads +
             '}';
    }
 
@@ -115,6 +128,7 @@ public boolean equals(Object o) {
       if (lockAcquisitionTimeout != that.lockAcquisitionTimeout) return false;
       if (useLockStriping != that.useLockStriping) return false;
       if (writeSkewCheck != that.writeSkewCheck) return false;
+      if (stampedReads != that.stampedReads) return false;
       if (isolationLevel != that.isolationLevel) return false;
 
       return true;
@@ -127,6 +141,7 @@ public int hashCode() {
       result = 31 * result + (int) (lockAcquisitionTimeout ^ (lockAcquisitionTimeout >>> 32));
       result = 31 * result + (useLockStriping ? 1 : 0);
       result = 31 * result + (writeSkewCheck ? 1 : 0);
+      result = 31 * result + (stampedReads ? 1 : 0);
       return result;
    }
 
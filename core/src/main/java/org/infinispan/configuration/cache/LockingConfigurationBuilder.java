@@ -37,6 +37,7 @@ public class LockingConfigurationBuilder extends AbstractConfigurationChildBuild
    private long lockAcquisitionTimeout = TimeUnit.SECONDS.toMillis(10);
    private boolean useLockStriping = false;
    boolean writeSkewCheck = false;
+   private boolean stampedReads = false;
 
    protected LockingConfigurationBuilder(ConfigurationBuilder builder) {
       super(builder);
@@ -99,6 +100,17 @@ public LockingConfigurationBuilder writeSkewCheck(boolean b) {
       return this;
    }
 
+   /**
+    * This setting is only applicable in the case of REPEATABLE_READ. If true, the data container
+    * never updates an entry in place but replaces it with a new entry carrying a higher stamp.
+    * Reads can then keep a reference to the container's entry rather than copying it into a
+    * wrapper, and a later write in the same context validates the stamp it read.
+    */
+   public LockingConfigurationBuilder stampedReads(boolean b) {
+      this.stampedReads = b;
+      return this;
+   }
+
    @Override
    void validate() {
       if (writeSkewCheck) {
@@ -127,7 +139,7 @@ && clustering().cacheMode() != CacheMode.LOCAL)
 
    @Override
    LockingConfiguration create() {
-      return new LockingConfiguration(concurrencyLevel, isolationLevel, lockAcquisitionTimeout, useLockStriping, writeSkewCheck);
+      return new LockingConfiguration(concurrencyLevel, isolationLevel, lockAcquisitionTimeout, useLockStriping, writeSkewCheck, stampedReads);
    }
 
    @Override
@@ -137,6 +149,7 @@ public LockingConfigurationBuilder read(LockingConfiguration template) {
       lockAcquisitionTimeout = template.lockAcquisitionTimeout();
       useLockStriping = template.useLockStriping();
       writeSkewCheck = template.writeSkewCheck();
+      stampedReads = template.stampedReads();
 
       return this;
    }
@@ -149,6 +162,7 @@ public String toString() {
             ", lockAcquisitionTimeout=" + lockAcquisitionTimeout +
             ", useLockStriping=" + useLockStriping +
             ", writeSkewCheck=" + writeSkewCheck +
+            ", stampedReads=" + stampedReads +
             '}';
    }
 
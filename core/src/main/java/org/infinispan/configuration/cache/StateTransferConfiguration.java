@@ -30,12 +30,17 @@ public class StateTransferConfiguration {
    private Boolean originalFetchInMemoryState;
    private long timeout;
    private int chunkSize;
+   private final int threadPoolSize;
+   private final int maxInFlightChunks;
 
-   StateTransferConfiguration(boolean fetchInMemoryState, Boolean originalFetchInMemoryState, long timeout, int chunkSize) {
+   StateTransferConfiguration(boolean fetchInMemoryState, Boolean originalFetchInMemoryState, long timeout, int chunkSize,
+         int threadPoolSize, int maxInFlightChunks) {
       this.fetchInMemoryState = fetchInMemoryState;
       this.originalFetchInMemoryState = originalFetchInMemoryState;
       this.timeout = timeout;
       this.chunkSize = chunkSize;
+      this.threadPoolSize = threadPoolSize;
+      this.maxInFlightChunks = maxInFlightChunks;
    }
 
    /**
@@ -82,6 +87,23 @@ public int chunkSize() {
       return chunkSize;
    }
 
+   /**
+    * The number of threads that split the keys between them when pushing state to other caches
+    * during a rehash.
+    */
+   public int threadPoolSize() {
+      return threadPoolSize;
+   }
+
+   /**
+    * If &gt; 0, the maximum number of state chunks that can be pushed at the same time, waiting
+    * to be applied by their target. Pushing further chunks blocks until earlier ones are applied,
+    * which bounds the memory used during a rehash. If &lt;= 0, the number of chunks is not limited.
+    */
+   public int maxInFlightChunks() {
+      return maxInFlightChunks;
+   }
+
    @Override
    public String toString() {
       return "StateTransferConfiguration{" +
@@ -89,6 +111,8 @@ public String toString() {
             ", fetchInMemoryState=" + fetchInMemoryState +
             ", originalFetchInMemoryState=" + originalFetchInMemoryState +
             ", timeout=" + timeout +
+            ", threadPoolSize=" + threadPoolSize +
+            ", maxInFlightChunks=" + maxInFlightChunks +
             '}';
    }
 
@@ -102,6 +126,8 @@ public boolean equals(Object o) {
       if (chunkSize != that.chunkSize) return false;
       if (fetchInMemoryState != that.fetchInMemoryState) return false;
       if (timeout != that.timeout) return false;
+      if (threadPoolSize != that.threadPoolSize) return false;
+      if (maxInFlightChunks != that.maxInFlightChunks) return false;
       if (originalFetchInMemoryState != null ? !originalFetchInMemoryState.equals(that.originalFetchInMemoryState) : that.originalFetchInMemoryState != null)
          return false;
 
@@ -114,6 +140,8 @@ public int hashCode() {
       result = 31 * result + (originalFetchInMemoryState != null ? originalFetchInMemoryState.hashCode() : 0);
       result = 31 * result + (int) (timeout ^ (timeout >>> 32));
       result = 31 * result + chunkSize;
+      result = 31 * result + threadPoolSize;
+      result = 31 * result + maxInFlightChunks;
       return result;
    }
 
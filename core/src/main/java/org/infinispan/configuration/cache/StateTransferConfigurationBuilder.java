@@ -39,6 +39,8 @@ public class StateTransferConfigurationBuilder extends
    private Boolean fetchInMemoryState = null;
    private int chunkSize = 10000;
    private long timeout = TimeUnit.MINUTES.toMillis(4);
+   private int threadPoolSize = 1;
+   private int maxInFlightChunks = 0;
 
    StateTransferConfigurationBuilder(ClusteringConfigurationBuilder builder) {
       super(builder);
@@ -66,6 +68,26 @@ public StateTransferConfigurationBuilder chunkSize(int i) {
       return this;
    }
 
+   /**
+    * The number of threads that split the keys between them when pushing state to other caches
+    * during a rehash. Defaults to 1.
+    */
+   public StateTransferConfigurationBuilder threadPoolSize(int i) {
+      this.threadPoolSize = i;
+      return this;
+   }
+
+   /**
+    * If &gt; 0, the maximum number of state chunks that can be pushed at the same time, waiting
+    * to be applied by their target. Pushing further chunks blocks until earlier ones are applied,
+    * which bounds the memory used during a rehash. If &lt;= 0, the default, the number of chunks
+    * is not limited.
+    */
+   public StateTransferConfigurationBuilder maxInFlightChunks(int i) {
+      this.maxInFlightChunks = i;
+      return this;
+   }
+
    /**
     * This is the maximum amount of time - in milliseconds - to wait for state from neighboring
     * caches, before throwing an exception and aborting startup.
@@ -89,6 +111,9 @@ void validate() {
       if (fetchInMemoryState != null && fetchInMemoryState && getClusteringBuilder().cacheMode().isInvalidation())
          throw new ConfigurationException(
                "Cache cannot use INVALIDATION mode and have fetchInMemoryState set to true.");
+
+      if (threadPoolSize < 1)
+         throw new ConfigurationException("State transfer threadPoolSize must be at least 1");
    }
 
    @Override
@@ -106,7 +131,7 @@ StateTransferConfiguration create() {
          _fetchInMemoryState = false;
       }
       return new StateTransferConfiguration(_fetchInMemoryState, fetchInMemoryState,
-            timeout, chunkSize);
+            timeout, chunkSize, threadPoolSize, maxInFlightChunks);
    }
 
    @Override
@@ -114,6 +139,8 @@ public StateTransferConfigurationBuilder read(StateTransferConfiguration templat
       this.fetchInMemoryState = template.originalFetchInMemoryState();
       this.timeout = template.timeout();
       this.chunkSize = template.chunkSize();
+      this.threadPoolSize = template.threadPoolSize();
+      this.maxInFlightChunks = template.maxInFlightChunks();
       return this;
    }
 
@@ -123,6 +150,8 @@ public String toString() {
             "chunkSize=" + chunkSize +
             ", fetchInMemoryState=" + fetchInMemoryState +
             ", timeout=" + timeout +
+            ", threadPoolSize=" + threadPoolSize +
+            ", maxInFlightChunks=" + maxInFlightChunks +
             '}';
    }
 
@@ -20,6 +20,7 @@
 
 import org.infinispan.transaction.LockingMode;
 import org.infinispan.transaction.TransactionMode;
+import org.infinispan.transaction.TransactionProtocol;
 import org.infinispan.transaction.lookup.TransactionManagerLookup;
 import org.infinispan.transaction.lookup.TransactionSynchronizationRegistryLookup;
 
@@ -44,12 +45,14 @@ public class TransactionConfiguration {
    private final boolean useSynchronization;
    private final RecoveryConfiguration recovery;
    private final boolean use1PcForAutoCommitTransactions;
+   private final boolean use1PcForSingleOwnerTransactions;
+   private final TransactionProtocol transactionProtocol;
 
    TransactionConfiguration(boolean autoCommit, long cacheStopTimeout, boolean eagerLockingSingleNode, LockingMode lockingMode,
          boolean syncCommitPhase, boolean syncRollbackPhase, TransactionManagerLookup transactionManagerLookup,
          TransactionSynchronizationRegistryLookup transactionSynchronizationRegistryLookup, TransactionMode transactionMode,
          boolean useEagerLocking, boolean useSynchronization, boolean use1PcForAutoCommitTransactions,
-         RecoveryConfiguration recovery) {
+         boolean use1PcForSingleOwnerTransactions, TransactionProtocol transactionProtocol, RecoveryConfiguration recovery) {
       this.autoCommit = autoCommit;
       this.cacheStopTimeout = cacheStopTimeout;
       this.eagerLockingSingleNode = eagerLockingSingleNode;
@@ -63,6 +66,8 @@ public class TransactionConfiguration {
       this.useSynchronization = useSynchronization;
       this.recovery = recovery;
       this.use1PcForAutoCommitTransactions = use1PcForAutoCommitTransactions;
+      this.use1PcForSingleOwnerTransactions = use1PcForSingleOwnerTransactions;
+      this.transactionProtocol = transactionProtocol;
    }
 
    /**
@@ -260,6 +265,32 @@ public boolean use1PcForAutoCommitTransactions() {
       return use1PcForAutoCommitTransactions;
    }
 
+   /**
+    * In distributed, synchronous caches with optimistic locking, commits a transaction in a single phase
+    * when the node committing it is the primary owner of every key it modifies, e.g. when all those keys
+    * belong to the same {@link org.infinispan.distribution.group.Group} and the transaction runs on the group's
+    * primary owner. The locks and checks of the prepare phase then all happen on the committing node when the
+    * transaction is prepared, and the other owners apply the modifications as soon as they receive them on
+    * commit: only 1 RPC is needed instead of the 2 RPCs of a full 2 Phase Commit (2PC).<p/>
+    *
+    * Only supported by DIST_SYNC caches with optimistic locking and without recovery. Caches that check for write
+    * skews with versioned entries always use 2PC.
+    */
+   public boolean use1PcForSingleOwnerTransactions() {
+      return use1PcForSingleOwnerTransactions;
+   }
+
+   /**
+    * The protocol used to commit transactions. With {@link TransactionProtocol#TOTAL_ORDER}, a transaction's
+    * prepare is sent to the cluster coordinator, which relays it to all the nodes in the order it received the
+    * prepares. Every node applies the transactions in that order, in a single phase and without acquiring locks,
+    * checking for write skews as it goes: all nodes reach the same decision for every transaction, so no vote
+    * is needed. Only supported by REPL_SYNC caches with optimistic locking.
+    */
+   public TransactionProtocol transactionProtocol() {
+      return transactionProtocol;
+   }
+
    @Override
    public String toString() {
       return "TransactionConfiguration{" +
@@ -276,6 +307,8 @@ public String toString() {
             ", useSynchronization=" + useSynchronization +
             ", recovery=" + recovery +
             ", use1PcForAutoCommitTransactions=" + use1PcForAutoCommitTransactions +
+            ", use1PcForSingleOwnerTransactions=" + use1PcForSingleOwnerTransactions +
+            ", transactionProtocol=" + transactionProtocol +
             '}';
    }
 
@@ -293,6 +326,8 @@ public boolean equals(Object o) {
       if (syncRollbackPhase != that.syncRollbackPhase) return false;
       if (use1PcForAutoCommitTransactions != that.use1PcForAutoCommitTransactions)
          return false;
+      if (use1PcForSingleOwnerTransactions != that.use1PcForSingleOwnerTransactions)
+         return false;
       if (useEagerLocking != that.useEagerLocking) return false;
       if (useSynchronization != that.useSynchronization) return false;
       if (lockingMode != that.lockingMode) return false;
@@ -301,6 +336,7 @@ public boolean equals(Object o) {
       if (transactionManagerLookup != null ? !transactionManagerLookup.equals(that.transactionManagerLookup) : that.transactionManagerLookup != null)
          return false;
       if (transactionMode != that.transactionMode) return false;
+      if (transactionProtocol != that.transactionProtocol) return false;
       if (transactionSynchronizationRegistryLookup != null ? !transactionSynchronizationRegistryLookup.equals(that.transactionSynchronizationRegistryLookup) : that.transactionSynchronizationRegistryLookup != null)
          return false;
 
@@ -322,6 +358,8 @@ public int hashCode() {
       result = 31 * result + (useSynchronization ? 1 : 0);
       result = 31 * result + (recovery != null ? recovery.hashCode() : 0);
       result = 31 * result + (use1PcForAutoCommitTransactions ? 1 : 0);
+      result = 31 * result + (use1PcForSingleOwnerTransactions ? 1 : 0);
+      result = 31 * result + (transactionProtocol != null ? transactionProtocol.hashCode() : 0);
       return result;
    }
 
@@ -18,8 +18,10 @@
  */
 package org.infinispan.configuration.cache;
 
+import org.infinispan.config.ConfigurationException;
 import org.infinispan.transaction.LockingMode;
 import org.infinispan.transaction.TransactionMode;
+import org.infinispan.transaction.TransactionProtocol;
 import org.infinispan.transaction.lookup.GenericTransactionManagerLookup;
 import org.infinispan.transaction.lookup.TransactionManagerLookup;
 import org.infinispan.transaction.lookup.TransactionSynchronizationRegistryLookup;
@@ -53,6 +55,8 @@ public class TransactionConfigurationBuilder extends AbstractConfigurationChildB
    private boolean useSynchronization = false;
    private final RecoveryConfigurationBuilder recovery;
    private boolean use1PcForAutoCommitTransactions = false;
+   private boolean use1PcForSingleOwnerTransactions = false;
+   private TransactionProtocol transactionProtocol = TransactionProtocol.DEFAULT;
 
    TransactionConfigurationBuilder(ConfigurationBuilder builder) {
       super(builder);
@@ -238,8 +242,53 @@ public TransactionConfigurationBuilder use1PcForAutoCommitTransactions(boolean b
       return this;
    }
 
+   /**
+    * In distributed, synchronous caches with optimistic locking, commits a transaction in a single phase
+    * when the node committing it is the primary owner of every key it modifies, e.g. when all those keys
+    * belong to the same {@link org.infinispan.distribution.group.Group} and the transaction runs on the group's
+    * primary owner. The locks and checks of the prepare phase then all happen on the committing node when the
+    * transaction is prepared, and the other owners apply the modifications as soon as they receive them on
+    * commit: only 1 RPC is needed instead of the 2 RPCs of a full 2 Phase Commit (2PC).<p/>
+    *
+    * Only supported by DIST_SYNC caches with optimistic locking and without recovery. Caches that check for write
+    * skews with versioned entries always use 2PC.
+    */
+   public TransactionConfigurationBuilder use1PcForSingleOwnerTransactions(boolean b) {
+      this.use1PcForSingleOwnerTransactions = b;
+      return this;
+   }
+
+   /**
+    * The protocol used to commit transactions. With {@link TransactionProtocol#TOTAL_ORDER}, a transaction's
+    * prepare is sent to the cluster coordinator, which relays it to all the nodes in the order it received the
+    * prepares. Every node applies the transactions in that order, in a single phase and without acquiring locks,
+    * checking for write skews as it goes: all nodes reach the same decision for every transaction, so no vote
+    * is needed. Only supported by REPL_SYNC caches with optimistic locking.
+    */
+   public TransactionConfigurationBuilder transactionProtocol(TransactionProtocol transactionProtocol) {
+      this.transactionProtocol = transactionProtocol;
+      return this;
+   }
+
    @Override
    void validate() {
+      if (transactionProtocol == TransactionProtocol.TOTAL_ORDER) {
+         if (clustering().cacheMode() != CacheMode.REPL_SYNC)
+            throw new ConfigurationException("The total order transaction protocol is only supported in REPL_SYNC mode. "
+                  + clustering().cacheMode() + " cannot be used with it");
+         if (lockingMode != LockingMode.OPTIMISTIC || useEagerLocking)
+            throw new ConfigurationException("The total order transaction protocol is only supported with OPTIMISTIC transactions");
+      }
+      if (use1PcForSingleOwnerTransactions) {
+         if (clustering().cacheMode() != CacheMode.DIST_SYNC)
+            throw new ConfigurationException("use1PcForSingleOwnerTransactions is only supported in DIST_SYNC mode. "
+                  + clustering().cacheMode() + " cannot be used with it");
+         if (lockingMode != LockingMode.OPTIMISTIC || useEagerLocking)
+            throw new ConfigurationException("use1PcForSingleOwnerTransactions is only supported with OPTIMISTIC transactions");
+         // an in-doubt transaction prepared in a single phase would only be known to its primary owner
+         if (recovery.create().enabled())
+            throw new ConfigurationException("use1PcForSingleOwnerTransactions cannot be used with transaction recovery");
+      }
    }
 
    @Override
@@ -253,7 +302,8 @@ else if (transactionMode == null)
          transactionMode = TransactionMode.NON_TRANSACTIONAL;
       return new TransactionConfiguration(autoCommit, cacheStopTimeout, eagerLockingSingleNode, lockingMode, syncCommitPhase,
             syncRollbackPhase, transactionManagerLookup, transactionSynchronizationRegistryLookup, transactionMode,
-            useEagerLocking, useSynchronization, use1PcForAutoCommitTransactions, recovery.create());
+            useEagerLocking, useSynchronization, use1PcForAutoCommitTransactions, use1PcForSingleOwnerTransactions,
+            transactionProtocol, recovery.create());
    }
 
    @Override
@@ -270,6 +320,8 @@ public TransactionConfigurationBuilder read(TransactionConfiguration template) {
       this.useEagerLocking = template.useEagerLocking();
       this.useSynchronization = template.useSynchronization();
       this.use1PcForAutoCommitTransactions = template.use1PcForAutoCommitTransactions();
+      this.use1PcForSingleOwnerTransactions = template.use1PcForSingleOwnerTransactions();
+      this.transactionProtocol = template.transactionProtocol();
       this.recovery.read(template.recovery());
 
       return this;
@@ -291,6 +343,8 @@ public String toString() {
             ", useSynchronization=" + useSynchronization +
             ", recovery=" + recovery +
             ", use1PcForAutoCommitTransactions=" + use1PcForAutoCommitTransactions +
+            ", use1PcForSingleOwnerTransactions=" + use1PcForSingleOwnerTransactions +
+            ", transactionProtocol=" + transactionProtocol +
             '}';
    }
 
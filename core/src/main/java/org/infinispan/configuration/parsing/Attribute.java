@@ -34,11 +34,13 @@ public enum Attribute {
     // must be first
     UNKNOWN(null),
 
+    ADDRESS_COUNT("addressCount"),
     AFTER("after"),
     ALLOW_DUPLICATE_DOMAINS("allowDuplicateDomains"),
     ALWAYS_PROVIDE_IN_MEMORY_STATE("alwaysProvideInMemoryState"),
     ASYNC_MARSHALLING("asyncMarshalling"),
     AUTO_COMMIT("autoCommit"),
+    BATCH_SIZE("batchSize"),
     BEFORE("before"),
     CACHE_MANAGER_NAME("cacheManagerName"),
     CACHE_STOP_TIMEOUT("cacheStopTimeout"),
@@ -72,8 +74,11 @@ public enum Attribute {
     LOG_FLUSH_TIMEOUT("logFlushTimeout"),
     MACHINE_ID("machineId"),
     MARSHALLER_CLASS("marshallerClass"),
+    MAX_BATCH_LATENCY("maxBatchLatency"),
     MAX_ENTRIES("maxEntries"),
     MAX_IDLE("maxIdle"),
+    MAX_IN_FLIGHT_CHUNKS("maxInFlightChunks"),
+    MAX_MEMORY("maxMemory"),
     MAX_NON_PROGRESSING_LOG_WRITES("maxProgressingLogWrites"),
     MBEAN_SERVER_LOOKUP("mBeanServerLookup"),
     MODE("mode"),
@@ -83,6 +88,7 @@ public enum Attribute {
     NUM_OWNERS("numOwners"),
     NUM_RETRIES("numRetries"),
     NUM_VIRTUAL_NODES("numVirtualNodes"),
+    OFF_HEAP("offHeap"),
     ON_REHASH("onRehash"),
     PASSIVATION("passivation"),
     POSITION("position"),
@@ -98,15 +104,20 @@ public enum Attribute {
     REHASH_ENABLED("rehashEnabled"),
     REHASH_RPC_TIMEOUT("rehashRpcTimeout"),
     REHASH_WAIT("rehashWait"),
+    REMOTE_COMMAND_STRIPES("remoteCommandStripes"),
     REPL_QUEUE_INTERVAL("replQueueInterval"),
     REPL_QUEUE_CLASS("replQueueClass"),
     REPL_QUEUE_MAX_ELEMENTS("replQueueMaxElements"),
+    REPL_QUEUE_MAX_BYTES("replQueueMaxBytes"),
     REPL_TIMEOUT("replTimeout"),
     RETRY_WAIT_TIME_INCREASE_FACTOR("retryWaitTimeIncreaseFactor"),
     SHARED("shared"),
     SHUTDOWN_TIMEOUT("shutdownTimeout"),
     SITE_ID("siteId"),
+    SIZE_CALCULATOR("sizeCalculator"),
+    SLAB_SIZE("slabSize"),
     SPIN_DURATION("spinDuration"),
+    STAMPED_READS("stampedReads"),
     STORE_KEYS_AS_BINARY("storeKeysAsBinary"),
     STORE_VALUES_AS_BINARY("storeValuesAsBinary"),
     STRATEGY("strategy"),
@@ -118,6 +129,7 @@ public enum Attribute {
     TIMEOUT("timeout"),
     TRANSACTION_MANAGER_LOOKUP_CLASS("transactionManagerLookupClass"),
     TRANSACTION_MODE("transactionMode"),
+    TRANSACTION_PROTOCOL("transactionProtocol"),
     TRANSPORT_CLASS("transportClass"),
     UNRELIABLE_RETURN_VALUES("unreliableReturnValues"),
     USE_EAGER_LOCKING("useEagerLocking"),
@@ -129,6 +141,7 @@ public enum Attribute {
     WAKE_UP_INTERVAL("wakeUpInterval"),
     WRITE_SKEW_CHECK("writeSkewCheck"),
     USE_1PC_FOR_AUTOCOMMIT_TX("use1PcForAutoCommitTransactions"),
+    USE_1PC_FOR_SINGLE_OWNER_TX("use1PcForSingleOwnerTransactions"),
     VERSIONING_SCHEME("versioningScheme")
     ;
 
@@ -61,8 +61,10 @@
 import org.infinispan.remoting.transport.Transport;
 import org.infinispan.transaction.LockingMode;
 import org.infinispan.transaction.TransactionMode;
+import org.infinispan.transaction.TransactionProtocol;
 import org.infinispan.transaction.lookup.TransactionManagerLookup;
 import org.infinispan.util.Util;
+import org.infinispan.util.concurrent.BoundedConcurrentHashMap.EntrySizeCalculator;
 import org.infinispan.util.concurrent.IsolationLevel;
 import org.jboss.staxmapper.XMLExtendedStreamReader;
 
@@ -166,7 +168,7 @@ private void parseCache(XMLStreamReader reader, ConfigurationBuilder builder, Cl
                parseDeadlockDetection(reader, builder);
                break;
             case EVICTION:
-               parseEviction(reader, builder);
+               parseEviction(reader, builder, cl);
                break;
             case EXPIRATION:
                parseExpiration(reader, builder);
@@ -259,6 +261,9 @@ private void parseTransaction(XMLStreamReader reader, ConfigurationBuilder build
                builder.transaction().transactionMode(TransactionMode.valueOf(value));
                transactionModeSpecified = true;
                break;
+            case TRANSACTION_PROTOCOL:
+               builder.transaction().transactionProtocol(TransactionProtocol.valueOf(value));
+               break;
             case USE_EAGER_LOCKING:
                builder.transaction().useEagerLocking(Boolean.parseBoolean(value));
                break;
@@ -268,6 +273,9 @@ private void parseTransaction(XMLStreamReader reader, ConfigurationBuilder build
             case USE_1PC_FOR_AUTOCOMMIT_TX:
                builder.transaction().use1PcForAutoCommitTransactions(Boolean.parseBoolean(value));
                break;
+            case USE_1PC_FOR_SINGLE_OWNER_TX:
+               builder.transaction().use1PcForSingleOwnerTransactions(Boolean.parseBoolean(value));
+               break;
             default:
                throw ParseUtils.unexpectedAttribute(reader, i);
          }
@@ -377,6 +385,9 @@ private void parseLocking(XMLStreamReader reader, ConfigurationBuilder builder)
             case WRITE_SKEW_CHECK:
                builder.locking().writeSkewCheck(Boolean.parseBoolean(value));
                break;
+            case STAMPED_READS:
+               builder.locking().stampedReads(Boolean.parseBoolean(value));
+               break;
             default:
                throw ParseUtils.unexpectedAttribute(reader, i);
          }
@@ -555,6 +566,12 @@ private void parseAsyncLoader(XMLStreamReader reader, AbstractLoaderConfiguratio
             case THREAD_POOL_SIZE:
                loaderBuilder.async().threadPoolSize(Integer.parseInt(value));
                break;
+            case BATCH_SIZE:
+               loaderBuilder.async().batchSize(Integer.parseInt(value));
+               break;
+            case MAX_BATCH_LATENCY:
+               loaderBuilder.async().maxBatchLatency(Long.parseLong(value));
+               break;
             default:
                throw ParseUtils.unexpectedAttribute(reader, i);
          }
@@ -673,7 +690,7 @@ private void parseExpiration(XMLStreamReader reader, ConfigurationBuilder builde
 
    }
 
-   private void parseEviction(XMLStreamReader reader, ConfigurationBuilder builder) throws XMLStreamException {
+   private void parseEviction(XMLStreamReader reader, ConfigurationBuilder builder, ClassLoader cl) throws XMLStreamException {
       for (int i = 0; i < reader.getAttributeCount(); i++) {
          ParseUtils.requireNoNamespaceAttribute(reader, i);
          String value = replaceProperties(reader.getAttributeValue(i));
@@ -682,6 +699,12 @@ private void parseEviction(XMLStreamReader reader, ConfigurationBuilder builder)
             case MAX_ENTRIES:
                builder.eviction().maxEntries(Integer.parseInt(value));
                break;
+            case MAX_MEMORY:
+               builder.eviction().maxMemory(Long.parseLong(value));
+               break;
+            case SIZE_CALCULATOR:
+               builder.eviction().sizeCalculator(Util.<EntrySizeCalculator<Object, Object>>getInstance(value, cl));
+               break;
             case STRATEGY:
                builder.eviction().strategy(EvictionStrategy.valueOf(value));
                break;
@@ -731,6 +754,15 @@ private void parseDataContainer(XMLStreamReader reader, ConfigurationBuilder bui
             case CLASS:
                builder.dataContainer().dataContainer(Util.<DataContainer>getInstance(value, cl));
                break;
+            case OFF_HEAP:
+               builder.dataContainer().offHeap(Boolean.parseBoolean(value));
+               break;
+            case ADDRESS_COUNT:
+               builder.dataContainer().addressCount(Integer.parseInt(value));
+               break;
+            case SLAB_SIZE:
+               builder.dataContainer().slabSize(Integer.parseInt(value));
+               break;
             default:
                throw ParseUtils.unexpectedAttribute(reader, i);
          }
@@ -919,6 +951,12 @@ private void parseStateTransfer(XMLStreamReader reader, ConfigurationBuilder bui
             case CHUNK_SIZE:
                builder.clustering().stateTransfer().chunkSize(Integer.parseInt(value));
                break;
+            case THREAD_POOL_SIZE:
+               builder.clustering().stateTransfer().threadPoolSize(Integer.parseInt(value));
+               break;
+            case MAX_IN_FLIGHT_CHUNKS:
+               builder.clustering().stateTransfer().maxInFlightChunks(Integer.parseInt(value));
+               break;
             default:
                throw ParseUtils.unexpectedAttribute(reader, i);
          }
@@ -1054,9 +1092,15 @@ private void parseAsync(XMLStreamReader reader, ConfigurationBuilder builder, Cl
             case REPL_QUEUE_MAX_ELEMENTS:
                builder.clustering().async().replQueueMaxElements(Integer.parseInt(value));
                break;
+            case REPL_QUEUE_MAX_BYTES:
+               builder.clustering().async().replQueueMaxBytes(Long.parseLong(value));
+               break;
             case USE_REPL_QUEUE:
                builder.clustering().async().useReplQueue(Boolean.parseBoolean(value));
                break;
+            case REMOTE_COMMAND_STRIPES:
+               builder.clustering().async().remoteCommandStripes(Integer.parseInt(value));
+               break;
             default:
                throw ParseUtils.unexpectedAttribute(reader, i);
          }
@@ -23,6 +23,7 @@
 package org.infinispan.container;
 
 import net.jcip.annotations.ThreadSafe;
+import org.infinispan.configuration.cache.Configuration;
 import org.infinispan.container.entries.InternalCacheEntry;
 import org.infinispan.container.versioning.EntryVersion;
 import org.infinispan.eviction.EvictionManager;
@@ -30,11 +31,16 @@
 import org.infinispan.eviction.EvictionThreadPolicy;
 import org.infinispan.eviction.PassivationManager;
 import org.infinispan.factories.annotations.Inject;
+import org.infinispan.jmx.annotations.MBean;
+import org.infinispan.jmx.annotations.ManagedAttribute;
 import org.infinispan.util.Immutables;
 import org.infinispan.util.concurrent.BoundedConcurrentHashMap;
+import org.infinispan.util.concurrent.BoundedConcurrentHashMap.EntrySizeCalculator;
 import org.infinispan.util.concurrent.BoundedConcurrentHashMap.Eviction;
 import org.infinispan.util.concurrent.BoundedConcurrentHashMap.EvictionListener;
 import org.infinispan.util.concurrent.ConcurrentMapFactory;
+import org.rhq.helpers.pluginAnnotations.agent.DisplayType;
+import org.rhq.helpers.pluginAnnotations.agent.Metric;
 
 import java.util.AbstractCollection;
 import java.util.AbstractSet;
@@ -57,31 +63,49 @@
  * @since 4.0
  */
 @ThreadSafe
+@MBean(objectName = "DataContainer", description = "Data container storing entries in the heap")
 public class DefaultDataContainer implements DataContainer {
 
    final protected ConcurrentMap<Object, InternalCacheEntry> entries;
    protected InternalEntryFactory entryFactory;
    final protected DefaultEvictionListener evictionListener;
+   final protected ExpirationWheel expirationWheel;
    private EvictionManager evictionManager;
    private PassivationManager passivator;
+   private boolean stampEntries;
 
    public DefaultDataContainer(int concurrencyLevel) {
       entries = ConcurrentMapFactory.makeConcurrentMap(128, concurrencyLevel);
       evictionListener = null;
+      expirationWheel = new ExpirationWheel(concurrencyLevel);
    }
 
    protected DefaultDataContainer(int concurrencyLevel, int maxEntries, EvictionStrategy strategy, EvictionThreadPolicy policy) {
+      evictionListener = createEvictionListener(policy);
+      entries = new BoundedConcurrentHashMap<Object, InternalCacheEntry>(maxEntries, concurrencyLevel,
+            translateStrategy(strategy), evictionListener);
+      expirationWheel = new ExpirationWheel(concurrencyLevel);
+   }
+
+   protected DefaultDataContainer(int concurrencyLevel, long maxMemory, EvictionStrategy strategy, EvictionThreadPolicy policy,
+            EntrySizeCalculator<Object, Object> sizeCalculator) {
+      evictionListener = createEvictionListener(policy);
+      entries = new BoundedConcurrentHashMap<Object, InternalCacheEntry>(maxMemory, concurrencyLevel,
+            translateStrategy(strategy), evictionListener, new InternalEntrySizeCalculator(sizeCalculator));
+      expirationWheel = new ExpirationWheel(concurrencyLevel);
+   }
 
-      // translate eviction policy and strategy
+   private DefaultEvictionListener createEvictionListener(EvictionThreadPolicy policy) {
       switch (policy) {
          case PIGGYBACK:
          case DEFAULT:
-            evictionListener = new DefaultEvictionListener();
-            break;
+            return new DefaultEvictionListener();
          default:
-            throw new IllegalArgumentException("No such eviction thread policy " + strategy);
+            throw new IllegalArgumentException("No such eviction thread policy " + policy);
       }
+   }
 
+   private static Eviction translateStrategy(EvictionStrategy strategy) {
       Eviction eviction;
       switch (strategy) {
          case FIFO:
@@ -92,10 +116,13 @@ protected DefaultDataContainer(int concurrencyLevel, int maxEntries, EvictionStr
          case LIRS:
             eviction = Eviction.LIRS;
             break;
+         case TINY_LFU:
+            eviction = Eviction.TINY_LFU;
+            break;
          default:
             throw new IllegalArgumentException("No such eviction strategy " + strategy);
       }
-      entries = new BoundedConcurrentHashMap<Object, InternalCacheEntry>(maxEntries, concurrencyLevel, eviction, evictionListener);
+      return eviction;
    }
 
    @Inject
@@ -105,11 +132,21 @@ public void initialize(EvictionManager evictionManager, PassivationManager passi
       this.entryFactory = entryFactory;
    }
 
+   @Inject
+   public void injectConfiguration(Configuration configuration) {
+      this.stampEntries = configuration.locking().stampedReads();
+   }
+
    public static DataContainer boundedDataContainer(int concurrencyLevel, int maxEntries,
             EvictionStrategy strategy, EvictionThreadPolicy policy) {
       return new DefaultDataContainer(concurrencyLevel, maxEntries, strategy, policy);
    }
 
+   public static DataContainer memoryBoundedDataContainer(int concurrencyLevel, long maxMemory,
+            EvictionStrategy strategy, EvictionThreadPolicy policy, EntrySizeCalculator<Object, Object> sizeCalculator) {
+      return new DefaultDataContainer(concurrencyLevel, maxMemory, strategy, policy, sizeCalculator);
+   }
+
    public static DataContainer unBoundedDataContainer(int concurrencyLevel) {
       return new DefaultDataContainer(concurrencyLevel);
    }
@@ -137,7 +174,12 @@ public InternalCacheEntry get(Object k) {
    @Override
    public void put(Object k, Object v, EntryVersion version, long lifespan, long maxIdle) {
       InternalCacheEntry e = entries.get(k);
-      if (e != null) {
+      if (stampEntries) {
+         // readers may hold on to the current entry, so replace it rather than update it
+         int stamp = e == null ? 1 : e.getStamp() + 1;
+         e = entryFactory.create(k, v, version, lifespan, maxIdle);
+         e.setStamp(stamp);
+      } else if (e != null) {
          e.setValue(v);
          InternalCacheEntry original = e;
          e.setVersion(version);
@@ -151,6 +193,9 @@ public void put(Object k, Object v, EntryVersion version, long lifespan, long ma
          e = entryFactory.create(k, v, version, lifespan, maxIdle);
       }
       entries.put(k, e);
+      if (e.canExpire()) {
+         expirationWheel.schedule(k, e.getExpiryTime());
+      }
    }
 
    @Override
@@ -166,6 +211,14 @@ public boolean containsKey(Object k) {
    @Override
    public InternalCacheEntry remove(Object k) {
       InternalCacheEntry e = entries.remove(k);
+      if (e != null && e.canExpire()) {
+         expirationWheel.cancel(k, e.getExpiryTime());
+         // a concurrent put expiring in the same tick shares the cancelled schedule
+         InternalCacheEntry current = entries.get(k);
+         if (current != null && current.canExpire()) {
+            expirationWheel.schedule(k, current.getExpiryTime());
+         }
+      }
       return e == null || (e.canExpire() && e.isExpired(System.currentTimeMillis())) ? null : e;
    }
 
@@ -176,9 +229,20 @@ public int size() {
 
    @Override
    public void clear() {
+      // the other way round would drop the schedule of entries put in between
+      expirationWheel.clear();
       entries.clear();
    }
 
+   @ManagedAttribute(description = "Estimated number of bytes used by entries if eviction is bounded by memory, the number of entries otherwise")
+   @Metric(displayName = "Weighted size", displayType = DisplayType.SUMMARY)
+   public long getWeightedSize() {
+      if (entries instanceof BoundedConcurrentHashMap) {
+         return ((BoundedConcurrentHashMap<Object, InternalCacheEntry>) entries).weightedSize();
+      }
+      return entries.size();
+   }
+
    @Override
    public Set<Object> keySet() {
       return Collections.unmodifiableSet(entries.keySet());
@@ -197,10 +261,17 @@ public Set<InternalCacheEntry> entrySet() {
    @Override
    public void purgeExpired() {
       long currentTimeMillis = System.currentTimeMillis();
-      for (Iterator<InternalCacheEntry> purgeCandidates = entries.values().iterator(); purgeCandidates.hasNext();) {
-         InternalCacheEntry e = purgeCandidates.next();
+      // only visit the entries due to expire by now, rather than every entry
+      for (Object key : expirationWheel.expire(currentTimeMillis)) {
+         InternalCacheEntry e = entries.get(key);
+         if (e == null) {
+            continue;
+         }
          if (e.isExpired(currentTimeMillis)) {
-            purgeCandidates.remove();
+            entries.remove(key, e);
+         } else if (e.canExpire()) {
+            // touched or updated since it was scheduled
+            expirationWheel.schedule(key, e.getExpiryTime());
          }
       }
    }
@@ -213,6 +284,11 @@ public Iterator<InternalCacheEntry> iterator() {
    private final class DefaultEvictionListener implements EvictionListener<Object, InternalCacheEntry> {
       @Override
       public void onEntryEviction(Map<Object, InternalCacheEntry> evicted) {
+         for (Map.Entry<Object, InternalCacheEntry> e : evicted.entrySet()) {
+            if (e.getValue().canExpire()) {
+               expirationWheel.cancel(e.getKey(), e.getValue().getExpiryTime());
+            }
+         }
          evictionManager.onEntryEviction(evicted);
       }
 
@@ -222,6 +298,22 @@ public void onEntryChosenForEviction(InternalCacheEntry internalCacheEntry) {
       }
    }
 
+   /**
+    * Weighs the key and value of an internal cache entry with the configured calculator.
+    */
+   private static final class InternalEntrySizeCalculator implements EntrySizeCalculator<Object, InternalCacheEntry> {
+      private final EntrySizeCalculator<Object, Object> calculator;
+
+      InternalEntrySizeCalculator(EntrySizeCalculator<Object, Object> calculator) {
+         this.calculator = calculator;
+      }
+
+      @Override
+      public long calculateSize(Object key, InternalCacheEntry entry) {
+         return calculator.calculateSize(key, entry.getValue());
+      }
+   }
+
    private static class ImmutableEntryIterator extends EntryIterator {
       ImmutableEntryIterator(Iterator<InternalCacheEntry> it){
          super(it);
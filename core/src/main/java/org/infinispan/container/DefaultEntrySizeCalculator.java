@@ -0,0 +1,102 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.container;
+
+import net.jcip.annotations.ThreadSafe;
+import org.infinispan.marshall.MarshalledValue;
+import org.infinispan.util.ByteArrayKey;
+import org.infinispan.util.concurrent.BoundedConcurrentHashMap.EntrySizeCalculator;
+
+/**
+ * Estimates the heap footprint of a cache entry in bytes, for eviction bounded by memory.
+ * <p>
+ * Byte arrays, strings, boxed primitives and {@link MarshalledValue}s, which is what caches storing values as
+ * binary hold, are estimated from their actual length. Any other object is assumed to take
+ * {@link #DEFAULT_OBJECT_SIZE} bytes; caches holding such objects should either store them as binary or
+ * configure a calculator which knows about their types.
+ *
+ * @since 5.2
+ */
+@ThreadSafe
+public class DefaultEntrySizeCalculator implements EntrySizeCalculator<Object, Object> {
+
+   /**
+    * Approximate size of an entry without its key and value: the internal cache entry, the map node and its
+    * eviction bookkeeping.
+    */
+   public static final int ENTRY_OVERHEAD = 96;
+
+   /**
+    * Size assumed for objects whose size cannot be estimated.
+    */
+   public static final int DEFAULT_OBJECT_SIZE = 64;
+
+   private static final int OBJECT_HEADER = 16;
+   private static final int ARRAY_HEADER = 16;
+
+   @Override
+   public long calculateSize(Object key, Object value) {
+      return ENTRY_OVERHEAD + sizeOf(key) + sizeOf(value);
+   }
+
+   /**
+    * Estimates the size of a key or a value.
+    */
+   protected long sizeOf(Object o) {
+      if (o == null) {
+         return 0;
+      } else if (o instanceof MarshalledValue) {
+         return OBJECT_HEADER + ARRAY_HEADER + align(((MarshalledValue) o).getRaw().size());
+      } else if (o instanceof byte[]) {
+         return ARRAY_HEADER + align(((byte[]) o).length);
+      } else if (o instanceof ByteArrayKey) {
+         return OBJECT_HEADER + ARRAY_HEADER + align(((ByteArrayKey) o).getData().length);
+      } else if (o instanceof String) {
+         return OBJECT_HEADER + 8 + ARRAY_HEADER + align(2L * ((String) o).length());
+      } else if (o instanceof Number || o instanceof Boolean || o instanceof Character) {
+         return 24;
+      } else {
+         return DEFAULT_OBJECT_SIZE;
+      }
+   }
+
+   @Override
+   public boolean equals(Object o) {
+      // stateless, so any two instances of the same class are equivalent
+      return o != null && getClass() == o.getClass();
+   }
+
+   @Override
+   public int hashCode() {
+      return getClass().hashCode();
+   }
+
+   @Override
+   public String toString() {
+      return getClass().getSimpleName();
+   }
+
+   private static long align(long size) {
+      return (size + 7) & ~7L;
+   }
+}
@@ -57,6 +57,7 @@ public class EntryFactoryImpl implements EntryFactory {
    private final boolean trace = log.isTraceEnabled();
    
    protected boolean useRepeatableRead;
+   private boolean stampedReads;
    private DataContainer container;
    protected boolean localModeWriteSkewCheck;
    private Configuration configuration;
@@ -73,6 +74,7 @@ public void injectDependencies(DataContainer dataContainer, Configuration config
    public void init() {
       useRepeatableRead = configuration.locking().isolationLevel() == IsolationLevel.REPEATABLE_READ;
       localModeWriteSkewCheck = configuration.locking().writeSkewCheck();
+      stampedReads = configuration.locking().stampedReads();
    }
 
    @Override
@@ -82,7 +84,13 @@ public final CacheEntry wrapEntryForReading(InvocationContext ctx, Object key) t
          cacheEntry = getFromContainer(key);
 
          // do not bother wrapping though if this is not in a tx.  repeatable read etc are all meaningless unless there is a tx.
-         if (useRepeatableRead) {
+         if (useRepeatableRead && stampedReads) {
+            // the container replaces rather than updates entries, so the one we got stays unchanged and there is no
+            // need to copy it.  A wrapper is only created if the key is later written, see wrapInternalCacheEntryForPut
+            if (cacheEntry == null) cacheEntry = NullMarkerEntry.getInstance();
+            ctx.putLookedUpEntry(key, cacheEntry);
+            return cacheEntry;
+         } else if (useRepeatableRead) {
             MVCCEntry mvccEntry = null;
             if (cacheEntry == null) {
                mvccEntry = createWrappedEntry(key, null, null, false, false, -1);
@@ -230,6 +238,7 @@ private MVCCEntry wrapMvccEntryForPut(InvocationContext ctx, Object key, CacheEn
 
    private MVCCEntry wrapInternalCacheEntryForPut(InvocationContext ctx, Object key, InternalCacheEntry cacheEntry) {
       MVCCEntry mvccEntry = createWrappedEntry(key, cacheEntry.getValue(), cacheEntry.getVersion(), false, false, cacheEntry.getLifespan());
+      recordReadStamp(mvccEntry, cacheEntry);
       ctx.putLookedUpEntry(key, mvccEntry);
       return mvccEntry;
    }
@@ -239,6 +248,7 @@ private MVCCEntry wrapMvccEntryForRemove(InvocationContext ctx, Object key, Cach
       // If the original entry has changeable state, copy state flags to the new MVCC entry.
       if (cacheEntry instanceof StateChangingEntry)
          mvccEntry.copyStateFlagsFrom((StateChangingEntry) cacheEntry);
+      recordReadStamp(mvccEntry, cacheEntry);
 
       ctx.putLookedUpEntry(key, mvccEntry);
       return mvccEntry;
@@ -260,6 +270,13 @@ private MVCCEntry wrapEntry(InvocationContext ctx, Object key) {
       return mvccEntry;
    }
 
+   private void recordReadStamp(MVCCEntry mvccEntry, CacheEntry cacheEntry) {
+      // never stamp the shared NullMarkerEntry instance
+      if (stampedReads && mvccEntry instanceof RepeatableReadEntry && !(mvccEntry instanceof NullMarkerEntry)
+            && cacheEntry instanceof InternalCacheEntry)
+         ((RepeatableReadEntry) mvccEntry).setReadStamp(((InternalCacheEntry) cacheEntry).getStamp());
+   }
+
    protected  MVCCEntry createWrappedEntry(Object key, Object value, EntryVersion version, boolean isForInsert, boolean forRemoval, long lifespan) {
       if (value == null && !isForInsert) return useRepeatableRead ?
             forRemoval ? new NullMarkerEntryForRemoval(key, version) : NullMarkerEntry.getInstance()
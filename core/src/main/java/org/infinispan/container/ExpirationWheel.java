@@ -0,0 +1,228 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.container;
+
+import net.jcip.annotations.ThreadSafe;
+import org.infinispan.util.concurrent.ConcurrentMapFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * An index of the keys of a data container by expiry time, so that purging expired entries only visits the
+ * entries which are due rather than every entry in the container.
+ * <p>
+ * The index is a hierarchical timing wheel: {@link #LEVELS} wheels of {@link #WHEEL_SIZE} buckets, each bucket
+ * of level <tt>n</tt> spanning <tt>WHEEL_SIZE<sup>n</sup></tt> ticks of {@link #TICK_MILLIS} milliseconds.
+ * Keys are scheduled in the finest wheel which covers their expiry time, and move to finer wheels as time
+ * advances, so that scheduling is constant time and expiring only visits buckets whose time has come.
+ * <p>
+ * The index is only a hint: the container checks whether each key returned by {@link #expire(long)} has
+ * really expired, and schedules it again otherwise. This means that the expiry time of an entry only needs
+ * to be scheduled when it moves earlier. Entries which are touched or updated with a longer lifespan are
+ * found by their previous schedule and rescheduled then. Only the earliest schedule of a key is kept, later
+ * ones are dropped when their bucket is visited.
+ * <p>
+ * Scheduling is lock free and may run concurrently with {@link #expire(long)}, in which case a key racing
+ * with the advance of the wheel may be placed in a bucket which was just drained. The key is then only
+ * returned when that bucket comes round again: after a revolution of the wheel the bucket belongs to, which
+ * for the coarser wheels can be a lot longer than the remaining lifespan of the entry. This delays purging the
+ * entry from memory but not its expiration, which is also checked on read.
+ *
+ * @since 5.2
+ */
+@ThreadSafe
+public class ExpirationWheel {
+
+   /**
+    * Width of a tick, the finest granularity of the index.
+    */
+   public static final long TICK_MILLIS = 1L << 10;
+   static final int WHEEL_BITS = 6;
+   static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+   static final int LEVELS = 4;
+   private static final int TICK_SHIFT = 10;
+   private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+   private final Queue<Node>[][] wheels;
+   /**
+    * The earliest tick each key is scheduled at.
+    */
+   private final ConcurrentMap<Object, Long> scheduled;
+   /**
+    * The next tick to expire, all earlier ticks have been expired already.
+    */
+   private volatile long currentTick;
+
+   public ExpirationWheel(int concurrencyLevel) {
+      this(concurrencyLevel, System.currentTimeMillis());
+   }
+
+   @SuppressWarnings("unchecked")
+   ExpirationWheel(int concurrencyLevel, long now) {
+      wheels = new Queue[LEVELS][WHEEL_SIZE];
+      for (int level = 0; level < LEVELS; level++) {
+         for (int i = 0; i < WHEEL_SIZE; i++) {
+            wheels[level][i] = new ConcurrentLinkedQueue<Node>();
+         }
+      }
+      scheduled = ConcurrentMapFactory.makeConcurrentMap(128, concurrencyLevel);
+      currentTick = now >>> TICK_SHIFT;
+   }
+
+   /**
+    * Schedules a key to be returned by {@link #expire(long)} once the given time has passed. Has no effect if
+    * the key is already scheduled at an earlier time.
+    *
+    * @param key key of a mortal or transient entry
+    * @param expiryTime time after which the entry expires, in milliseconds
+    */
+   public void schedule(Object key, long expiryTime) {
+      if (expiryTime < 0) {
+         return;
+      }
+      long tick = expiryTime >>> TICK_SHIFT;
+      while (true) {
+         Long previous = scheduled.get(key);
+         if (previous == null) {
+            if (scheduled.putIfAbsent(key, tick) == null) break;
+         } else if (previous <= tick) {
+            return;
+         } else if (scheduled.replace(key, previous, tick)) {
+            break;
+         }
+      }
+      place(new Node(key, tick));
+   }
+
+   /**
+    * Forgets about a key, when its entry is removed from the container. The key is only forgotten if it is
+    * scheduled at the tick of the removed entry's expiry time, so that the schedule of an entry put concurrently
+    * with a different expiry time is kept.
+    *
+    * @param key key of the removed entry
+    * @param expiryTime expiry time of the removed entry, in milliseconds
+    */
+   public void cancel(Object key, long expiryTime) {
+      scheduled.remove(key, expiryTime >>> TICK_SHIFT);
+   }
+
+   /**
+    * Advances the wheel up to the given time and returns the keys which were scheduled to expire by then.
+    * The keys are no longer scheduled: those whose entries turn out not to have expired must be scheduled
+    * again.
+    * <p>
+    * Keys scheduled during the current tick are returned as well, so that no expired entry is missed.
+    */
+   public synchronized Collection<Object> expire(long now) {
+      long targetTick = now >>> TICK_SHIFT;
+      List<Object> due = new ArrayList<Object>();
+      for (long tick = currentTick; tick <= targetTick; tick++) {
+         // move keys down from the coarser wheels whose bucket starts with this tick
+         for (int level = LEVELS - 1; level > 0; level--) {
+            int shift = WHEEL_BITS * level;
+            if ((tick & ((1L << shift) - 1)) == 0) {
+               for (Node node : drain(wheels[level][(int) (tick >>> shift) & WHEEL_MASK])) {
+                  if (isScheduled(node)) place(node, tick);
+               }
+            }
+         }
+         List<Node> nodes = drain(wheels[0][(int) tick & WHEEL_MASK]);
+         currentTick = tick + 1;
+         for (Node node : nodes) {
+            if (node.tick > tick) {
+               // scheduled beyond the span of the wheel, wait for the next revolution
+               if (isScheduled(node)) place(node);
+            } else if (scheduled.remove(node.key, node.tick)) {
+               due.add(node.key);
+            }
+         }
+      }
+      return due;
+   }
+
+   /**
+    * Forgets every scheduled key.
+    */
+   public synchronized void clear() {
+      scheduled.clear();
+      for (Queue<Node>[] wheel : wheels) {
+         for (Queue<Node> bucket : wheel) {
+            bucket.clear();
+         }
+      }
+   }
+
+   /**
+    * Returns the number of scheduled keys.
+    */
+   public int size() {
+      return scheduled.size();
+   }
+
+   private boolean isScheduled(Node node) {
+      Long tick = scheduled.get(node.key);
+      return tick != null && tick == node.tick;
+   }
+
+   private void place(Node node) {
+      place(node, currentTick);
+   }
+
+   /**
+    * Adds a node to the bucket of the finest wheel which covers its tick, relative to the current tick.
+    */
+   private void place(Node node, long current) {
+      long tick = Math.max(node.tick, current);
+      for (int level = 0; level < LEVELS; level++) {
+         int shift = WHEEL_BITS * level;
+         if (level == LEVELS - 1 || (tick >>> (shift + WHEEL_BITS)) == (current >>> (shift + WHEEL_BITS))) {
+            wheels[level][(int) (tick >>> shift) & WHEEL_MASK].add(node);
+            return;
+         }
+      }
+   }
+
+   private static List<Node> drain(Queue<Node> bucket) {
+      List<Node> nodes = new ArrayList<Node>();
+      Node node;
+      while ((node = bucket.poll()) != null) {
+         nodes.add(node);
+      }
+      return nodes;
+   }
+
+   private static final class Node {
+      final Object key;
+      final long tick;
+
+      Node(Object key, long tick) {
+         this.key = key;
+         this.tick = tick;
+      }
+   }
+}
@@ -34,6 +34,7 @@
 public abstract class AbstractInternalCacheEntry implements InternalCacheEntry {
 
    protected Object key;
+   protected int stamp;
 
    protected AbstractInternalCacheEntry() {
    }
@@ -135,6 +136,16 @@ public final Object getKey() {
       return key;
    }
 
+   @Override
+   public final int getStamp() {
+      return stamp;
+   }
+
+   @Override
+   public final void setStamp(int stamp) {
+      this.stamp = stamp;
+   }
+
    @Override
    public String toString() {
       return getClass().getSimpleName() + "{" +
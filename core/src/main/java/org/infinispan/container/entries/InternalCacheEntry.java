@@ -113,5 +113,23 @@ public interface InternalCacheEntry extends CacheEntry, Cloneable {
     */
    InternalCacheValue toInternalCacheValue();
 
+   /**
+    * A data container storing entries with stamps never updates a published entry in place.  Instead it replaces the
+    * entry with a new one whose stamp is one higher, so a reader holding on to an entry can tell whether it is still
+    * current by comparing stamps.
+    *
+    * @return the stamp of this entry, 0 if the container does not stamp entries
+    * @since 5.2
+    */
+   int getStamp();
+
+   /**
+    * Sets the stamp of this entry.  Only to be used by the data container, before the entry is published.
+    *
+    * @param stamp stamp to set
+    * @since 5.2
+    */
+   void setStamp(int stamp);
+
    InternalCacheEntry clone();
 }
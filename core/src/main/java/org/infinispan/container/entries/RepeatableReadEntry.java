@@ -36,11 +36,20 @@
  */
 public class RepeatableReadEntry extends ReadCommittedEntry {
    private static final Log log = LogFactory.getLog(RepeatableReadEntry.class);
+   private int readStamp;
 
    public RepeatableReadEntry(Object key, Object value, EntryVersion version, long lifespan) {
       super(key, value, version, lifespan);
    }
 
+   /**
+    * Records the stamp of the container entry this entry was copied from, so that the write skew check can detect an
+    * update to the container entry even if it stored the same value instance.  0 means the stamp is not known.
+    */
+   public void setReadStamp(int readStamp) {
+      this.readStamp = readStamp;
+   }
+
    @Override
    public void copyForUpdate(DataContainer container, boolean localModeWriteSkewCheck) {
       if (isChanged()) return; // already copied
@@ -63,7 +72,7 @@ public void performLocalWriteSkewCheck(DataContainer container, boolean alreadyC
       Object valueToCompare = alreadyCopied ? oldValue : value;
       // Note that this identity-check is intentional.  We don't *want* to call actualValue.equals() since that defeats the purpose.
       // the implicit "versioning" we have in R_R creates a new wrapper "value" instance for every update.
-      if (actualValue != null && actualValue != valueToCompare) {
+      if (actualValue != null && (actualValue != valueToCompare || (readStamp != 0 && ice.getStamp() != readStamp))) {
          log.unableToCopyEntryForUpdate(getKey());
          throw new WriteSkewException("Detected write skew.");
       }
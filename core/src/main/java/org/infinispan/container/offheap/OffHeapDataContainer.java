@@ -0,0 +1,708 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.container.offheap;
+
+import net.jcip.annotations.ThreadSafe;
+import org.infinispan.CacheException;
+import org.infinispan.container.DataContainer;
+import org.infinispan.container.InternalEntryFactory;
+import org.infinispan.container.entries.InternalCacheEntry;
+import org.infinispan.container.versioning.EntryVersion;
+import org.infinispan.eviction.EvictionManager;
+import org.infinispan.eviction.PassivationManager;
+import org.infinispan.factories.annotations.ComponentName;
+import org.infinispan.factories.annotations.Inject;
+import org.infinispan.jmx.annotations.MBean;
+import org.infinispan.jmx.annotations.ManagedAttribute;
+import org.infinispan.marshall.StreamingMarshaller;
+import org.infinispan.util.Immutables;
+import org.infinispan.util.logging.Log;
+import org.infinispan.util.logging.LogFactory;
+import org.rhq.helpers.pluginAnnotations.agent.DataType;
+import org.rhq.helpers.pluginAnnotations.agent.DisplayType;
+import org.rhq.helpers.pluginAnnotations.agent.Metric;
+import org.rhq.helpers.pluginAnnotations.agent.Units;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static org.infinispan.container.offheap.SlabAllocator.NULL;
+import static org.infinispan.factories.KnownComponentNames.CACHE_MARSHALLER;
+
+/**
+ * A {@link DataContainer} which keeps its entries outside of the Java heap.
+ * <p />
+ * Keys, values and versions are marshalled with the cache marshaller and written, together with the expiration
+ * metadata, into records allocated by a {@link SlabAllocator}.  Records are indexed by a fixed size hash table, itself
+ * held in direct memory, which is split into segments guarded by their own read/write lock.  No per entry objects are
+ * kept on the heap: {@link InternalCacheEntry} instances are materialized from the records on {@link #get(Object)},
+ * {@link #peek(Object)} and while iterating, and are detached copies of the stored state.
+ * <p />
+ * Keys are compared by their marshalled form, so keys must marshall deterministically: two equal keys must produce the
+ * same byte sequence.
+ * <p />
+ * When bounded, each segment holds at most its share of <tt>maxEntries</tt>.  Eviction uses the CLOCK approximation
+ * of LRU, sweeping the hash table and evicting the first record which hasn't been read since the previous sweep, which
+ * lets reads proceed under the shared segment lock.
+ *
+ * @since 5.2
+ */
+@ThreadSafe
+@MBean(objectName = "OffHeapDataContainer", description = "Data container storing entries in off-heap memory")
+public class OffHeapDataContainer implements DataContainer {
+
+   private static final Log log = LogFactory.getLog(OffHeapDataContainer.class);
+
+   private static final int MAX_SEGMENTS = 1 << 16;
+   private static final int MIN_BUCKETS_PER_SEGMENT = 16;
+   private static final int PURGE_BATCH_SIZE = 1024;
+
+   // record layout
+   private static final int NEXT_OFFSET = 0;
+   private static final int HASH_OFFSET = 8;
+   private static final int FLAGS_OFFSET = 12;
+   private static final int KEY_LENGTH_OFFSET = 16;
+   private static final int VALUE_LENGTH_OFFSET = 20;
+   private static final int VERSION_LENGTH_OFFSET = 24;
+   private static final int CREATED_OFFSET = 32;
+   private static final int LAST_USED_OFFSET = 40;
+   private static final int LIFESPAN_OFFSET = 48;
+   private static final int MAX_IDLE_OFFSET = 56;
+   private static final int HEADER_SIZE = 64;
+
+   private static final int REFERENCED = 1;
+
+   private final SlabAllocator allocator;
+   // held shared by writers from the allocation of a record until it is inserted, and exclusively while clearing
+   private final ReentrantReadWriteLock allocationLock = new ReentrantReadWriteLock();
+   private final Segment[] segments;
+   private final int segmentShift;
+   private final int segmentMask;
+   private final int maxSegmentEntries;
+
+   private StreamingMarshaller marshaller;
+   private InternalEntryFactory entryFactory;
+   private EvictionManager evictionManager;
+   private PassivationManager passivator;
+
+   public OffHeapDataContainer(int concurrencyLevel, int addressCount, int slabSize) {
+      this(concurrencyLevel, addressCount, slabSize, -1);
+   }
+
+   protected OffHeapDataContainer(int concurrencyLevel, int addressCount, int slabSize, int maxEntries) {
+      if (concurrencyLevel <= 0 || addressCount <= 0)
+         throw new IllegalArgumentException("Concurrency level and address count must be positive");
+      int shift = 0;
+      int segmentCount = 1;
+      while (segmentCount < Math.min(concurrencyLevel, MAX_SEGMENTS)) {
+         ++shift;
+         segmentCount <<= 1;
+      }
+      segmentShift = 32 - shift;
+      segmentMask = segmentCount - 1;
+
+      int buckets = MIN_BUCKETS_PER_SEGMENT;
+      while (buckets * segmentCount < addressCount) buckets <<= 1;
+
+      segments = new Segment[segmentCount];
+      for (int i = 0; i < segmentCount; i++) segments[i] = new Segment(buckets);
+
+      maxSegmentEntries = maxEntries < 0 ? -1 : Math.max(1, (maxEntries + segmentCount - 1) / segmentCount);
+      allocator = new SlabAllocator(slabSize);
+   }
+
+   @Inject
+   public void initialize(EvictionManager evictionManager, PassivationManager passivator,
+                          InternalEntryFactory entryFactory, @ComponentName(CACHE_MARSHALLER) StreamingMarshaller marshaller) {
+      this.evictionManager = evictionManager;
+      this.passivator = passivator;
+      this.entryFactory = entryFactory;
+      this.marshaller = marshaller;
+   }
+
+   public static DataContainer boundedDataContainer(int concurrencyLevel, int maxEntries, int addressCount, int slabSize) {
+      return new OffHeapDataContainer(concurrencyLevel, addressCount, slabSize, maxEntries);
+   }
+
+   public static DataContainer unBoundedDataContainer(int concurrencyLevel, int addressCount, int slabSize) {
+      return new OffHeapDataContainer(concurrencyLevel, addressCount, slabSize);
+   }
+
+   @Override
+   public InternalCacheEntry peek(Object k) {
+      byte[] key = marshall(k);
+      int hash = hash(k.hashCode());
+      Segment s = segmentFor(hash);
+      s.lock.readLock().lock();
+      try {
+         long address = s.find(hash, key);
+         return address == NULL ? null : materialize(address, k);
+      } finally {
+         s.lock.readLock().unlock();
+      }
+   }
+
+   @Override
+   public InternalCacheEntry get(Object k) {
+      byte[] key = marshall(k);
+      int hash = hash(k.hashCode());
+      Segment s = segmentFor(hash);
+      long now = System.currentTimeMillis();
+      s.lock.readLock().lock();
+      try {
+         long address = s.find(hash, key);
+         if (address == NULL) return null;
+         if (!isExpired(address, now)) {
+            touch(address, now);
+            return materialize(address, k);
+         }
+      } finally {
+         s.lock.readLock().unlock();
+      }
+      s.removeIfExpired(hash, key, now);
+      return null;
+   }
+
+   @Override
+   public void put(Object k, Object v, EntryVersion version, long lifespan, long maxIdle) {
+      byte[] key = marshall(k);
+      byte[] value = marshall(v);
+      byte[] ver = version == null ? null : marshall(version);
+      int hash = hash(k.hashCode());
+      Map<Object, InternalCacheEntry> evicted;
+      // the record is not reachable from the segment until it is inserted, so clear() must not release the memory
+      // in between
+      allocationLock.readLock().lock();
+      try {
+         long address = allocate(hash, key, value, ver, lifespan, maxIdle);
+         evicted = segmentFor(hash).put(hash, key, address);
+      } finally {
+         allocationLock.readLock().unlock();
+      }
+      if (evicted != null) evictionManager.onEntryEviction(evicted);
+   }
+
+   @Override
+   public boolean containsKey(Object k) {
+      byte[] key = marshall(k);
+      int hash = hash(k.hashCode());
+      Segment s = segmentFor(hash);
+      long now = System.currentTimeMillis();
+      s.lock.readLock().lock();
+      try {
+         long address = s.find(hash, key);
+         if (address == NULL) return false;
+         if (!isExpired(address, now)) return true;
+      } finally {
+         s.lock.readLock().unlock();
+      }
+      s.removeIfExpired(hash, key, now);
+      return false;
+   }
+
+   @Override
+   public InternalCacheEntry remove(Object k) {
+      byte[] key = marshall(k);
+      int hash = hash(k.hashCode());
+      return segmentFor(hash).remove(hash, key, k);
+   }
+
+   @Override
+   public int size() {
+      long size = 0;
+      for (Segment s : segments) size += s.count;
+      return size > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) size;
+   }
+
+   @Override
+   public void clear() {
+      allocationLock.writeLock().lock();
+      try {
+         for (Segment s : segments) s.lock.writeLock().lock();
+         try {
+            for (Segment s : segments) s.reset();
+            allocator.release();
+         } finally {
+            for (Segment s : segments) s.lock.writeLock().unlock();
+         }
+      } finally {
+         allocationLock.writeLock().unlock();
+      }
+   }
+
+   @Override
+   public Set<Object> keySet() {
+      return new KeySet();
+   }
+
+   @Override
+   public Collection<Object> values() {
+      return new Values();
+   }
+
+   @Override
+   public Set<InternalCacheEntry> entrySet() {
+      return new EntrySet();
+   }
+
+   @Override
+   public void purgeExpired() {
+      long now = System.currentTimeMillis();
+      for (Segment s : segments) s.purgeExpired(now);
+   }
+
+   @Override
+   public Iterator<InternalCacheEntry> iterator() {
+      return new EntryIterator();
+   }
+
+   @ManagedAttribute(description = "Number of bytes of off-heap memory reserved by the container")
+   @Metric(displayName = "Off-heap memory reserved", units = Units.BYTES, displayType = DisplayType.SUMMARY)
+   public long getReservedMemory() {
+      return allocator.getReservedBytes();
+   }
+
+   @ManagedAttribute(description = "Number of bytes of off-heap memory used by entries")
+   @Metric(displayName = "Off-heap memory used", units = Units.BYTES, displayType = DisplayType.SUMMARY)
+   public long getUsedMemory() {
+      return allocator.getUsedBytes();
+   }
+
+   @ManagedAttribute(description = "Number of hash index slots of the container")
+   @Metric(displayName = "Address count", dataType = DataType.TRAIT)
+   public int getAddressCount() {
+      return segments.length * segments[0].buckets;
+   }
+
+   private long allocate(int hash, byte[] key, byte[] value, byte[] version, long lifespan, long maxIdle) {
+      int versionLength = version == null ? 0 : version.length;
+      long address = allocator.allocate(HEADER_SIZE + key.length + value.length + versionLength);
+      long now = System.currentTimeMillis();
+      allocator.putLong(address, NEXT_OFFSET, NULL);
+      allocator.putInt(address, HASH_OFFSET, hash);
+      allocator.putInt(address, FLAGS_OFFSET, REFERENCED);
+      allocator.putInt(address, KEY_LENGTH_OFFSET, key.length);
+      allocator.putInt(address, VALUE_LENGTH_OFFSET, value.length);
+      allocator.putInt(address, VERSION_LENGTH_OFFSET, versionLength);
+      allocator.putLong(address, CREATED_OFFSET, now);
+      allocator.putLong(address, LAST_USED_OFFSET, now);
+      allocator.putLong(address, LIFESPAN_OFFSET, lifespan);
+      allocator.putLong(address, MAX_IDLE_OFFSET, maxIdle);
+      allocator.putBytes(address, HEADER_SIZE, key, 0, key.length);
+      allocator.putBytes(address, HEADER_SIZE + key.length, value, 0, value.length);
+      if (version != null) allocator.putBytes(address, HEADER_SIZE + key.length + value.length, version, 0, versionLength);
+      return address;
+   }
+
+   private boolean isExpired(long address, long now) {
+      long lifespan = allocator.getLong(address, LIFESPAN_OFFSET);
+      if (lifespan > -1 && now > allocator.getLong(address, CREATED_OFFSET) + lifespan) return true;
+      long maxIdle = allocator.getLong(address, MAX_IDLE_OFFSET);
+      return maxIdle > -1 && now > allocator.getLong(address, LAST_USED_OFFSET) + maxIdle;
+   }
+
+   /**
+    * Records an access to the entry.  Only called with the shared segment lock held, so concurrent readers may race
+    * on these writes, which is harmless since they all write the current time and the same flag.
+    */
+   private void touch(long address, long now) {
+      if (allocator.getLong(address, MAX_IDLE_OFFSET) > -1) allocator.putLong(address, LAST_USED_OFFSET, now);
+      if (maxSegmentEntries > 0) allocator.putInt(address, FLAGS_OFFSET, REFERENCED);
+   }
+
+   private Object readKey(long address) {
+      return unmarshall(address, HEADER_SIZE, allocator.getInt(address, KEY_LENGTH_OFFSET));
+   }
+
+   private Object readValue(long address) {
+      return unmarshall(address, HEADER_SIZE + allocator.getInt(address, KEY_LENGTH_OFFSET),
+                        allocator.getInt(address, VALUE_LENGTH_OFFSET));
+   }
+
+   private InternalCacheEntry materialize(long address, Object key) {
+      int keyLength = allocator.getInt(address, KEY_LENGTH_OFFSET);
+      int valueLength = allocator.getInt(address, VALUE_LENGTH_OFFSET);
+      int versionLength = allocator.getInt(address, VERSION_LENGTH_OFFSET);
+      if (key == null) key = readKey(address);
+      Object value = unmarshall(address, HEADER_SIZE + keyLength, valueLength);
+      EntryVersion version = versionLength == 0 ? null :
+            (EntryVersion) unmarshall(address, HEADER_SIZE + keyLength + valueLength, versionLength);
+      return entryFactory.create(key, value, version,
+                                 allocator.getLong(address, CREATED_OFFSET), allocator.getLong(address, LIFESPAN_OFFSET),
+                                 allocator.getLong(address, LAST_USED_OFFSET), allocator.getLong(address, MAX_IDLE_OFFSET));
+   }
+
+   private byte[] marshall(Object o) {
+      try {
+         return marshaller.objectToByteBuffer(o);
+      } catch (IOException e) {
+         throw new CacheException("Unable to marshall " + o + " into off-heap memory", e);
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new CacheException("Interrupted while marshalling " + o, e);
+      }
+   }
+
+   private Object unmarshall(long address, int offset, int length) {
+      byte[] bytes = new byte[length];
+      allocator.getBytes(address, offset, bytes, 0, length);
+      try {
+         return marshaller.objectFromByteBuffer(bytes, 0, length);
+      } catch (IOException e) {
+         throw new CacheException("Unable to unmarshall entry from off-heap memory", e);
+      } catch (ClassNotFoundException e) {
+         throw new CacheException("Unable to unmarshall entry from off-heap memory", e);
+      }
+   }
+
+   private Segment segmentFor(int hash) {
+      return segments[(hash >>> segmentShift) & segmentMask];
+   }
+
+   /**
+    * Applies a supplemental hash function to a given hashCode, the same one used by
+    * {@link org.infinispan.util.concurrent.BoundedConcurrentHashMap}, to defend against poor quality hash functions.
+    */
+   private static int hash(int h) {
+      h += (h << 15) ^ 0xffffcd7d;
+      h ^= (h >>> 10);
+      h += (h << 3);
+      h ^= (h >>> 6);
+      h += (h << 2) + (h << 14);
+      return h ^ (h >>> 16);
+   }
+
+   private final class Segment {
+      final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+      final int buckets;
+      final ByteBuffer table;
+      volatile int count;
+      int clockHand;
+
+      Segment(int buckets) {
+         this.buckets = buckets;
+         this.table = ByteBuffer.allocateDirect(buckets * 8);
+      }
+
+      long head(int bucket) {
+         return table.getLong(bucket << 3);
+      }
+
+      void setHead(int bucket, long address) {
+         table.putLong(bucket << 3, address);
+      }
+
+      int bucket(int hash) {
+         return hash & (buckets - 1);
+      }
+
+      long find(int hash, byte[] key) {
+         for (long address = head(bucket(hash)); address != NULL; address = allocator.getLong(address, NEXT_OFFSET)) {
+            if (matches(address, hash, key)) return address;
+         }
+         return NULL;
+      }
+
+      boolean matches(long address, int hash, byte[] key) {
+         return allocator.getInt(address, HASH_OFFSET) == hash
+               && allocator.getInt(address, KEY_LENGTH_OFFSET) == key.length
+               && allocator.bytesEqual(address, HEADER_SIZE, key);
+      }
+
+      Map<Object, InternalCacheEntry> put(int hash, byte[] key, long record) {
+         Map<Object, InternalCacheEntry> evicted = null;
+         lock.writeLock().lock();
+         try {
+            int bucket = bucket(hash);
+            long previous = NULL;
+            for (long address = head(bucket); address != NULL; address = allocator.getLong(address, NEXT_OFFSET)) {
+               if (matches(address, hash, key)) {
+                  allocator.putLong(record, NEXT_OFFSET, allocator.getLong(address, NEXT_OFFSET));
+                  link(bucket, previous, record);
+                  allocator.free(address);
+                  return null;
+               }
+               previous = address;
+            }
+            allocator.putLong(record, NEXT_OFFSET, head(bucket));
+            setHead(bucket, record);
+            count++;
+            if (maxSegmentEntries > 0 && count > maxSegmentEntries) evicted = evict();
+         } finally {
+            lock.writeLock().unlock();
+         }
+         return evicted;
+      }
+
+      InternalCacheEntry remove(int hash, byte[] key, Object k) {
+         lock.writeLock().lock();
+         try {
+            int bucket = bucket(hash);
+            long previous = NULL;
+            for (long address = head(bucket); address != NULL; address = allocator.getLong(address, NEXT_OFFSET)) {
+               if (matches(address, hash, key)) {
+                  InternalCacheEntry removed = isExpired(address, System.currentTimeMillis()) ? null : materialize(address, k);
+                  unlink(bucket, previous, address);
+                  return removed;
+               }
+               previous = address;
+            }
+            return null;
+         } finally {
+            lock.writeLock().unlock();
+         }
+      }
+
+      void removeIfExpired(int hash, byte[] key, long now) {
+         lock.writeLock().lock();
+         try {
+            int bucket = bucket(hash);
+            long previous = NULL;
+            for (long address = head(bucket); address != NULL; address = allocator.getLong(address, NEXT_OFFSET)) {
+               if (matches(address, hash, key)) {
+                  if (isExpired(address, now)) unlink(bucket, previous, address);
+                  return;
+               }
+               previous = address;
+            }
+         } finally {
+            lock.writeLock().unlock();
+         }
+      }
+
+      void purgeExpired(long now) {
+         for (int from = 0; from < buckets; from += PURGE_BATCH_SIZE) {
+            lock.writeLock().lock();
+            try {
+               for (int bucket = from; bucket < Math.min(from + PURGE_BATCH_SIZE, buckets); bucket++) {
+                  long previous = NULL;
+                  long address = head(bucket);
+                  while (address != NULL) {
+                     long next = allocator.getLong(address, NEXT_OFFSET);
+                     if (isExpired(address, now)) {
+                        unlink(bucket, previous, address);
+                     } else {
+                        previous = address;
+                     }
+                     address = next;
+                  }
+               }
+            } finally {
+               lock.writeLock().unlock();
+            }
+         }
+      }
+
+      /**
+       * Evicts records until the segment is back within its bounds.  Must be called with the write lock held.
+       */
+      Map<Object, InternalCacheEntry> evict() {
+         Map<Object, InternalCacheEntry> evicted = new HashMap<Object, InternalCacheEntry>();
+         while (count > maxSegmentEntries) {
+            int bucket = clockHand;
+            long previous = NULL;
+            long address = head(bucket);
+            while (address != NULL && count > maxSegmentEntries) {
+               long next = allocator.getLong(address, NEXT_OFFSET);
+               if (allocator.getInt(address, FLAGS_OFFSET) == REFERENCED) {
+                  allocator.putInt(address, FLAGS_OFFSET, 0);
+                  previous = address;
+               } else {
+                  InternalCacheEntry entry = materialize(address, null);
+                  passivator.passivate(entry);
+                  evicted.put(entry.getKey(), entry);
+                  unlink(bucket, previous, address);
+               }
+               address = next;
+            }
+            clockHand = (bucket + 1) & (buckets - 1);
+         }
+         if (log.isTraceEnabled()) log.tracef("Evicted %d entries from off-heap segment", evicted.size());
+         return evicted;
+      }
+
+      void link(int bucket, long previous, long address) {
+         if (previous == NULL) setHead(bucket, address);
+         else allocator.putLong(previous, NEXT_OFFSET, address);
+      }
+
+      void unlink(int bucket, long previous, long address) {
+         link(bucket, previous, allocator.getLong(address, NEXT_OFFSET));
+         allocator.free(address);
+         count--;
+      }
+
+      void reset() {
+         for (int bucket = 0; bucket < buckets; bucket++) setHead(bucket, NULL);
+         count = 0;
+         clockHand = 0;
+      }
+
+      /**
+       * Reads all the records of a bucket under the shared lock, so that iterators never observe freed memory.
+       */
+      <E> void readBucket(int bucket, Reader<E> reader, List<E> target) {
+         lock.readLock().lock();
+         try {
+            for (long address = head(bucket); address != NULL; address = allocator.getLong(address, NEXT_OFFSET)) {
+               target.add(reader.read(address));
+            }
+         } finally {
+            lock.readLock().unlock();
+         }
+      }
+   }
+
+   private interface Reader<E> {
+      E read(long address);
+   }
+
+   /**
+    * Weakly consistent iterator which materializes the container one bucket at a time.
+    */
+   private abstract class BucketIterator<E> implements Iterator<E>, Reader<E> {
+      private final List<E> batch = new ArrayList<E>();
+      private int segment;
+      private int bucket;
+      private int position;
+
+      @Override
+      public boolean hasNext() {
+         while (position == batch.size()) {
+            if (segment == segments.length) return false;
+            batch.clear();
+            position = 0;
+            Segment s = segments[segment];
+            s.readBucket(bucket, this, batch);
+            if (++bucket == s.buckets) {
+               bucket = 0;
+               segment++;
+            }
+         }
+         return true;
+      }
+
+      @Override
+      public E next() {
+         if (!hasNext()) throw new NoSuchElementException();
+         return batch.get(position++);
+      }
+
+      @Override
+      public void remove() {
+         throw new UnsupportedOperationException();
+      }
+   }
+
+   private final class EntryIterator extends BucketIterator<InternalCacheEntry> {
+      @Override
+      public InternalCacheEntry read(long address) {
+         return materialize(address, null);
+      }
+   }
+
+   private final class ImmutableEntryIterator extends BucketIterator<InternalCacheEntry> {
+      @Override
+      public InternalCacheEntry read(long address) {
+         return Immutables.immutableInternalCacheEntry(materialize(address, null));
+      }
+   }
+
+   private final class KeyIterator extends BucketIterator<Object> {
+      @Override
+      public Object read(long address) {
+         return readKey(address);
+      }
+   }
+
+   private final class ValueIterator extends BucketIterator<Object> {
+      @Override
+      public Object read(long address) {
+         return readValue(address);
+      }
+   }
+
+   private class KeySet extends AbstractSet<Object> {
+      @Override
+      public boolean contains(Object o) {
+         return peek(o) != null;
+      }
+
+      @Override
+      public Iterator<Object> iterator() {
+         return new KeyIterator();
+      }
+
+      @Override
+      public int size() {
+         return OffHeapDataContainer.this.size();
+      }
+   }
+
+   private class EntrySet extends AbstractSet<InternalCacheEntry> {
+      @Override
+      public boolean contains(Object o) {
+         if (!(o instanceof Map.Entry)) {
+            return false;
+         }
+
+         @SuppressWarnings("rawtypes")
+         Map.Entry e = (Map.Entry) o;
+         InternalCacheEntry ice = peek(e.getKey());
+         return ice != null && ice.getValue().equals(e.getValue());
+      }
+
+      @Override
+      public Iterator<InternalCacheEntry> iterator() {
+         return new ImmutableEntryIterator();
+      }
+
+      @Override
+      public int size() {
+         return OffHeapDataContainer.this.size();
+      }
+   }
+
+   private class Values extends AbstractCollection<Object> {
+      @Override
+      public Iterator<Object> iterator() {
+         return new ValueIterator();
+      }
+
+      @Override
+      public int size() {
+         return OffHeapDataContainer.this.size();
+      }
+   }
+}
@@ -0,0 +1,262 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.container.offheap;
+
+import net.jcip.annotations.ThreadSafe;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A slab allocator handing out chunks of direct (off-heap) memory.
+ * <p />
+ * Memory is reserved in slabs of a fixed size, each of which is dedicated to a single size class and carved into
+ * equally sized chunks.  Size classes grow geometrically, so the internal fragmentation of a chunk is bounded by the
+ * growth factor.  Freed chunks are kept in a per size class free list which is threaded through the freed chunks
+ * themselves, so the allocator keeps no per-chunk state on the Java heap.  Requests larger than the slab size are
+ * served by a dedicated direct buffer which is released as soon as it is freed.
+ * <p />
+ * Chunks are identified by an address, a <tt>long</tt> holding the slab index in the high 32 bits and the offset
+ * within the slab in the low 32 bits.  {@link #NULL} is never a valid address.  Reads and writes of allocated chunks
+ * are not synchronized: callers are expected to guard each chunk with their own locks.
+ *
+ * @since 5.2
+ */
+@ThreadSafe
+public final class SlabAllocator {
+
+   /**
+    * The address which never refers to an allocated chunk
+    */
+   public static final long NULL = 0L;
+
+   private static final int MIN_CHUNK_SIZE = 64;
+   private static final double GROWTH_FACTOR = 1.25;
+   private static final int HUGE = -1;
+
+   private final int slabSize;
+   private final int[] chunkSizes;
+   private final long[] freeLists;
+   private final int[] currentSlab;
+   private final int[] currentOffset;
+
+   private volatile ByteBuffer[] slabs;
+   private int[] slabClasses;
+   private int slabCount;
+   private int[] freeSlots;
+   private int freeSlotCount;
+
+   private volatile long reservedBytes;
+   private volatile long usedBytes;
+
+   public SlabAllocator(int slabSize) {
+      if (slabSize < MIN_CHUNK_SIZE)
+         throw new IllegalArgumentException("Slab size must be at least " + MIN_CHUNK_SIZE + " bytes, was " + slabSize);
+      this.slabSize = slabSize;
+      this.chunkSizes = chunkSizes(slabSize);
+      this.freeLists = new long[chunkSizes.length];
+      this.currentSlab = new int[chunkSizes.length];
+      this.currentOffset = new int[chunkSizes.length];
+      reset();
+   }
+
+   private static int[] chunkSizes(int slabSize) {
+      int[] sizes = new int[8];
+      int count = 0;
+      int size = MIN_CHUNK_SIZE;
+      while (size < slabSize) {
+         if (count == sizes.length) sizes = Arrays.copyOf(sizes, count * 2);
+         sizes[count++] = size;
+         // keep chunks 8 byte aligned so that the longs in the record headers are aligned too
+         size = ((int) (size * GROWTH_FACTOR) + 7) & ~7;
+      }
+      if (count == sizes.length) sizes = Arrays.copyOf(sizes, count + 1);
+      sizes[count++] = slabSize;
+      return Arrays.copyOf(sizes, count);
+   }
+
+   private void reset() {
+      Arrays.fill(freeLists, NULL);
+      Arrays.fill(currentSlab, -1);
+      Arrays.fill(currentOffset, 0);
+      slabClasses = new int[16];
+      freeSlots = new int[16];
+      slabCount = 0;
+      freeSlotCount = 0;
+      reservedBytes = 0;
+      usedBytes = 0;
+      slabs = new ByteBuffer[16];
+   }
+
+   /**
+    * Allocates a chunk able to hold at least <tt>size</tt> bytes.  The content of the chunk is undefined.
+    *
+    * @param size number of bytes needed
+    * @return the address of the chunk
+    */
+   public synchronized long allocate(int size) {
+      if (size > slabSize) {
+         int slab = newSlab(size, HUGE);
+         usedBytes += size;
+         return address(slab, 0);
+      }
+
+      int sizeClass = sizeClass(size);
+      int chunkSize = chunkSizes[sizeClass];
+      long address = freeLists[sizeClass];
+      if (address != NULL) {
+         freeLists[sizeClass] = getLong(address, 0);
+      } else {
+         int slab = currentSlab[sizeClass];
+         if (slab < 0 || currentOffset[sizeClass] + chunkSize > slabSize) {
+            slab = newSlab(slabSize, sizeClass);
+            currentSlab[sizeClass] = slab;
+            currentOffset[sizeClass] = 0;
+         }
+         address = address(slab, currentOffset[sizeClass]);
+         currentOffset[sizeClass] += chunkSize;
+      }
+      usedBytes += chunkSize;
+      return address;
+   }
+
+   /**
+    * Returns a chunk obtained from {@link #allocate(int)} to the allocator.  The chunk must not be accessed afterwards.
+    *
+    * @param address address of the chunk
+    */
+   public synchronized void free(long address) {
+      int slab = slabIndex(address);
+      int sizeClass = slabClasses[slab];
+      if (sizeClass == HUGE) {
+         int capacity = slabs[slab].capacity();
+         slabs[slab] = null;
+         usedBytes -= capacity;
+         reservedBytes -= capacity;
+         if (freeSlotCount == freeSlots.length) freeSlots = Arrays.copyOf(freeSlots, freeSlotCount * 2);
+         freeSlots[freeSlotCount++] = slab;
+      } else {
+         putLong(address, 0, freeLists[sizeClass]);
+         freeLists[sizeClass] = address;
+         usedBytes -= chunkSizes[sizeClass];
+      }
+   }
+
+   /**
+    * Releases all the memory held by this allocator.  All previously allocated addresses become invalid.
+    */
+   public synchronized void release() {
+      reset();
+   }
+
+   /**
+    * @return the number of bytes reserved from the operating system
+    */
+   public long getReservedBytes() {
+      return reservedBytes;
+   }
+
+   /**
+    * @return the number of bytes in chunks that are currently allocated
+    */
+   public long getUsedBytes() {
+      return usedBytes;
+   }
+
+   public long getLong(long address, int offset) {
+      return slab(address).getLong(offset(address) + offset);
+   }
+
+   public void putLong(long address, int offset, long value) {
+      slab(address).putLong(offset(address) + offset, value);
+   }
+
+   public int getInt(long address, int offset) {
+      return slab(address).getInt(offset(address) + offset);
+   }
+
+   public void putInt(long address, int offset, int value) {
+      slab(address).putInt(offset(address) + offset, value);
+   }
+
+   public void getBytes(long address, int offset, byte[] dst, int dstOffset, int length) {
+      ByteBuffer buffer = slab(address).duplicate();
+      buffer.position(offset(address) + offset);
+      buffer.get(dst, dstOffset, length);
+   }
+
+   public void putBytes(long address, int offset, byte[] src, int srcOffset, int length) {
+      ByteBuffer buffer = slab(address).duplicate();
+      buffer.position(offset(address) + offset);
+      buffer.put(src, srcOffset, length);
+   }
+
+   /**
+    * Compares <tt>bytes</tt> with the content of the chunk at the given address and offset without copying it.
+    */
+   public boolean bytesEqual(long address, int offset, byte[] bytes) {
+      ByteBuffer slab = slab(address);
+      int position = offset(address) + offset;
+      for (int i = 0; i < bytes.length; i++) {
+         if (slab.get(position + i) != bytes[i]) return false;
+      }
+      return true;
+   }
+
+   private int newSlab(int size, int sizeClass) {
+      ByteBuffer buffer = ByteBuffer.allocateDirect(size);
+      int slab;
+      if (freeSlotCount > 0) {
+         slab = freeSlots[--freeSlotCount];
+      } else {
+         slab = slabCount++;
+         if (slab == slabClasses.length) slabClasses = Arrays.copyOf(slabClasses, slab * 2);
+         if (slab == slabs.length) slabs = Arrays.copyOf(slabs, slab * 2);
+      }
+      slabClasses[slab] = sizeClass;
+      slabs[slab] = buffer;
+      reservedBytes += size;
+      return slab;
+   }
+
+   private int sizeClass(int size) {
+      int index = Arrays.binarySearch(chunkSizes, size);
+      return index >= 0 ? index : -index - 1;
+   }
+
+   private ByteBuffer slab(long address) {
+      return slabs[slabIndex(address)];
+   }
+
+   private static long address(int slab, int offset) {
+      return ((long) (slab + 1) << 32) | (offset & 0xFFFFFFFFL);
+   }
+
+   private static int slabIndex(long address) {
+      return (int) (address >>> 32) - 1;
+   }
+
+   private static int offset(long address) {
+      return (int) address;
+   }
+}
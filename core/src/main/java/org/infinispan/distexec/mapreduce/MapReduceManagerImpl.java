@@ -23,7 +23,6 @@
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -48,6 +47,8 @@
 import org.infinispan.loaders.CacheLoader;
 import org.infinispan.loaders.CacheLoaderException;
 import org.infinispan.loaders.CacheLoaderManager;
+import org.infinispan.loaders.EntryVisitor;
+import org.infinispan.loaders.KeyFilter;
 import org.infinispan.manager.EmbeddedCacheManager;
 import org.infinispan.remoting.transport.Address;
 import org.infinispan.util.concurrent.ConcurrentMapFactory;
@@ -163,20 +164,19 @@ protected <KIn, VIn, KOut, VOut> CollectableCollector<KOut, VOut> map(MapCombine
                inputKeysCopy.remove(key);
             }
          }
-         Set<KIn> keysFromCacheLoader = null;
          if (inputKeysSpecified) {
             // load only specified remaining input keys - iff in CL and pinned to this primary owner
-            keysFromCacheLoader = filterLocalPrimaryOwner(inputKeysCopy, dm);
-         } else {
-            // load everything from CL pinned to this primary owner
-            keysFromCacheLoader = filterLocalPrimaryOwner(loadAllKeysFromCacheLoaderUsingFilter(inputKeys), dm);
-         }   
-         log.tracef("For m/r task %s cache loader input keys %s", mcc.getTaskId(), keysFromCacheLoader);
-         for (KIn key : keysFromCacheLoader) {            
-            VIn value = loadValueFromCacheLoader(key);            
-            if(value != null){
-               mapper.map(key, value, collector);
+            Set<KIn> keysFromCacheLoader = filterLocalPrimaryOwner(inputKeysCopy, dm);
+            log.tracef("For m/r task %s cache loader input keys %s", mcc.getTaskId(), keysFromCacheLoader);
+            for (KIn key : keysFromCacheLoader) {
+               VIn value = loadValueFromCacheLoader(key);
+               if(value != null){
+                  mapper.map(key, value, collector);
+               }
             }
+         } else {
+            // stream everything from CL pinned to this primary owner
+            mapEntriesFromCacheLoader(inputKeys, dm, mapper, collector);
          }
       } finally {
          taskLifecycleService.onPostExecute(mapper);
@@ -321,18 +321,38 @@ private <KIn, VIn, KOut, VOut> Map<KOut, List<VOut>> combineForLocalReduction(
       return result;
    }
       
+   /**
+    * Streams the entries of the cache loader through the mapper, without loading all the keys first.  Only the values
+    * of the keys this node is the primary owner of, and that are not in <code>filterOutSet</code>, are loaded.
+    */
    @SuppressWarnings("unchecked")
-   protected <KIn> Set<KIn> loadAllKeysFromCacheLoaderUsingFilter(Set<KIn> filterOutSet) {      
-      Set<KIn> keysInCL = Collections.<KIn> emptySet();
+   protected <KIn, VIn, KOut, VOut> void mapEntriesFromCacheLoader(final Set<KIn> filterOutSet, final DistributionManager dm,
+            final Mapper<KIn, VIn, KOut, VOut> mapper, final Collector<KOut, VOut> collector) {
       CacheLoader cl = resolveCacheLoader();
       if (cl != null) {
+         KeyFilter localPrimaryOwner = new KeyFilter() {
+            @Override
+            public boolean accept(Object key) {
+               if (filterOutSet.contains(key)) return false;
+               Address primaryLocation = dm.getPrimaryLocation(key);
+               return primaryLocation != null && primaryLocation.equals(localAddress);
+            }
+         };
          try {
-            keysInCL = (Set<KIn>) cl.loadAllKeys((Set<Object>) filterOutSet);
+            cl.visitEntries(localPrimaryOwner, true, new EntryVisitor() {
+               @Override
+               public boolean visit(Object key, InternalCacheEntry entry) {
+                  VIn value = (VIn) entry.getValue();
+                  if (value != null) {
+                     mapper.map((KIn) key, value, collector);
+                  }
+                  return true;
+               }
+            });
          } catch (CacheLoaderException e) {
             throw new CacheException("Could not load key/value entries from cacheloader", e);
          }
       }
-      return keysInCL;
    }
    
    @SuppressWarnings("unchecked")
@@ -115,6 +115,17 @@ public interface DistributionManager {
     */
    InternalCacheEntry retrieveFromRemoteSource(Object key, InvocationContext ctx, boolean acquireRemoteLock) throws Exception;
 
+   /**
+    * Retrieves several cache entries from remote sources.  The keys are grouped by owner and a single {@link
+    * org.infinispan.commands.remote.ClusteredGetAllCommand} is sent to each owner, all owners being queried in
+    * parallel.  Keys that an owner could not answer for (e.g. because of a rehash in progress) are looked up one by one
+    * as with {@link #retrieveFromRemoteSource(Object, InvocationContext, boolean)}.
+    *
+    * @param keys keys to look up
+    * @return a map containing an internal cache entry for each key that could be located
+    */
+   Map<Object, InternalCacheEntry> retrieveFromRemoteSources(Collection<Object> keys, InvocationContext ctx) throws Exception;
+
    /**
     * Retrieves the consistent hash instance currently in use, an instance of the configured ConsistentHash
     * class (which defaults to {@link org.infinispan.distribution.ch.DefaultConsistentHash}.
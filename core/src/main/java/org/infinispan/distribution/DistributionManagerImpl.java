@@ -22,7 +22,9 @@
  */
 package org.infinispan.distribution;
 
+import org.infinispan.CacheException;
 import org.infinispan.commands.CommandsFactory;
+import org.infinispan.commands.remote.ClusteredGetAllCommand;
 import org.infinispan.commands.remote.ClusteredGetCommand;
 import org.infinispan.configuration.cache.Configuration;
 import org.infinispan.configuration.global.GlobalConfiguration;
@@ -48,18 +50,22 @@
 import org.infinispan.statetransfer.StateTransferManager;
 import org.infinispan.transaction.xa.GlobalTransaction;
 import org.infinispan.util.Immutables;
+import org.infinispan.util.concurrent.NotifyingFuture;
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
 import org.rhq.helpers.pluginAnnotations.agent.Operation;
 import org.rhq.helpers.pluginAnnotations.agent.Parameter;
 
 import java.util.Collection;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
 
 /**
  * The default distribution manager implementation
@@ -193,6 +199,90 @@ public InternalCacheEntry retrieveFromRemoteSource(Object key, InvocationContext
       return null;
    }
 
+   @Override
+   public Map<Object, InternalCacheEntry> retrieveFromRemoteSources(Collection<Object> keys, InvocationContext ctx) throws Exception {
+      Map<Object, InternalCacheEntry> result = new HashMap<Object, InternalCacheEntry>(keys.size());
+      List<Address> members = rpcManager.getTransport().getMembers();
+      Address self = getAddress();
+
+      // send each key to the first of its owners that is still around, one rpc per owner
+      Map<Address, List<Object>> keysByOwner = new HashMap<Address, List<Object>>();
+      List<Object> retryOneByOne = new LinkedList<Object>();
+      for (Map.Entry<Object, List<Address>> e : locateAll(keys).entrySet()) {
+         Address target = null;
+         for (Address owner : e.getValue()) {
+            if (!owner.equals(self) && members.contains(owner)) {
+               target = owner;
+               break;
+            }
+         }
+         if (target == null) {
+            retryOneByOne.add(e.getKey());
+            continue;
+         }
+         List<Object> ownerKeys = keysByOwner.get(target);
+         if (ownerKeys == null) {
+            ownerKeys = new ArrayList<Object>();
+            keysByOwner.put(target, ownerKeys);
+         }
+         ownerKeys.add(e.getKey());
+      }
+
+      // all the owners are queried in parallel, and only the caller's thread waits for their responses
+      long timeout = configuration.clustering().sync().replTimeout();
+      Map<Address, NotifyingFuture<Map<Address, Response>>> futures =
+            new HashMap<Address, NotifyingFuture<Map<Address, Response>>>(keysByOwner.size());
+      for (Map.Entry<Address, List<Object>> e : keysByOwner.entrySet()) {
+         ClusteredGetAllCommand get = cf.buildClusteredGetAllCommand(e.getValue(), ctx.getFlags());
+         futures.put(e.getKey(), rpcManager.invokeRemotelyAsync(Collections.singleton(e.getKey()), get,
+                                                                ResponseMode.SYNCHRONOUS_IGNORE_LEAVERS, timeout, true, null));
+      }
+      for (Map.Entry<Address, NotifyingFuture<Map<Address, Response>>> e : futures.entrySet()) {
+         List<Object> ownerKeys = keysByOwner.get(e.getKey());
+         try {
+            collectResponses(ownerKeys, e.getValue().get(), result, retryOneByOne);
+         } catch (ExecutionException ee) {
+            // surface the failure the same way a synchronous remote get would
+            Throwable cause = ee.getCause();
+            if (cause instanceof Exception) throw (Exception) cause;
+            throw new CacheException(cause);
+         }
+      }
+
+      for (Object key : retryOneByOne) {
+         InternalCacheEntry ice = retrieveFromRemoteSource(key, ctx, false);
+         if (ice != null) result.put(key, ice);
+      }
+      return result;
+   }
+
+   @SuppressWarnings("unchecked")
+   private void collectResponses(List<Object> keys, Map<Address, Response> responses,
+                                 Map<Object, InternalCacheEntry> result, List<Object> retryOneByOne) {
+      Map<Object, InternalCacheValue> values = null;
+      if (responses != null) {
+         for (Response r : responses.values()) {
+            if (r instanceof SuccessfulResponse) {
+               values = (Map<Object, InternalCacheValue>) ((SuccessfulResponse) r).getResponseValue();
+               break;
+            }
+         }
+      }
+      if (values == null) {
+         retryOneByOne.addAll(keys);
+         return;
+      }
+      for (Object key : keys) {
+         if (!values.containsKey(key)) {
+            // the owner is not sure about this key, ask all of its owners
+            retryOneByOne.add(key);
+         } else {
+            InternalCacheValue value = values.get(key);
+            if (value != null) result.put(key, value.toInternalCacheEntry(key));
+         }
+      }
+   }
+
    @Override
    public ConsistentHash getConsistentHash() {
       return consistentHash;
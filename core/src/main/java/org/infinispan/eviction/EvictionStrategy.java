@@ -38,7 +38,12 @@ public enum EvictionStrategy {
    @Deprecated
    FIFO, 
    LRU, 
-   LIRS;
+   LIRS,
+   /**
+    * Window TinyLFU: admits entries to the cache depending on how frequently they were accessed, which
+    * protects frequently used entries from scans.
+    */
+   TINY_LFU;
 
    public boolean isEnabled() {
       return this != NONE;
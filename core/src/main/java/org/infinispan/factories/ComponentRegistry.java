@@ -35,6 +35,7 @@
 import org.infinispan.lifecycle.ModuleLifecycle;
 import org.infinispan.marshall.StreamingMarshaller;
 import org.infinispan.notifications.cachemanagerlistener.CacheManagerNotifier;
+import org.infinispan.remoting.KeyOrderedCommandExecutor;
 import org.infinispan.remoting.responses.ResponseGenerator;
 import org.infinispan.statetransfer.StateTransferManager;
 import org.infinispan.util.logging.Log;
@@ -63,6 +64,7 @@ public final class ComponentRegistry extends AbstractComponentRegistry {
    private StateTransferManager stateTransferManager;
    private ResponseGenerator responseGenerator;
    private CommandsFactory commandsFactory;
+   private KeyOrderedCommandExecutor keyOrderedCommandExecutor;
 
    @Inject
    public void setCacheManagerNotifier(CacheManagerNotifier cacheManagerNotifier) {
@@ -237,6 +239,15 @@ public CommandsFactory getCommandsFactory() {
       return commandsFactory;
    }
 
+   /**
+    * Caching shortcut for #getComponent(KeyOrderedCommandExecutor.class);
+    *
+    * @return the executor for remote write commands, or null if remote commands are applied by the receiving thread
+    */
+   public KeyOrderedCommandExecutor getKeyOrderedCommandExecutor() {
+      return keyOrderedCommandExecutor;
+   }
+
    /**
     * Invoked last after all services are wired
     */
@@ -245,6 +256,7 @@ public void prepareWiringCache() {
       stateTransferManager = getComponent(StateTransferManager.class);
       responseGenerator = getComponent(ResponseGenerator.class);
       commandsFactory = getLocalComponent(CommandsFactory.class);
+      keyOrderedCommandExecutor = getOrCreateComponent(KeyOrderedCommandExecutor.class);
    }
 
 }
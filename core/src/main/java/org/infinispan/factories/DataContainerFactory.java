@@ -25,6 +25,7 @@
 import org.infinispan.config.ConfigurationException;
 import org.infinispan.container.DataContainer;
 import org.infinispan.container.DefaultDataContainer;
+import org.infinispan.container.offheap.OffHeapDataContainer;
 import org.infinispan.eviction.EvictionStrategy;
 import org.infinispan.eviction.EvictionThreadPolicy;
 import org.infinispan.factories.annotations.DefaultFactoryFor;
@@ -48,7 +49,10 @@ public <T> T construct(Class<T> componentType) {
       } else {
          EvictionStrategy st = configuration.eviction().strategy();
          int level = configuration.locking().concurrencyLevel();
-        
+
+         if (configuration.dataContainer().offHeap())
+            return (T) constructOffHeap(st, level);
+
          switch (st) {
             case NONE:         
                return (T) DefaultDataContainer.unBoundedDataContainer(level);
@@ -56,12 +60,18 @@ public <T> T construct(Class<T> componentType) {
             case LRU:
             case FIFO:
             case LIRS:
+            case TINY_LFU:
                int maxEntries = configuration.eviction().maxEntries();
+               long maxMemory = configuration.eviction().maxMemory();
+               EvictionThreadPolicy policy = configuration.eviction().threadPolicy();
+               if (maxMemory > 0) {
+                  return (T) DefaultDataContainer.memoryBoundedDataContainer(level, maxMemory, st, policy,
+                        configuration.eviction().sizeCalculator());
+               }
                //handle case when < 0 value signifies unbounded container 
                if(maxEntries < 0) {
                    return (T) DefaultDataContainer.unBoundedDataContainer(level);
                }
-               EvictionThreadPolicy policy = configuration.eviction().threadPolicy();
                return (T) DefaultDataContainer.boundedDataContainer(level, maxEntries, st, policy);
             default:
                throw new ConfigurationException("Unknown eviction strategy "
@@ -69,4 +79,14 @@ public <T> T construct(Class<T> componentType) {
          }
       }
    }
+
+   private DataContainer constructOffHeap(EvictionStrategy st, int level) {
+      int addressCount = configuration.dataContainer().addressCount();
+      int slabSize = configuration.dataContainer().slabSize();
+      int maxEntries = configuration.eviction().maxEntries();
+      if (!st.isEnabled() || maxEntries < 0)
+         return OffHeapDataContainer.unBoundedDataContainer(level, addressCount, slabSize);
+      // the off-heap container always approximates LRU, whatever the strategy
+      return OffHeapDataContainer.boundedDataContainer(level, maxEntries, addressCount, slabSize);
+   }
 }
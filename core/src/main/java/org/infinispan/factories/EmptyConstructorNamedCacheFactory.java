@@ -44,6 +44,7 @@
 import org.infinispan.statetransfer.StateTransferLock;
 import org.infinispan.statetransfer.StateTransferLockImpl;
 import org.infinispan.transaction.TransactionCoordinator;
+import org.infinispan.transaction.totalorder.TotalOrderManager;
 import org.infinispan.transaction.xa.recovery.RecoveryAdminOperations;
 import org.infinispan.util.concurrent.locks.containers.LockContainer;
 import org.infinispan.util.concurrent.locks.containers.OwnableReentrantPerEntryLockContainer;
@@ -63,7 +64,7 @@
                               CacheLoaderManager.class, InvocationContextContainer.class, PassivationManager.class,
                               BatchContainer.class, EvictionManager.class,
                               TransactionCoordinator.class, RecoveryAdminOperations.class, StateTransferLock.class,
-                              ClusteringDependentLogic.class, LockContainer.class})
+                              ClusteringDependentLogic.class, LockContainer.class, TotalOrderManager.class})
 public class EmptyConstructorNamedCacheFactory extends AbstractNamedCacheComponentFactory implements AutoInstantiableFactory {
 
    @Override
@@ -101,6 +102,8 @@ public <T> T construct(Class<T> componentType) {
             return (T) new StateTransferLockImpl();
          } else if (componentType.equals(EvictionManager.class)) {
             return (T) new EvictionManagerImpl();
+         } else if (componentType.equals(TotalOrderManager.class)) {
+            return (T) new TotalOrderManager();
          } else if (componentType.equals(LockContainer.class)) {
             boolean  notTransactional = !isTransactional;
             LockContainer<?> lockContainer = configuration.locking().useLockStriping() ?
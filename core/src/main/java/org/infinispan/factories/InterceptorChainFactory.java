@@ -136,6 +136,8 @@ public InterceptorChain buildInterceptorChain() {
          if (configuration.transaction().lockingMode() == LockingMode.PESSIMISTIC) {
             interceptorChain.appendInterceptor(createInterceptor(new PessimisticLockingInterceptor(), PessimisticLockingInterceptor.class), false);
          } else {
+            if (configuration.transaction().transactionProtocol().isTotalOrder())
+               interceptorChain.appendInterceptor(createInterceptor(new TotalOrderInterceptor(), TotalOrderInterceptor.class), false);
             interceptorChain.appendInterceptor(createInterceptor(new OptimisticLockingInterceptor(), OptimisticLockingInterceptor.class), false);
          }
       } else {
@@ -0,0 +1,46 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.factories;
+
+import org.infinispan.factories.annotations.DefaultFactoryFor;
+import org.infinispan.remoting.KeyOrderedCommandExecutor;
+
+/**
+ * Factory for {@link KeyOrderedCommandExecutor}.  Only constructs one for non-transactional caches in an asynchronous
+ * cluster mode, with at least one remote command stripe configured.
+ *
+ * @since 5.2
+ */
+@DefaultFactoryFor(classes = KeyOrderedCommandExecutor.class)
+public class KeyOrderedCommandExecutorFactory extends AbstractNamedCacheComponentFactory implements AutoInstantiableFactory {
+   @Override
+   public <T> T construct(Class<T> componentType) {
+      if (!configuration.clustering().cacheMode().isSynchronous()
+            && !configuration.transaction().transactionMode().isTransactional()
+            && configuration.clustering().async().remoteCommandStripes() > 0) {
+         return componentType.cast(new KeyOrderedCommandExecutor());
+      } else {
+         return null;
+      }
+   }
+}
@@ -22,6 +22,7 @@
  */
 package org.infinispan.interceptors;
 
+import org.infinispan.commands.read.GetAllCommand;
 import org.infinispan.commands.read.GetKeyValueCommand;
 import org.infinispan.commands.write.EvictCommand;
 import org.infinispan.commands.write.PutKeyValueCommand;
@@ -106,6 +107,25 @@ public Object visitGetKeyValueCommand(InvocationContext ctx, GetKeyValueCommand
       return retval;
    }
 
+   @Override
+   public Object visitGetAllCommand(InvocationContext ctx, GetAllCommand command) throws Throwable {
+      long t1 = System.nanoTime();
+      Map<?, ?> retval = (Map<?, ?>) invokeNextInterceptor(ctx, command);
+      long t2 = System.nanoTime();
+      int requested = command.getKeys().size();
+      if (ctx.isOriginLocal() && requested > 0) {
+         // the whole interval is shared out between the keys, so that average read times stay per key
+         long intervalMilliseconds = nanosecondsIntervalToMilliseconds(t1, t2);
+         int found = retval.size();
+         long hitMilliseconds = intervalMilliseconds * found / requested;
+         hitTimes.getAndAdd(hitMilliseconds);
+         hits.addAndGet(found);
+         missTimes.getAndAdd(intervalMilliseconds - hitMilliseconds);
+         misses.addAndGet(requested - found);
+      }
+      return retval;
+   }
+
    @Override
    public Object visitPutMapCommand(InvocationContext ctx, PutMapCommand command) throws Throwable {
       final Map<Object, Object> data = command.getMap();
@@ -47,6 +47,9 @@
 import org.infinispan.loaders.CacheLoaderException;
 import org.infinispan.loaders.CacheLoaderManager;
 import org.infinispan.loaders.CacheStore;
+import org.infinispan.loaders.decorators.AbstractDelegatingStore;
+import org.infinispan.loaders.decorators.AsyncStore;
+import org.infinispan.loaders.decorators.ChainingCacheStore;
 import org.infinispan.loaders.modifications.Clear;
 import org.infinispan.loaders.modifications.Modification;
 import org.infinispan.loaders.modifications.Remove;
@@ -55,9 +58,11 @@
 import org.infinispan.util.concurrent.ConcurrentMapFactory;
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
+import org.rhq.helpers.pluginAnnotations.agent.DisplayType;
 import org.rhq.helpers.pluginAnnotations.agent.MeasurementType;
 import org.rhq.helpers.pluginAnnotations.agent.Metric;
 import org.rhq.helpers.pluginAnnotations.agent.Operation;
+import org.rhq.helpers.pluginAnnotations.agent.Units;
 
 import javax.transaction.Transaction;
 import javax.transaction.TransactionManager;
@@ -85,6 +90,7 @@ public class CacheStoreInterceptor extends JmxStatsCommandInterceptor {
    private Map<GlobalTransaction, Set<Object>> preparingTxs;
    final AtomicLong cacheStores = new AtomicLong(0);
    CacheStore store;
+   private final List<AsyncStore> asyncStores = new ArrayList<AsyncStore>(1);
    private CacheLoaderManager loaderManager;
    private InternalEntryFactory entryFactory;
    private TransactionManager transactionManager;
@@ -106,6 +112,8 @@ protected void init(CacheLoaderManager loaderManager, InternalEntryFactory entry
    @Start(priority = 15)
    protected void start() {
       store = loaderManager.getCacheStore();
+      asyncStores.clear();
+      collectAsyncStores(store, asyncStores);
       this.setStatisticsEnabled(cacheConfiguration.jmxStatistics().enabled());
       loaderConfig = cacheConfiguration.loaders();
       int concurrencyLevel = cacheConfiguration.locking().concurrencyLevel();
@@ -368,6 +376,7 @@ private Object visitSingleStore(InvocationContext ctx, Object key) throws Throwa
    @Operation(displayName = "Reset statistics")
    public void resetStatistics() {
       cacheStores.set(0);
+      for (AsyncStore asyncStore : asyncStores) asyncStore.resetStatistics();
    }
 
    @ManagedAttribute(description = "number of cache loader stores")
@@ -377,6 +386,49 @@ public long getCacheLoaderStores() {
       return cacheStores.get();
    }
 
+   @ManagedAttribute(description = "Number of modifications waiting to be written by asynchronous cache stores")
+   @Metric(displayName = "Async store queue size", displayType = DisplayType.SUMMARY)
+   public int getAsyncStoreQueueSize() {
+      int size = 0;
+      for (AsyncStore asyncStore : asyncStores) size += asyncStore.getQueueSize();
+      return size;
+   }
+
+   @ManagedAttribute(description = "Average number of modifications written per batch by asynchronous cache stores")
+   @Metric(displayName = "Async store average batch size", displayType = DisplayType.SUMMARY)
+   public double getAsyncStoreAverageBatchSize() {
+      long batches = 0;
+      double modifications = 0;
+      for (AsyncStore asyncStore : asyncStores) {
+         batches += asyncStore.getFlushedBatches();
+         modifications += asyncStore.getAverageBatchSize() * asyncStore.getFlushedBatches();
+      }
+      return batches == 0 ? 0 : modifications / batches;
+   }
+
+   @ManagedAttribute(description = "Average time (in ms) asynchronous cache stores take to write a batch")
+   @Metric(displayName = "Async store average flush time", units = Units.MILLISECONDS, displayType = DisplayType.SUMMARY)
+   public long getAsyncStoreAverageFlushTime() {
+      long batches = 0;
+      long time = 0;
+      for (AsyncStore asyncStore : asyncStores) {
+         batches += asyncStore.getFlushedBatches();
+         time += asyncStore.getAverageFlushTime() * asyncStore.getFlushedBatches();
+      }
+      return batches == 0 ? 0 : time / batches;
+   }
+
+   private static void collectAsyncStores(CacheStore store, List<AsyncStore> result) {
+      if (store instanceof AsyncStore) {
+         result.add((AsyncStore) store);
+      }
+      if (store instanceof AbstractDelegatingStore) {
+         collectAsyncStores(((AbstractDelegatingStore) store).getDelegate(), result);
+      } else if (store instanceof ChainingCacheStore) {
+         for (CacheStore s : ((ChainingCacheStore) store).getStores().keySet()) collectAsyncStores(s, result);
+      }
+   }
+
    InternalCacheEntry getStoredEntry(Object key, InvocationContext ctx) {
       CacheEntry entry = ctx.lookupEntry(key);
       if (entry instanceof InternalCacheEntry) {
@@ -24,6 +24,7 @@
 
 import org.infinispan.commands.CommandsFactory;
 import org.infinispan.commands.control.LockControlCommand;
+import org.infinispan.commands.read.GetAllCommand;
 import org.infinispan.commands.read.GetKeyValueCommand;
 import org.infinispan.commands.tx.CommitCommand;
 import org.infinispan.commands.tx.PrepareCommand;
@@ -53,6 +54,7 @@
 import org.infinispan.remoting.transport.Address;
 import org.infinispan.remoting.transport.jgroups.SuspectException;
 import org.infinispan.statetransfer.StateTransferLock;
+import org.infinispan.transaction.LocalTransaction;
 import org.infinispan.transaction.LockingMode;
 import org.infinispan.util.Immutables;
 import org.infinispan.util.concurrent.NotifyingFutureImpl;
@@ -61,6 +63,7 @@
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
@@ -158,6 +161,44 @@ public Object visitGetKeyValueCommand(InvocationContext ctx, GetKeyValueCommand
       }
    }
 
+   @Override
+   @SuppressWarnings("unchecked")
+   public Object visitGetAllCommand(InvocationContext ctx, GetAllCommand command) throws Throwable {
+      try {
+         Map<Object, Object> returnValue = (Map<Object, Object>) invokeNextInterceptor(ctx, command);
+         if (isL1CacheEnabled && !ctx.isOriginLocal()) {
+            for (Object key : returnValue.keySet()) l1Manager.addRequestor(key, ctx.getOrigin());
+         }
+
+         // same rules as remoteGetAndStoreInL1(), but all the remote keys are fetched with a single round of rpcs
+         List<Object> remoteKeys = new ArrayList<Object>();
+         Set<Object> keysNotForL1 = new HashSet<Object>();
+         for (Object key : command.getKeys()) {
+            if (!needsRemoteGet(ctx, key, !returnValue.containsKey(key))) continue;
+            DataLocality locality = dm.getLocality(key);
+            if (ctx.isOriginLocal() && !locality.isLocal() && isNotInL1(key)) {
+               remoteKeys.add(key);
+            } else if (locality.isUncertain()) {
+               remoteKeys.add(key);
+               keysNotForL1.add(key);
+            }
+         }
+         if (remoteKeys.isEmpty()) return returnValue;
+
+         if (trace) log.tracef("Doing a remote get for keys %s", remoteKeys);
+         Map<Object, InternalCacheEntry> remoteEntries = dm.retrieveFromRemoteSources(remoteKeys, ctx);
+         for (Map.Entry<Object, InternalCacheEntry> e : remoteEntries.entrySet()) {
+            InternalCacheEntry ice = e.getValue();
+            storeRemoteEntry(ctx, e.getKey(), ice, !keysNotForL1.contains(e.getKey()), false);
+            returnValue.put(e.getKey(), command.isReturnCacheEntries() ? ice : ice.getValue());
+         }
+         return returnValue;
+      } catch (SuspectException e) {
+         // retry
+         return visitGetAllCommand(ctx, command);
+      }
+   }
+
    private boolean needsRemoteGet(InvocationContext ctx, Object key, boolean retvalCheck) {
       final CacheEntry entry;
       return retvalCheck
@@ -217,40 +258,44 @@ private Object realRemoteGet(InvocationContext ctx, Object key, boolean storeInL
 
 
       if (ice != null) {
-         if (storeInL1) {
-            if (isL1CacheEnabled) {
-               if (trace) log.tracef("Caching remotely retrieved entry for key %s in L1", key);
-               // This should be fail-safe
-               try {
-                  long l1Lifespan = cacheConfiguration.clustering().l1().lifespan();
-                  long lifespan = ice.getLifespan() < 0 ? l1Lifespan : Math.min(ice.getLifespan(), l1Lifespan);
-                  PutKeyValueCommand put = cf.buildPutKeyValueCommand(ice.getKey(), ice.getValue(), lifespan, -1, ctx.getFlags());
-                  lockAndWrap(ctx, key, ice);
-                  invokeNextInterceptor(ctx, put);
-               } catch (Exception e) {
-                  // Couldn't store in L1 for some reason.  But don't fail the transaction!
-                  log.infof("Unable to store entry %s in L1 cache", key);
-                  log.debug("Inability to store in L1 caused by", e);
-               }
-            } else {
-               CacheEntry ce = ctx.lookupEntry(key);
-               if (ce == null || ce.isNull() || ce.isLockPlaceholder() || ce.getValue() == null) {
-                  if (ce != null && ce.isChanged()) {
-                     ce.setValue(ice.getValue());
-                  } else {
-                     if (isWrite)
-                        lockAndWrap(ctx, key, ice);
-                     else
-                        ctx.putLookedUpEntry(key, ice);
-                  }
-               }
+         storeRemoteEntry(ctx, key, ice, storeInL1, isWrite);
+         return ice.getValue();
+      }
+      return null;
+   }
+
+   private void storeRemoteEntry(InvocationContext ctx, Object key, InternalCacheEntry ice, boolean storeInL1, boolean isWrite) throws Throwable {
+      if (storeInL1) {
+         if (isL1CacheEnabled) {
+            if (trace) log.tracef("Caching remotely retrieved entry for key %s in L1", key);
+            // This should be fail-safe
+            try {
+               long l1Lifespan = cacheConfiguration.clustering().l1().lifespan();
+               long lifespan = ice.getLifespan() < 0 ? l1Lifespan : Math.min(ice.getLifespan(), l1Lifespan);
+               PutKeyValueCommand put = cf.buildPutKeyValueCommand(ice.getKey(), ice.getValue(), lifespan, -1, ctx.getFlags());
+               lockAndWrap(ctx, key, ice);
+               invokeNextInterceptor(ctx, put);
+            } catch (Exception e) {
+               // Couldn't store in L1 for some reason.  But don't fail the transaction!
+               log.infof("Unable to store entry %s in L1 cache", key);
+               log.debug("Inability to store in L1 caused by", e);
             }
          } else {
-            if (trace) log.tracef("Not caching remotely retrieved entry for key %s in L1", key);
+            CacheEntry ce = ctx.lookupEntry(key);
+            if (ce == null || ce.isNull() || ce.isLockPlaceholder() || ce.getValue() == null) {
+               if (ce != null && ce.isChanged()) {
+                  ce.setValue(ice.getValue());
+               } else {
+                  if (isWrite)
+                     lockAndWrap(ctx, key, ice);
+                  else
+                     ctx.putLookedUpEntry(key, ice);
+               }
+            }
          }
-         return ice.getValue();
+      } else {
+         if (trace) log.tracef("Not caching remotely retrieved entry for key %s in L1", key);
       }
-      return null;
    }
 
    private void lockAndWrap(InvocationContext ctx, Object key, InternalCacheEntry ice) throws InterruptedException {
@@ -332,10 +377,16 @@ public Object visitCommitCommand(TxInvocationContext ctx, CommitCommand command)
          int newCacheViewId = -1;
          stateTransferLock.waitForStateTransferToEnd(ctx, command, newCacheViewId);
 
-         Collection<Address> preparedOn = ((LocalTxInvocationContext) ctx).getRemoteLocksAcquired();
-
          Future<?> f = flushL1Caches(ctx);
-         sendCommitCommand(ctx, command, preparedOn);
+         if (isOnePhaseBackups(ctx)) {
+            // prepared on this node only, the other owners apply the modifications in one phase before the locks
+            // acquired here are released
+            PrepareCommand prepare = cf.buildPrepareCommand(command.getGlobalTransaction(), ctx.getModifications(), true);
+            rpcManager.invokeRemotely(dm.getAffectedNodes(ctx.getAffectedKeys()), prepare, isSynchronous(ctx));
+         } else {
+            Collection<Address> preparedOn = ((LocalTxInvocationContext) ctx).getRemoteLocksAcquired();
+            sendCommitCommand(ctx, command, preparedOn);
+         }
          blockOnL1FutureIfNeeded(f);
 
       } else if (isL1CacheEnabled && !ctx.isOriginLocal() && !ctx.getLockedKeys().isEmpty()) {
@@ -406,7 +457,7 @@ public Object visitPrepareCommand(TxInvocationContext ctx, PrepareCommand comman
 
       boolean sync = isSynchronous(ctx);
 
-      if (shouldInvokeRemoteTxCommand(ctx)) {
+      if (shouldInvokeRemoteTxCommand(ctx) && !isOnePhaseBackups(ctx)) {
          int newCacheViewId = -1;
          stateTransferLock.waitForStateTransferToEnd(ctx, command, newCacheViewId);
 
@@ -424,6 +475,10 @@ public Object visitPrepareCommand(TxInvocationContext ctx, PrepareCommand comman
       return retVal;
    }
 
+   private static boolean isOnePhaseBackups(TxInvocationContext ctx) {
+      return ctx.isOriginLocal() && ((LocalTransaction) ctx.getCacheTransaction()).isOnePhaseBackups();
+   }
+
    protected void prepareOnAffectedNodes(TxInvocationContext ctx, PrepareCommand command, Collection<Address> recipients, boolean sync) {
       // this method will return immediately if we're the only member (because exclude_self=true)
       rpcManager.invokeRemotely(recipients, command, sync);
@@ -431,7 +486,8 @@ protected void prepareOnAffectedNodes(TxInvocationContext ctx, PrepareCommand co
 
    @Override
    public Object visitRollbackCommand(TxInvocationContext ctx, RollbackCommand command) throws Throwable {
-      if (shouldInvokeRemoteTxCommand(ctx)) {
+      // the other owners have nothing to roll back if the transaction was prepared on this node only
+      if (shouldInvokeRemoteTxCommand(ctx) && !isOnePhaseBackups(ctx)) {
          rpcManager.invokeRemotely(dm.getAffectedNodes(ctx.getAffectedKeys()), command, cacheConfiguration.transaction().syncRollbackPhase(), true);
       }
 
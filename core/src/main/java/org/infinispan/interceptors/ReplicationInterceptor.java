@@ -123,7 +123,8 @@ protected PrepareCommand buildPrepareCommandForResend(TxInvocationContext ctx, C
    @Override
    public Object visitPrepareCommand(TxInvocationContext ctx, PrepareCommand command) throws Throwable {
       Object retVal = invokeNextInterceptor(ctx, command);
-      if (shouldInvokeRemoteTxCommand(ctx)) {
+      // with total order the prepares are relayed to the other nodes by the coordinator, see TotalOrderManager
+      if (shouldInvokeRemoteTxCommand(ctx) && !cacheConfiguration.transaction().transactionProtocol().isTotalOrder()) {
          stateTransferLock.waitForStateTransferToEnd(ctx, command, -1);
 
          broadcastPrepare(ctx, command);
@@ -0,0 +1,76 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.interceptors;
+
+import org.infinispan.commands.tx.PrepareCommand;
+import org.infinispan.commands.tx.VersionedPrepareCommand;
+import org.infinispan.context.impl.TxInvocationContext;
+import org.infinispan.factories.annotations.Inject;
+import org.infinispan.interceptors.base.CommandInterceptor;
+import org.infinispan.transaction.totalorder.TotalOrderManager;
+import org.infinispan.util.logging.Log;
+import org.infinispan.util.logging.LogFactory;
+
+import static org.infinispan.transaction.WriteSkewHelper.setVersionsSeenOnPrepareCommand;
+
+/**
+ * Hands the local prepares over to the {@link TotalOrderManager}, in caches using the {@link
+ * org.infinispan.transaction.TransactionProtocol#TOTAL_ORDER total order} transaction protocol.  The rest of the
+ * chain only runs for a local prepare when this node is the sequencer; otherwise the prepare is applied once the
+ * coordinator relays it back, like on any other node.
+ *
+ * @since 5.2
+ */
+public class TotalOrderInterceptor extends CommandInterceptor {
+
+   private static final Log log = LogFactory.getLog(TotalOrderInterceptor.class);
+
+   private TotalOrderManager totalOrderManager;
+
+   @Override
+   protected Log getLog() {
+      return log;
+   }
+
+   @Inject
+   public void init(TotalOrderManager totalOrderManager) {
+      this.totalOrderManager = totalOrderManager;
+   }
+
+   @Override
+   public Object visitPrepareCommand(final TxInvocationContext ctx, final PrepareCommand command) throws Throwable {
+      if (!ctx.isOriginLocal() || !command.hasModifications()) {
+         return invokeNextInterceptor(ctx, command);
+      }
+      if (command instanceof VersionedPrepareCommand) {
+         // the other nodes check for write skews against the versions this transaction has read
+         setVersionsSeenOnPrepareCommand((VersionedPrepareCommand) command, ctx);
+      }
+      return totalOrderManager.prepare(command, new TotalOrderManager.PrepareApplier() {
+         @Override
+         public Object apply() throws Throwable {
+            return invokeNextInterceptor(ctx, command);
+         }
+      });
+   }
+}
@@ -24,6 +24,7 @@
 
 import org.infinispan.commands.VisitableCommand;
 import org.infinispan.commands.control.LockControlCommand;
+import org.infinispan.commands.read.GetAllCommand;
 import org.infinispan.commands.read.GetKeyValueCommand;
 import org.infinispan.commands.tx.CommitCommand;
 import org.infinispan.commands.tx.PrepareCommand;
@@ -80,6 +81,8 @@ public class TxInterceptor extends CommandInterceptor {
    private final AtomicLong prepares = new AtomicLong(0);
    private final AtomicLong commits = new AtomicLong(0);
    private final AtomicLong rollbacks = new AtomicLong(0);
+   private final AtomicLong onePhaseCommits = new AtomicLong(0);
+   private final AtomicLong twoPhaseCommits = new AtomicLong(0);
    @ManagedAttribute(description = "Enables or disables the gathering of statistics by this component", writable = true)
    private boolean statisticsEnabled;
    protected TransactionCoordinator txCoordinator;
@@ -102,7 +105,10 @@ public void init(TransactionTable txTable, Configuration c, TransactionCoordinat
    @Override
    public Object visitPrepareCommand(TxInvocationContext ctx, PrepareCommand command) throws Throwable {
       //if it is remote and 2PC then first log the tx only after replying mods
-      if (this.statisticsEnabled) prepares.incrementAndGet();
+      if (this.statisticsEnabled) {
+         prepares.incrementAndGet();
+         if (ctx.isOriginLocal() && command.isOnePhaseCommit()) onePhaseCommits.incrementAndGet();
+      }
       Object result = invokeNextInterceptor(ctx, command);
       if (!ctx.isOriginLocal()) {
          if (command.isOnePhaseCommit()) {
@@ -116,7 +122,17 @@ public Object visitPrepareCommand(TxInvocationContext ctx, PrepareCommand comman
 
    @Override
    public Object visitCommitCommand(TxInvocationContext ctx, CommitCommand command) throws Throwable {
-      if (this.statisticsEnabled) commits.incrementAndGet();
+      if (this.statisticsEnabled) {
+         commits.incrementAndGet();
+         if (ctx.isOriginLocal()) {
+            // transactions prepared on this node only are committed in one phase by the other owners
+            if (((LocalTransaction) ctx.getCacheTransaction()).isOnePhaseBackups()) {
+               onePhaseCommits.incrementAndGet();
+            } else {
+               twoPhaseCommits.incrementAndGet();
+            }
+         }
+      }
       Object result = invokeNextInterceptor(ctx, command);
       if (!ctx.isOriginLocal()) {
          txTable.remoteTransactionCommitted(ctx.getGlobalTransaction());
@@ -184,6 +200,11 @@ public Object visitGetKeyValueCommand(InvocationContext ctx, GetKeyValueCommand
       return enlistReadAndInvokeNext(ctx, command);
    }
 
+   @Override
+   public Object visitGetAllCommand(InvocationContext ctx, GetAllCommand command) throws Throwable {
+      return enlistReadAndInvokeNext(ctx, command);
+   }
+
    private Object enlistReadAndInvokeNext(InvocationContext ctx, VisitableCommand command) throws Throwable {
       enlistIfNeeded(ctx);
       return invokeNextInterceptor(ctx, command);
@@ -254,6 +275,8 @@ public void resetStatistics() {
       prepares.set(0);
       commits.set(0);
       rollbacks.set(0);
+      onePhaseCommits.set(0);
+      twoPhaseCommits.set(0);
    }
 
    @Operation(displayName = "Enable/disable statistics")
@@ -283,4 +306,16 @@ public long getCommits() {
    public long getRollbacks() {
       return rollbacks.get();
    }
+
+   @ManagedAttribute(description = "Number of transactions started on this node and committed in a single phase since last reset")
+   @Metric(displayName = "One phase commits", measurementType = MeasurementType.TRENDSUP, displayType = DisplayType.SUMMARY)
+   public long getOnePhaseCommits() {
+      return onePhaseCommits.get();
+   }
+
+   @ManagedAttribute(description = "Number of transactions started on this node and committed in two phases since last reset")
+   @Metric(displayName = "Two phase commits", measurementType = MeasurementType.TRENDSUP, displayType = DisplayType.SUMMARY)
+   public long getTwoPhaseCommits() {
+      return twoPhaseCommits.get();
+   }
 }
@@ -31,6 +31,7 @@
 import org.infinispan.context.InvocationContext;
 import org.infinispan.context.impl.TxInvocationContext;
 import org.infinispan.factories.annotations.Inject;
+import org.infinispan.factories.annotations.Start;
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
 
@@ -43,6 +44,7 @@
 public class VersionedEntryWrappingInterceptor extends EntryWrappingInterceptor {
 
    private VersionGenerator versionGenerator;
+   private boolean totalOrder;
    private static final Log log = LogFactory.getLog(VersionedEntryWrappingInterceptor.class);
 
    @Override
@@ -55,6 +57,11 @@ public void initialize(VersionGenerator versionGenerator) {
       this.versionGenerator = versionGenerator;
    }
 
+   @Start
+   public void start() {
+      totalOrder = cacheConfiguration.transaction().transactionProtocol().isTotalOrder();
+   }
+
    @Override
    public Object visitPrepareCommand(TxInvocationContext ctx, PrepareCommand command) throws Throwable {
       if (!ctx.isOriginLocal() || command.isReplayEntryWrapping()) {
@@ -66,7 +73,9 @@ public Object visitPrepareCommand(TxInvocationContext ctx, PrepareCommand comman
       Object retval = invokeNextInterceptor(ctx, command);
 
       if (!ctx.isOriginLocal()) newVersionData = cll.createNewVersionsAndCheckForWriteSkews(versionGenerator, ctx, (VersionedPrepareCommand) command);
-      if (command.isOnePhaseCommit()) ctx.getCacheTransaction().setUpdatedEntryVersions(((VersionedPrepareCommand) command).getVersionsSeen());
+      // with total order the sequencer has generated the new versions itself, and sent them to the other nodes as
+      // the versions seen of the prepare
+      if (command.isOnePhaseCommit() && !(totalOrder && newVersionData != null)) ctx.getCacheTransaction().setUpdatedEntryVersions(((VersionedPrepareCommand) command).getVersionsSeen());
 
       if (newVersionData != null) retval = newVersionData;
       if (command.isOnePhaseCommit()) commitContextEntries(ctx);
@@ -24,6 +24,7 @@
 package org.infinispan.interceptors.locking;
 
 import org.infinispan.CacheException;
+import org.infinispan.commands.read.GetAllCommand;
 import org.infinispan.commands.read.GetKeyValueCommand;
 import org.infinispan.commands.tx.AbstractTransactionBoundaryCommand;
 import org.infinispan.commands.tx.CommitCommand;
@@ -42,6 +43,10 @@
 import org.infinispan.transaction.xa.CacheTransaction;
 import org.infinispan.util.concurrent.TimeoutException;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
 /**
  * Base class for transaction based locking interceptors.
  *
@@ -99,6 +104,16 @@ public Object visitGetKeyValueCommand(InvocationContext ctx, GetKeyValueCommand
       }
    }
 
+   @Override
+   public Object visitGetAllCommand(InvocationContext ctx, GetAllCommand command) throws Throwable {
+      try {
+         return super.visitGetAllCommand(ctx, command);
+      } finally {
+         //same as for a single key get, locks might have been acquired from L1.
+         if (!ctx.isInTxScope()) lockManager.unlockAll(ctx);
+      }
+   }
+
    @Override
    public Object visitCommitCommand(TxInvocationContext ctx, CommitCommand command) throws Throwable {
       try {
@@ -161,41 +176,19 @@ protected final void lockAndRegisterBackupLock(TxInvocationContext ctx, Object k
     * when the cluster is stable.
     */
    protected final void lockKeyAndCheckOwnership(InvocationContext ctx, Object key) throws InterruptedException {
-      boolean checkForPendingLocks = false;
       //this is possible when the put is originated as a result of a state transfer
       if (!ctx.isInTxScope()) {
          lockManager.acquireLock(ctx, key);
          return;
       }
       TxInvocationContext txContext = (TxInvocationContext) ctx;
-      int transactionViewId = -1;
-      if (clustered) {
-         transactionViewId = txContext.getCacheTransaction().getViewId();
-         if (transactionViewId != TransactionTable.CACHE_STOPPED_VIEW_ID) {
-            checkForPendingLocks = transactionViewId > txTable.getMinViewId();
-         }
-      }
+      int transactionViewId = getViewIdToCheckForPendingLocks(txContext);
 
-      if (checkForPendingLocks) {
+      if (transactionViewId >= 0) {
          getLog().tracef("Checking for pending locks and then locking key %s", key);
 
          long expectedEndTime = nowMillis() + cacheConfiguration.locking().lockAcquisitionTimeout();
-
-         // Check local transactions first
-         for (CacheTransaction ct: txTable.getLocalTransactions()) {
-            if (ct.getViewId() < transactionViewId) {
-               long remaining = expectedEndTime - nowMillis();
-               if (remaining < 0 || !ct.waitForLockRelease(key, remaining)) throw newTimeoutException(key, txContext);
-            }
-         }
-
-         // ... then remote ones
-         for (CacheTransaction ct: txTable.getRemoteTransactions()) {
-            if (ct.getViewId() < transactionViewId) {
-               long remaining = expectedEndTime - nowMillis();
-               if (remaining < 0 || !ct.waitForLockRelease(key, remaining)) throw newTimeoutException(key, txContext);
-            }
-         }
+         waitForPendingLocks(txContext, key, transactionViewId, expectedEndTime);
 
          // Then try to acquire a lock
          final long remaining = expectedEndTime - nowMillis();
@@ -211,6 +204,76 @@ protected final void lockKeyAndCheckOwnership(InvocationContext ctx, Object key)
       }
    }
 
+   /**
+    * Same as {@link #lockAndRegisterBackupLock(TxInvocationContext, Object)} for several keys.  The keys this node is the
+    * primary owner of are locked in a single {@link org.infinispan.util.concurrent.locks.LockManager#acquireLocks}
+    * call, which orders them consistently and bounds the whole acquisition by the lock acquisition timeout.
+    */
+   protected final void lockAllAndRegisterBackupLocks(TxInvocationContext ctx, Collection<Object> keys) throws InterruptedException {
+      List<Object> primaryOwnedKeys = new ArrayList<Object>(keys.size());
+      for (Object key : keys) {
+         if (cdl.localNodeIsPrimaryOwner(key)) {
+            primaryOwnedKeys.add(key);
+         } else if (cdl.localNodeIsOwner(key)) {
+            ctx.getCacheTransaction().addBackupLockForKey(key);
+         }
+      }
+      if (primaryOwnedKeys.isEmpty()) return;
+
+      int transactionViewId = getViewIdToCheckForPendingLocks(ctx);
+      if (transactionViewId >= 0) {
+         getLog().tracef("Checking for pending locks and then locking keys %s", primaryOwnedKeys);
+
+         long expectedEndTime = nowMillis() + cacheConfiguration.locking().lockAcquisitionTimeout();
+         for (Object key : primaryOwnedKeys) {
+            waitForPendingLocks(ctx, key, transactionViewId, expectedEndTime);
+         }
+
+         final long remaining = expectedEndTime - nowMillis();
+         if (remaining <= 0) {
+            throw newTimeoutException(primaryOwnedKeys.get(0), ctx);
+         } else {
+            getLog().tracef("Finished waiting for other potential lockers, trying to acquire the locks on %s", primaryOwnedKeys);
+            lockManager.acquireLocks(ctx, primaryOwnedKeys, remaining);
+         }
+      } else {
+         getLog().tracef("Locking keys %s, no need to check for pending locks.", primaryOwnedKeys);
+         lockManager.acquireLocks(ctx, primaryOwnedKeys, -1);
+      }
+   }
+
+   /**
+    * @return the view id of the transaction if locks held by transactions started in earlier views need to be waited
+    *         for (see {@link #lockKeyAndCheckOwnership(InvocationContext, Object)}), -1 otherwise
+    */
+   private int getViewIdToCheckForPendingLocks(TxInvocationContext txContext) {
+      if (clustered) {
+         int transactionViewId = txContext.getCacheTransaction().getViewId();
+         if (transactionViewId != TransactionTable.CACHE_STOPPED_VIEW_ID && transactionViewId > txTable.getMinViewId()) {
+            return transactionViewId;
+         }
+      }
+      return -1;
+   }
+
+   private void waitForPendingLocks(TxInvocationContext txContext, Object key, int transactionViewId, long expectedEndTime) throws InterruptedException {
+      // Check local transactions first
+      for (CacheTransaction ct: txTable.getLocalTransactions()) {
+         if (ct.getViewId() < transactionViewId) {
+            long remaining = expectedEndTime - nowMillis();
+            if (remaining < 0 || !ct.waitForLockRelease(key, remaining)) throw newTimeoutException(key, txContext);
+         }
+      }
+
+      // ... then remote ones
+      for (CacheTransaction ct: txTable.getRemoteTransactions()) {
+         if (ct.getViewId() < transactionViewId) {
+            long remaining = expectedEndTime - nowMillis();
+            if (remaining < 0 || !ct.waitForLockRelease(key, remaining)) throw newTimeoutException(key, txContext);
+         }
+      }
+   }
+
    private TimeoutException newTimeoutException(Object key, TxInvocationContext txContext) {
       return new TimeoutException("Could not acquire lock on " + key + " on behalf of transaction " +
                                        txContext.getGlobalTransaction() + ". Lock is being held by " + lockManager.getOwner(key));
@@ -38,6 +38,7 @@
 import org.infinispan.remoting.rpc.RpcManager;
 import org.infinispan.remoting.transport.Address;
 import org.infinispan.transaction.WriteSkewHelper;
+import org.infinispan.transaction.totalorder.TotalOrderManager;
 import org.infinispan.transaction.xa.CacheTransaction;
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
@@ -81,6 +82,10 @@ public static final class AllNodesLogic implements ClusteringDependentLogic {
       private DataContainer dataContainer;
 
       private RpcManager rpcManager;
+
+      private boolean totalOrder;
+
+      private TotalOrderManager totalOrderManager;
       private static final WriteSkewHelper.KeySpecificLogic keySpecificLogic = new WriteSkewHelper.KeySpecificLogic() {
          @Override
          public boolean performCheckOnKey(Object key) {
@@ -90,9 +95,12 @@ public boolean performCheckOnKey(Object key) {
 
 
       @Inject
-      public void init(DataContainer dc, RpcManager rpcManager) {
+      public void init(DataContainer dc, RpcManager rpcManager, Configuration configuration,
+                       TotalOrderManager totalOrderManager) {
          this.dataContainer = dc;
          this.rpcManager = rpcManager;
+         this.totalOrderManager = totalOrderManager;
+         this.totalOrder = configuration.transaction().transactionProtocol().isTotalOrder();
       }
 
       @Override
@@ -122,8 +130,11 @@ public Address getAddress() {
 
       @Override
       public EntryVersionsMap createNewVersionsAndCheckForWriteSkews(VersionGenerator versionGenerator, TxInvocationContext context, VersionedPrepareCommand prepareCommand) {
-         // In REPL mode, this happens if we are the coordinator.
-         if (rpcManager.getTransport().isCoordinator()) {
+         // In REPL mode, this happens if we are the coordinator. With the total order protocol this happens on the
+         // sequencer, and the other nodes apply the prepares it delivers with the versions it generated.
+         boolean sequencer = totalOrder ? !totalOrderManager.isDelivering(context.getGlobalTransaction())
+               : rpcManager.getTransport().isCoordinator();
+         if (sequencer) {
             // Perform a write skew check on each entry.
             EntryVersionsMap uv = performWriteSkewCheckAndReturnNewVersions(prepareCommand, dataContainer,
                                                                             versionGenerator, context,
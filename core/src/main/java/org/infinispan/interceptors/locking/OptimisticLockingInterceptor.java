@@ -27,6 +27,7 @@
 import org.infinispan.InvalidCacheUsageException;
 import org.infinispan.commands.AbstractVisitor;
 import org.infinispan.commands.control.LockControlCommand;
+import org.infinispan.commands.read.GetAllCommand;
 import org.infinispan.commands.read.GetKeyValueCommand;
 import org.infinispan.commands.tx.PrepareCommand;
 import org.infinispan.commands.write.ApplyDeltaCommand;
@@ -67,6 +68,7 @@ public class OptimisticLockingInterceptor extends AbstractTxLockingInterceptor {
    private LockAcquisitionVisitor lockAcquisitionVisitor;
    private static final MurmurHash3 HASH = new MurmurHash3();
    private boolean needToMarkReads;
+   private boolean totalOrder;
    private final static Comparator<Object> keyComparator = new Comparator<Object>() {
       @Override
       public int compare(Object o1, Object o2) {
@@ -101,6 +103,7 @@ public void start() {
          lockAcquisitionVisitor = new LockAcquisitionVisitor();
          needToMarkReads = false;
       }
+      totalOrder = cacheConfiguration.transaction().transactionProtocol().isTotalOrder();
    }
 
    private void markKeyAsRead(InvocationContext ctx, Object key) {
@@ -112,6 +115,11 @@ private void markKeyAsRead(InvocationContext ctx, Object key) {
    
    @Override
    public Object visitPrepareCommand(TxInvocationContext ctx, PrepareCommand command) throws Throwable {
+      if (totalOrder) {
+         // every node applies the prepares one at a time, in the same order, so no locks are needed. Nor is the
+         // originator's membership checked, as all the nodes must take the same decision.
+         return invokeNextInterceptor(ctx, command);
+      }
       abortIfRemoteTransactionInvalid(ctx, command);
       if (!command.hasModifications() || command.writesToASingleKey()) {
          //optimisation: don't create another LockReorderingVisitor here as it is not needed.
@@ -146,6 +154,12 @@ public Object visitGetKeyValueCommand(InvocationContext ctx, GetKeyValueCommand
       markKeyAsRead(ctx, command.getKey());
       return super.visitGetKeyValueCommand(ctx, command);
    }
+
+   @Override
+   public Object visitGetAllCommand(InvocationContext ctx, GetAllCommand command) throws Throwable {
+      for (Object key : command.getKeys()) markKeyAsRead(ctx, key);
+      return super.visitGetAllCommand(ctx, command);
+   }
    
    @Override
    public Object visitApplyDeltaCommand(InvocationContext ctx, ApplyDeltaCommand command) throws Throwable {
@@ -220,9 +234,9 @@ public Object visitClearCommand(InvocationContext ctx, ClearCommand command) thr
       @Override
       public Object visitPutMapCommand(InvocationContext ctx, PutMapCommand command) throws Throwable {
          final TxInvocationContext txC = (TxInvocationContext) ctx;
+         lockAllAndRegisterBackupLocks(txC, command.getMap().keySet());
          for (Object key : command.getMap().keySet()) {
             performWriteSkewCheck(txC, key);
-            lockAndRegisterBackupLock(txC, key);
             txC.addAffectedKey(key);
          }
          return null;
@@ -313,8 +327,8 @@ private Object[] sort(WriteCommand[] writes) {
    }
 
    private void acquireAllLocks(TxInvocationContext ctx, Object[] orderedKeys) throws InterruptedException {
+      lockAllAndRegisterBackupLocks(ctx, Arrays.asList(orderedKeys));
       for (Object key: orderedKeys) {
-         lockAndRegisterBackupLock(ctx, key);
          performLocalWriteSkewCheck(ctx, key);
          ctx.addAffectedKey(key);
       }
@@ -25,6 +25,7 @@
 
 import org.infinispan.commands.CommandsFactory;
 import org.infinispan.commands.control.LockControlCommand;
+import org.infinispan.commands.read.GetAllCommand;
 import org.infinispan.commands.read.GetKeyValueCommand;
 import org.infinispan.commands.remote.recovery.TxCompletionNotificationCommand;
 import org.infinispan.commands.tx.PrepareCommand;
@@ -94,6 +95,21 @@ public final Object visitGetKeyValueCommand(InvocationContext ctx, GetKeyValueCo
       }
    }
 
+   @Override
+   public final Object visitGetAllCommand(InvocationContext ctx, GetAllCommand command) throws Throwable {
+      try {
+         if (ctx.hasFlag(Flag.FORCE_WRITE_LOCK)) {
+            for (Object key : command.getKeys()) lockKeyAndCheckOwnership(ctx, key);
+         }
+         return invokeNextInterceptor(ctx, command);
+      } catch (Throwable t) {
+         releaseLocksOnFailureBeforePrepare(ctx);
+         throw t;
+      } finally {
+         if (!ctx.isInTxScope()) lockManager.unlockAll(ctx);
+      }
+   }
+
    @Override
    public Object visitPrepareCommand(TxInvocationContext ctx, PrepareCommand command) throws Throwable {
       abortIfRemoteTransactionInvalid(ctx, command);
@@ -128,9 +144,7 @@ public Object visitPutMapCommand(InvocationContext ctx, PutMapCommand command) t
       try {
          acquireRemoteIfNeeded(ctx, command.getMap().keySet());
          final TxInvocationContext txContext = (TxInvocationContext) ctx;
-         for (Object key : command.getMap().keySet()) {
-            lockAndRegisterBackupLock(txContext, key);
-         }
+         lockAllAndRegisterBackupLocks(txContext, command.getMap().keySet());
          return invokeNextInterceptor(ctx, command);
       } catch (Throwable te) {
          releaseLocksOnFailureBeforePrepare(ctx);
@@ -224,9 +238,7 @@ public Object visitLockControlCommand(TxInvocationContext ctx, LockControlComman
             return Boolean.FALSE;
          }
 
-         for (Object key : command.getKeys()) {
-            lockAndRegisterBackupLock(ctx, key);
-         }
+         lockAllAndRegisterBackupLocks(ctx, command.getKeys());
          return Boolean.TRUE;
       } catch (Throwable te) {
          releaseLocksOnFailureBeforePrepare(ctx);
@@ -23,6 +23,7 @@
 package org.infinispan.loaders;
 
 import org.infinispan.Cache;
+import org.infinispan.container.entries.InternalCacheEntry;
 import org.infinispan.marshall.StreamingMarshaller;
 
 /**
@@ -46,6 +47,33 @@ public boolean containsKey(Object key) throws CacheLoaderException {
       return load(key) != null;
    }
 
+   /**
+    * {@inheritDoc} This implementation loads all the keys and then loads the accepted ones one by one through
+    * {@link CacheLoader#load(Object)}.  Stores that can iterate over their contents should override it.
+    */
+   @Override
+   public boolean visitEntries(KeyFilter filter, boolean fetchValues, EntryVisitor visitor) throws CacheLoaderException {
+      return visitEntries(this, filter, fetchValues, visitor);
+   }
+
+   /**
+    * Adapts the bulk methods of a {@link CacheLoader} to {@link CacheLoader#visitEntries(KeyFilter, boolean, EntryVisitor)},
+    * for loaders that have no cheaper way of iterating over their contents.
+    */
+   public static boolean visitEntries(CacheLoader loader, KeyFilter filter, boolean fetchValues, EntryVisitor visitor) throws CacheLoaderException {
+      for (Object key : loader.loadAllKeys(null)) {
+         if (filter != null && !filter.accept(key)) continue;
+         InternalCacheEntry entry = null;
+         if (fetchValues) {
+            entry = loader.load(key);
+            // removed or expired since the keys were loaded
+            if (entry == null) continue;
+         }
+         if (!visitor.visit(key, entry)) return false;
+      }
+      return true;
+   }
+
    @Override
    public void init(CacheLoaderConfig config, Cache<?, ?> cache, StreamingMarshaller m) throws CacheLoaderException {
       this.marshaller = m;
@@ -83,6 +83,21 @@ public interface CacheLoader {
     */
    Set<Object> loadAllKeys(Set<Object> keysToExclude) throws CacheLoaderException;
 
+   /**
+    * Streams the entries of the loader through a visitor, without materializing them in memory first.  Only keys
+    * accepted by the filter are passed on, and values are read only for those keys and only if requested.  Expired
+    * entries are not visited when values are fetched; when only keys are requested, stores that keep the expiry
+    * information with the values may also report expired keys, just like {@link #loadAllKeys(java.util.Set)}.  There
+    * is no guarantee as to the order in which entries are visited.
+    *
+    * @param filter      selects the keys to visit; null visits all keys
+    * @param fetchValues whether the entries should be loaded and passed to the visitor, or just the keys
+    * @param visitor     receives the selected entries
+    * @return true if all the selected entries were visited, false if the visitor stopped the iteration early
+    * @throws CacheLoaderException in the event of problems reading from source, or if thrown by the visitor
+    */
+   boolean visitEntries(KeyFilter filter, boolean fetchValues, EntryVisitor visitor) throws CacheLoaderException;
+
    /**
     * @param key key to test
     * @return true if the key exists, false otherwise
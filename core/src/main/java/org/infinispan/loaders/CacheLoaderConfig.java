@@ -125,7 +125,9 @@ public CacheLoaderConfig unmarshal(AbstractCacheStoreConfig storeConfig) throws
                   .flushLockTimeout(asyncStoreConfig.getFlushLockTimeout())
                   .shutdownTimeout(asyncStoreConfig.getShutdownTimeout())
                   .threadPoolSize(asyncStoreConfig.getThreadPoolSize())
-                  .modificationQueueSize(asyncStoreConfig.getModificationQueueSize());
+                  .modificationQueueSize(asyncStoreConfig.getModificationQueueSize())
+                  .batchSize(asyncStoreConfig.getBatchSize())
+                  .maxBatchLatency(asyncStoreConfig.getMaxBatchLatency());
          }
       }
       return clc;
@@ -31,8 +31,8 @@
 import static org.infinispan.context.Flag.SKIP_REMOTE_LOOKUP;
 import static org.infinispan.factories.KnownComponentNames.CACHE_MARSHALLER;
 
-import java.util.Collections;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import javax.transaction.Transaction;
@@ -181,49 +181,71 @@ public void preload() {
                start = System.nanoTime();
                log.debugf("Preloading transient state from cache loader %s", loader);
             }
-            Set<InternalCacheEntry> state;
+            AdvancedCache<Object, Object> flaggedCache;
+            boolean writesToStore;
+            if (clmConfig.shared() || !(loader instanceof ChainingCacheStore)) {
+               flaggedCache = cache.getAdvancedCache()
+                     .withFlags(CACHE_MODE_LOCAL, SKIP_OWNERSHIP_CHECK, SKIP_CACHE_STORE, SKIP_REMOTE_LOOKUP, SKIP_INDEXING);
+               // entries evicted while preloading are written to the store
+               writesToStore = clmConfig.passivation();
+            } else {
+               flaggedCache = cache.getAdvancedCache()
+                     .withFlags(CACHE_MODE_LOCAL, SKIP_OWNERSHIP_CHECK, SKIP_REMOTE_LOOKUP, SKIP_INDEXING);
+               writesToStore = true;
+            }
+
+            int preloaded;
             try {
-               state = loadState();
+               preloaded = loadState(flaggedCache, writesToStore);
             } catch (CacheLoaderException e) {
                throw new CacheException("Unable to preload!", e);
             }
 
-            for (InternalCacheEntry e : state) {
-               if (clmConfig.shared() || !(loader instanceof ChainingCacheStore)) {
-                  cache.getAdvancedCache()
-                       .withFlags(CACHE_MODE_LOCAL, SKIP_OWNERSHIP_CHECK, SKIP_CACHE_STORE, SKIP_REMOTE_LOOKUP, SKIP_INDEXING)
-                       .put(e.getKey(), e.getValue(), e.getLifespan(), MILLISECONDS, e.getMaxIdle(), MILLISECONDS);
-               } else {
-                  cache.getAdvancedCache()
-                       .withFlags(CACHE_MODE_LOCAL, SKIP_OWNERSHIP_CHECK, SKIP_REMOTE_LOOKUP, SKIP_INDEXING)
-                       .put(e.getKey(), e.getValue(), e.getLifespan(), MILLISECONDS, e.getMaxIdle(), MILLISECONDS);
-               }
-            }
-
             if (debugTiming) {
                final long stop = System.nanoTime();
-               log.debugf("Preloaded %s keys in %s", state.size(), Util.prettyPrintTime(stop - start, TimeUnit.NANOSECONDS));
+               log.debugf("Preloaded %s keys in %s", preloaded, Util.prettyPrintTime(stop - start, TimeUnit.NANOSECONDS));
             }
          }
       }
    }
 
-   private Set<InternalCacheEntry> loadState() throws CacheLoaderException {
+   /**
+    * Puts the stored entries in the cache, up to the maximum number of entries allowed by eviction.  The entries are
+    * streamed from the loader straight into the cache, unless the puts may write to the stores: loaders can hold read
+    * locks while visiting their entries, so in that case the entries are loaded first and put afterwards.
+    *
+    * @return the number of entries put in the cache
+    */
+   private int loadState(final AdvancedCache<Object, Object> flaggedCache, boolean writesToStore) throws CacheLoaderException {
       int ne = -1;
       if (configuration.eviction().strategy().isEnabled()) ne = configuration.eviction().maxEntries();
-      Set<InternalCacheEntry> state;
-      switch (ne) {
-         case -1:
-            state = loader.loadAll();
-            break;
-         case 0:
-            state = Collections.emptySet();
-            break;
-         default:
-            state = loader.load(ne);
-            break;
+      if (ne == 0) return 0;
+
+      final int maxEntries = ne;
+      final List<InternalCacheEntry> loaded = writesToStore ? new ArrayList<InternalCacheEntry>() : null;
+      final int[] count = new int[1];
+      loader.visitEntries(null, true, new EntryVisitor() {
+         @Override
+         public boolean visit(Object key, InternalCacheEntry entry) {
+            if (loaded != null) {
+               loaded.add(entry);
+            } else {
+               preloadEntry(flaggedCache, entry);
+            }
+            count[0]++;
+            return maxEntries < 0 || count[0] < maxEntries;
+         }
+      });
+      if (loaded != null) {
+         for (InternalCacheEntry e : loaded) {
+            preloadEntry(flaggedCache, e);
+         }
       }
-      return state;
+      return count[0];
+   }
+
+   private void preloadEntry(AdvancedCache<Object, Object> flaggedCache, InternalCacheEntry e) {
+      flaggedCache.put(e.getKey(), e.getValue(), e.getLifespan(), MILLISECONDS, e.getMaxIdle(), MILLISECONDS);
    }
 
    @Override
@@ -28,6 +28,7 @@
 
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
@@ -47,6 +48,16 @@ public interface CacheStore extends CacheLoader {
     */
    void store(InternalCacheEntry entry) throws CacheLoaderException;
 
+   /**
+    * Bulk store operation. Implementations are encouraged to write all the entries in a single round trip or
+    * transaction against the underlying storage, as this is what {@link org.infinispan.loaders.decorators.AsyncStore}
+    * relies on when flushing its coalesced modifications.
+    *
+    * @param entries entries to store
+    * @throws CacheLoaderException in the event of problems writing to the store
+    */
+   void storeAll(Collection<InternalCacheEntry> entries) throws CacheLoaderException;
+
    /**
     * Writes contents of the stream to the store.  Implementations should expect that the stream contains data in an
     * implementation-specific format, typically generated using {@link #toStream(java.io.ObjectOutput)}.  While not a
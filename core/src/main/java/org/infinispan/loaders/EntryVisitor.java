@@ -0,0 +1,46 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.loaders;
+
+import org.infinispan.container.entries.InternalCacheEntry;
+
+/**
+ * Receives the entries streamed out of a store by {@link CacheLoader#visitEntries(KeyFilter, boolean, EntryVisitor)}.
+ * <p />
+ * Visitors are called on the iterating thread, possibly while the store holds read locks, so they must not write to
+ * the store they are visiting.
+ *
+ * @since 5.2
+ */
+public interface EntryVisitor {
+
+   /**
+    * Visits a single non-expired entry.
+    *
+    * @param key   the key of the entry
+    * @param entry the entry, or null if the iteration was started without fetching values
+    * @return true to continue the iteration, false to stop it
+    * @throws CacheLoaderException to abort the iteration; the exception is propagated to the caller
+    */
+   boolean visit(Object key, InternalCacheEntry entry) throws CacheLoaderException;
+}
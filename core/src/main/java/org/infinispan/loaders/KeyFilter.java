@@ -0,0 +1,39 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.loaders;
+
+/**
+ * Selects the keys a {@link CacheLoader#visitEntries(KeyFilter, boolean, EntryVisitor)} call is interested in.
+ * Stores evaluate the filter before reading, unmarshalling or loading the value associated with a key, so cheap
+ * filters save most of the cost of the iteration.
+ *
+ * @since 5.2
+ */
+public interface KeyFilter {
+
+   /**
+    * @param key a key found in the store
+    * @return true if the key (and, if requested, its value) should be passed to the {@link EntryVisitor}
+    */
+   boolean accept(Object key);
+}
@@ -24,6 +24,10 @@
 
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import org.infinispan.Cache;
@@ -56,6 +60,11 @@
    private static final Log log = LogFactory.getLog(LockSupportCacheStore.class);
    private static final boolean trace = log.isTraceEnabled();
 
+   /**
+    * Number of entries {@link #visitEntries(KeyFilter, boolean, EntryVisitor)} reads before handing them to the visitor.
+    */
+   static final int VISIT_BATCH_SIZE = 100;
+
    private StripedLock locks;
    private long globalLockTimeoutMillis;
    private LockSupportCacheStoreConfig config;
@@ -178,6 +187,23 @@ public Set<Object> loadAllKeys(Set<Object> keysToExclude) throws CacheLoaderExce
       }
    }
 
+   /**
+    * {@inheritDoc} The entries are read by {@link #visitEntriesLockSafe(KeyFilter, boolean, EntryVisitor)} under the
+    * global read lock and handed to the visitor in batches of {@value #VISIT_BATCH_SIZE}, with the lock released, so
+    * the visitor may write to this store. An entry may thus be modified or removed between being read and visited.
+    */
+   @Override
+   public boolean visitEntries(KeyFilter filter, boolean fetchValues, EntryVisitor visitor) throws CacheLoaderException {
+      BatchingVisitor batcher = new BatchingVisitor(visitor);
+      acquireGlobalLock(false);
+      batcher.locked = true;
+      try {
+         if (!visitEntriesLockSafe(filter, fetchValues, batcher)) return false;
+      } finally {
+         if (batcher.locked) releaseGlobalLock(false);
+      }
+      return batcher.visitBatch();
+   }
 
    @Override
    public final void store(InternalCacheEntry ed) throws CacheLoaderException {
@@ -230,6 +256,73 @@ public final boolean remove(Object key) throws CacheLoaderException {
       }
    }
 
+   /**
+    * Write locks all the entries' keys, always in the same order so concurrent bulk operations cannot deadlock, and
+    * hands them to {@link #storeAllLockSafe(List, List)}. Expired entries are removed instead, like {@link
+    * #store(InternalCacheEntry)} does.
+    */
+   @Override
+   public final void storeAll(Collection<InternalCacheEntry> entries) throws CacheLoaderException {
+      if (entries == null || entries.isEmpty()) {
+         return;
+      }
+      if (trace) {
+         log.tracef("storeAll(%s entries)", entries.size());
+      }
+      long now = System.currentTimeMillis();
+      List<InternalCacheEntry> live = new ArrayList<InternalCacheEntry>(entries.size());
+      Set<Object> expired = null;
+      for (InternalCacheEntry ed : entries) {
+         if (ed.canExpire() && ed.isExpired(now)) {
+            if (expired == null) expired = new HashSet<Object>();
+            expired.add(ed.getKey());
+         } else {
+            live.add(ed);
+         }
+      }
+      if (!live.isEmpty()) {
+         List<L> lockingKeys = new ArrayList<L>(live.size());
+         for (InternalCacheEntry ed : live) {
+            lockingKeys.add(getLockFromKey(ed.getKey()));
+         }
+         locks.acquireAllLocks(asObjects(lockingKeys), true);
+         try {
+            storeAllLockSafe(live, lockingKeys);
+         } finally {
+            locks.releaseAllLocks(asObjects(lockingKeys));
+         }
+      }
+      if (expired != null) {
+         removeAll(expired);
+      }
+   }
+
+   @Override
+   public final void removeAll(Set<Object> keys) throws CacheLoaderException {
+      if (keys == null || keys.isEmpty()) {
+         return;
+      }
+      if (trace) {
+         log.tracef("removeAll(%s keys)", keys.size());
+      }
+      List<Object> orderedKeys = new ArrayList<Object>(keys);
+      List<L> lockingKeys = new ArrayList<L>(orderedKeys.size());
+      for (Object key : orderedKeys) {
+         lockingKeys.add(getLockFromKey(key));
+      }
+      locks.acquireAllLocks(asObjects(lockingKeys), true);
+      try {
+         removeAllLockSafe(orderedKeys, lockingKeys);
+      } finally {
+         locks.releaseAllLocks(asObjects(lockingKeys));
+      }
+   }
+
+   @SuppressWarnings("unchecked")
+   private List<Object> asObjects(List<L> lockingKeys) {
+      return (List<Object>) lockingKeys;
+   }
+
    @Override
    public final void fromStream(ObjectInput objectInput) throws CacheLoaderException {
       try {
@@ -283,7 +376,101 @@ public int getTotalLockCount() {
 
    protected abstract void storeLockSafe(InternalCacheEntry ed, L lockingKey) throws CacheLoaderException;
 
+   /**
+    * Visits the entries of the store while the global read lock is held.  The default loads all the keys and then
+    * loads the accepted ones one by one; stores that can iterate over their contents should override it.
+    * <p/>
+    * When called by {@link #visitEntries(KeyFilter, boolean, EntryVisitor)}, the global read lock is released and
+    * acquired again within the visitor every {@value #VISIT_BATCH_SIZE} entries, so implementations must read each
+    * entry after the previous one has been visited and must not expect the store to stay unchanged in between.
+    */
+   protected boolean visitEntriesLockSafe(KeyFilter filter, boolean fetchValues, EntryVisitor visitor) throws CacheLoaderException {
+      for (Object key : loadAllKeysLockSafe(null)) {
+         if (filter != null && !filter.accept(key)) continue;
+         InternalCacheEntry entry = null;
+         if (fetchValues) {
+            entry = loadLockSafe(key, getLockFromKey(key));
+            if (entry == null) continue;
+         }
+         if (!visitor.visit(key, entry)) return false;
+      }
+      return true;
+   }
+
+   /**
+    * Stores all the given entries, whose locking keys are already write locked. Stores that can write several
+    * entries in one round trip should override this; the default stores them one by one.
+    *
+    * @param entries     entries to store
+    * @param lockingKeys locking keys of the entries, in the same order
+    */
+   protected void storeAllLockSafe(List<InternalCacheEntry> entries, List<L> lockingKeys) throws CacheLoaderException {
+      for (int i = 0; i < entries.size(); i++) {
+         storeLockSafe(entries.get(i), lockingKeys.get(i));
+      }
+   }
+
+   /**
+    * Removes all the given keys, whose locking keys are already write locked. Stores that can remove several
+    * entries in one round trip should override this; the default removes them one by one.
+    *
+    * @param keys        keys to remove
+    * @param lockingKeys locking keys of the keys, in the same order
+    */
+   protected void removeAllLockSafe(List<Object> keys, List<L> lockingKeys) throws CacheLoaderException {
+      for (int i = 0; i < keys.size(); i++) {
+         removeLockSafe(keys.get(i), lockingKeys.get(i));
+      }
+   }
+
    protected abstract InternalCacheEntry loadLockSafe(Object key, L lockingKey) throws CacheLoaderException;
 
    protected abstract L getLockFromKey(Object key) throws CacheLoaderException;
+
+   /**
+    * Buffers the visited entries and hands them to the actual visitor, with the global read lock released, once
+    * {@link #VISIT_BATCH_SIZE} of them have been read.
+    */
+   private final class BatchingVisitor implements EntryVisitor {
+      private final EntryVisitor visitor;
+      private final List<Object> keys = new ArrayList<Object>(VISIT_BATCH_SIZE);
+      private final List<InternalCacheEntry> entries = new ArrayList<InternalCacheEntry>(VISIT_BATCH_SIZE);
+      boolean locked;
+
+      BatchingVisitor(EntryVisitor visitor) {
+         this.visitor = visitor;
+      }
+
+      @Override
+      public boolean visit(Object key, InternalCacheEntry entry) throws CacheLoaderException {
+         keys.add(key);
+         entries.add(entry);
+         if (keys.size() < VISIT_BATCH_SIZE) return true;
+         releaseGlobalLock(false);
+         locked = false;
+         if (!visitBatch()) return false;
+         if (!acquireGlobalLock(false)) {
+            throw new CacheLoaderException("Unable to acquire the global lock to resume visiting the entries");
+         }
+         locked = true;
+         return true;
+      }
+
+      /**
+       * Visits the buffered entries, which must be done without holding the global lock.
+       *
+       * @return false if the visitor stopped the iteration
+       */
+      boolean visitBatch() throws CacheLoaderException {
+         try {
+            for (int i = 0; i < keys.size(); i++) {
+               if (!visitor.visit(keys.get(i), entries.get(i))) return false;
+            }
+            return true;
+         } finally {
+            keys.clear();
+            entries.clear();
+         }
+      }
+   }
 }
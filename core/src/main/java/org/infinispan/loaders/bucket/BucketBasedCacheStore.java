@@ -24,6 +24,8 @@
 
 import org.infinispan.container.entries.InternalCacheEntry;
 import org.infinispan.loaders.CacheLoaderException;
+import org.infinispan.loaders.EntryVisitor;
+import org.infinispan.loaders.KeyFilter;
 import org.infinispan.loaders.LockSupportCacheStore;
 
 import java.util.Collection;
@@ -220,6 +222,31 @@ public boolean consider(Collection<? extends InternalCacheEntry> entries) {
       return g.generate();
    }
 
+   /**
+    * Streams the entries bucket by bucket, so only one deserialized bucket is held in memory at a time.  Expired
+    * entries are skipped but, unlike {@link #loadAllLockSafe()}, not purged, as this only holds the read lock.
+    */
+   @Override
+   protected boolean visitEntriesLockSafe(final KeyFilter filter, final boolean fetchValues, final EntryVisitor visitor) throws CacheLoaderException {
+      final boolean[] stopped = new boolean[1];
+      loopOverBuckets(new BucketHandler() {
+         @Override
+         public boolean handle(Bucket bucket) throws CacheLoaderException {
+            if (bucket == null) return false;
+            long currentTimeMillis = System.currentTimeMillis();
+            for (InternalCacheEntry ice : bucket.getStoredEntries()) {
+               if (ice.isExpired(currentTimeMillis) || (filter != null && !filter.accept(ice.getKey()))) continue;
+               if (!visitor.visit(ice.getKey(), fetchValues ? ice : null)) {
+                  stopped[0] = true;
+                  return true;
+               }
+            }
+            return false;
+         }
+      });
+      return !stopped[0];
+   }
+
    /**
     * A mechanism to loop over all buckets in the cache store.  Implementations should, very simply, loop over all
     * available buckets, and for each deserialized bucket, pass it to the handler.
@@ -42,6 +42,8 @@
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -55,6 +57,8 @@
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -77,6 +81,11 @@
  * <p/>
  * Write operations affecting same key are now coalesced so that only the final state is actually stored.
  * <p/>
+ * Coalesced modifications are handed to the underlying store through {@link CacheStore#storeAll(Collection)} and
+ * {@link CacheStore#removeAll(Set)}, in chunks of at most {@link AsyncStoreConfig#getBatchSize()} modifications.
+ * When {@link AsyncStoreConfig#getMaxBatchLatency()} is greater than 0, a flush waits up to that many milliseconds
+ * for a full batch to accumulate before writing whatever is pending.
+ * <p/>
  *
  * @author Manik Surtani
  * @author Galder Zamarreño
@@ -105,6 +114,7 @@ public class AsyncStore extends AbstractDelegatingStore {
    private final Lock clearAllReadLock = clearAllLock.readLock();
    private final Lock clearAllWriteLock = clearAllLock.writeLock();
    private final Lock stateMapLock = new ReentrantLock();
+   private final Condition batchReady = stateMapLock.newCondition();
    
    ExecutorService executor;
    private int concurrencyLevel;
@@ -115,6 +125,12 @@ public class AsyncStore extends AbstractDelegatingStore {
    public volatile boolean lastAsyncProcessorShutsDownExecutor = false;
    private long shutdownTimeout;
    private String cacheName;
+   private int batchSize;
+   private long maxBatchLatencyNanos;
+
+   private final AtomicLong flushedBatches = new AtomicLong(0);
+   private final AtomicLong flushedModifications = new AtomicLong(0);
+   private final AtomicLong flushTimeNanos = new AtomicLong(0);
 
    public AsyncStore(CacheStore delegate, AsyncStoreConfig asyncStoreConfig) {
       super(delegate);
@@ -140,6 +156,9 @@ public void init(CacheLoaderConfig config, Cache<?, ?> cache, StreamingMarshalle
          shutdownTimeout = configuredAsyncStopTimeout;
       }
 
+      batchSize = asyncStoreConfig.getBatchSize();
+      maxBatchLatencyNanos = TimeUnit.MILLISECONDS.toNanos(asyncStoreConfig.getMaxBatchLatency());
+
       lockContainer = new ReleaseAllLockContainer(concurrencyLevel);
       transactions = ConcurrentMapFactory.makeConcurrentMap(64, concurrencyLevel);
    }
@@ -149,12 +168,30 @@ public void store(InternalCacheEntry ed) {
       enqueue(new Store(ed));
    }
 
+   @Override
+   public void storeAll(Collection<InternalCacheEntry> entries) {
+      if (entries != null && !entries.isEmpty()) {
+         List<Modification> mods = new ArrayList<Modification>(entries.size());
+         for (InternalCacheEntry entry : entries) mods.add(new Store(entry));
+         enqueue(new ModificationsList(mods));
+      }
+   }
+
    @Override
    public boolean remove(Object key) {
       enqueue(new Remove(key));
       return true;
    }
 
+   @Override
+   public void removeAll(Set<Object> keys) {
+      if (keys != null && !keys.isEmpty()) {
+         List<Modification> mods = new ArrayList<Modification>(keys.size());
+         for (Object key : keys) mods.add(new Remove(key));
+         enqueue(new ModificationsList(mods));
+      }
+   }
+
    @Override
    public void clear() {
       Clear clear = new Clear();
@@ -238,21 +275,79 @@ public void stop() throws CacheLoaderException {
    }
 
    protected void applyModificationsSync(ConcurrentMap<Object, Modification> mods) throws CacheLoaderException {
+      List<InternalCacheEntry> stores = new ArrayList<InternalCacheEntry>(Math.min(batchSize, mods.size()));
+      Set<Object> removes = new HashSet<Object>();
       Set<Map.Entry<Object, Modification>> entries = mods.entrySet();
       for (Map.Entry<Object, Modification> entry : entries) {
          Modification mod = entry.getValue();
          switch (mod.getType()) {
             case STORE:
-               super.store(((Store) mod).getStoredEntry());
+               stores.add(((Store) mod).getStoredEntry());
                break;
             case REMOVE:
-               super.remove(entry.getKey());
+               removes.add(entry.getKey());
                break;
             default:
                throw new IllegalArgumentException("Unexpected modification type " + mod.getType());
          }
+         if (stores.size() + removes.size() >= batchSize) {
+            flushBatch(stores, removes);
+            stores = new ArrayList<InternalCacheEntry>(batchSize);
+            removes = new HashSet<Object>();
+         }
+      }
+      if (!stores.isEmpty() || !removes.isEmpty()) {
+         flushBatch(stores, removes);
       }
    }
+
+   private void flushBatch(List<InternalCacheEntry> stores, Set<Object> removes) throws CacheLoaderException {
+      if (trace) log.tracef("Flushing batch of %s stores and %s removals", stores.size(), removes.size());
+      long start = System.nanoTime();
+      if (!stores.isEmpty()) super.storeAll(stores);
+      if (!removes.isEmpty()) super.removeAll(removes);
+      flushTimeNanos.addAndGet(System.nanoTime() - start);
+      flushedModifications.addAndGet(stores.size() + removes.size());
+      flushedBatches.incrementAndGet();
+   }
+
+   /**
+    * Number of modifications which have not been applied to the underlying store yet, including the ones still
+    * waiting in the modification queue.
+    */
+   public int getQueueSize() {
+      ConcurrentMap<Object, Modification> pending = state;
+      return changesDeque.size() + (pending == null ? 0 : pending.size());
+   }
+
+   /**
+    * Average number of modifications written to the underlying store per bulk operation.
+    */
+   public double getAverageBatchSize() {
+      long batches = flushedBatches.get();
+      return batches == 0 ? 0 : (double) flushedModifications.get() / batches;
+   }
+
+   /**
+    * Average time in milliseconds taken by the underlying store to apply a batch.
+    */
+   public long getAverageFlushTime() {
+      long batches = flushedBatches.get();
+      return batches == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(flushTimeNanos.get() / batches);
+   }
+
+   /**
+    * Number of batches flushed to the underlying store.
+    */
+   public long getFlushedBatches() {
+      return flushedBatches.get();
+   }
+
+   public void resetStatistics() {
+      flushedBatches.set(0);
+      flushedModifications.set(0);
+      flushTimeNanos.set(0);
+   }
    
    protected boolean applyClear() {
       try {
@@ -309,6 +404,7 @@ class AsyncProcessor implements Runnable {
       public void run() {
          LogFactory.pushNDC(cacheName, trace);
          try {
+            awaitBatch();
             clearAllReadLock.lock();
             try {
                innerRun();
@@ -331,6 +427,25 @@ public void run() {
          }
       }
       
+      /**
+       * Gives the coordinator up to maxBatchLatency to accumulate a full batch before flushing.
+       */
+      private void awaitBatch() {
+         if (maxBatchLatencyNanos <= 0) return;
+         stateMapLock.lock();
+         try {
+            long remaining = maxBatchLatencyNanos;
+            while (remaining > 0 && !stopped.get() && state.size() < batchSize) {
+               remaining = batchReady.awaitNanos(remaining);
+            }
+         } catch (InterruptedException e) {
+            // flush straight away
+            Thread.currentThread().interrupt();
+         } finally {
+            stateMapLock.unlock();
+         }
+      }
+
       private void innerRun() {
          final ConcurrentMap<Object, Modification> swap;
          if (trace) log.trace("Checking for modifications");
@@ -445,6 +560,7 @@ public void run() {
                   Modification take = changesDeque.take();
                   if (take == QUIT_SIGNAL) {
                      lastAsyncProcessorShutsDownExecutor = true;
+                     signalShutdown();
                      ensureMoreWorkIsHandled();
                      return;
                   }
@@ -479,6 +595,7 @@ private void handle(Modification mod, boolean nested) {
                Store store = (Store) mod;
                stateMapLock.lock();
                state.put(store.getStoredEntry().getKey(), store);
+               signalBatchReady();
                stateMapLock.unlock();
                asyncProcessorNeeded = true;
                break;
@@ -486,6 +603,7 @@ private void handle(Modification mod, boolean nested) {
                Remove remove = (Remove) mod;
                stateMapLock.lock();
                state.put(remove.getKey(), remove);
+               signalBatchReady();
                stateMapLock.unlock();
                asyncProcessorNeeded = true;
                break;
@@ -509,6 +627,28 @@ private void handle(Modification mod, boolean nested) {
          }
       }
 
+      /**
+       * Wakes up AsyncProcessors waiting for a batch to fill up, once it is full. Must be invoked while holding
+       * stateMapLock.
+       */
+      private void signalBatchReady() {
+         if (maxBatchLatencyNanos > 0 && state.size() >= batchSize) {
+            batchReady.signalAll();
+         }
+      }
+
+      /**
+       * Wakes up all AsyncProcessors waiting for a batch to fill up, so pending work is flushed on shutdown.
+       */
+      private void signalShutdown() {
+         stateMapLock.lock();
+         try {
+            batchReady.signalAll();
+         } finally {
+            stateMapLock.unlock();
+         }
+      }
+
       private void applyModificationsList(ModificationsList mod) {
          for (Modification m : mod.getList()) {
             handle(m, true);
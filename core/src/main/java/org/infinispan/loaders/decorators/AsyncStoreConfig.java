@@ -65,6 +65,12 @@ public class AsyncStoreConfig extends AbstractDecoratorConfigurationBean {
    @ConfigurationDocRef(bean=AsyncStoreConfig.class,targetElement="setModificationQueueSize")
    protected Integer modificationQueueSize = 1024;
 
+   @ConfigurationDocRef(bean=AsyncStoreConfig.class,targetElement="setBatchSize")
+   protected Integer batchSize = 100;
+
+   @ConfigurationDocRef(bean=AsyncStoreConfig.class,targetElement="setMaxBatchLatency")
+   protected Long maxBatchLatency = 0L;
+
    @XmlAttribute
    public Boolean isEnabled() {
       return enabled;
@@ -197,6 +203,70 @@ public void setModificationQueueSize(Integer modificationQueueSize) {
       this.modificationQueueSize = modificationQueueSize;
    }
 
+   @XmlAttribute
+   public Integer getBatchSize() {
+      return batchSize;
+   }
+
+   /**
+    * Maximum number of coalesced modifications handed to the underlying store in a single
+    * {@link org.infinispan.loaders.CacheStore#storeAll(java.util.Collection)} or
+    * {@link org.infinispan.loaders.CacheStore#removeAll(java.util.Set)} invocation.
+    *
+    * @param batchSize
+    * @deprecated The visibility of this method will be reduced. Use {@link #batchSize(Integer)} instead.
+    */
+   @Deprecated
+   public void setBatchSize(Integer batchSize) {
+      testImmutability("batchSize");
+      this.batchSize = batchSize;
+   }
+
+   /**
+    * Maximum number of coalesced modifications handed to the underlying store in a single
+    * {@link org.infinispan.loaders.CacheStore#storeAll(java.util.Collection)} or
+    * {@link org.infinispan.loaders.CacheStore#removeAll(java.util.Set)} invocation.
+    *
+    * @param batchSize
+    */
+   public AsyncStoreConfig batchSize(Integer batchSize) {
+      testImmutability("batchSize");
+      this.batchSize = batchSize;
+      return this;
+   }
+
+   @XmlAttribute
+   public Long getMaxBatchLatency() {
+      return maxBatchLatency;
+   }
+
+   /**
+    * Maximum time in milliseconds a modification may wait for a batch to fill up to
+    * {@link #getBatchSize()} before it is flushed to the underlying store anyway. The default of 0 flushes
+    * modifications as soon as a worker thread is available.
+    *
+    * @param maxBatchLatency
+    * @deprecated The visibility of this method will be reduced. Use {@link #maxBatchLatency(Long)} instead.
+    */
+   @Deprecated
+   public void setMaxBatchLatency(Long maxBatchLatency) {
+      testImmutability("maxBatchLatency");
+      this.maxBatchLatency = maxBatchLatency;
+   }
+
+   /**
+    * Maximum time in milliseconds a modification may wait for a batch to fill up to
+    * {@link #getBatchSize()} before it is flushed to the underlying store anyway. The default of 0 flushes
+    * modifications as soon as a worker thread is available.
+    *
+    * @param maxBatchLatency
+    */
+   public AsyncStoreConfig maxBatchLatency(Long maxBatchLatency) {
+      testImmutability("maxBatchLatency");
+      this.maxBatchLatency = maxBatchLatency;
+      return this;
+   }
+
    @Override
    public AsyncStoreConfig clone() {
       return (AsyncStoreConfig) super.clone();
@@ -33,10 +33,13 @@
 import org.infinispan.loaders.CacheLoaderConfig;
 import org.infinispan.loaders.CacheLoaderException;
 import org.infinispan.loaders.CacheStore;
+import org.infinispan.loaders.EntryVisitor;
+import org.infinispan.loaders.KeyFilter;
 import org.infinispan.loaders.modifications.Modification;
 
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -68,6 +71,11 @@ public void store(InternalCacheEntry ed) throws CacheLoaderException {
       for (CacheStore s : stores.keySet()) s.store(ed);
    }
 
+   @Override
+   public void storeAll(Collection<InternalCacheEntry> entries) throws CacheLoaderException {
+      for (CacheStore s : stores.keySet()) s.storeAll(entries);
+   }
+
    @Override
    public void fromStream(ObjectInput inputStream) throws CacheLoaderException {
       // loading and storing state via streams is *only* supported on the *first* store that has fetchPersistentState set.
@@ -173,6 +181,34 @@ public Set<Object> loadAllKeys(Set<Object> keysToExclude) throws CacheLoaderExce
       return set;
    }
 
+   /**
+    * {@inheritDoc} Keys present in more than one store are visited only once; this requires remembering the keys
+    * visited so far, but not their values.
+    */
+   @Override
+   public boolean visitEntries(final KeyFilter filter, boolean fetchValues, final EntryVisitor visitor) throws CacheLoaderException {
+      if (stores.size() == 1) return stores.keySet().iterator().next().visitEntries(filter, fetchValues, visitor);
+
+      final Set<Object> visited = new HashSet<Object>();
+      KeyFilter notVisited = new KeyFilter() {
+         @Override
+         public boolean accept(Object key) {
+            return !visited.contains(key) && (filter == null || filter.accept(key));
+         }
+      };
+      EntryVisitor recordingVisitor = new EntryVisitor() {
+         @Override
+         public boolean visit(Object key, InternalCacheEntry entry) throws CacheLoaderException {
+            visited.add(key);
+            return visitor.visit(key, entry);
+         }
+      };
+      for (CacheStore s : stores.keySet()) {
+         if (!s.visitEntries(notVisited, fetchValues, recordingVisitor)) return false;
+      }
+      return true;
+   }
+
    @Override
    public boolean containsKey(Object key) throws CacheLoaderException {
       for (CacheLoader l : loaders.keySet()) {
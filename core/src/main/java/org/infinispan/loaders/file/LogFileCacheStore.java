@@ -0,0 +1,1037 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.loaders.file;
+
+import org.infinispan.Cache;
+import org.infinispan.config.ConfigurationException;
+import org.infinispan.container.entries.InternalCacheEntry;
+import org.infinispan.io.ByteBufferInputStream;
+import org.infinispan.loaders.AbstractCacheStore;
+import org.infinispan.loaders.CacheLoaderConfig;
+import org.infinispan.loaders.CacheLoaderException;
+import org.infinispan.loaders.CacheLoaderMetadata;
+import org.infinispan.marshall.StreamingMarshaller;
+import org.infinispan.util.Util;
+import org.infinispan.util.concurrent.ConcurrentMapFactory;
+import org.infinispan.util.logging.Log;
+import org.infinispan.util.logging.LogFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A log-structured file based cache store.
+ * <p/>
+ * Unlike {@link FileCacheStore}, which rewrites a whole bucket file on every modification, this store only ever
+ * appends.  Every store or remove adds a record to the end of the active log file, and an in-memory index maps each
+ * key to the file and offset of its latest record, so a load is a single positional read of one record.
+ * <p/>
+ * Once the active log file reaches {@link LogFileCacheStoreConfig#getMaxFileSize()} it is sealed and a new one is
+ * started.  The store keeps track of the bytes taken up by records that have been overwritten, removed or have
+ * expired, and when they make up more than {@link LogFileCacheStoreConfig#getCompactionThreshold()} of the log, the
+ * oldest files are compacted in the background: their live records are copied to the active log file and the files
+ * are deleted.
+ * <p/>
+ * The index is rebuilt on startup by replaying the log files in order.  To avoid reading every value, a hint file
+ * holding just the keys and record positions is written next to each sealed log file, and for the active log file on
+ * {@link #stop()}.  Hints whose recorded length does not match their log file are ignored and the log is scanned
+ * instead.
+ * <p/>
+ * With {@link LogFileCacheStoreConfig#isMappedReads()} enabled, loads unmarshall values straight from read-only
+ * mappings of the log files instead of reading them into the heap first.
+ * <p/>
+ * Record layout: <tt>int keyLength, int valueLength, long expiryTime, key, value</tt>, where the key is the marshalled
+ * key, the value is the marshalled {@link InternalCacheEntry}, and a value length of <tt>-1</tt> marks a removal.
+ *
+ * @since 5.2
+ * @see LogFileCacheStoreConfig
+ */
+@CacheLoaderMetadata(configurationClass = LogFileCacheStoreConfig.class)
+public class LogFileCacheStore extends AbstractCacheStore {
+
+   private static final Log log = LogFactory.getLog(LogFileCacheStore.class);
+   private static final boolean trace = log.isTraceEnabled();
+
+   static final String LOG_SUFFIX = ".log";
+   static final String HINT_SUFFIX = ".hint";
+   static final int HEADER_SIZE = 16;
+   static final int TOMBSTONE = -1;
+   static final int REMAP_INCREMENT = 1024 * 1024;
+   private static final int HINT_MAGIC = 0x1F5C0001;
+
+   private static final FilenameFilter LOG_FILES_FILTER = new FilenameFilter() {
+      @Override
+      public boolean accept(File dir, String name) {
+         return name.endsWith(LOG_SUFFIX) && parseFileId(name) >= 0;
+      }
+   };
+
+   private LogFileCacheStoreConfig config;
+   private File root;
+
+   private ConcurrentMap<Object, IndexEntry> index;
+   private final ConcurrentMap<Integer, LogFile> files = ConcurrentMapFactory.makeConcurrentMap();
+   private final AtomicBoolean compacting = new AtomicBoolean();
+
+   /**
+    * Guards the active file and all index updates that go along with appending to it.
+    */
+   private final ReentrantLock writeLock = new ReentrantLock();
+   /**
+    * Readers hold the read lock while reading from a log file; it is only acquired for writing when a file is closed
+    * and deleted.
+    */
+   private final ReadWriteLock filesLock = new ReentrantReadWriteLock();
+
+   private volatile LogFile active;
+   private int nextFileId;
+   private ExecutorService compactor;
+
+   @Override
+   public void init(CacheLoaderConfig config, Cache<?, ?> cache, StreamingMarshaller m) throws CacheLoaderException {
+      super.init(config, cache, m);
+      this.config = (LogFileCacheStoreConfig) config;
+   }
+
+   @Override
+   public Class<? extends CacheLoaderConfig> getConfigurationClass() {
+      return LogFileCacheStoreConfig.class;
+   }
+
+   /**
+    * @return directory where the log and hint files of this store are written.
+    */
+   public File getRoot() {
+      return root;
+   }
+
+   @Override
+   public void start() throws CacheLoaderException {
+      super.start();
+      String location = config.getLocation();
+      if (location == null || location.trim().length() == 0) {
+         location = "Infinispan-LogFileCacheStore"; // use relative path!
+      }
+      location += File.separator + cache.getName();
+      root = new File(location);
+      if (!root.exists()) {
+         if (!root.mkdirs()) {
+            log.problemsCreatingDirectory(root);
+         }
+      }
+      if (!root.exists()) {
+         throw new ConfigurationException("Directory " + root.getAbsolutePath() + " does not exist and cannot be created!");
+      }
+      if (config.getMaxFileSize() <= HEADER_SIZE) {
+         throw new ConfigurationException("maxFileSize must be larger than " + HEADER_SIZE + " bytes");
+      }
+      if (config.isMappedReads() && config.getMaxFileSize() > Integer.MAX_VALUE) {
+         throw new ConfigurationException("maxFileSize must not exceed " + Integer.MAX_VALUE + " bytes with mappedReads enabled");
+      }
+      if (config.getCompactionThreshold() <= 0 || config.getCompactionThreshold() > 1) {
+         throw new ConfigurationException("compactionThreshold must be greater than 0 and not greater than 1");
+      }
+
+      final String threadName = (cache == null ? "" : cache.getName() + '-') + getClass().getSimpleName() + "-Compactor";
+      compactor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+         @Override
+         public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, threadName);
+            t.setDaemon(true);
+            return t;
+         }
+      });
+      index = ConcurrentMapFactory.makeConcurrentMap(64, getConcurrencyLevel());
+
+      writeLock.lock();
+      try {
+         replay();
+         active = openLogFile(nextFileId++);
+      } finally {
+         writeLock.unlock();
+      }
+      maybeCompact();
+   }
+
+   @Override
+   public void stop() throws CacheLoaderException {
+      super.stop();
+      compactor.shutdown();
+      try {
+         compactor.awaitTermination(30, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+      }
+      writeLock.lock();
+      filesLock.writeLock().lock();
+      try {
+         if (active != null) {
+            if (active.size > 0) {
+               try {
+                  active.channel.force(false);
+                  writeHint(active);
+               } catch (IOException e) {
+                  throw new CacheLoaderException("Unable to write hint file for " + active.file, e);
+               }
+            }
+            active = null;
+         }
+         for (LogFile f : files.values()) {
+            f.close();
+         }
+         files.clear();
+         index = null;
+      } finally {
+         filesLock.writeLock().unlock();
+         writeLock.unlock();
+      }
+   }
+
+   @Override
+   public void store(InternalCacheEntry entry) throws CacheLoaderException {
+      byte[] key = marshall(entry.getKey());
+      byte[] value = marshall(entry);
+      ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + key.length + value.length);
+      record.putInt(key.length).putInt(value.length).putLong(entry.getExpiryTime()).put(key).put(value);
+      record.flip();
+
+      writeLock.lock();
+      try {
+         IndexEntry written = append(record);
+         IndexEntry old = index.put(entry.getKey(), written);
+         if (old != null) {
+            markDead(old);
+         }
+      } finally {
+         writeLock.unlock();
+      }
+   }
+
+   @Override
+   public boolean remove(Object key) throws CacheLoaderException {
+      writeLock.lock();
+      try {
+         IndexEntry old = index.remove(key);
+         if (old == null) {
+            return false;
+         }
+         markDead(old);
+         appendTombstone(marshall(key));
+         return !isExpired(old.expiryTime, System.currentTimeMillis());
+      } finally {
+         writeLock.unlock();
+      }
+   }
+
+   @Override
+   public InternalCacheEntry load(Object key) throws CacheLoaderException {
+      while (true) {
+         IndexEntry entry = index.get(key);
+         if (entry == null) {
+            return null;
+         }
+         if (isExpired(entry.expiryTime, System.currentTimeMillis())) {
+            if (index.remove(key, entry)) {
+               markDead(entry);
+            }
+            return null;
+         }
+         filesLock.readLock().lock();
+         try {
+            LogFile f = files.get(entry.fileId);
+            if (f == null) {
+               // the record has been moved by compaction in the meantime, look it up again
+               continue;
+            }
+            InternalCacheEntry ice = readEntry(f, entry);
+            if (ice.isExpired(System.currentTimeMillis())) {
+               return null;
+            }
+            return ice;
+         } finally {
+            filesLock.readLock().unlock();
+         }
+      }
+   }
+
+   @Override
+   public boolean containsKey(Object key) throws CacheLoaderException {
+      IndexEntry entry = index.get(key);
+      return entry != null && !isExpired(entry.expiryTime, System.currentTimeMillis());
+   }
+
+   @Override
+   public Set<InternalCacheEntry> loadAll() throws CacheLoaderException {
+      return load(Integer.MAX_VALUE);
+   }
+
+   @Override
+   public Set<InternalCacheEntry> load(int numEntries) throws CacheLoaderException {
+      if (numEntries < 0) {
+         return loadAll();
+      }
+      Set<InternalCacheEntry> result = new HashSet<InternalCacheEntry>();
+      for (Object key : index.keySet()) {
+         if (result.size() >= numEntries) {
+            break;
+         }
+         InternalCacheEntry ice = load(key);
+         if (ice != null) {
+            result.add(ice);
+         }
+      }
+      return result;
+   }
+
+   @Override
+   public Set<Object> loadAllKeys(Set<Object> keysToExclude) throws CacheLoaderException {
+      long now = System.currentTimeMillis();
+      Set<Object> result = new HashSet<Object>();
+      for (Map.Entry<Object, IndexEntry> e : index.entrySet()) {
+         if (!isExpired(e.getValue().expiryTime, now) && (keysToExclude == null || !keysToExclude.contains(e.getKey()))) {
+            result.add(e.getKey());
+         }
+      }
+      return result;
+   }
+
+   @Override
+   public void clear() throws CacheLoaderException {
+      writeLock.lock();
+      filesLock.writeLock().lock();
+      try {
+         index.clear();
+         for (LogFile f : files.values()) {
+            f.close();
+            f.delete();
+         }
+         files.clear();
+         active = openLogFile(nextFileId++);
+      } finally {
+         filesLock.writeLock().unlock();
+         writeLock.unlock();
+      }
+   }
+
+   @Override
+   protected void purgeInternal() throws CacheLoaderException {
+      long now = System.currentTimeMillis();
+      for (Map.Entry<Object, IndexEntry> e : index.entrySet()) {
+         IndexEntry entry = e.getValue();
+         // expired records don't need a tombstone, their expiry time is replayed along with them
+         if (isExpired(entry.expiryTime, now) && index.remove(e.getKey(), entry)) {
+            markDead(entry);
+         }
+      }
+      maybeCompact();
+   }
+
+   @Override
+   public void toStream(ObjectOutput outputStream) throws CacheLoaderException {
+      try {
+         for (Object key : index.keySet()) {
+            InternalCacheEntry ice = load(key);
+            if (ice != null) {
+               getMarshaller().objectToObjectStream(ice, outputStream);
+            }
+         }
+         getMarshaller().objectToObjectStream(null, outputStream);
+      } catch (IOException e) {
+         throw new CacheLoaderException(e);
+      }
+   }
+
+   @Override
+   public void fromStream(ObjectInput inputStream) throws CacheLoaderException {
+      try {
+         while (true) {
+            InternalCacheEntry entry = (InternalCacheEntry) getMarshaller().objectFromObjectStream(inputStream);
+            if (entry == null) {
+               break;
+            }
+            store(entry);
+         }
+      } catch (IOException e) {
+         throw new CacheLoaderException(e);
+      } catch (ClassNotFoundException e) {
+         throw new CacheLoaderException(e);
+      } catch (InterruptedException ie) {
+         if (log.isTraceEnabled()) log.trace("Interrupted while reading from stream");
+         Thread.currentThread().interrupt();
+      }
+   }
+
+   /**
+    * @return the number of log files currently in use, including the active one
+    */
+   int getLogFileCount() {
+      return files.size();
+   }
+
+   /**
+    * Waits for all compactions scheduled so far to complete.
+    */
+   void awaitCompaction() throws InterruptedException {
+      try {
+         compactor.submit(new Runnable() {
+            @Override
+            public void run() {
+            }
+         }).get();
+      } catch (ExecutionException e) {
+         throw new IllegalStateException(e);
+      }
+   }
+
+   // ----------------------------------------------------------------------------------------------------------------
+   // Writing
+   // ----------------------------------------------------------------------------------------------------------------
+
+   /**
+    * Appends a record to the active log file, rolling over to a new file first if the record doesn't fit.  Must be
+    * called with the {@link #writeLock} held.
+    */
+   private IndexEntry append(ByteBuffer record) throws CacheLoaderException {
+      int length = record.remaining();
+      if (active.size > 0 && active.size + length > config.getMaxFileSize()) {
+         rollOver();
+      }
+      LogFile f = active;
+      long offset = f.size;
+      try {
+         long position = offset;
+         while (record.hasRemaining()) {
+            position += f.channel.write(record, position);
+         }
+         if (config.isSyncWrites()) {
+            f.channel.force(false);
+         }
+      } catch (IOException e) {
+         throw new CacheLoaderException("Unable to write to " + f.file, e);
+      }
+      f.size = offset + length;
+      return new IndexEntry(f.id, offset, length, record.getLong(8));
+   }
+
+   private void appendTombstone(byte[] key) throws CacheLoaderException {
+      ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + key.length);
+      record.putInt(key.length).putInt(TOMBSTONE).putLong(-1).put(key);
+      record.flip();
+      // a tombstone only shadows older records, so it is garbage from the start
+      markDead(append(record));
+   }
+
+   private void rollOver() throws CacheLoaderException {
+      final LogFile sealed = active;
+      active = openLogFile(nextFileId++);
+      if (trace) log.tracef("Sealed %s, now appending to %s", sealed.file, active.file);
+      runInBackground(new Runnable() {
+         @Override
+         public void run() {
+            filesLock.readLock().lock();
+            try {
+               if (files.get(sealed.id) == sealed) {
+                  sealed.channel.force(false);
+                  writeHint(sealed);
+               }
+            } catch (IOException e) {
+               log.debugf(e, "Unable to write hint file for %s", sealed.file);
+            } finally {
+               filesLock.readLock().unlock();
+            }
+         }
+      });
+      maybeCompact();
+   }
+
+   private LogFile openLogFile(int id) throws CacheLoaderException {
+      File file = new File(root, id + LOG_SUFFIX);
+      try {
+         LogFile f = new LogFile(id, file, new RandomAccessFile(file, "rw").getChannel());
+         f.size = f.channel.size();
+         files.put(id, f);
+         return f;
+      } catch (IOException e) {
+         throw new CacheLoaderException("Unable to open " + file, e);
+      }
+   }
+
+   private void writeHint(LogFile f) throws IOException {
+      File hint = f.hintFile();
+      File tmp = new File(root, hint.getName() + ".tmp");
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+      LogReader reader = new LogReader(f.file, f.size);
+      try {
+         out.writeInt(HINT_MAGIC);
+         out.writeLong(f.size);
+         while (reader.next(false)) {
+            out.writeInt(reader.key.length);
+            out.write(reader.key);
+            out.writeLong(reader.recordOffset);
+            out.writeInt(reader.recordLength());
+            out.writeLong(reader.expiryTime);
+            out.writeBoolean(reader.valueLength == TOMBSTONE);
+         }
+         out.writeInt(-1);
+      } finally {
+         Util.close(reader.in);
+         Util.close(out);
+      }
+      if (!tmp.renameTo(hint)) {
+         hint.delete();
+         if (!tmp.renameTo(hint)) {
+            throw new IOException("Unable to rename " + tmp + " to " + hint);
+         }
+      }
+   }
+
+   // ----------------------------------------------------------------------------------------------------------------
+   // Reading
+   // ----------------------------------------------------------------------------------------------------------------
+
+   /**
+    * Reads and unmarshalls the value of the record pointed to by the index entry.  Must be called with the read lock
+    * of {@link #filesLock} held.
+    */
+   private InternalCacheEntry readEntry(LogFile f, IndexEntry entry) throws CacheLoaderException {
+      if (config.isMappedReads()) {
+         try {
+            MappedByteBuffer mapped = mappedRegion(f, entry.offset + entry.length);
+            if (mapped != null) {
+               return readMappedEntry(mapped, entry);
+            }
+         } catch (IOException e) {
+            throw new CacheLoaderException("Unable to read record at offset " + entry.offset + " of " + f.file, e);
+         }
+      }
+      ByteBuffer buf = ByteBuffer.allocate(entry.length);
+      try {
+         long position = entry.offset;
+         while (buf.hasRemaining()) {
+            int read = f.channel.read(buf, position);
+            if (read < 0) {
+               throw new EOFException("Unexpected end of " + f.file + " at offset " + position);
+            }
+            position += read;
+         }
+         byte[] bytes = buf.array();
+         int keyLength = buf.getInt(0);
+         int valueLength = buf.getInt(4);
+         return (InternalCacheEntry) getMarshaller().objectFromByteBuffer(bytes, HEADER_SIZE + keyLength, valueLength);
+      } catch (IOException e) {
+         throw new CacheLoaderException("Unable to read record at offset " + entry.offset + " of " + f.file, e);
+      } catch (ClassNotFoundException e) {
+         throw new CacheLoaderException("Unable to read record at offset " + entry.offset + " of " + f.file, e);
+      }
+   }
+
+   /**
+    * Unmarshalls the value of a record straight from the mapped log file, without copying it to the heap first.
+    */
+   private InternalCacheEntry readMappedEntry(MappedByteBuffer mapped, IndexEntry entry) throws CacheLoaderException {
+      ByteBuffer record = mapped.duplicate();
+      int start = (int) entry.offset;
+      int keyLength = record.getInt(start);
+      record.limit(start + entry.length);
+      record.position(start + HEADER_SIZE + keyLength);
+      StreamingMarshaller marshaller = getMarshaller();
+      try {
+         ObjectInput in = marshaller.startObjectInput(new ByteBufferInputStream(record), false);
+         try {
+            return (InternalCacheEntry) marshaller.objectFromObjectStream(in);
+         } finally {
+            marshaller.finishObjectInput(in);
+         }
+      } catch (IOException e) {
+         throw new CacheLoaderException("Unable to read record at offset " + entry.offset, e);
+      } catch (ClassNotFoundException e) {
+         throw new CacheLoaderException("Unable to read record at offset " + entry.offset, e);
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new CacheLoaderException("Interrupted while reading record at offset " + entry.offset, e);
+      }
+   }
+
+   /**
+    * Returns a read-only mapping of the log file that covers at least its first <tt>end</tt> bytes.  Sealed files are
+    * mapped once.  The active file is remapped lazily, only once it has grown by {@link #REMAP_INCREMENT} bytes past
+    * its current mapping; until then <tt>null</tt> is returned and records beyond the mapping are read from the
+    * channel instead.
+    */
+   private MappedByteBuffer mappedRegion(LogFile f, long end) throws IOException {
+      MappedByteBuffer mapped = f.mapped;
+      if (mapped != null && end <= mapped.limit()) {
+         return mapped;
+      }
+      synchronized (f) {
+         mapped = f.mapped;
+         if (mapped == null || end > mapped.limit()) {
+            long size = f.size;
+            if (mapped != null && f == active && size - mapped.limit() < REMAP_INCREMENT) {
+               return null;
+            }
+            mapped = f.channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            f.mapped = mapped;
+            if (trace) log.tracef("Mapped %d bytes of %s", size, f.file);
+         }
+         return mapped;
+      }
+   }
+
+   // ----------------------------------------------------------------------------------------------------------------
+   // Startup
+   // ----------------------------------------------------------------------------------------------------------------
+
+   private void replay() throws CacheLoaderException {
+      File[] logs = root.listFiles(LOG_FILES_FILTER);
+      if (logs == null) {
+         throw new CacheLoaderException("Unable to list files in " + root);
+      }
+      Arrays.sort(logs, new Comparator<File>() {
+         @Override
+         public int compare(File f1, File f2) {
+            int id1 = parseFileId(f1.getName());
+            int id2 = parseFileId(f2.getName());
+            return id1 < id2 ? -1 : (id1 == id2 ? 0 : 1);
+         }
+      });
+      long now = System.currentTimeMillis();
+      for (File file : logs) {
+         int id = parseFileId(file.getName());
+         LogFile f = openLogFile(id);
+         nextFileId = Math.max(nextFileId, id + 1);
+         if (f.size == 0) {
+            files.remove(id);
+            f.close();
+            f.delete();
+            continue;
+         }
+         try {
+            if (!replayHint(f, now)) {
+               replayLog(f, now);
+            }
+         } catch (IOException e) {
+            throw new CacheLoaderException("Unable to replay " + file, e);
+         }
+      }
+      if (log.isDebugEnabled()) log.debugf("Replayed %d log files in %s, found %d keys", logs.length, root, index.size());
+   }
+
+   private boolean replayHint(LogFile f, long now) throws IOException, CacheLoaderException {
+      File hint = f.hintFile();
+      if (!hint.exists()) {
+         return false;
+      }
+      DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(hint)));
+      List<Hint> hints = new ArrayList<Hint>();
+      try {
+         if (in.readInt() != HINT_MAGIC || in.readLong() != f.size) {
+            if (trace) log.tracef("Hint %s is stale, scanning %s instead", hint, f.file);
+            return false;
+         }
+         // read the whole hint before applying it, so that a damaged hint leaves the index untouched
+         for (int keyLength = in.readInt(); keyLength >= 0; keyLength = in.readInt()) {
+            Hint h = new Hint();
+            h.key = new byte[keyLength];
+            in.readFully(h.key);
+            h.offset = in.readLong();
+            h.length = in.readInt();
+            h.expiryTime = in.readLong();
+            h.tombstone = in.readBoolean();
+            hints.add(h);
+         }
+      } catch (EOFException e) {
+         if (trace) log.tracef("Hint %s is incomplete, scanning %s instead", hint, f.file);
+         return false;
+      } finally {
+         Util.close(in);
+      }
+      for (Hint h : hints) {
+         replayRecord(f, h.key, h.offset, h.length, h.expiryTime, h.tombstone, now);
+      }
+      return true;
+   }
+
+   private void replayLog(LogFile f, long now) throws IOException, CacheLoaderException {
+      LogReader reader = new LogReader(f.file, f.size);
+      try {
+         while (reader.next(false)) {
+            replayRecord(f, reader.key, reader.recordOffset, reader.recordLength(), reader.expiryTime,
+                         reader.valueLength == TOMBSTONE, now);
+         }
+      } finally {
+         Util.close(reader.in);
+      }
+      if (reader.offset < f.size) {
+         log.truncatedLogFile(f.file, reader.offset);
+         f.dead.addAndGet(f.size - reader.offset);
+      }
+   }
+
+   private void replayRecord(LogFile f, byte[] keyBytes, long offset, int length, long expiryTime, boolean tombstone,
+                             long now) throws CacheLoaderException {
+      Object key = unmarshall(keyBytes);
+      IndexEntry old = index.remove(key);
+      if (old != null) {
+         markDead(old);
+      }
+      if (tombstone || isExpired(expiryTime, now)) {
+         f.dead.addAndGet(length);
+      } else {
+         index.put(key, new IndexEntry(f.id, offset, length, expiryTime));
+      }
+   }
+
+   // ----------------------------------------------------------------------------------------------------------------
+   // Compaction
+   // ----------------------------------------------------------------------------------------------------------------
+
+   private void markDead(IndexEntry entry) {
+      LogFile f = files.get(entry.fileId);
+      if (f != null) {
+         f.dead.addAndGet(entry.length);
+      }
+   }
+
+   /**
+    * Schedules a compaction if dead records take up more than the configured fraction of the log.
+    */
+   private void maybeCompact() {
+      if (needsCompaction() && compacting.compareAndSet(false, true)) {
+         runInBackground(new Runnable() {
+            @Override
+            public void run() {
+               try {
+                  while (!compactor.isShutdown() && needsCompaction()) {
+                     LogFile oldest = oldestFile();
+                     if (oldest == null || oldest == active) {
+                        break;
+                     }
+                     compact(oldest);
+                  }
+               } catch (Throwable t) {
+                  log.problemCompactingLogFile(root, t);
+               } finally {
+                  compacting.set(false);
+               }
+            }
+         });
+      }
+   }
+
+   private boolean needsCompaction() {
+      long size = 0, dead = 0;
+      for (LogFile f : files.values()) {
+         size += f.size;
+         dead += f.dead.get();
+      }
+      return files.size() > 1 && size > 0 && (double) dead / size >= config.getCompactionThreshold();
+   }
+
+   private LogFile oldestFile() {
+      LogFile oldest = null;
+      for (LogFile f : files.values()) {
+         if (oldest == null || f.id < oldest.id) {
+            oldest = f;
+         }
+      }
+      return oldest;
+   }
+
+   private void runInBackground(Runnable task) {
+      try {
+         compactor.execute(task);
+      } catch (RejectedExecutionException e) {
+         // stopping, the work will be picked up again on the next start
+         if (trace) log.tracef("Not running %s, the store is stopping", task);
+      }
+   }
+
+   /**
+    * Copies the live records of the oldest log file to the active log file, and deletes it.  Compacting the oldest
+    * file first means that records that are dropped, including tombstones, never shadow a record in an older file, so
+    * nothing other than live values needs to be carried over.
+    */
+   private void compact(LogFile f) throws IOException, CacheLoaderException {
+      if (log.isDebugEnabled()) log.debugf("Compacting %s, %d of %d bytes are dead", f.file, f.dead.get(), f.size);
+      long now = System.currentTimeMillis();
+      int moved = 0;
+      LogReader reader = new LogReader(f.file, f.size);
+      try {
+         while (reader.next(true)) {
+            if (reader.valueLength == TOMBSTONE || isExpired(reader.expiryTime, now)) {
+               continue;
+            }
+            Object key = unmarshall(reader.key);
+            IndexEntry current = index.get(key);
+            if (current == null || current.fileId != f.id || current.offset != reader.recordOffset) {
+               continue;
+            }
+            ByteBuffer record = ByteBuffer.allocate(reader.recordLength());
+            record.putInt(reader.key.length).putInt(reader.valueLength).putLong(reader.expiryTime)
+                  .put(reader.key).put(reader.value);
+            record.flip();
+            writeLock.lock();
+            try {
+               if (index.get(key) == current) {
+                  IndexEntry copy = append(record);
+                  if (index.replace(key, current, copy)) {
+                     moved++;
+                  } else {
+                     markDead(copy);
+                  }
+               }
+            } finally {
+               writeLock.unlock();
+            }
+         }
+      } finally {
+         Util.close(reader.in);
+      }
+
+      writeLock.lock();
+      try {
+         // make sure the moved records are durable before their originals go away
+         if (active != null) {
+            active.channel.force(false);
+         }
+      } finally {
+         writeLock.unlock();
+      }
+
+      filesLock.writeLock().lock();
+      try {
+         if (files.remove(f.id, f)) {
+            f.close();
+            f.delete();
+         }
+      } finally {
+         filesLock.writeLock().unlock();
+      }
+      if (log.isDebugEnabled()) log.debugf("Compacted %s, moved %d live records", f.file, moved);
+   }
+
+   // ----------------------------------------------------------------------------------------------------------------
+   // Helpers
+   // ----------------------------------------------------------------------------------------------------------------
+
+   private static boolean isExpired(long expiryTime, long now) {
+      return expiryTime >= 0 && expiryTime < now;
+   }
+
+   static int parseFileId(String name) {
+      int dot = name.indexOf('.');
+      if (dot <= 0) {
+         return -1;
+      }
+      try {
+         return Integer.parseInt(name.substring(0, dot));
+      } catch (NumberFormatException e) {
+         return -1;
+      }
+   }
+
+   private byte[] marshall(Object o) throws CacheLoaderException {
+      try {
+         return getMarshaller().objectToByteBuffer(o);
+      } catch (IOException e) {
+         throw new CacheLoaderException("Unable to marshall " + o, e);
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new CacheLoaderException("Interrupted while marshalling " + o, e);
+      }
+   }
+
+   private Object unmarshall(byte[] bytes) throws CacheLoaderException {
+      try {
+         return getMarshaller().objectFromByteBuffer(bytes);
+      } catch (IOException e) {
+         throw new CacheLoaderException("Unable to unmarshall key", e);
+      } catch (ClassNotFoundException e) {
+         throw new CacheLoaderException("Unable to unmarshall key", e);
+      }
+   }
+
+   /**
+    * Location of the latest record for a key.
+    */
+   private static final class IndexEntry {
+      final int fileId;
+      final long offset;
+      final int length;
+      final long expiryTime;
+
+      IndexEntry(int fileId, long offset, int length, long expiryTime) {
+         this.fileId = fileId;
+         this.offset = offset;
+         this.length = length;
+         this.expiryTime = expiryTime;
+      }
+   }
+
+   /**
+    * A record as listed in a hint file.
+    */
+   private static final class Hint {
+      byte[] key;
+      long offset;
+      int length;
+      long expiryTime;
+      boolean tombstone;
+   }
+
+   private final class LogFile {
+      final int id;
+      final File file;
+      final FileChannel channel;
+      /**
+       * Bytes taken up by records that have been overwritten, removed or have expired, or by tombstones.
+       */
+      final AtomicLong dead = new AtomicLong();
+      volatile long size;
+      volatile MappedByteBuffer mapped;
+
+      LogFile(int id, File file, FileChannel channel) {
+         this.id = id;
+         this.file = file;
+         this.channel = channel;
+      }
+
+      File hintFile() {
+         return new File(root, id + HINT_SUFFIX);
+      }
+
+      void close() {
+         // the mapping, if any, is released once it is garbage collected
+         mapped = null;
+         try {
+            channel.close();
+         } catch (IOException e) {
+            log.debugf(e, "Unable to close %s", file);
+         }
+      }
+
+      void delete() {
+         if (!file.delete()) {
+            log.debugf("Unable to delete %s", file);
+         }
+         File hint = hintFile();
+         if (hint.exists() && !hint.delete()) {
+            log.debugf("Unable to delete %s", hint);
+         }
+      }
+   }
+
+   /**
+    * Sequentially reads the records of a log file, stopping at the first incomplete one.
+    */
+   private static final class LogReader {
+      final DataInputStream in;
+      final long length;
+      long offset;
+      long recordOffset;
+      int valueLength;
+      long expiryTime;
+      byte[] key;
+      byte[] value;
+
+      LogReader(File file, long length) throws IOException {
+         this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 64 * 1024));
+         this.length = length;
+      }
+
+      boolean next(boolean readValue) throws IOException {
+         if (offset + HEADER_SIZE > length) {
+            return false;
+         }
+         int keyLength = in.readInt();
+         valueLength = in.readInt();
+         expiryTime = in.readLong();
+         if (keyLength < 0 || valueLength < TOMBSTONE
+               || offset + HEADER_SIZE + keyLength + Math.max(valueLength, 0) > length) {
+            return false;
+         }
+         key = new byte[keyLength];
+         in.readFully(key);
+         value = null;
+         if (valueLength > 0) {
+            if (readValue) {
+               value = new byte[valueLength];
+               in.readFully(value);
+            } else {
+               skipFully(valueLength);
+            }
+         }
+         recordOffset = offset;
+         offset += HEADER_SIZE + keyLength + Math.max(valueLength, 0);
+         return true;
+      }
+
+      int recordLength() {
+         return (int) (offset - recordOffset);
+      }
+
+      private void skipFully(int n) throws IOException {
+         while (n > 0) {
+            int skipped = in.skipBytes(n);
+            if (skipped <= 0) {
+               throw new EOFException();
+            }
+            n -= skipped;
+         }
+      }
+   }
+}
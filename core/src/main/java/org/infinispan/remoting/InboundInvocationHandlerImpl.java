@@ -129,6 +129,12 @@ private Response handleInternal(final CacheRpcCommand cmd, final ComponentRegist
    }
 
    private Response handleWithWaitForBlocks(final CacheRpcCommand cmd, final ComponentRegistry cr) throws Throwable {
+      KeyOrderedCommandExecutor keyOrderedExecutor = cr.getKeyOrderedCommandExecutor();
+      if (keyOrderedExecutor != null && keyOrderedExecutor.accepts(cmd)) {
+         // applied in parallel with the commands for other keys, after the earlier commands for the same keys
+         return keyOrderedExecutor.execute(cmd);
+      }
+
       Response resp = handleInternal(cmd, cr);
 
       // A null response is valid and OK ...
@@ -0,0 +1,286 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.remoting;
+
+import org.infinispan.Cache;
+import org.infinispan.CacheException;
+import org.infinispan.commands.CommandsFactory;
+import org.infinispan.commands.ReplicableCommand;
+import org.infinispan.commands.remote.CacheRpcCommand;
+import org.infinispan.commands.remote.MultipleRpcCommand;
+import org.infinispan.commands.remote.SingleRpcCommand;
+import org.infinispan.commands.write.WriteCommand;
+import org.infinispan.configuration.cache.Configuration;
+import org.infinispan.context.Flag;
+import org.infinispan.factories.annotations.Inject;
+import org.infinispan.factories.annotations.Start;
+import org.infinispan.factories.annotations.Stop;
+import org.infinispan.jmx.annotations.MBean;
+import org.infinispan.jmx.annotations.ManagedAttribute;
+import org.infinispan.jmx.annotations.ManagedOperation;
+import org.infinispan.remoting.responses.ExceptionResponse;
+import org.infinispan.remoting.responses.Response;
+import org.infinispan.remoting.responses.ResponseGenerator;
+import org.infinispan.util.logging.Log;
+import org.infinispan.util.logging.LogFactory;
+import org.rhq.helpers.pluginAnnotations.agent.DataType;
+import org.rhq.helpers.pluginAnnotations.agent.DisplayType;
+import org.rhq.helpers.pluginAnnotations.agent.Metric;
+import org.rhq.helpers.pluginAnnotations.agent.Operation;
+import org.rhq.helpers.pluginAnnotations.agent.Parameter;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Applies remotely originating write commands on a striped set of single threaded executors, chosen by hashing the
+ * keys each command affects.
+ * <p/>
+ * The {@link InboundInvocationHandler} hands commands over to this component in the order JGroups delivers them, so
+ * commands affecting the same key are applied in the order the sender issued them, while commands affecting keys on
+ * different stripes are applied in parallel and a slow key no longer holds up the rest of the sender's stream.
+ * <p/>
+ * A command affecting keys on several stripes (or no key at all, like a clear) waits until it reaches the head of
+ * every one of them and is then applied by the last stripe to get there.  The commands of a {@link
+ * MultipleRpcCommand} are dispatched one by one, in order.
+ * <p/>
+ * Only created for non-transactional caches in an asynchronous cluster mode, when {@link
+ * org.infinispan.configuration.cache.AsyncConfiguration#remoteCommandStripes()} is greater than 0.
+ *
+ * @since 5.2
+ */
+@MBean(objectName = "KeyOrderedCommandExecutor", description = "Applies remote write commands in parallel, keeping the order of the commands affecting the same key")
+public class KeyOrderedCommandExecutor {
+
+   private static final Log log = LogFactory.getLog(KeyOrderedCommandExecutor.class);
+   private static final boolean trace = log.isTraceEnabled();
+
+   private Configuration configuration;
+   private CommandsFactory commandsFactory;
+   private ResponseGenerator responseGenerator;
+   private String cacheName;
+
+   private volatile ThreadPoolExecutor[] stripes;
+   /**
+    * Serializes the enqueueing of commands spanning several stripes, so that they reach the stripes they have in common
+    * in the same order and cannot wait for each other.
+    */
+   private final Object multiStripeLock = new Object();
+
+   @Inject
+   public void injectDependencies(Configuration configuration, CommandsFactory commandsFactory,
+                                  ResponseGenerator responseGenerator, Cache<?, ?> cache) {
+      this.configuration = configuration;
+      this.commandsFactory = commandsFactory;
+      this.responseGenerator = responseGenerator;
+      this.cacheName = cache.getName();
+   }
+
+   @Start
+   public void start() {
+      int numStripes = configuration.clustering().async().remoteCommandStripes();
+      ThreadPoolExecutor[] executors = new ThreadPoolExecutor[numStripes];
+      for (int i = 0; i < numStripes; i++) {
+         final String threadName = "RemoteCommandStripe-" + i + "," + cacheName;
+         ThreadFactory tf = new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+               Thread th = new Thread(r, threadName);
+               th.setDaemon(true);
+               return th;
+            }
+         };
+         executors[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(), tf);
+      }
+      stripes = executors;
+   }
+
+   @Stop
+   public void stop() {
+      ThreadPoolExecutor[] executors = stripes;
+      if (executors == null) return;
+      for (ThreadPoolExecutor executor : executors) executor.shutdown();
+      // let the commands that were already received be applied
+      long timeout = configuration.clustering().sync().replTimeout();
+      try {
+         for (ThreadPoolExecutor executor : executors) {
+            if (!executor.awaitTermination(timeout, TimeUnit.MILLISECONDS)) executor.shutdownNow();
+         }
+      } catch (InterruptedException e) {
+         for (ThreadPoolExecutor executor : executors) executor.shutdownNow();
+         Thread.currentThread().interrupt();
+      }
+   }
+
+   /**
+    * @return true if the given command has to be applied through {@link #execute(CacheRpcCommand)}, false if it
+    *         should be applied by the thread that received it.
+    */
+   public boolean accepts(CacheRpcCommand command) {
+      if (command instanceof SingleRpcCommand) {
+         return ((SingleRpcCommand) command).getCommand() instanceof WriteCommand;
+      } else if (command instanceof MultipleRpcCommand) {
+         for (ReplicableCommand c : ((MultipleRpcCommand) command).getCommands()) {
+            if (!(c instanceof WriteCommand) || ((WriteCommand) c).hasFlag(Flag.FORCE_SYNCHRONOUS)) return false;
+         }
+         return true;
+      }
+      return false;
+   }
+
+   /**
+    * Enqueues an accepted command on the stripes of the keys it affects.  If the sender waits for a response (i.e. the
+    * command was sent with {@link Flag#FORCE_SYNCHRONOUS}) the calling thread waits for the command to be applied and
+    * returns its response, otherwise it returns null straight away.
+    */
+   public Response execute(CacheRpcCommand command) throws InterruptedException {
+      if (command instanceof MultipleRpcCommand) {
+         for (ReplicableCommand c : ((MultipleRpcCommand) command).getCommands()) {
+            SingleRpcCommand single = commandsFactory.buildSingleRpcCommand(c);
+            single.setOrigin(command.getOrigin());
+            enqueue(single, (WriteCommand) c);
+         }
+         return null;
+      }
+
+      WriteCommand write = (WriteCommand) ((SingleRpcCommand) command).getCommand();
+      Future<Response> future = enqueue(command, write);
+      if (!write.hasFlag(Flag.FORCE_SYNCHRONOUS)) return null;
+      try {
+         return future.get();
+      } catch (ExecutionException e) {
+         throw new CacheException(e.getCause());
+      }
+   }
+
+   private Future<Response> enqueue(final CacheRpcCommand command, WriteCommand write) {
+      ThreadPoolExecutor[] executors = stripes;
+      BitSet indexes = stripesFor(write.getAffectedKeys(), executors.length);
+      Callable<Response> invocation = new Callable<Response>() {
+         @Override
+         public Response call() {
+            return invoke(command);
+         }
+      };
+
+      if (indexes.cardinality() == 1) {
+         return executors[indexes.nextSetBit(0)].submit(invocation);
+      }
+
+      final FutureTask<Response> task = new FutureTask<Response>(invocation);
+      final AtomicInteger pending = new AtomicInteger(indexes.cardinality());
+      Runnable arrival = new Runnable() {
+         @Override
+         public void run() {
+            if (pending.decrementAndGet() == 0) {
+               task.run();
+            } else {
+               try {
+                  task.get();
+               } catch (InterruptedException e) {
+                  Thread.currentThread().interrupt();
+               } catch (ExecutionException e) {
+                  // reported by the stripe that applied the command
+               }
+            }
+         }
+      };
+      synchronized (multiStripeLock) {
+         for (int i = indexes.nextSetBit(0); i >= 0; i = indexes.nextSetBit(i + 1)) {
+            executors[i].execute(arrival);
+         }
+      }
+      return task;
+   }
+
+   private static BitSet stripesFor(Collection<Object> keys, int numStripes) {
+      BitSet indexes = new BitSet(numStripes);
+      if (keys == null || keys.isEmpty()) {
+         // e.g. a clear, which has to be ordered against every key
+         indexes.set(0, numStripes);
+      } else {
+         for (Object key : keys) indexes.set((spread(key.hashCode()) & Integer.MAX_VALUE) % numStripes);
+      }
+      return indexes;
+   }
+
+   private static int spread(int h) {
+      h ^= (h >>> 20) ^ (h >>> 12);
+      return h ^ (h >>> 7) ^ (h >>> 4);
+   }
+
+   private Response invoke(CacheRpcCommand command) {
+      commandsFactory.initializeReplicableCommand(command, true);
+      try {
+         if (trace) log.tracef("Calling perform() on %s", command);
+         Object retval = command.perform(null);
+         return responseGenerator.getResponse(command, retval);
+      } catch (Throwable t) {
+         log.trace("Exception executing command", t);
+         return new ExceptionResponse(t instanceof Exception ? (Exception) t : new CacheException(t));
+      }
+   }
+
+   @ManagedAttribute(description = "Number of ordered executors remote write commands are spread over")
+   @Metric(displayName = "Number of stripes", displayType = DisplayType.SUMMARY)
+   public int getNumberOfStripes() {
+      ThreadPoolExecutor[] executors = stripes;
+      return executors == null ? 0 : executors.length;
+   }
+
+   @ManagedAttribute(description = "Number of remote commands waiting to be applied, for each stripe")
+   @Metric(displayName = "Queue length of each stripe", dataType = DataType.TRAIT)
+   public String getQueueLengths() {
+      ThreadPoolExecutor[] executors = stripes;
+      if (executors == null) return "[]";
+      int[] lengths = new int[executors.length];
+      for (int i = 0; i < executors.length; i++) lengths[i] = executors[i].getQueue().size();
+      return Arrays.toString(lengths);
+   }
+
+   @ManagedAttribute(description = "Number of remote commands waiting to be applied, over all stripes")
+   @Metric(displayName = "Total queue length", displayType = DisplayType.SUMMARY)
+   public int getTotalQueueLength() {
+      ThreadPoolExecutor[] executors = stripes;
+      if (executors == null) return 0;
+      int total = 0;
+      for (ThreadPoolExecutor executor : executors) total += executor.getQueue().size();
+      return total;
+   }
+
+   @ManagedOperation(description = "Number of remote commands waiting to be applied by the given stripe")
+   @Operation(displayName = "Queue length of a stripe")
+   public int getQueueLength(@Parameter(name = "stripe", description = "Index of the stripe") int stripe) {
+      return stripes[stripe].getQueue().size();
+   }
+}
@@ -0,0 +1,45 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.remoting;
+
+import org.infinispan.commands.ReplicableCommand;
+import org.infinispan.remoting.transport.Address;
+
+import java.util.Collection;
+
+/**
+ * A {@link ReplicationQueue} which sends each command to its recipients only, rather than to the entire cluster.
+ * Distributed caches can only use a replication queue implementing this interface.
+ *
+ * @since 5.2
+ */
+public interface RecipientAwareReplicationQueue extends ReplicationQueue {
+
+   /**
+    * Adds a new command to the replication queue, to be sent to the given recipients only.
+    *
+    * @param recipients the members to send the command to, or null to send it to the entire cluster
+    * @param job        command to add to the queue
+    */
+   void add(Collection<Address> recipients, ReplicableCommand job);
+}
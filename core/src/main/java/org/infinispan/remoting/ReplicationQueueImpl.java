@@ -22,6 +22,7 @@
  */
 package org.infinispan.remoting;
 
+import net.jcip.annotations.GuardedBy;
 import org.infinispan.Cache;
 import org.infinispan.commands.CommandsFactory;
 import org.infinispan.commands.ReplicableCommand;
@@ -33,26 +34,39 @@
 import org.infinispan.factories.annotations.Inject;
 import org.infinispan.factories.annotations.Start;
 import org.infinispan.factories.annotations.Stop;
+import org.infinispan.marshall.StreamingMarshaller;
 import org.infinispan.remoting.rpc.ResponseMode;
 import org.infinispan.remoting.rpc.RpcManager;
+import org.infinispan.remoting.transport.Address;
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A default implementation of the ReplicationQueue interface.
+ * <p/>
+ * In replicated mode all the queued commands are broadcast as a single {@link MultipleRpcCommand}.  In distributed
+ * mode each command is only sent to its owners, so the commands are queued separately for each destination and every
+ * destination receives a single {@link MultipleRpcCommand} with its own commands.  The commands to a destination are
+ * sent in the order they were added, so the updates of a key are applied in order.
  *
  * @author Manik Surtani
  * @version 4.2
  */
-public class ReplicationQueueImpl implements ReplicationQueue {
+public class ReplicationQueueImpl implements RecipientAwareReplicationQueue {
    private static final Log log = LogFactory.getLog(ReplicationQueue.class);
 
    /**
@@ -65,6 +79,21 @@ public class ReplicationQueueImpl implements ReplicationQueue {
     */
    private final BlockingQueue<ReplicableCommand> elements = new LinkedBlockingQueue<ReplicableCommand>();
 
+   /**
+    * Holds the replication jobs of a distributed cache, by destination.
+    */
+   @GuardedBy("destinationLock")
+   private Map<Address, List<ReplicableCommand>> elementsByDestination = new LinkedHashMap<Address, List<ReplicableCommand>>();
+   @GuardedBy("destinationLock")
+   private int destinationElementsCount;
+   private final Object destinationLock = new Object();
+
+   /**
+    * Max estimated size of the queued commands before we flush, 0 if unlimited
+    */
+   private long maxBytes;
+   private final AtomicLong estimatedBytes = new AtomicLong();
+
    /**
     * For periodical replication
     */
@@ -72,7 +101,9 @@ public class ReplicationQueueImpl implements ReplicationQueue {
    private RpcManager rpcManager;
    private Configuration configuration;
    private boolean enabled;
+   private boolean distributed;
    private CommandsFactory commandsFactory;
+   private StreamingMarshaller marshaller;
    private volatile ScheduledFuture<?> scheduledFuture;
    private boolean trace;
    private String cacheName;
@@ -87,8 +118,10 @@ public boolean isEnabled() {
 
    @Inject
    public void injectDependencies(@ComponentName(KnownComponentNames.ASYNC_REPLICATION_QUEUE_EXECUTOR) ScheduledExecutorService executor,
-              RpcManager rpcManager, Configuration configuration, CommandsFactory commandsFactory, Cache cache) {
+              RpcManager rpcManager, Configuration configuration, CommandsFactory commandsFactory, Cache cache,
+              @ComponentName(KnownComponentNames.CACHE_MARSHALLER) StreamingMarshaller marshaller) {
       injectDependencies(executor, rpcManager, configuration, commandsFactory, cache.getName());
+      this.marshaller = marshaller;
    }
 
    public void injectDependencies(ScheduledExecutorService executor,
@@ -114,6 +147,8 @@ public void start() {
          log.tracef("Starting replication queue, with interval %d and maxElements %s", interval, maxElements);
 
       this.maxElements = asyncCfg.replQueueMaxElements();
+      this.maxBytes = asyncCfg.replQueueMaxBytes();
+      this.distributed = configuration.clustering().cacheMode().isDistributed();
       // check again
       enabled = asyncCfg.useReplQueue();
       if (enabled && interval > 0) {
@@ -149,38 +184,94 @@ public void stop() {
 
    @Override
    public void add(ReplicableCommand job) {
+      add(null, job);
+   }
+
+   @Override
+   public void add(Collection<Address> recipients, ReplicableCommand job) {
       if (job == null)
          throw new NullPointerException("job is null");
-      try {
-         elements.put(job);
-         if (elements.size() >= maxElements) flush();
-      } catch (InterruptedException ie) {
-         Thread.interrupted();
+      int count;
+      if (distributed) {
+         // a broadcast goes in every destination's queue, to keep it in order with the other commands
+         Collection<Address> destinations = recipients != null ? recipients : rpcManager.getTransport().getMembers();
+         Address self = rpcManager.getAddress();
+         synchronized (destinationLock) {
+            for (Address destination : destinations) {
+               if (destination.equals(self)) continue;
+               List<ReplicableCommand> queue = elementsByDestination.get(destination);
+               if (queue == null) {
+                  queue = new ArrayList<ReplicableCommand>();
+                  elementsByDestination.put(destination, queue);
+               }
+               queue.add(job);
+            }
+            count = ++destinationElementsCount;
+         }
+      } else {
+         // in replicated mode everything is broadcast anyway
+         try {
+            elements.put(job);
+         } catch (InterruptedException ie) {
+            Thread.interrupted();
+            return;
+         }
+         count = elements.size();
       }
+      if (count >= maxElements || (maxBytes > 0 && estimatedBytes.addAndGet(estimateSize(job)) >= maxBytes)) flush();
+   }
+
+   /**
+    * The commands are only marshalled when the queue is flushed, so this is not the size of the command itself but
+    * the marshaller's running prediction for commands of its type, based on the ones marshalled before.
+    */
+   private int estimateSize(ReplicableCommand job) {
+      return marshaller == null ? 0 : marshaller.getBufferSizePredictor(job).nextSize(job);
    }
 
    @Override
    public synchronized int flush() {
       List<ReplicableCommand> toReplicate = drainReplQueue();
-      if (trace) log.tracef("flush(): flushing repl queue (num elements=%s)", toReplicate.size());
-
-      int toReplicateSize = toReplicate.size();
-      if (toReplicateSize > 0) {
-         try {
-            log.tracef("Flushing %s elements", toReplicateSize);
-            MultipleRpcCommand multipleRpcCommand = commandsFactory.buildReplicateCommand(toReplicate);
-            // send to all live caches in the cluster
-            rpcManager.invokeRemotely(null, multipleRpcCommand,
-                  ResponseMode.getAsyncResponseMode(configuration),
-                  configuration.clustering().sync().replTimeout());
-         } catch (Throwable t) {
-            log.failedReplicatingQueue(toReplicate.size(), t);
+      Map<Address, List<ReplicableCommand>> toReplicateByDestination;
+      int toReplicateByDestinationSize;
+      synchronized (destinationLock) {
+         toReplicateByDestinationSize = destinationElementsCount;
+         if (toReplicateByDestinationSize > 0) {
+            toReplicateByDestination = elementsByDestination;
+            elementsByDestination = new LinkedHashMap<Address, List<ReplicableCommand>>();
+            destinationElementsCount = 0;
+         } else {
+            toReplicateByDestination = Collections.emptyMap();
          }
       }
+      estimatedBytes.set(0);
+
+      int toReplicateSize = toReplicate.size() + toReplicateByDestinationSize;
+      if (trace) log.tracef("flush(): flushing repl queue (num elements=%s)", toReplicateSize);
+
+      if (!toReplicate.isEmpty()) {
+         // send to all live caches in the cluster
+         replicate(null, toReplicate);
+      }
+      for (Map.Entry<Address, List<ReplicableCommand>> e : toReplicateByDestination.entrySet()) {
+         replicate(Collections.singleton(e.getKey()), e.getValue());
+      }
 
       return toReplicateSize;
    }
 
+   private void replicate(Collection<Address> recipients, List<ReplicableCommand> toReplicate) {
+      try {
+         log.tracef("Flushing %s elements to %s", toReplicate.size(), recipients == null ? "all members" : recipients);
+         MultipleRpcCommand multipleRpcCommand = commandsFactory.buildReplicateCommand(toReplicate);
+         rpcManager.invokeRemotely(recipients, multipleRpcCommand,
+               ResponseMode.getAsyncResponseMode(configuration),
+               configuration.clustering().sync().replTimeout());
+      } catch (Throwable t) {
+         log.failedReplicatingQueue(toReplicate.size(), t);
+      }
+   }
+
    protected List<ReplicableCommand> drainReplQueue() {
       List<ReplicableCommand> toReplicate = new LinkedList<ReplicableCommand>();
       elements.drainTo(toReplicate);
@@ -193,11 +284,18 @@ protected Configuration getConfiguration() {
 
    @Override
    public int getElementsCount() {
-      return elements.size();
+      synchronized (destinationLock) {
+         return elements.size() + destinationElementsCount;
+      }
    }
 
    @Override
    public void reset() {
       elements.clear();
+      synchronized (destinationLock) {
+         elementsByDestination.clear();
+         destinationElementsCount = 0;
+      }
+      estimatedBytes.set(0);
    }
 }
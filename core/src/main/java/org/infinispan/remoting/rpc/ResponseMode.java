@@ -39,7 +39,13 @@ public enum ResponseMode {
    SYNCHRONOUS_IGNORE_LEAVERS,
    ASYNCHRONOUS,
    ASYNCHRONOUS_WITH_SYNC_MARSHALLING,
-   WAIT_FOR_VALID_RESPONSE;
+   WAIT_FOR_VALID_RESPONSE,
+   /**
+    * Waits for the responses like {@link #SYNCHRONOUS_IGNORE_LEAVERS}, but the command is sent as a regular rather
+    * than an out of band message, so every recipient handles the commands sent by a member in the order they were
+    * sent.
+    */
+   SYNCHRONOUS_ORDERED;
 
    public boolean isSynchronous() {
       return !isAsynchronous();
@@ -31,18 +31,21 @@
 import org.infinispan.configuration.cache.Configuration;
 import org.infinispan.configuration.cache.Configurations;
 import org.infinispan.configuration.global.GlobalConfiguration;
-import org.infinispan.factories.annotations.ComponentName;
 import org.infinispan.factories.annotations.Inject;
 import org.infinispan.factories.annotations.Start;
 import org.infinispan.jmx.annotations.MBean;
 import org.infinispan.jmx.annotations.ManagedAttribute;
 import org.infinispan.jmx.annotations.ManagedOperation;
+import org.infinispan.remoting.RecipientAwareReplicationQueue;
 import org.infinispan.remoting.ReplicationQueue;
 import org.infinispan.remoting.RpcException;
 import org.infinispan.remoting.responses.IgnoreExtraResponsesValidityFilter;
 import org.infinispan.remoting.responses.Response;
 import org.infinispan.remoting.transport.Address;
 import org.infinispan.remoting.transport.Transport;
+import org.infinispan.util.concurrent.FutureListener;
+import org.infinispan.util.concurrent.NoOpFuture;
+import org.infinispan.util.concurrent.NotifyingFuture;
 import org.infinispan.util.concurrent.NotifyingNotifiableFuture;
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
@@ -60,13 +63,11 @@
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
-import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
-import static org.infinispan.factories.KnownComponentNames.ASYNC_TRANSPORT_EXECUTOR;
-
 /**
  * This component really is just a wrapper around a {@link org.infinispan.remoting.transport.Transport} implementation,
  * and is used to set up the transport and provide lifecycle and dependency hooks into external transport
@@ -94,7 +95,6 @@ public class RpcManagerImpl implements RpcManager {
    private Configuration configuration;
    private GlobalConfiguration globalCfg;
    private ReplicationQueue replicationQueue;
-   private ExecutorService asyncExecutor;
    private CommandsFactory cf;
    private CacheViewsManager cvm;
    private String cacheName;
@@ -102,14 +102,12 @@ public class RpcManagerImpl implements RpcManager {
    @Inject
    public void injectDependencies(Transport t, Cache cache, Configuration cfg,
             ReplicationQueue replicationQueue, CommandsFactory cf,
-            @ComponentName(ASYNC_TRANSPORT_EXECUTOR) ExecutorService e,
             CacheViewsManager cvm, GlobalConfiguration globalCfg) {
       this.t = t;
       this.configuration = cfg;
       this.cacheName = cache.getName();
       this.globalCfg = globalCfg;
       this.replicationQueue = replicationQueue;
-      this.asyncExecutor = e;
       this.cf = cf;
       this.cvm = cvm;
    }
@@ -185,6 +183,59 @@ public final Map<Address, Response> invokeRemotely(Collection<Address> recipient
       }
    }
 
+   @Override
+   public final NotifyingFuture<Map<Address, Response>> invokeRemotelyAsync(Collection<Address> recipients, ReplicableCommand rpcCommand, ResponseMode mode, long timeout, boolean usePriorityQueue, ResponseFilter responseFilter) {
+      if (!configuration.clustering().cacheMode().isClustered())
+         throw new IllegalStateException("Trying to invoke a remote command but the cache is not clustered");
+
+      List<Address> clusterMembers = t.getMembers();
+      if (clusterMembers.size() < 2) {
+         log.tracef("We're the only member in the cluster; Don't invoke remotely.");
+         return new NoOpFuture<Map<Address, Response>>(Collections.<Address, Response>emptyMap());
+      }
+      // same as invokeRemotely(), don't wait for replies from non-members of the cache
+      if (recipients == null && mode.isSynchronous() && !globalCfg.transport().strictPeerToPeer()) {
+         List<Address> cacheMembers = cvm.getCommittedView(cacheName).getMembers();
+         if (cacheMembers.size() < 2) {
+            log.tracef("We're the only member of cache %s; Don't invoke remotely.", cacheName);
+            return new NoOpFuture<Map<Address, Response>>(Collections.<Address, Response>emptyMap());
+         }
+         if (responseFilter == null) {
+            responseFilter = new IgnoreExtraResponsesValidityFilter(cacheMembers, getAddress());
+         }
+      }
+
+      final long startTimeNanos = statisticsEnabled ? System.nanoTime() : 0;
+      NotifyingFuture<Map<Address, Response>> future;
+      try {
+         future = t.invokeRemotelyAsync(recipients, rpcCommand, mode, timeout, usePriorityQueue, responseFilter);
+      } catch (CacheException e) {
+         log.trace("replication exception: ", e);
+         if (statisticsEnabled) replicationFailures.incrementAndGet();
+         throw e;
+      } catch (Throwable th) {
+         log.unexpectedErrorReplicating(th);
+         if (statisticsEnabled) replicationFailures.incrementAndGet();
+         throw new CacheException(th);
+      }
+      if (statisticsEnabled) {
+         future.attachListener(new FutureListener<Map<Address, Response>>() {
+            @Override
+            public void futureDone(Future<Map<Address, Response>> f) {
+               try {
+                  f.get();
+                  replicationCount.incrementAndGet();
+               } catch (Exception e) {
+                  replicationFailures.incrementAndGet();
+               }
+               long timeTaken = TimeUnit.MILLISECONDS.convert(System.nanoTime() - startTimeNanos, TimeUnit.NANOSECONDS);
+               totalReplicationTime.getAndAdd(timeTaken);
+            }
+         });
+      }
+      return future;
+   }
+
    @Override
    public final Map<Address, Response> invokeRemotely(Collection<Address> recipients, ReplicableCommand rpcCommand, ResponseMode mode, long timeout, boolean usePriorityQueue) {
       return invokeRemotely(recipients, rpcCommand, mode, timeout, usePriorityQueue, null);
@@ -238,7 +289,11 @@ private Map<Address, Response> invokeRemotely(Collection<Address> recipients, Re
       if (trace) log.tracef("%s broadcasting call %s to recipient list %s", t.getAddress(), rpc, recipients);
 
       if (useReplicationQueue(sync)) {
-         replicationQueue.add(rpc);
+         if (recipients != null && replicationQueue instanceof RecipientAwareReplicationQueue) {
+            ((RecipientAwareReplicationQueue) replicationQueue).add(recipients, rpc);
+         } else {
+            replicationQueue.add(rpc);
+         }
          return null;
       } else {
          if (!(rpc instanceof CacheRpcCommand)) {
@@ -271,28 +326,37 @@ public void invokeRemotelyInFuture(final Collection<Address> recipients, final R
                                       final boolean usePriorityQueue, final NotifyingNotifiableFuture<Object> l,
                                       final long timeout, final boolean ignoreLeavers) {
       if (trace) log.tracef("%s invoking in future call %s to recipient list %s", t.getAddress(), rpc, recipients);
-      final ResponseMode responseMode = ignoreLeavers ? ResponseMode.SYNCHRONOUS_IGNORE_LEAVERS : ResponseMode.SYNCHRONOUS;
-      final CountDownLatch futureSet = new CountDownLatch(1);
-      Callable<Object> c = new Callable<Object>() {
-         @Override
-         public Object call() throws Exception {
-            Object result = null;
-            try {
-               result = invokeRemotely(recipients, rpc, true, usePriorityQueue, timeout, responseMode);
-            } finally {
-               try {
-                  futureSet.await();
-               } catch (InterruptedException e) {
-                  Thread.currentThread().interrupt();
-               } finally {
-                  l.notifyDone();
-               }
+      ResponseMode responseMode = ignoreLeavers ? ResponseMode.SYNCHRONOUS_IGNORE_LEAVERS : ResponseMode.SYNCHRONOUS;
+      ReplicableCommand command = rpc instanceof CacheRpcCommand ? rpc : cf.buildSingleRpcCommand(rpc);
+      NotifyingFuture<Map<Address, Response>> responses;
+      try {
+         responses = invokeRemotelyAsync(recipients, command, responseMode, timeout, usePriorityQueue, null);
+      } catch (final RuntimeException e) {
+         // report the failure through the future, like any other failure of the remote call
+         FutureTask<Object> failed = new FutureTask<Object>(new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+               throw e;
             }
-            return result;
+         });
+         failed.run();
+         l.setNetworkFuture(failed);
+         l.notifyDone();
+         return;
+      }
+      // the transport completes the future when the responses are in, no thread waits for them
+      l.setNetworkFuture(toObjectFuture(responses));
+      responses.attachListener(new FutureListener<Map<Address, Response>>() {
+         @Override
+         public void futureDone(Future<Map<Address, Response>> future) {
+            l.notifyDone();
          }
-      };
-      l.setNetworkFuture(asyncExecutor.submit(c));
-      futureSet.countDown();
+      });
+   }
+
+   @SuppressWarnings("unchecked")
+   private static Future<Object> toObjectFuture(Future<?> future) {
+      return (Future<Object>) future;
    }
 
    @Override
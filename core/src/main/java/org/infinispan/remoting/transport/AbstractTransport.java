@@ -23,15 +23,21 @@
 package org.infinispan.remoting.transport;
 
 import org.infinispan.CacheException;
+import org.infinispan.commands.ReplicableCommand;
 import org.infinispan.configuration.global.GlobalConfiguration;
 import org.infinispan.manager.NamedCacheNotFoundException;
 import org.infinispan.remoting.RpcException;
 import org.infinispan.remoting.responses.ExceptionResponse;
 import org.infinispan.remoting.responses.Response;
+import org.infinispan.remoting.rpc.ResponseFilter;
+import org.infinispan.remoting.rpc.ResponseMode;
 import org.infinispan.remoting.transport.jgroups.SuspectException;
+import org.infinispan.util.concurrent.NoOpFuture;
+import org.infinispan.util.concurrent.NotifyingFuture;
 import org.infinispan.util.concurrent.TimeoutException;
 import org.infinispan.util.logging.Log;
 
+import java.util.Collection;
 import java.util.Map;
 
 /**
@@ -49,6 +55,16 @@ public void setConfiguration(GlobalConfiguration globalConfiguration) {
       this.configuration = globalConfiguration;
    }
 
+   /**
+    * Transports that cannot be notified of the responses invoke the command synchronously and return a future that is
+    * already done.
+    */
+   @Override
+   public NotifyingFuture<Map<Address, Response>> invokeRemotelyAsync(Collection<Address> recipients, ReplicableCommand rpcCommand, ResponseMode mode, long timeout,
+                                                                      boolean usePriorityQueue, ResponseFilter responseFilter) throws Exception {
+      return new NoOpFuture<Map<Address, Response>>(invokeRemotely(recipients, rpcCommand, mode, timeout, usePriorityQueue, responseFilter));
+   }
+
    private boolean shouldThrowException(Exception ce) {
       if (!configuration.transport().strictPeerToPeer()) {
          if (ce instanceof NamedCacheNotFoundException) return false;
@@ -37,6 +37,7 @@
 import org.infinispan.remoting.responses.Response;
 import org.infinispan.remoting.rpc.ResponseFilter;
 import org.infinispan.remoting.rpc.ResponseMode;
+import org.infinispan.util.concurrent.NotifyingFuture;
 import org.infinispan.util.logging.Log;
 
 import java.util.Collection;
@@ -92,6 +93,27 @@ void initialize(@ComponentName(GLOBAL_MARSHALLER) StreamingMarshaller marshaller
    Map<Address, Response> invokeRemotely(Collection<Address> recipients, ReplicableCommand rpcCommand, ResponseMode mode, long timeout,
                                          boolean usePriorityQueue, ResponseFilter responseFilter) throws Exception;
 
+   /**
+    * The same as {@link #invokeRemotely(java.util.Collection, org.infinispan.commands.ReplicableCommand, ResponseMode,
+    * long, boolean, ResponseFilter)}, except that the call returns as soon as the command is sent.  The future is
+    * completed by the thread that receives the last response needed, so no thread is blocked while the call is
+    * outstanding.  The response filter, if any, is applied to the responses as they arrive.
+    *
+    * @param recipients       a list of Addresses to invoke the call on.  If this is null, the call is broadcast to the
+    *                         entire cluster.
+    * @param rpcCommand       the cache command to invoke
+    * @param mode             the response mode to use
+    * @param timeout          a timeout after which the future fails with a replication exception.
+    * @param usePriorityQueue if true, a priority queue is used to deliver messages.  May not be supported by all
+    *                         implementations.
+    * @param responseFilter   a response filter with which to filter out failed/unwanted/invalid responses.
+    * @return a future of the map of responses from each member contacted.
+    * @throws Exception if the command could not be sent.
+    * @since 5.2
+    */
+   NotifyingFuture<Map<Address, Response>> invokeRemotelyAsync(Collection<Address> recipients, ReplicableCommand rpcCommand, ResponseMode mode, long timeout,
+                                                               boolean usePriorityQueue, ResponseFilter responseFilter) throws Exception;
+
    /**
     * @return true if the current Channel is the coordinator of the cluster.
     */
@@ -0,0 +1,271 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.remoting.transport.jgroups;
+
+import net.jcip.annotations.GuardedBy;
+import org.infinispan.CacheException;
+import org.infinispan.remoting.responses.Response;
+import org.infinispan.remoting.rpc.ResponseFilter;
+import org.infinispan.remoting.transport.Address;
+import org.infinispan.util.concurrent.FutureListener;
+import org.infinispan.util.concurrent.NotifyingFuture;
+import org.infinispan.util.concurrent.TimeoutException;
+import org.infinispan.util.logging.Log;
+import org.infinispan.util.logging.LogFactory;
+import org.jgroups.SuspectedException;
+import org.jgroups.blocks.RspFilter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.infinispan.remoting.transport.jgroups.JGroupsTransport.fromJGroupsAddress;
+import static org.infinispan.util.Util.prettyPrintTime;
+
+/**
+ * Collects the responses of a command sent to several members with one JGroups future per member, and completes
+ * from the JGroups thread that delivers the last response needed.  No thread waits for the responses, so any number
+ * of remote calls can be outstanding at once.
+ * <p/>
+ * The {@link ResponseFilter}, if any, sees each response as it arrives and the collector completes as soon as the
+ * filter doesn't need more responses.  As with {@link CommandAwareRpcDispatcher.FutureCollator}, a failure from one of
+ * the members is skipped when a filter is used, in the hope that another member returns a valid response.  In
+ * {@link org.infinispan.remoting.rpc.ResponseMode#WAIT_FOR_VALID_RESPONSE} mode the collector fails with a
+ * {@link TimeoutException} if no member returned a valid response, as the synchronous invocation does.
+ *
+ * @since 5.2
+ */
+final class AsyncResponseCollector implements NotifyingFuture<Map<Address, Response>>, org.jgroups.util.FutureListener<Object> {
+
+   private static final Log log = LogFactory.getLog(AsyncResponseCollector.class);
+   private static final boolean trace = log.isTraceEnabled();
+
+   private final JGroupsTransport transport;
+   private final ResponseFilter filter;
+   private final RspFilter jgroupsFilter;
+   private final boolean ignoreLeavers;
+   private final boolean waitForValidResponse;
+   private final long timeout;
+   private final CountDownLatch completion = new CountDownLatch(1);
+
+   @GuardedBy("this")
+   private final Map<Future<Object>, org.jgroups.Address> pending = new HashMap<Future<Object>, org.jgroups.Address>(4);
+   @GuardedBy("this")
+   private final Map<Address, Response> responses = new HashMap<Address, Response>(4);
+   @GuardedBy("this")
+   private List<FutureListener<Map<Address, Response>>> listeners = new ArrayList<FutureListener<Map<Address, Response>>>(2);
+   @GuardedBy("this")
+   private int expectedResponses;
+   @GuardedBy("this")
+   private Exception skippedFailure;
+
+   private volatile boolean completed;
+   private volatile Map<Address, Response> result;
+   private volatile Throwable failure;
+   private volatile Future<?> timeoutTask;
+
+   AsyncResponseCollector(JGroupsTransport transport, ResponseFilter filter, boolean ignoreLeavers,
+                          boolean waitForValidResponse, int expectedResponses, long timeout) {
+      this.transport = transport;
+      this.filter = filter;
+      this.jgroupsFilter = filter == null ? null : new JGroupsResponseFilterAdapter(filter);
+      this.ignoreLeavers = ignoreLeavers;
+      this.waitForValidResponse = waitForValidResponse;
+      this.expectedResponses = expectedResponses;
+      this.timeout = timeout;
+   }
+
+   synchronized void watchFuture(org.jgroups.util.NotifyingFuture<Object> f, org.jgroups.Address address) {
+      pending.put(f, address);
+      f.setListener(this);
+   }
+
+   void setTimeoutTask(Future<?> timeoutTask) {
+      this.timeoutTask = timeoutTask;
+      // the last response may have arrived while the task was being scheduled
+      if (completed) timeoutTask.cancel(false);
+   }
+
+   void timedOut() {
+      String targets;
+      synchronized (this) {
+         if (completed) return;
+         targets = pending.values().toString();
+      }
+      complete(null, new TimeoutException(String.format("Timed out after %s waiting for a response from %s",
+                                                        prettyPrintTime(timeout), targets)));
+   }
+
+   void fail(Throwable t) {
+      complete(null, t);
+   }
+
+   @Override
+   public void futureDone(Future<Object> future) {
+      Map<Address, Response> value = null;
+      Throwable t = null;
+      synchronized (this) {
+         org.jgroups.Address jgroupsSender = pending.remove(future);
+         // JGroups may notify a listener twice, and responses that arrive once we're done are of no interest
+         if (completed || jgroupsSender == null) return;
+
+         expectedResponses--;
+         Address sender = fromJGroupsAddress(jgroupsSender);
+         try {
+            Object response = future.get();
+            if (trace) log.tracef("Received response: %s from %s", response, sender);
+            if (jgroupsFilter == null || jgroupsFilter.isAcceptable(response, jgroupsSender)) {
+               if (transport.checkResponse(response, sender)) responses.put(sender, (Response) response);
+            }
+            if (filter != null && !filter.needMoreResponses()) value = responses;
+         } catch (ExecutionException e) {
+            Exception cause = unwrap(e, sender);
+            if (cause == null) {
+               if (trace) log.tracef("Target node %s left during remote call, ignoring", sender);
+            } else if (filter != null) {
+               if (trace) log.tracef(cause, "Caught exception from sender %s.  Will skip this response.", sender);
+               skippedFailure = cause;
+            } else {
+               t = cause;
+            }
+         } catch (InterruptedException e) {
+            // cannot happen, the future is done
+            Thread.currentThread().interrupt();
+            t = e;
+         } catch (Exception e) {
+            t = e;
+         }
+
+         if (value == null && t == null && expectedResponses == 0) {
+            if (responses.isEmpty() && skippedFailure != null)
+               t = skippedFailure;
+            else if (responses.isEmpty() && waitForValidResponse)
+               t = new TimeoutException("Timed out waiting for valid responses!");
+            else
+               value = responses;
+         }
+      }
+      if (value != null || t != null) complete(value, t);
+   }
+
+   /**
+    * @return the exception to report for a failed remote call, or null if the failure should be ignored
+    */
+   private Exception unwrap(ExecutionException e, Address sender) {
+      Throwable cause = e.getCause();
+      if (cause instanceof SuspectedException) {
+         return ignoreLeavers ? null : new SuspectException("Suspected member: " + sender, sender, cause);
+      } else if (cause instanceof org.jgroups.TimeoutException) {
+         return new TimeoutException("Timed out waiting for a response from " + sender, cause);
+      } else if (cause instanceof Exception) {
+         return (Exception) cause;
+      } else {
+         return new CacheException("Caught a throwable", cause);
+      }
+   }
+
+   private void complete(Map<Address, Response> value, Throwable t) {
+      List<FutureListener<Map<Address, Response>>> toNotify;
+      List<Future<Object>> outstanding;
+      synchronized (this) {
+         if (completed) return;
+         result = value == null ? null : Collections.unmodifiableMap(value);
+         failure = t;
+         completed = true;
+         toNotify = listeners;
+         listeners = null;
+         outstanding = new ArrayList<Future<Object>>(pending.keySet());
+         pending.clear();
+      }
+      completion.countDown();
+
+      Future<?> task = timeoutTask;
+      if (task != null) task.cancel(false);
+      // stop waiting for the responses we don't need any more
+      for (Future<Object> f : outstanding) f.cancel(false);
+
+      for (FutureListener<Map<Address, Response>> l : toNotify) {
+         try {
+            l.futureDone(this);
+         } catch (Throwable th) {
+            log.debugf(th, "Future listener %s failed", l);
+         }
+      }
+   }
+
+   @Override
+   public NotifyingFuture<Map<Address, Response>> attachListener(FutureListener<Map<Address, Response>> listener) {
+      synchronized (this) {
+         if (!completed) {
+            listeners.add(listener);
+            return this;
+         }
+      }
+      listener.futureDone(this);
+      return this;
+   }
+
+   @Override
+   public boolean cancel(boolean mayInterruptIfRunning) {
+      if (completed) return false;
+      complete(null, new CancellationException());
+      return failure instanceof CancellationException;
+   }
+
+   @Override
+   public boolean isCancelled() {
+      return failure instanceof CancellationException;
+   }
+
+   @Override
+   public boolean isDone() {
+      return completed;
+   }
+
+   @Override
+   public Map<Address, Response> get() throws InterruptedException, ExecutionException {
+      completion.await();
+      return report();
+   }
+
+   @Override
+   public Map<Address, Response> get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, java.util.concurrent.TimeoutException {
+      if (!completion.await(timeout, unit))
+         throw new java.util.concurrent.TimeoutException();
+      return report();
+   }
+
+   private Map<Address, Response> report() throws ExecutionException {
+      Throwable t = failure;
+      if (t instanceof CancellationException) throw (CancellationException) t;
+      if (t != null) throw new ExecutionException(t);
+      return result;
+   }
+}
@@ -177,6 +177,27 @@ public Response call() throws Exception {
       }
    }
 
+   /**
+    * Sends the command to each of the recipients in parallel UNICASTs and returns without waiting for the responses,
+    * which are handed to the collector by the JGroups threads that receive them.
+    *
+    * @param recipients Guaranteed not to be null or empty.  Must <b>not</b> contain self.
+    */
+   void invokeRemoteCommandsAsync(List<Address> recipients, ReplicableCommand command, long timeout, boolean oob,
+                                  AsyncResponseCollector collector) throws Exception {
+      if (trace) log.tracef("Replication task sending %s to addresses %s without waiting for responses", command, recipients);
+
+      /// HACK ALERT!  Used for ISPN-1789.  Enable RSVP if the command is a state transfer control command or cache view control command.
+      boolean rsvp = command instanceof StateTransferControlCommand || command instanceof CacheViewControlCommand;
+
+      Buffer buf = marshallCall(req_marshaller, command);
+      RequestOptions opts = new RequestOptions(ResponseMode.GET_ALL, timeout);
+      for (Address dest : recipients) {
+         NotifyingFuture<Object> f = sendMessageWithFuture(constructMessage(buf, dest, oob, ResponseMode.GET_ALL, rsvp), opts);
+         collector.watchFuture(f, dest);
+      }
+   }
+
    public RspList<Object> broadcastRemoteCommands(ReplicableCommand command, ResponseMode mode, long timeout,
                                                   boolean anycasting, boolean oob, RspFilter filter,
                                                   boolean asyncMarshalling) throws InterruptedException {
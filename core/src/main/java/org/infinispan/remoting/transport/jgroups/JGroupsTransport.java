@@ -43,6 +43,8 @@
 import org.infinispan.util.TypedProperties;
 import org.infinispan.util.Util;
 import org.infinispan.util.concurrent.ConcurrentMapFactory;
+import org.infinispan.util.concurrent.NoOpFuture;
+import org.infinispan.util.concurrent.NotifyingFuture;
 import org.infinispan.util.concurrent.TimeoutException;
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
@@ -57,6 +59,7 @@
 import org.jgroups.stack.AddressGenerator;
 import org.jgroups.util.Rsp;
 import org.jgroups.util.RspList;
+import org.jgroups.util.TimeScheduler;
 import org.jgroups.util.TopologyUUID;
 
 import javax.management.MBeanServer;
@@ -74,6 +77,7 @@
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import static org.infinispan.factories.KnownComponentNames.GLOBAL_MARSHALLER;
 
@@ -452,7 +456,8 @@ public Map<Address, Response> invokeRemotely(Collection<Address> recipients, Rep
       if (trace)
          log.tracef("dests=%s, command=%s, mode=%s, timeout=%s", recipients, rpcCommand, mode, timeout);
       Address self = getAddress();
-      boolean ignoreLeavers = mode == ResponseMode.SYNCHRONOUS_IGNORE_LEAVERS || mode == ResponseMode.WAIT_FOR_VALID_RESPONSE;
+      boolean ignoreLeavers = mode == ResponseMode.SYNCHRONOUS_IGNORE_LEAVERS || mode == ResponseMode.WAIT_FOR_VALID_RESPONSE
+            || mode == ResponseMode.SYNCHRONOUS_ORDERED;
       if (mode.isSynchronous() && recipients != null && !getMembers().containsAll(recipients)) {
          if (ignoreLeavers) { // SYNCHRONOUS_IGNORE_LEAVERS || WAIT_FOR_VALID_RESPONSE
             recipients = new HashSet<Address>(recipients);
@@ -528,6 +533,59 @@ usePriorityQueue, toJGroupsFilter(responseFilter),
       return responses;
    }
 
+   @Override
+   public NotifyingFuture<Map<Address, Response>> invokeRemotelyAsync(Collection<Address> recipients, ReplicableCommand rpcCommand, ResponseMode mode, long timeout, boolean usePriorityQueue, ResponseFilter responseFilter)
+         throws Exception {
+      if (!mode.isSynchronous()) {
+         // nobody waits for the responses of an async call anyway
+         return new NoOpFuture<Map<Address, Response>>(invokeRemotely(recipients, rpcCommand, mode, timeout, usePriorityQueue, responseFilter));
+      }
+
+      if (trace)
+         log.tracef("dests=%s, command=%s, mode=%s, timeout=%s, not waiting for responses", recipients, rpcCommand, mode, timeout);
+      boolean ignoreLeavers = mode == ResponseMode.SYNCHRONOUS_IGNORE_LEAVERS || mode == ResponseMode.WAIT_FOR_VALID_RESPONSE
+            || mode == ResponseMode.SYNCHRONOUS_ORDERED;
+      if (recipients != null && !getMembers().containsAll(recipients)) {
+         if (ignoreLeavers) {
+            recipients = new HashSet<Address>(recipients);
+            recipients.retainAll(getMembers());
+         } else {
+            throw new SuspectException("One or more nodes have left the cluster while replicating command " + rpcCommand);
+         }
+      }
+      if (!usePriorityQueue && mode != ResponseMode.WAIT_FOR_VALID_RESPONSE && mode != ResponseMode.SYNCHRONOUS_ORDERED)
+         usePriorityQueue = true;
+
+      List<org.jgroups.Address> jgAddressList = toJGroupsAddressListExcludingSelf(recipients == null ? members : recipients);
+      if (jgAddressList.isEmpty()) {
+         log.trace("Destination list is empty: no need to send message");
+         return new NoOpFuture<Map<Address, Response>>(Collections.<Address, Response>emptyMap());
+      }
+
+      final AsyncResponseCollector collector = new AsyncResponseCollector(this, responseFilter, ignoreLeavers,
+            mode == ResponseMode.WAIT_FOR_VALID_RESPONSE, jgAddressList.size(), timeout);
+      try {
+         dispatcher.invokeRemoteCommandsAsync(jgAddressList, rpcCommand, timeout, usePriorityQueue, collector);
+      } catch (Exception e) {
+         collector.fail(e);
+         throw e;
+      }
+      collector.setTimeoutTask(getTimer().schedule(new Runnable() {
+         @Override
+         public void run() {
+            collector.timedOut();
+         }
+      }, timeout, TimeUnit.MILLISECONDS));
+      return collector;
+   }
+
+   /**
+    * JGroups' own timer, which already fires the timeouts of the synchronous calls.
+    */
+   private TimeScheduler getTimer() {
+      return channel.getProtocolStack().getTransport().getTimer();
+   }
+
    private static org.jgroups.blocks.ResponseMode toJGroupsMode(ResponseMode mode) {
       switch (mode) {
          case ASYNCHRONOUS:
@@ -535,6 +593,7 @@ private static org.jgroups.blocks.ResponseMode toJGroupsMode(ResponseMode mode)
             return org.jgroups.blocks.ResponseMode.GET_NONE;
          case SYNCHRONOUS:
          case SYNCHRONOUS_IGNORE_LEAVERS:
+         case SYNCHRONOUS_ORDERED:
             return org.jgroups.blocks.ResponseMode.GET_ALL;
          case WAIT_FOR_VALID_RESPONSE:
             return org.jgroups.blocks.ResponseMode.GET_FIRST;
@@ -34,32 +34,47 @@
 import org.infinispan.context.InvocationContext;
 import org.infinispan.context.InvocationContextContainer;
 import org.infinispan.distribution.ch.ConsistentHash;
+import org.infinispan.factories.annotations.ComponentName;
 import org.infinispan.factories.annotations.Inject;
 import org.infinispan.factories.annotations.Start;
 import org.infinispan.factories.annotations.Stop;
 import org.infinispan.interceptors.InterceptorChain;
+import org.infinispan.jmx.annotations.ManagedAttribute;
 import org.infinispan.loaders.CacheLoaderManager;
 import org.infinispan.loaders.CacheStore;
+import org.infinispan.marshall.StreamingMarshaller;
 import org.infinispan.notifications.cachelistener.CacheNotifier;
 import org.infinispan.remoting.rpc.RpcManager;
 import org.infinispan.remoting.transport.Address;
 import org.infinispan.transaction.LockingMode;
 import org.infinispan.transaction.RemoteTransaction;
 import org.infinispan.transaction.TransactionTable;
+import org.infinispan.util.concurrent.NotifyingFutureImpl;
 import org.infinispan.util.concurrent.NotifyingNotifiableFuture;
 import org.infinispan.util.concurrent.ReclosableLatch;
 import org.infinispan.util.concurrent.locks.containers.LockContainer;
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
+import org.rhq.helpers.pluginAnnotations.agent.DataType;
+import org.rhq.helpers.pluginAnnotations.agent.Metric;
 
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.infinispan.context.Flag.*;
+import static org.infinispan.factories.KnownComponentNames.CACHE_MARSHALLER;
 
 /**
  * State transfer manager.
@@ -97,6 +112,13 @@ public abstract class BaseStateTransferManagerImpl implements StateTransferManag
    private String cacheName;
    private GlobalConfiguration globalCfg;
    protected boolean withTopology;
+   private StreamingMarshaller marshaller;
+   // limits the number of state chunks pushed but not yet applied by their targets, null if unlimited
+   private Semaphore chunkPermits;
+   private final AtomicInteger chunksInFlight = new AtomicInteger();
+   // entries and (estimated) bytes pushed to each target during the current or last state transfer
+   private final ConcurrentMap<Address, AtomicLong> pushedEntries = new ConcurrentHashMap<Address, AtomicLong>();
+   private final ConcurrentMap<Address, AtomicLong> pushedBytes = new ConcurrentHashMap<Address, AtomicLong>();
 
    public BaseStateTransferManagerImpl() {
    }
@@ -106,7 +128,7 @@ public void init(Configuration configuration, RpcManager rpcManager, CommandsFac
                     DataContainer dataContainer, InterceptorChain interceptorChain, InvocationContextContainer icc,
                     CacheLoaderManager cacheLoaderManager, CacheNotifier cacheNotifier, StateTransferLock stateTransferLock,
                     CacheViewsManager cacheViewsManager, TransactionTable transactionTable, LockContainer<?> lockContainer, Cache cache,
-                    GlobalConfiguration globalCfg) {
+                    GlobalConfiguration globalCfg, @ComponentName(CACHE_MARSHALLER) StreamingMarshaller marshaller) {
       this.cacheLoaderManager = cacheLoaderManager;
       this.configuration = configuration;
       this.rpcManager = rpcManager;
@@ -121,6 +143,7 @@ public void init(Configuration configuration, RpcManager rpcManager, CommandsFac
       this.lockContainer = lockContainer;
       this.cacheName = cache.getName();
       this.globalCfg = globalCfg;
+      this.marshaller = marshaller;
    }
 
    // needs to be AFTER the DistributionManager and *after* the cache loader manager (if any) inits and preloads
@@ -150,6 +173,9 @@ public PutKeyValueCommand buildPut(InvocationContext ctx, CacheEntry e) {
 
       this.withTopology = globalCfg.transport().hasTopologyInfo();
 
+      int maxInFlightChunks = configuration.clustering().stateTransfer().maxInFlightChunks();
+      chunkPermits = maxInFlightChunks > 0 ? new Semaphore(maxInFlightChunks) : null;
+
       if (trace) log.tracef("Starting state transfer manager on " + getAddress());
 
       // set up the old CH, but it shouldn't be used until we get the prepare call
@@ -301,6 +327,19 @@ public boolean startStateTransfer(int viewId, Collection<Address> members, boole
 
    public abstract CacheStore getCacheStoreForStateTransfer();
 
+   /**
+    * Waits for a chunk to be allowed in flight, if {@code maxInFlightChunks} is set. Every successful call must be
+    * followed by a {@link #pushStateToNode} call, which gives the permit back once the chunk has been applied.
+    *
+    * @return <code>false</code> if the chunk is still not allowed after waiting for <code>timeoutMillis</code>
+    */
+   public boolean tryAcquireChunkPermit(long timeoutMillis) throws InterruptedException {
+      return chunkPermits == null || chunkPermits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS);
+   }
+
+   /**
+    * Pushes a chunk of state or locks to the targets.  May be called concurrently by several state transfer threads.
+    */
    public void pushStateToNode(NotifyingNotifiableFuture<Object> stateTransferFuture, int viewId, Collection<Address> targets,
                                Collection<InternalCacheEntry> state, Collection<LockInfo> lockInfo) throws StateTransferCancelledException {
       StateTransferControlCommand.Type type;
@@ -317,7 +356,100 @@ public void pushStateToNode(NotifyingNotifiableFuture<Object> stateTransferFutur
 
       final StateTransferControlCommand cmd = cf.buildStateTransferCommand(type, getAddress(), viewId, state, lockInfo);
 
-      rpcManager.invokeRemotelyInFuture(targets, cmd, false, stateTransferFuture, getTimeout());
+      chunksInFlight.incrementAndGet();
+      StateChunkFuture chunkFuture = new StateChunkFuture(stateTransferFuture, cmd, targets, state == null ? 0 : state.size());
+      rpcManager.invokeRemotelyInFuture(targets, cmd, false, chunkFuture, getTimeout());
+   }
+
+   private void statePushed(Collection<Address> targets, int entries, long bytes) {
+      for (Address target : targets) {
+         increment(pushedEntries, target, entries);
+         increment(pushedBytes, target, bytes);
+      }
+   }
+
+   private static void increment(ConcurrentMap<Address, AtomicLong> counters, Address target, long delta) {
+      AtomicLong counter = counters.get(target);
+      if (counter == null) {
+         counter = new AtomicLong();
+         AtomicLong existing = counters.putIfAbsent(target, counter);
+         if (existing != null) counter = existing;
+      }
+      counter.addAndGet(delta);
+   }
+
+   private static String countersAsString(Map<Address, AtomicLong> counters) {
+      Map<String, Long> sorted = new TreeMap<String, Long>();
+      for (Map.Entry<Address, AtomicLong> e : counters.entrySet()) {
+         sorted.put(String.valueOf(e.getKey()), e.getValue().get());
+      }
+      return sorted.toString();
+   }
+
+   @ManagedAttribute(description = "Number of entries pushed to each node during the current or last state transfer")
+   @Metric(displayName = "Entries pushed to each node", dataType = DataType.TRAIT)
+   public String getPushedEntries() {
+      return countersAsString(pushedEntries);
+   }
+
+   @ManagedAttribute(description = "Estimated number of bytes pushed to each node during the current or last state transfer")
+   @Metric(displayName = "Estimated bytes pushed to each node", dataType = DataType.TRAIT)
+   public String getPushedBytes() {
+      return countersAsString(pushedBytes);
+   }
+
+   @ManagedAttribute(description = "Number of state chunks pushed by this node and not yet applied by their targets")
+   @Metric(displayName = "State chunks in flight")
+   public int getChunksInFlight() {
+      return chunksInFlight.get();
+   }
+
+   /**
+    * Adds the network future of a chunk to the future of the whole state transfer, and gives back its in-flight permit
+    * and records the pushed state once the targets have applied it.
+    */
+   private class StateChunkFuture extends NotifyingFutureImpl {
+      private final NotifyingNotifiableFuture<Object> stateTransferFuture;
+      private final StateTransferControlCommand cmd;
+      private final Collection<Address> targets;
+      private final int entries;
+      private volatile Future<Object> networkFuture;
+
+      StateChunkFuture(NotifyingNotifiableFuture<Object> stateTransferFuture, StateTransferControlCommand cmd,
+                       Collection<Address> targets, int entries) {
+         super(null);
+         this.stateTransferFuture = stateTransferFuture;
+         this.cmd = cmd;
+         this.targets = targets;
+         this.entries = entries;
+      }
+
+      @Override
+      public void setNetworkFuture(Future<Object> future) {
+         networkFuture = future;
+         super.setNetworkFuture(future);
+         synchronized (stateTransferFuture) {
+            stateTransferFuture.setNetworkFuture(future);
+         }
+      }
+
+      @Override
+      public void notifyDone() {
+         try {
+            networkFuture.get();
+            if (entries > 0) {
+               // the command has been marshalled by now, so the predictor has seen its size
+               statePushed(targets, entries, marshaller.getBufferSizePredictor(cmd).nextSize(cmd));
+            }
+         } catch (Exception e) {
+            // the failure is reported by the state transfer future
+            if (trace) log.tracef(e, "Failed pushing state to %s", targets);
+         } finally {
+            chunksInFlight.decrementAndGet();
+            if (chunkPermits != null) chunkPermits.release();
+         }
+         super.notifyDone();
+      }
    }
 
    public boolean isLastViewId(int viewId) {
@@ -336,6 +468,8 @@ public void prepareView(CacheView pendingView, CacheView committedView) throws E
       }
       newView = pendingView;
       chNew = createConsistentHash(pendingView.getMembers());
+      pushedEntries.clear();
+      pushedBytes.clear();
 
       stateTransferTask = createStateTransferTask(pendingView.getViewId(), pendingView.getMembers(), chOld == null);
       stateTransferTask.performStateTransfer();
@@ -23,6 +23,9 @@
 import org.infinispan.container.DataContainer;
 import org.infinispan.container.entries.InternalCacheEntry;
 import org.infinispan.distribution.ch.ConsistentHash;
+import org.infinispan.loaders.CacheStore;
+import org.infinispan.loaders.EntryVisitor;
+import org.infinispan.loaders.KeyFilter;
 import org.infinispan.notifications.cachelistener.CacheNotifier;
 import org.infinispan.remoting.rpc.RpcManager;
 import org.infinispan.remoting.transport.Address;
@@ -42,6 +45,8 @@
  */
 public abstract class BaseStateTransferTask {
    private static final Log log = LogFactory.getLog(BaseStateTransferTask.class);
+   // how often to check for cancellation while waiting for a chunk to be allowed in flight
+   private static final long CHUNK_PERMIT_WAIT_MILLIS = 100;
 
    protected final Configuration configuration;
    protected final BaseStateTransferManagerImpl stateTransferManager;
@@ -141,11 +146,36 @@ protected void finishPushingState() throws InterruptedException, ExecutionExcept
       log.debugf("Node finished pushing data for cache views %d.", newViewId);
    }
 
-   protected void pushPartialState(Collection<Address> targets, Collection<InternalCacheEntry> state, Collection<LockInfo> lockInfo) throws StateTransferCancelledException {
+   /**
+    * Pushes a chunk of state to the targets, waiting first for the number of chunks in flight to drop below {@code
+    * maxInFlightChunks}.  May be called concurrently by several threads.
+    */
+   protected void pushPartialState(Collection<Address> targets, Collection<InternalCacheEntry> state, Collection<LockInfo> lockInfo) throws StateTransferCancelledException, InterruptedException {
       checkIfCancelled();
+      while (!stateTransferManager.tryAcquireChunkPermit(CHUNK_PERMIT_WAIT_MILLIS)) {
+         checkIfCancelled();
+      }
       stateTransferManager.pushStateToNode(statePushFuture, newViewId, targets, state, lockInfo);
    }
 
+   /**
+    * Streams the stored entries that are not in the data container and are accepted by <code>filter</code> through
+    * <code>visitor</code>, so that values are only loaded for the keys that need them.  A failure of the visitor stops
+    * the iteration and is rethrown here.
+    */
+   protected void visitStoredEntries(CacheStore cacheStore, final KeyFilter filter, boolean fetchValues,
+                                     StoredEntryVisitor visitor) throws Exception {
+      KeyFilter storedOnly = new KeyFilter() {
+         @Override
+         public boolean accept(Object key) {
+            // the entries in the data container are handled separately
+            return !dataContainer.containsKey(key) && filter.accept(key);
+         }
+      };
+      cacheStore.visitEntries(storedOnly, fetchValues, visitor);
+      if (visitor.failure != null) throw visitor.failure;
+   }
+
    protected void checkIfCancelled() throws StateTransferCancelledException {
       synchronized (lock) {
          if (cancelled)
@@ -153,4 +183,25 @@ protected void checkIfCancelled() throws StateTransferCancelledException {
       }
    }
 
+   /**
+    * Handles the entries streamed by {@link BaseStateTransferTask#visitStoredEntries}, checking for cancellation
+    * before each one.
+    */
+   protected abstract class StoredEntryVisitor implements EntryVisitor {
+      private Exception failure;
+
+      @Override
+      public final boolean visit(Object key, InternalCacheEntry entry) {
+         try {
+            checkIfCancelled();
+            visitStoredEntry(key, entry);
+            return true;
+         } catch (Exception e) {
+            failure = e;
+            return false;
+         }
+      }
+
+      protected abstract void visitStoredEntry(Object key, InternalCacheEntry entry) throws Exception;
+   }
 }
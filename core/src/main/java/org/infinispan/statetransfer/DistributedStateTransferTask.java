@@ -24,15 +24,15 @@
 import org.infinispan.container.entries.InternalCacheEntry;
 import org.infinispan.distribution.DistributionManager;
 import org.infinispan.distribution.ch.ConsistentHash;
-import org.infinispan.loaders.CacheLoaderException;
 import org.infinispan.loaders.CacheStore;
+import org.infinispan.loaders.KeyFilter;
 import org.infinispan.notifications.cachelistener.CacheNotifier;
 import org.infinispan.remoting.rpc.RpcManager;
 import org.infinispan.remoting.transport.Address;
 import org.infinispan.transaction.TransactionTable;
 import org.infinispan.transaction.xa.CacheTransaction;
+import org.infinispan.util.ByRef;
 import org.infinispan.util.Immutables;
-import org.infinispan.util.ReadOnlyDataContainerBackedKeySet;
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
 
@@ -42,6 +42,14 @@
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Task which handles view changes (joins, merges or leaves) and rebalances keys using a push based approach.
@@ -66,6 +74,8 @@
  */
 public class DistributedStateTransferTask extends BaseStateTransferTask {
    private static final Log log = LogFactory.getLog(DistributedStateTransferTask.class);
+   // number of entries or stored keys handed to a state transfer thread at a time
+   private static final int REBALANCE_BATCH_SIZE = 1000;
 
    private final DistributionManager dm;
    private final DistributedStateTransferManagerImpl stateTransferManager;
@@ -100,45 +110,51 @@ public void doPerformStateTransfer() throws Exception {
                newViewId, self, dataContainer.size());
       newCacheSet = Collections.emptySet();
       oldCacheSet = Collections.emptySet();
-      keysToRemove = new ArrayList<Object>();
+      keysToRemove = Collections.synchronizedList(new ArrayList<Object>());
 
       // Don't need to log anything, all transactions will be blocked
       //distributionManager.getTransactionLogger().enable();
       stateTransferLock.blockNewTransactions(newViewId);
 
       if (trace) log.tracef("Rebalancing: chOld = %s, chNew = %s", chOld, chNew);
-      int numOwners = configuration.clustering().hash().numOwners();
+      final int numOwners = configuration.clustering().hash().numOwners();
 
       if (configuration.clustering().stateTransfer().fetchInMemoryState() && !initialView) {
 
          // notify listeners that a rehash is about to start
          cacheNotifier.notifyDataRehashed(oldCacheSet, newCacheSet, newViewId, true);
 
-         // Contains the state to be pushed to various servers. The state is a hashmap of servers to entry collections
-         final Map<Address, Collection<InternalCacheEntry>> states = new HashMap<Address, Collection<InternalCacheEntry>>();
+         // Contains the state to be pushed to various servers, each chunk is pushed as soon as it is full
+         final StateChunks states = new StateChunks();
 
-         for (InternalCacheEntry ice : dataContainer) {
-            rebalance(ice.getKey(), ice, numOwners, chOld, chNew, null, states, keysToRemove);
-         }
-
-         checkIfCancelled();
+         int numThreads = configuration.clustering().stateTransfer().threadPoolSize();
+         if (numThreads > 1) {
+            rebalanceInParallel(numThreads, numOwners, states);
+         } else {
+            for (InternalCacheEntry ice : dataContainer) {
+               rebalance(ice, numOwners, states);
+            }
 
-         // Only fetch the data from the cache store if the cache store is not shared
-         CacheStore cacheStore = stateTransferManager.getCacheStoreForStateTransfer();
-         if (cacheStore != null) {
-            for (Object key : cacheStore.loadAllKeys(new ReadOnlyDataContainerBackedKeySet(dataContainer))) {
-               rebalance(key, null, numOwners, chOld, chNew, cacheStore, states, keysToRemove);
+            checkIfCancelled();
+
+            // Only fetch the data from the cache store if the cache store is not shared
+            CacheStore cacheStore = stateTransferManager.getCacheStoreForStateTransfer();
+            if (cacheStore != null) {
+               visitStoredEntries(cacheStore, new StoredKeyFilter(numOwners), true, new StoredEntryVisitor() {
+                  @Override
+                  protected void visitStoredEntry(Object key, InternalCacheEntry entry) throws Exception {
+                     pushEntry(entry, numOwners, states);
+                  }
+               });
+            } else {
+               if (trace) log.trace("No cache store or cache store is shared, not rebalancing stored keys");
             }
-         } else {
-            if (trace) log.trace("No cache store or cache store is shared, not rebalancing stored keys");
          }
 
          checkIfCancelled();
 
          // Push any remaining state chunks
-         for (Map.Entry<Address, Collection<InternalCacheEntry>> entry : states.entrySet()) {
-            pushPartialState(Collections.singleton(entry.getKey()), entry.getValue(), null);
-         }
+         states.pushRemaining();
          
          // Push locks if the cache is transactional and it is distributed
          if (transactionTable != null) {
@@ -158,11 +174,18 @@ public void doPerformStateTransfer() throws Exception {
          CacheStore cacheStore = stateTransferManager.getCacheStoreForStateTransfer();
          if (cacheStore != null) {
             if (trace) log.trace("Non-shared cache store, cleaning up persisted entries that we don't own after we joined the cache");
-            for (Object key : cacheStore.loadAllKeys(new ReadOnlyDataContainerBackedKeySet(dataContainer))) {
-               if (!chNew.isKeyLocalToAddress(self, key, numOwners)) {
+            KeyFilter notOwned = new KeyFilter() {
+               @Override
+               public boolean accept(Object key) {
+                  return !chNew.isKeyLocalToAddress(self, key, numOwners);
+               }
+            };
+            visitStoredEntries(cacheStore, notOwned, false, new StoredEntryVisitor() {
+               @Override
+               protected void visitStoredEntry(Object key, InternalCacheEntry entry) {
                   keysToRemove.add(key);
                }
-            }
+            });
          }
 
          checkIfCancelled();
@@ -180,7 +203,77 @@ public void doPerformStateTransfer() throws Exception {
       }
    }
 
-   private void rebalanceLocks(int numOwners, Map<Address, Collection<LockInfo>> locksToMigrate, Collection<? extends CacheTransaction> tx) throws StateTransferCancelledException {
+   /**
+    * Splits the in-memory entries and the stored entries into batches and rebalances them on a pool of
+    * <code>numThreads</code> threads.  The submitting thread takes over a batch when all the threads are busy and
+    * their queue is full, so that only a bounded number of batches is waiting at any time.
+    */
+   private void rebalanceInParallel(int numThreads, final int numOwners, final StateChunks states) throws Exception {
+      ThreadFactory tf = new ThreadFactory() {
+         private final AtomicInteger count = new AtomicInteger(0);
+
+         @Override
+         public Thread newThread(Runnable r) {
+            Thread th = new Thread(r, "StateTransferWorker-" + count.incrementAndGet() + "," + self);
+            th.setDaemon(true);
+            return th;
+         }
+      };
+      final ThreadPoolExecutor executor = new ThreadPoolExecutor(numThreads, numThreads, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<Runnable>(numThreads), tf, new ThreadPoolExecutor.CallerRunsPolicy());
+      final List<Future<Void>> batches = new ArrayList<Future<Void>>();
+      try {
+         List<InternalCacheEntry> batch = new ArrayList<InternalCacheEntry>(REBALANCE_BATCH_SIZE);
+         for (InternalCacheEntry ice : dataContainer) {
+            batch.add(ice);
+            if (batch.size() == REBALANCE_BATCH_SIZE) {
+               batches.add(executor.submit(new RebalanceBatch(batch, numOwners, false, states)));
+               batch = new ArrayList<InternalCacheEntry>(REBALANCE_BATCH_SIZE);
+               checkIfCancelled();
+            }
+         }
+         if (!batch.isEmpty()) {
+            batches.add(executor.submit(new RebalanceBatch(batch, numOwners, false, states)));
+         }
+
+         // Only fetch the data from the cache store if the cache store is not shared
+         // The store is read on this thread, only pushing the loaded entries is done in parallel
+         CacheStore cacheStore = stateTransferManager.getCacheStoreForStateTransfer();
+         if (cacheStore != null) {
+            final ByRef<List<InternalCacheEntry>> storedBatch = new ByRef<List<InternalCacheEntry>>(
+                  new ArrayList<InternalCacheEntry>(REBALANCE_BATCH_SIZE));
+            visitStoredEntries(cacheStore, new StoredKeyFilter(numOwners), true, new StoredEntryVisitor() {
+               @Override
+               protected void visitStoredEntry(Object key, InternalCacheEntry entry) {
+                  storedBatch.get().add(entry);
+                  if (storedBatch.get().size() == REBALANCE_BATCH_SIZE) {
+                     batches.add(executor.submit(new RebalanceBatch(storedBatch.get(), numOwners, true, states)));
+                     storedBatch.set(new ArrayList<InternalCacheEntry>(REBALANCE_BATCH_SIZE));
+                  }
+               }
+            });
+            if (!storedBatch.get().isEmpty()) {
+               batches.add(executor.submit(new RebalanceBatch(storedBatch.get(), numOwners, true, states)));
+            }
+         } else {
+            if (trace) log.trace("No cache store or cache store is shared, not rebalancing stored keys");
+         }
+
+         for (Future<Void> f : batches) {
+            try {
+               f.get();
+            } catch (ExecutionException e) {
+               Throwable cause = e.getCause();
+               if (cause instanceof Exception) throw (Exception) cause;
+               throw e;
+            }
+         }
+      } finally {
+         executor.shutdownNow();
+      }
+   }
+
+   private void rebalanceLocks(int numOwners, Map<Address, Collection<LockInfo>> locksToMigrate, Collection<? extends CacheTransaction> tx) throws StateTransferCancelledException, InterruptedException {
       for (CacheTransaction cacheTx : tx) {
          for (Object key : cacheTx.getLockedKeys()) {
             Address oldLockOwner = self;
@@ -221,28 +314,35 @@ public void commitStateTransfer() {
 
 
    /**
-    * Computes the list of old and new servers for a given key K and value V. Adds (K, V) to the <code>states</code> map
-    * if K should be pushed to other servers. Adds K to the <code>keysToRemove</code> list if this node is no longer an
-    * owner for K.
+    * Computes the list of old and new servers for a given key K and value V, and adds (K, V) to the <code>states</code>
+    * map if K should be pushed to other servers.
+    *
+    * @param ice          The entry
+    * @param numOwners    The number of owners (grabbed from the configuration)
+    * @param states       The entries to be pushed to each server
+    */
+   private void rebalance(InternalCacheEntry ice, int numOwners, StateChunks states) throws StateTransferCancelledException, InterruptedException {
+      if (rebalanceKey(ice.getKey(), numOwners)) {
+         pushEntry(ice, numOwners, states);
+      }
+   }
+
+   /**
+    * Computes the list of old and new servers for a given key K. Adds K to the <code>keysToRemove</code> list if this
+    * node is no longer an owner for K.
     *
     * @param key          The key
-    * @param value        The value; <code>null</code> if the value is not in the data container
     * @param numOwners    The number of owners (grabbed from the configuration)
-    * @param chOld        The old (current) consistent hash
-    * @param chNew        The new consistent hash
-    * @param cacheStore   If the value is <code>null</code>, try to load it from this cache store
-    * @param states       The result hashmap. Keys are servers, values are states (hashmaps) to be pushed to them
-    * @param keysToRemove A list that the keys that we need to remove will be added to
+    * @return <code>true</code> if this node has to push K to its new owners
     */
-   private void rebalance(Object key, InternalCacheEntry value, int numOwners, ConsistentHash chOld, ConsistentHash chNew,
-                            CacheStore cacheStore, Map<Address, Collection<InternalCacheEntry>> states, List<Object> keysToRemove) throws StateTransferCancelledException {
+   private boolean rebalanceKey(Object key, int numOwners) {
       // 1. Get the old and new servers for key K
       List<Address> oldOwners = chOld.locate(key, numOwners);
       List<Address> newOwners = chNew.locate(key, numOwners);
 
       // 2. If the target set for K hasn't changed --> no-op
       if (oldOwners.equals(newOwners))
-         return;
+         return false;
 
       // 3. The pushing server is the last node in the old owner list that's also in the new CH
       // It will only be null if all the old owners left the cluster
@@ -258,38 +358,106 @@ private void rebalance(Object key, InternalCacheEntry value, int numOwners, Cons
       if (trace) log.tracef("Rebalancing key %s from %s to %s, pushing owner is %s",
             key, oldOwners, newOwners, pushingOwner);
 
-      // 4. Push K to all the new servers which are *not* in the old servers list
-      if (self.equals(pushingOwner)) {
-         if (value == null) {
-            try {
-               value = cacheStore.load(key);
-            } catch (CacheLoaderException e) {
-               log.failedLoadingValueFromCacheStore(key);
-            }
+      // 4. Remove K if it should not be stored here any longer; rebalancing moved K to a different server
+      if (!newOwners.contains(self)) {
+         keysToRemove.add(key);
+      }
+
+      return self.equals(pushingOwner);
+   }
+
+   /**
+    * Adds the entry to the <code>states</code> map for all the new owners which are *not* in the old owners list.
+    */
+   private void pushEntry(InternalCacheEntry ice, int numOwners, StateChunks states) throws StateTransferCancelledException, InterruptedException {
+      List<Address> oldOwners = chOld.locate(ice.getKey(), numOwners);
+      for (Address server : chNew.locate(ice.getKey(), numOwners)) {
+         if (!oldOwners.contains(server)) { // server doesn't have K
+            states.add(server, ice);
          }
+      }
+   }
 
-         for (Address server : newOwners) {
-            if (!oldOwners.contains(server)) { // server doesn't have K
-               Collection<InternalCacheEntry> stateForANode = states.get(server);
-               if (stateForANode == null) {
-                  stateForANode = new ArrayList<InternalCacheEntry>();
-                  states.put(server, stateForANode);
-               }
-               if (value != null)
-                  stateForANode.add(value);
+   /**
+    * Accepts the stored keys that this node has to push, so that only their values are loaded.  Rebalancing a stored
+    * key is done here, as a side effect, because the keys that must be removed are not loaded.
+    */
+   private class StoredKeyFilter implements KeyFilter {
+      private final int numOwners;
 
-               // if we have a full chunk, start pushing it to the new owner
-               if (stateForANode.size() >= stateTransferChunkSize) {
-                  pushPartialState(Collections.singleton(server), stateForANode, null);
-                  states.remove(server);
-               }
+      StoredKeyFilter(int numOwners) {
+         this.numOwners = numOwners;
+      }
+
+      @Override
+      public boolean accept(Object key) {
+         return rebalanceKey(key, numOwners);
+      }
+   }
+
+   /**
+    * The entries to be pushed to each server.  A server's chunk is pushed as soon as it is full, so at most
+    * <code>stateTransferChunkSize</code> entries per server are kept in memory here.  Shared by the rebalancing threads.
+    */
+   private class StateChunks {
+      private final Map<Address, Collection<InternalCacheEntry>> states = new HashMap<Address, Collection<InternalCacheEntry>>();
+
+      void add(Address server, InternalCacheEntry value) throws StateTransferCancelledException, InterruptedException {
+         Collection<InternalCacheEntry> fullChunk = null;
+         synchronized (states) {
+            Collection<InternalCacheEntry> stateForANode = states.get(server);
+            if (stateForANode == null) {
+               stateForANode = new ArrayList<InternalCacheEntry>();
+               states.put(server, stateForANode);
+            }
+            stateForANode.add(value);
+            if (stateForANode.size() >= stateTransferChunkSize) {
+               fullChunk = states.remove(server);
             }
          }
+
+         // if we have a full chunk, start pushing it to the new owner
+         if (fullChunk != null) {
+            pushPartialState(Collections.singleton(server), fullChunk, null);
+         }
       }
 
-      // 5. Remove K if it should not be stored here any longer; rebalancing moved K to a different server
-      if (!newOwners.contains(self)) {
-         keysToRemove.add(key);
+      void pushRemaining() throws StateTransferCancelledException, InterruptedException {
+         for (Map.Entry<Address, Collection<InternalCacheEntry>> entry : states.entrySet()) {
+            pushPartialState(Collections.singleton(entry.getKey()), entry.getValue(), null);
+         }
+         states.clear();
+      }
+   }
+
+   /**
+    * Rebalances a batch of in-memory entries or, if <code>pushOnly</code> is true, pushes a batch of stored entries
+    * that were already rebalanced by the {@link StoredKeyFilter}.
+    */
+   private class RebalanceBatch implements Callable<Void> {
+      private final List<InternalCacheEntry> batch;
+      private final int numOwners;
+      private final boolean pushOnly;
+      private final StateChunks states;
+
+      RebalanceBatch(List<InternalCacheEntry> batch, int numOwners, boolean pushOnly, StateChunks states) {
+         this.batch = batch;
+         this.numOwners = numOwners;
+         this.pushOnly = pushOnly;
+         this.states = states;
+      }
+
+      @Override
+      public Void call() throws Exception {
+         checkIfCancelled();
+         for (InternalCacheEntry ice : batch) {
+            if (pushOnly) {
+               pushEntry(ice, numOwners, states);
+            } else {
+               rebalance(ice, numOwners, states);
+            }
+         }
+         return null;
       }
    }
 
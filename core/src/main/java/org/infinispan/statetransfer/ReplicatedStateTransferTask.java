@@ -24,14 +24,13 @@
 import org.infinispan.container.DataContainer;
 import org.infinispan.container.entries.InternalCacheEntry;
 import org.infinispan.distribution.ch.ConsistentHash;
-import org.infinispan.loaders.CacheLoaderException;
 import org.infinispan.loaders.CacheStore;
+import org.infinispan.loaders.KeyFilter;
 import org.infinispan.notifications.cachelistener.CacheNotifier;
 import org.infinispan.remoting.MembershipArithmetic;
 import org.infinispan.remoting.rpc.RpcManager;
 import org.infinispan.remoting.transport.Address;
 import org.infinispan.util.ByRef;
-import org.infinispan.util.ReadOnlyDataContainerBackedKeySet;
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
 
@@ -97,15 +96,26 @@ public void doPerformStateTransfer() throws Exception {
             final ByRef<Collection<InternalCacheEntry>> state = new ByRef<Collection<InternalCacheEntry>>(new ArrayList<InternalCacheEntry>());
 
             for (InternalCacheEntry ice : dataContainer) {
-               replicate(ice.getKey(), ice, chOld, joiners, null, state);
+               replicate(ice.getKey(), ice, chOld, joiners, state);
             }
 
             // Only fetch the data from the cache store if the cache store is not shared
+            // Only the values of the keys this node pushes are loaded from the store
             CacheStore cacheStore = stateTransferManager.getCacheStoreForStateTransfer();
             if (cacheStore != null) {
-               for (Object key : cacheStore.loadAllKeys(new ReadOnlyDataContainerBackedKeySet(dataContainer))) {
-                  replicate(key, null, chOld, joiners, cacheStore, state);
-               }
+               final Collection<Address> targets = joiners;
+               KeyFilter pushedBySelf = new KeyFilter() {
+                  @Override
+                  public boolean accept(Object key) {
+                     return self.equals(chOld.primaryLocation(key));
+                  }
+               };
+               visitStoredEntries(cacheStore, pushedBySelf, true, new StoredEntryVisitor() {
+                  @Override
+                  protected void visitStoredEntry(Object key, InternalCacheEntry entry) throws Exception {
+                     replicate(key, entry, chOld, targets, state);
+                  }
+               });
             } else {
                if (trace) log.trace("No cache store or cache store is shared, not replicating stored keys");
             }
@@ -123,19 +133,16 @@ public void doPerformStateTransfer() throws Exception {
 
 
    /**
-    * Computes the list of old and new servers for a given key K and value V. Adds (K, V) to the <code>states</code> map
-    * if K should be pushed to other servers. Adds K to the <code>keysToRemove</code> list if this node is no longer an
-    * owner for K.
+    * Adds (K, V) to the state to be pushed to the joiners if this node is the pushing owner for K.
     *
     * @param key          The key
-    * @param value        The value; <code>null</code> if the value is not in the data container
+    * @param value        The value
     * @param chOld        The old (current) consistent hash
     * @param joiners      The new members of the cache
-    * @param cacheStore   If the value is <code>null</code>, try to load it from this cache store
     * @param stateRef        The result collection of entries to be pushed to the joiners
     */
    private void replicate(Object key, InternalCacheEntry value, ConsistentHash chOld, Collection<Address> joiners,
-                          CacheStore cacheStore, ByRef<Collection<InternalCacheEntry>> stateRef) throws StateTransferCancelledException {
+                          ByRef<Collection<InternalCacheEntry>> stateRef) throws StateTransferCancelledException, InterruptedException {
       // 1. Get the old primary owner for key K
       // That node will be the "pushing owner" for key K
       final Address pushingOwner = chOld.primaryLocation(key);
@@ -145,17 +152,8 @@ private void replicate(Object key, InternalCacheEntry value, ConsistentHash chOl
 
       // 2. Push K to all the new nodes
       if (self.equals(pushingOwner)) {
-         if (value == null) {
-            try {
-               value = cacheStore.load(key);
-            } catch (CacheLoaderException e) {
-               log.failedLoadingValueFromCacheStore(key);
-            }
-         }
-
          Collection<InternalCacheEntry> state = stateRef.get();
-         if (value != null)
-            state.add(value);
+         state.add(value);
 
          // if we have a full chunk, start pushing it to the joiners
          if (state.size() >= stateTransferChunkSize) {
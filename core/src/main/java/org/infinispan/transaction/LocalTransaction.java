@@ -62,6 +62,12 @@ public abstract class LocalTransaction extends AbstractCacheTransaction {
 
    private final boolean implicitTransaction;
 
+   /**
+    * set on prepare, when the transaction is prepared on this node only, as the primary owner of all its keys, and the
+    * other owners apply it in one phase on commit
+    */
+   private volatile boolean onePhaseBackups;
+
    public LocalTransaction(Transaction transaction, GlobalTransaction tx, boolean implicitTransaction, int viewId) {
       super(tx, viewId);
       this.transaction = transaction;
@@ -115,6 +121,14 @@ public boolean isImplicitTransaction() {
       return implicitTransaction;
    }
 
+   public boolean isOnePhaseBackups() {
+      return onePhaseBackups;
+   }
+
+   public void setOnePhaseBackups(boolean onePhaseBackups) {
+      this.onePhaseBackups = onePhaseBackups;
+   }
+
    @Override
    public void putLookedUpEntry(Object key, CacheEntry e) {
       if (isMarkedForRollback()) {
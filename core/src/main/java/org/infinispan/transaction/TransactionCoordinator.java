@@ -26,7 +26,9 @@
 import org.infinispan.commands.tx.CommitCommand;
 import org.infinispan.commands.tx.PrepareCommand;
 import org.infinispan.commands.tx.RollbackCommand;
+import org.infinispan.commands.write.ClearCommand;
 import org.infinispan.commands.write.WriteCommand;
+import org.infinispan.configuration.cache.CacheMode;
 import org.infinispan.configuration.cache.Configuration;
 import org.infinispan.configuration.cache.Configurations;
 import org.infinispan.context.InvocationContextContainer;
@@ -35,6 +37,7 @@
 import org.infinispan.factories.annotations.Start;
 import org.infinispan.factories.annotations.Stop;
 import org.infinispan.interceptors.InterceptorChain;
+import org.infinispan.interceptors.locking.ClusteringDependentLogic;
 import org.infinispan.transaction.xa.GlobalTransaction;
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
@@ -63,6 +66,9 @@ public class TransactionCoordinator {
    private TransactionTable txTable;
    private Configuration configuration;
    private CommandCreator commandCreator;
+   private ClusteringDependentLogic clusteringLogic;
+   private boolean use1PcForSingleOwnerTransactions;
+   private boolean totalOrder;
    private volatile boolean shuttingDown = false;
 
    boolean trace;
@@ -78,6 +84,11 @@ public void init(CommandsFactory commandsFactory, InvocationContextContainer icc
       trace = log.isTraceEnabled();
    }
 
+   @Inject
+   public void injectClusteringLogic(ClusteringDependentLogic clusteringLogic) {
+      this.clusteringLogic = clusteringLogic;
+   }
+
    @Start(priority = 1)
    private void setStartStatus() {
       shuttingDown = false;
@@ -90,8 +101,16 @@ private void setStopStatus() {
 
    @Start
    public void start() {
-      if (configuration.locking().writeSkewCheck() && configuration.transaction().lockingMode() == LockingMode.OPTIMISTIC
-            && configuration.versioning().enabled()) {
+      boolean versioned = configuration.locking().writeSkewCheck() && configuration.transaction().lockingMode() == LockingMode.OPTIMISTIC
+            && configuration.versioning().enabled();
+      // with versioned entries the write skew check needs the versions generated by every owner, so it needs 2PC
+      // with recovery an in-doubt transaction prepared in a single phase would only exist on its primary owner
+      use1PcForSingleOwnerTransactions = configuration.transaction().use1PcForSingleOwnerTransactions()
+            && configuration.clustering().cacheMode() == CacheMode.DIST_SYNC
+            && configuration.transaction().lockingMode() == LockingMode.OPTIMISTIC
+            && !configuration.transaction().recovery().enabled() && !versioned;
+      totalOrder = configuration.transaction().transactionProtocol().isTotalOrder();
+      if (versioned) {
          // We need to create versioned variants of PrepareCommand and CommitCommand
          commandCreator = new CommandCreator() {
             @Override
@@ -100,8 +119,8 @@ public CommitCommand createCommitCommand(GlobalTransaction gtx) {
             }
 
             @Override
-            public PrepareCommand createPrepareCommand(GlobalTransaction gtx, List<WriteCommand> modifications) {
-               return commandsFactory.buildVersionedPrepareCommand(gtx, modifications, false);
+            public PrepareCommand createPrepareCommand(GlobalTransaction gtx, List<WriteCommand> modifications, boolean onePhaseCommit) {
+               return commandsFactory.buildVersionedPrepareCommand(gtx, modifications, onePhaseCommit);
             }
          };
       } else {
@@ -112,8 +131,8 @@ public CommitCommand createCommitCommand(GlobalTransaction gtx) {
             }
 
             @Override
-            public PrepareCommand createPrepareCommand(GlobalTransaction gtx, List<WriteCommand> modifications) {
-               return commandsFactory.buildPrepareCommand(gtx, modifications, false);
+            public PrepareCommand createPrepareCommand(GlobalTransaction gtx, List<WriteCommand> modifications, boolean onePhaseCommit) {
+               return commandsFactory.buildPrepareCommand(gtx, modifications, onePhaseCommit);
             }
          };
       }
@@ -131,7 +150,13 @@ public final int prepare(LocalTransaction localTransaction, boolean replayEntryW
          return XA_OK;
       }
 
-      PrepareCommand prepareCommand = commandCreator.createPrepareCommand(localTransaction.getGlobalTransaction(), localTransaction.getModifications());
+      if (is1PcForSingleOwnerTransaction(localTransaction)) {
+         // the locks are acquired and the checks done here, the other owners only apply the modifications on commit
+         if (trace) log.tracef("Preparing tx: %s locally only, we are the primary owner of all its keys.", localTransaction);
+         localTransaction.setOnePhaseBackups(true);
+      }
+
+      PrepareCommand prepareCommand = commandCreator.createPrepareCommand(localTransaction.getGlobalTransaction(), localTransaction.getModifications(), false);
       if (trace) log.tracef("Sending prepare command through the chain: %s", prepareCommand);
 
       LocalTxInvocationContext ctx = icc.createTxInvocationContext();
@@ -170,7 +195,13 @@ public void commit(LocalTransaction localTransaction, boolean isOnePhase) throws
          validateNotMarkedForRollback(localTransaction);
 
          if (trace) log.trace("Doing an 1PC prepare call on the interceptor chain");
-         PrepareCommand command = commandsFactory.buildPrepareCommand(localTransaction.getGlobalTransaction(), localTransaction.getModifications(), true);
+         PrepareCommand command;
+         if (totalOrder) {
+            // the prepare is applied by every node, which may need the versions seen by this transaction
+            command = commandCreator.createPrepareCommand(localTransaction.getGlobalTransaction(), localTransaction.getModifications(), true);
+         } else {
+            command = commandsFactory.buildPrepareCommand(localTransaction.getGlobalTransaction(), localTransaction.getModifications(), true);
+         }
          try {
             invoker.invoke(ctx, command);
          } catch (Throwable e) {
@@ -245,8 +276,27 @@ private boolean is1PcForAutoCommitTransaction(LocalTransaction localTransaction)
       return configuration.transaction().use1PcForAutoCommitTransactions() && localTransaction.isImplicitTransaction();
    }
 
+   /**
+    * A transaction can be committed in one phase on the other owners if this node is the primary owner of every key it
+    * modifies: the locks are then all acquired, and the checks all done, here on prepare, before the modifications are
+    * sent to the other owners on commit.
+    */
+   private boolean is1PcForSingleOwnerTransaction(LocalTransaction localTransaction) {
+      if (!use1PcForSingleOwnerTransactions) return false;
+      List<WriteCommand> modifications = localTransaction.getModifications();
+      if (modifications == null || modifications.isEmpty()) return false;
+      for (WriteCommand modification : modifications) {
+         // a clear affects keys regardless of their owners
+         if (modification instanceof ClearCommand) return false;
+         for (Object key : modification.getAffectedKeys()) {
+            if (!clusteringLogic.localNodeIsPrimaryOwner(key)) return false;
+         }
+      }
+      return true;
+   }
+
    private static interface CommandCreator {
       CommitCommand createCommitCommand(GlobalTransaction gtx);
-      PrepareCommand createPrepareCommand(GlobalTransaction gtx, List<WriteCommand> modifications);
+      PrepareCommand createPrepareCommand(GlobalTransaction gtx, List<WriteCommand> modifications, boolean onePhaseCommit);
    }
 }
@@ -0,0 +1,42 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.transaction;
+
+/**
+ * Defines the protocols that optimistic, synchronously replicated caches can use to commit their transactions.
+ * <ul>
+ *    <li>{@link #DEFAULT}: two phase commit, the keys being locked during the prepare phase</li>
+ *    <li>{@link #TOTAL_ORDER}: the prepares are delivered to all the nodes in the same order and applied in a single
+ *    phase, without locking. Every node checks for write skews in delivery order, so they all take the same
+ *    decision.</li>
+ * </ul>
+ *
+ * @since 5.2
+ */
+public enum TransactionProtocol {
+   DEFAULT, TOTAL_ORDER;
+
+   public boolean isTotalOrder() {
+      return this == TOTAL_ORDER;
+   }
+}
@@ -0,0 +1,534 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.transaction.totalorder;
+
+import org.infinispan.Cache;
+import org.infinispan.CacheException;
+import org.infinispan.commands.CommandsFactory;
+import org.infinispan.commands.control.TotalOrderControlCommand;
+import org.infinispan.commands.tx.PrepareCommand;
+import org.infinispan.commands.tx.VersionedPrepareCommand;
+import org.infinispan.configuration.cache.Configuration;
+import org.infinispan.container.versioning.EntryVersionsMap;
+import org.infinispan.factories.annotations.ComponentName;
+import org.infinispan.factories.annotations.Inject;
+import org.infinispan.factories.annotations.Start;
+import org.infinispan.factories.annotations.Stop;
+import org.infinispan.factories.scopes.Scope;
+import org.infinispan.factories.scopes.Scopes;
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.infinispan.notifications.Listener;
+import org.infinispan.notifications.cachemanagerlistener.annotation.ViewChanged;
+import org.infinispan.notifications.cachemanagerlistener.event.ViewChangedEvent;
+import org.infinispan.remoting.responses.Response;
+import org.infinispan.remoting.responses.SuccessfulResponse;
+import org.infinispan.remoting.rpc.ResponseMode;
+import org.infinispan.remoting.rpc.RpcManager;
+import org.infinispan.remoting.transport.Address;
+import org.infinispan.remoting.transport.jgroups.SuspectException;
+import org.infinispan.transaction.TransactionTable;
+import org.infinispan.transaction.xa.GlobalTransaction;
+import org.infinispan.util.concurrent.ConcurrentHashSet;
+import org.infinispan.util.concurrent.NotifyingFuture;
+import org.infinispan.util.concurrent.TimeoutException;
+import org.infinispan.util.logging.Log;
+import org.infinispan.util.logging.LogFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.infinispan.factories.KnownComponentNames.ASYNC_TRANSPORT_EXECUTOR;
+
+/**
+ * Orders the prepares of the caches that use the {@link org.infinispan.transaction.TransactionProtocol#TOTAL_ORDER
+ * total order} transaction protocol.
+ * <p/>
+ * The cluster coordinator acts as sequencer: the originator of a transaction forwards its prepare to the coordinator,
+ * which applies it, running the write skew check and generating the new versions of the entries, and then gives it
+ * the next sequence number and sends it to every other node (see {@link TotalOrderControlCommand}). The new versions
+ * travel with the prepare as its versions seen, so the other nodes apply it without checking or generating anything.
+ * Sequenced prepares travel as regular messages, which JGroups delivers in the order they were sent, and every node
+ * applies them in sequence number order.
+ * <p/>
+ * Each node keeps the prepares it applied until the sequencer reports them delivered to every node. When the
+ * coordinator changes, the new coordinator collects these prepares from all the nodes and delivers the ones each
+ * node missed before sequencing anything else, so a coordinator failure cannot leave some nodes with a prepare
+ * others never apply. The prepares of a previous sequencer arriving afterwards are discarded.
+ * <p/>
+ * A node failing to apply a sequenced prepare no longer has the same state as the others, and cannot apply the
+ * following prepares either, so it stops the cache, leaving the cluster; it receives the state again through state
+ * transfer when the cache is restarted.
+ *
+ * @since 5.2
+ */
+@Listener(sync = false)
+@Scope(Scopes.NAMED_CACHE)
+public class TotalOrderManager {
+
+   private static final Log log = LogFactory.getLog(TotalOrderManager.class);
+   private static final boolean trace = log.isTraceEnabled();
+
+   private RpcManager rpcManager;
+   private CommandsFactory commandsFactory;
+   private TransactionTable txTable;
+   private EmbeddedCacheManager cacheManager;
+   private Cache<?, ?> cache;
+   private ExecutorService asyncExecutor;
+   private long replTimeout;
+   private boolean enabled;
+
+   // sequencer state, guarded by sequencerLock
+   private final ReentrantLock sequencerLock = new ReentrantLock(true);
+   private final Condition sequencerChanged = sequencerLock.newCondition();
+   private boolean sequencer;
+   private int sequencerEpoch;
+   private long lastSequenced;
+   // transactions delivered by the last recovery, which must not be sequenced again when their originator retries
+   private Set<GlobalTransaction> recovered = Collections.emptySet();
+   // sequence numbers not yet delivered to every node, guarded by itself
+   private final SortedSet<Long> inFlight = new TreeSet<Long>();
+
+   // delivery state, guarded by deliveryLock
+   private final Object deliveryLock = new Object();
+   private int epoch;
+   private long lastDelivered = -1;
+   private final SortedMap<Long, PrepareCommand> unstable = new TreeMap<Long, PrepareCommand>();
+   // the sequence number of the prepare that failed to apply here, after which nothing else is delivered
+   private long failedDelivery = -1;
+
+   private final Set<GlobalTransaction> delivering = new ConcurrentHashSet<GlobalTransaction>();
+   // transactions originated here and waiting for their prepare to be sequenced, mapped to whether it was delivered
+   private final ConcurrentMap<GlobalTransaction, Boolean> ownDeliveries = new ConcurrentHashMap<GlobalTransaction, Boolean>();
+   private final Object viewMonitor = new Object();
+
+   /**
+    * Applies a prepare on the local node, as part of the ordered delivery.
+    */
+   public interface PrepareApplier {
+      Object apply() throws Throwable;
+   }
+
+   @Inject
+   public void init(RpcManager rpcManager, CommandsFactory commandsFactory, Configuration configuration,
+                    TransactionTable txTable, EmbeddedCacheManager cacheManager, Cache<?, ?> cache,
+                    @ComponentName(ASYNC_TRANSPORT_EXECUTOR) ExecutorService asyncExecutor) {
+      this.rpcManager = rpcManager;
+      this.commandsFactory = commandsFactory;
+      this.txTable = txTable;
+      this.cacheManager = cacheManager;
+      this.cache = cache;
+      this.asyncExecutor = asyncExecutor;
+      this.replTimeout = configuration.clustering().sync().replTimeout();
+      this.enabled = configuration.transaction().transactionProtocol().isTotalOrder() && rpcManager != null;
+   }
+
+   @Start
+   public void start() {
+      if (!enabled) return;
+      cacheManager.addListener(this);
+      sequencerLock.lock();
+      try {
+         if (rpcManager.getTransport().isCoordinator() && !sequencer) {
+            // the first coordinator, nothing was sequenced before
+            int viewId = rpcManager.getTransport().getViewId();
+            synchronized (deliveryLock) {
+               epoch = viewId;
+               lastDelivered = 0;
+            }
+            becomeSequencer(viewId, 0, Collections.<GlobalTransaction>emptySet());
+         }
+      } finally {
+         sequencerLock.unlock();
+      }
+   }
+
+   @Stop
+   public void stop() {
+      if (enabled) cacheManager.removeListener(this);
+   }
+
+   /**
+    * Commits a locally originated transaction in total order. On the coordinator the prepare is sequenced straight
+    * away, elsewhere it is forwarded to the coordinator and applied on this node once delivered. If the coordinator
+    * leaves meanwhile, the prepare is forwarded to the new coordinator, unless it was already delivered.
+    *
+    * @param command    the one phase prepare of the transaction
+    * @param localApply applies the prepare through the local interceptor chain
+    * @return the result of the prepare
+    */
+   public Object prepare(PrepareCommand command, PrepareApplier localApply) throws Throwable {
+      if (!enabled) return localApply.apply();
+      GlobalTransaction gtx = command.getGlobalTransaction();
+      ownDeliveries.put(gtx, Boolean.FALSE);
+      try {
+         while (true) {
+            Address coordinator = rpcManager.getTransport().getCoordinator();
+            if (coordinator.equals(rpcManager.getAddress())) {
+               return sequence(command, localApply);
+            }
+            try {
+               return forward(coordinator, command);
+            } catch (SuspectException e) {
+               // delivered to every node, including this one, before the coordinator left
+               if (Boolean.TRUE.equals(ownDeliveries.get(gtx))) return null;
+               if (trace) log.tracef("Sequencer %s left while sequencing %s, retrying", coordinator, gtx);
+               awaitCoordinatorChange(coordinator);
+            } catch (TimeoutException e) {
+               // the coordinator might still sequence the prepare, in which case it is delivered here too
+               if (awaitOwnDelivery(gtx)) return null;
+               throw e;
+            }
+         }
+      } finally {
+         ownDeliveries.remove(gtx);
+      }
+   }
+
+   private Object forward(Address coordinator, PrepareCommand command) {
+      if (trace) log.tracef("Forwarding %s to the sequencer %s", command.getGlobalTransaction(), coordinator);
+      TotalOrderControlCommand forward = commandsFactory.buildTotalOrderControlCommand(
+            TotalOrderControlCommand.Type.FORWARD, 0, 0, 0, command);
+      Map<Address, Response> responses = rpcManager.invokeRemotely(Collections.singleton(coordinator), forward,
+                                                                   ResponseMode.SYNCHRONOUS, replTimeout, true);
+      Response response = responses == null ? null : responses.get(coordinator);
+      if (response instanceof SuccessfulResponse) {
+         return ((SuccessfulResponse) response).getResponseValue();
+      }
+      throw new CacheException("Unexpected response from the sequencer " + coordinator + ": " + response);
+   }
+
+   /**
+    * Sequences a prepare forwarded by another node. Only valid on the coordinator.
+    */
+   public Object handleForward(final PrepareCommand command) throws Throwable {
+      try {
+         return sequence(command, new PrepareApplier() {
+            @Override
+            public Object apply() throws Throwable {
+               return command.perform(null);
+            }
+         });
+      } finally {
+         // a one phase prepare leaves nothing to complete afterwards
+         txTable.removeRemoteTransaction(command.getGlobalTransaction());
+      }
+   }
+
+   /**
+    * Applies a prepare sequenced by the coordinator, with the versions generated by the coordinator.
+    */
+   public void handleDeliver(int epoch, long sequenceNumber, long stableSequenceNumber, PrepareCommand command)
+         throws Throwable {
+      synchronized (deliveryLock) {
+         if (epoch < this.epoch) {
+            if (trace) log.tracef("Discarding prepare %d of the previous sequencer, epoch %d", sequenceNumber, epoch);
+            return;
+         }
+         this.epoch = epoch;
+         if (failedDelivery >= 0)
+            throw new CacheException("Cannot deliver prepare " + sequenceNumber + " after failing to apply prepare " + failedDelivery);
+         if (lastDelivered >= 0) {
+            if (sequenceNumber <= lastDelivered) {
+               if (trace) log.tracef("Prepare %d was already delivered", sequenceNumber);
+               return;
+            }
+            if (sequenceNumber != lastDelivered + 1)
+               throw new CacheException("Expected prepare " + (lastDelivered + 1) + " but received " + sequenceNumber);
+         }
+         GlobalTransaction gtx = command.getGlobalTransaction();
+         if (trace) log.tracef("Delivering prepare %d of %s", sequenceNumber, gtx);
+         delivering.add(gtx);
+         try {
+            command.perform(null);
+         } catch (Throwable t) {
+            failDelivery(sequenceNumber, t);
+            throw t;
+         } finally {
+            delivering.remove(gtx);
+            txTable.removeRemoteTransaction(gtx);
+         }
+         // only a prepare applied here counts as delivered, and can be redelivered to the others from here
+         logDelivered(sequenceNumber, stableSequenceNumber, command);
+         if (ownDeliveries.replace(gtx, Boolean.FALSE, Boolean.TRUE)) {
+            synchronized (ownDeliveries) {
+               ownDeliveries.notifyAll();
+            }
+         }
+      }
+   }
+
+   /**
+    * Called with deliveryLock held. Stops the cache, in the background as the delivering thread still belongs to
+    * the cache.
+    */
+   private void failDelivery(long sequenceNumber, Throwable cause) {
+      failedDelivery = sequenceNumber;
+      log.errorf(cause, "Failed to apply prepare %d, stopping cache %s as it is no longer consistent with the cluster",
+                 sequenceNumber, cache.getName());
+      asyncExecutor.execute(new Runnable() {
+         @Override
+         public void run() {
+            try {
+               cache.stop();
+            } catch (Throwable t) {
+               log.errorf(t, "Failed to stop cache %s", cache.getName());
+            }
+         }
+      });
+   }
+
+   /**
+    * Returns the last sequence number delivered here and the prepares delivered but not yet stable, and discards the
+    * prepares of any previous sequencer from now on.
+    */
+   public Object handleRecover(int epoch) {
+      synchronized (deliveryLock) {
+         if (epoch < this.epoch) throw new CacheException("Recovery for epoch " + epoch + " is stale, current epoch is " + this.epoch);
+         this.epoch = epoch;
+         return new Object[]{lastDelivered, new TreeMap<Long, PrepareCommand>(unstable)};
+      }
+   }
+
+   /**
+    * @return true if the given transaction is being applied as delivered by the sequencer, i.e. with the versions
+    *         generated by the sequencer
+    */
+   public boolean isDelivering(GlobalTransaction gtx) {
+      return delivering.contains(gtx);
+   }
+
+   @ViewChanged
+   public void onViewChange(ViewChangedEvent e) {
+      synchronized (viewMonitor) {
+         viewMonitor.notifyAll();
+      }
+      List<Address> members = e.getNewMembers();
+      if (!members.isEmpty() && members.get(0).equals(rpcManager.getAddress())) {
+         recover(e.getViewId());
+      } else {
+         sequencerLock.lock();
+         try {
+            sequencer = false;
+            sequencerChanged.signalAll();
+         } finally {
+            sequencerLock.unlock();
+         }
+      }
+   }
+
+   private Object sequence(PrepareCommand command, PrepareApplier applier) throws Throwable {
+      Object result;
+      long sequenceNumber;
+      NotifyingFuture<Map<Address, Response>> delivered;
+      sequencerLock.lock();
+      try {
+         awaitSequencer();
+         if (recovered.contains(command.getGlobalTransaction())) {
+            if (trace) log.tracef("%s was delivered by the last recovery", command.getGlobalTransaction());
+            return null;
+         }
+         // every other node applies the prepare with the versions generated here, so a prepare failing the write
+         // skew check is simply not sequenced
+         result = applier.apply();
+         if (command instanceof VersionedPrepareCommand && result instanceof EntryVersionsMap) {
+            ((VersionedPrepareCommand) command).setVersionsSeen((EntryVersionsMap) result);
+         }
+         sequenceNumber = ++lastSequenced;
+         long stable;
+         synchronized (inFlight) {
+            stable = inFlight.isEmpty() ? sequenceNumber - 1 : inFlight.first() - 1;
+            inFlight.add(sequenceNumber);
+         }
+         synchronized (deliveryLock) {
+            logDelivered(sequenceNumber, stable, command);
+         }
+         if (trace) log.tracef("Sequenced %s as prepare %d", command.getGlobalTransaction(), sequenceNumber);
+         TotalOrderControlCommand deliver = commandsFactory.buildTotalOrderControlCommand(
+               TotalOrderControlCommand.Type.DELIVER, sequencerEpoch, sequenceNumber, stable, command);
+         delivered = rpcManager.invokeRemotelyAsync(null, deliver, ResponseMode.SYNCHRONOUS_ORDERED, replTimeout,
+                                                    false, null);
+      } finally {
+         sequencerLock.unlock();
+      }
+      try {
+         delivered.get();
+      } catch (ExecutionException e) {
+         // the prepare is applied here already, so it is committed on every node that applied it; the nodes which
+         // failed to apply it stop the cache and leave, so the transaction is committed on all the remaining ones
+         log.errorf(e.getCause(), "Failed to deliver prepare %d to all nodes, the nodes which failed to apply it are leaving",
+                    sequenceNumber);
+      } finally {
+         synchronized (inFlight) {
+            inFlight.remove(sequenceNumber);
+         }
+      }
+      return result;
+   }
+
+   /**
+    * Called with sequencerLock held.
+    */
+   private void awaitSequencer() throws InterruptedException {
+      long remaining = TimeUnit.MILLISECONDS.toNanos(replTimeout);
+      while (!sequencer) {
+         if (!rpcManager.getTransport().isCoordinator())
+            throw new CacheException(rpcManager.getAddress() + " is not the coordinator");
+         if (remaining <= 0)
+            throw new TimeoutException("Timed out waiting for " + rpcManager.getAddress() + " to become the sequencer");
+         remaining = sequencerChanged.awaitNanos(remaining);
+      }
+   }
+
+   /**
+    * Makes this node the sequencer, once every node has applied all the prepares any of them applied.
+    */
+   @SuppressWarnings("unchecked")
+   private void recover(int viewId) {
+      sequencerLock.lock();
+      try {
+         if (sequencer || !rpcManager.getTransport().isCoordinator()) return;
+         if (trace) log.tracef("Recovering the sequenced prepares in view %d", viewId);
+         Address self = rpcManager.getAddress();
+         SortedMap<Long, PrepareCommand> sequenced = new TreeMap<Long, PrepareCommand>();
+         Map<Address, Long> lastDeliveredByNode = new HashMap<Address, Long>();
+         synchronized (deliveryLock) {
+            epoch = Math.max(epoch, viewId);
+            sequenced.putAll(unstable);
+            lastDeliveredByNode.put(self, lastDelivered);
+         }
+         TotalOrderControlCommand recover = commandsFactory.buildTotalOrderControlCommand(
+               TotalOrderControlCommand.Type.RECOVER, viewId, 0, 0, null);
+         Map<Address, Response> responses = rpcManager.invokeRemotely(null, recover,
+               ResponseMode.SYNCHRONOUS_IGNORE_LEAVERS, replTimeout, true);
+         if (responses != null) {
+            for (Map.Entry<Address, Response> response : responses.entrySet()) {
+               if (response.getValue() instanceof SuccessfulResponse) {
+                  Object[] state = (Object[]) ((SuccessfulResponse) response.getValue()).getResponseValue();
+                  lastDeliveredByNode.put(response.getKey(), (Long) state[0]);
+                  sequenced.putAll((Map<Long, PrepareCommand>) state[1]);
+               }
+            }
+         }
+
+         long last = sequenced.isEmpty() ? 0 : sequenced.lastKey();
+         for (long l : lastDeliveredByNode.values()) last = Math.max(last, l);
+         // nodes only ever miss the last prepares, as every node received them in sequence order
+         List<NotifyingFuture<Map<Address, Response>>> redeliveries = new ArrayList<NotifyingFuture<Map<Address, Response>>>();
+         for (Map.Entry<Address, Long> node : lastDeliveredByNode.entrySet()) {
+            // a node which never received a prepare joined afterwards, and receives the state through state transfer
+            if (node.getValue() < 0) continue;
+            for (long sequenceNumber = node.getValue() + 1; sequenceNumber <= last; sequenceNumber++) {
+               PrepareCommand command = sequenced.get(sequenceNumber);
+               if (command == null) {
+                  log.warnf("Prepare %d is not available for delivery to %s", sequenceNumber, node.getKey());
+                  break;
+               }
+               if (node.getKey().equals(self)) {
+                  commandsFactory.initializeReplicableCommand(command, true);
+                  handleDeliver(viewId, sequenceNumber, 0, command);
+               } else {
+                  TotalOrderControlCommand deliver = commandsFactory.buildTotalOrderControlCommand(
+                        TotalOrderControlCommand.Type.DELIVER, viewId, sequenceNumber, 0, command);
+                  redeliveries.add(rpcManager.invokeRemotelyAsync(Collections.singleton(node.getKey()), deliver,
+                        ResponseMode.SYNCHRONOUS_ORDERED, replTimeout, false, null));
+               }
+            }
+         }
+         for (NotifyingFuture<Map<Address, Response>> redelivery : redeliveries) {
+            redelivery.get();
+         }
+
+         Set<GlobalTransaction> recoveredTransactions = new HashSet<GlobalTransaction>();
+         for (PrepareCommand command : sequenced.values()) recoveredTransactions.add(command.getGlobalTransaction());
+         becomeSequencer(viewId, last, recoveredTransactions);
+      } catch (Throwable t) {
+         log.errorf(t, "Failed to recover the sequenced prepares in view %d", viewId);
+      } finally {
+         sequencerLock.unlock();
+      }
+   }
+
+   /**
+    * Called with sequencerLock held.
+    */
+   private void becomeSequencer(int viewId, long lastSequenced, Set<GlobalTransaction> recovered) {
+      if (trace) log.tracef("Sequencing prepares from %d in epoch %d", lastSequenced + 1, viewId);
+      this.sequencerEpoch = viewId;
+      this.lastSequenced = lastSequenced;
+      this.recovered = recovered;
+      synchronized (inFlight) {
+         inFlight.clear();
+      }
+      sequencer = true;
+      sequencerChanged.signalAll();
+   }
+
+   /**
+    * Called with deliveryLock held.
+    */
+   private void logDelivered(long sequenceNumber, long stableSequenceNumber, PrepareCommand command) {
+      lastDelivered = sequenceNumber;
+      unstable.put(sequenceNumber, command);
+      unstable.headMap(stableSequenceNumber + 1).clear();
+   }
+
+   private void awaitCoordinatorChange(Address coordinator) throws InterruptedException {
+      long deadline = System.currentTimeMillis() + replTimeout;
+      synchronized (viewMonitor) {
+         while (coordinator.equals(rpcManager.getTransport().getCoordinator())) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0)
+               throw new TimeoutException("Timed out waiting for the coordinator " + coordinator + " to leave");
+            viewMonitor.wait(remaining);
+         }
+      }
+   }
+
+   private boolean awaitOwnDelivery(GlobalTransaction gtx) throws InterruptedException {
+      long deadline = System.currentTimeMillis() + replTimeout;
+      synchronized (ownDeliveries) {
+         while (!Boolean.TRUE.equals(ownDeliveries.get(gtx))) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) return false;
+            ownDeliveries.wait(remaining);
+         }
+      }
+      return true;
+   }
+}
@@ -638,6 +638,16 @@ public EntryVersion getVersion() {
          return entry.getVersion();
       }
 
+      @Override
+      public int getStamp() {
+         return entry.getStamp();
+      }
+
+      @Override
+      public void setStamp(int stamp) {
+         throw new UnsupportedOperationException();
+      }
+
       @Override
       public InternalCacheEntry clone() {
          return new ImmutableInternalCacheEntry(entry.clone());
@@ -223,6 +223,8 @@ final Segment<K,V> segmentFor(int hash) {
       final int hash;
       volatile V value;
       final HashEntry<K, V> next;
+      /** The weight of the entry, only accessed while holding the segment lock */
+      int weight;
 
       HashEntry(K key, int hash, HashEntry<K, V> next, V value) {
          this.key = key;
@@ -278,7 +280,15 @@ public <K, V> EvictionPolicy<K, V> make(Segment<K, V> s, int capacity, float lf)
       LIRS {
          @Override
          public <K, V> EvictionPolicy<K, V> make(Segment<K, V> s, int capacity, float lf) {
-            return new LIRS<K,V>(s,capacity,capacity*10,lf);
+            long maximumSize = s.sizeCalculator == null ? capacity : s.maxWeight;
+            return new LIRS<K,V>(s,maximumSize,capacity*10,lf);
+         }
+      },
+      TINY_LFU {
+         @Override
+         public <K, V> EvictionPolicy<K, V> make(Segment<K, V> s, int capacity, float lf) {
+            long maximumSize = s.sizeCalculator == null ? capacity : s.maxWeight;
+            return new TinyLFU<K, V>(s, capacity, maximumSize, capacity*10, lf);
          }
       };
 
@@ -290,6 +300,17 @@ public <K, V> EvictionPolicy<K, V> make(Segment<K, V> s, int capacity, float lf)
       void onEntryChosenForEviction(V internalCacheEntry);
    }
 
+   /**
+    * Estimates the weight of a map entry, typically its memory footprint in bytes. A map created with an
+    * EntrySizeCalculator bounds the sum of the weights of its entries rather than the number of entries.
+    * <p>
+    * The weight of an entry is calculated once, when its value is written, so it must not depend on state
+    * that can change while the entry is in the map.
+    */
+   public interface EntrySizeCalculator<K, V> {
+      long calculateSize(K key, V value);
+   }
+
    static final class NullEvictionListener<K, V> implements EvictionListener<K, V> {
       @Override
       public void onEntryEviction(Map<K, V> evicted) {
@@ -350,6 +371,30 @@ public void onEntryChosenForEviction(V internalCacheEntry) {
        */
       void onEntryRemove(HashEntry<K, V> e);
 
+      /**
+       * Invoked to notify EvictionPolicy implementation that the weight of an entry e in Segment
+       * has changed because its value was replaced. Only invoked on maps bounded by weight.
+       *
+       * @param e
+       *            resized entry in Segment
+       * @param oldWeight
+       *            weight of the entry before the update
+       *
+       * @return non null set of evicted entries.
+       */
+      Set<HashEntry<K, V>> onEntryResize(HashEntry<K, V> e, int oldWeight);
+
+      /**
+       * Invoked to notify EvictionPolicy implementation that an entry e in Segment has been
+       * replaced by a copy while rehashing the Segment table.
+       *
+       * @param e
+       *            replaced entry
+       * @param copy
+       *            entry now holding the mapping
+       */
+      void onEntryReplace(HashEntry<K, V> e, HashEntry<K, V> copy);
+
       /**
        * Invoked to notify EvictionPolicy implementation that all Segment entries have been
        * cleared.
@@ -401,6 +446,16 @@ public void onEntryRemove(HashEntry<K, V> e) {
          // Do nothing.
       }
 
+      @Override
+      public Set<HashEntry<K, V>> onEntryResize(HashEntry<K, V> e, int oldWeight) {
+         return Collections.emptySet();
+      }
+
+      @Override
+      public void onEntryReplace(HashEntry<K, V> e, HashEntry<K, V> copy) {
+         // Do nothing.
+      }
+
       @Override
       public boolean thresholdExpired() {
          return false;
@@ -428,6 +483,7 @@ public HashEntry<K, V> createNewEntry(K key, int hash, HashEntry<K, V> next, V v
       private final int trimDownSize;
       private final float batchThresholdFactor;
       private final Set<HashEntry<K, V>> evicted;
+      private boolean trimming;
 
       public LRU(Segment<K,V> s, int capacity, float lf, int maxBatchSize, float batchThresholdFactor) {
          super(capacity, lf, true);
@@ -445,6 +501,7 @@ public Set<HashEntry<K, V>> execute() {
          for (HashEntry<K, V> e : accessQueue) {
             put(e, e.value);
          }
+         trimToWeight();
          evictedCopy.addAll(evicted);
          accessQueue.clear();
          evicted.clear();
@@ -454,6 +511,24 @@ public Set<HashEntry<K, V>> execute() {
       @Override
       public Set<HashEntry<K, V>> onEntryMiss(HashEntry<K, V> e) {
          put(e, e.value);
+         trimToWeight();
+         return drainEvicted();
+      }
+
+      @Override
+      public Set<HashEntry<K, V>> onEntryResize(HashEntry<K, V> e, int oldWeight) {
+         // the resized entry was just written, make sure it is not the first one to go
+         put(e, e.value);
+         trimToWeight();
+         return drainEvicted();
+      }
+
+      @Override
+      public void onEntryReplace(HashEntry<K, V> e, HashEntry<K, V> copy) {
+         // entries are looked up by key, so the copy takes the place of e
+      }
+
+      private Set<HashEntry<K, V>> drainEvicted() {
          if (!evicted.isEmpty()) {
             Set<HashEntry<K, V>> evictedCopy = new HashSet<HashEntry<K, V>>();
             evictedCopy.addAll(evicted);
@@ -464,6 +539,33 @@ public Set<HashEntry<K, V>> onEntryMiss(HashEntry<K, V> e) {
          }
       }
 
+      /**
+       * Evicts the least recently used entries until a Segment bounded by weight is back within
+       * its bound. The most recently used entry is never evicted, even if it alone exceeds the bound.
+       */
+      private void trimToWeight() {
+         if (segment.sizeCalculator == null || trimming) {
+            return;
+         }
+         trimming = true;
+         try {
+            while (isAboveThreshold() && size() > 1) {
+               HashEntry<K, V> eldest = keySet().iterator().next();
+               // the segment may hold a copy of the entry, with a more recent value
+               HashEntry<K, V> current = segment.findEntry(eldest.key, eldest.hash);
+               if (current == null) {
+                  remove(eldest);
+                  continue;
+               }
+               segment.evictionListener.onEntryChosenForEviction(current.value);
+               segment.remove(current.key, current.hash, null);
+               evicted.add(current);
+            }
+         } finally {
+            trimming = false;
+         }
+      }
+
       /*
        * Invoked without holding a lock on Segment
        */
@@ -502,12 +604,16 @@ public Eviction strategy() {
       }
 
       protected boolean isAboveThreshold(){
+         if (segment.sizeCalculator != null) {
+            return segment.weightedSize > segment.maxWeight;
+         }
          return size() > trimDownSize;
       }
 
       @Override
       protected boolean removeEldestEntry(Map.Entry<HashEntry<K,V>,V> eldest){
-         boolean aboveThreshold = isAboveThreshold();
+         // segments bounded by weight may need to evict several entries, see trimToWeight()
+         boolean aboveThreshold = segment.sizeCalculator == null && isAboveThreshold();
          if(aboveThreshold){
             HashEntry<K, V> evictedEntry = eldest.getKey();
             segment.evictionListener.onEntryChosenForEviction(evictedEntry.value);
@@ -675,7 +781,7 @@ private Set<HashEntry<K, V>> miss() {
         }
 
         // now the missed item is in the cache
-        owner.size++;
+        owner.size += weight;
         return evicted;
       }
 
@@ -700,11 +806,11 @@ private void fullMiss(Set<HashEntry<K, V>> evicted) {
 
         // This condition is unspecified in the paper, but appears to be
         // necessary.
-        if (owner.size >= owner.maximumSize) {
+        if (owner.size + weight > owner.maximumSize) {
           // "We remove the HIR resident block at the front of list Q (it then
           // becomes a non-resident block), and replace it out of the cache."
-          LIRSHashEntry<K, V> evictedNode = owner.queueFront();          
-          evicted.add(evictedNode);
+          // When entries are weighted, several blocks may need to be replaced.
+          owner.collectEvictionCandidates(owner.size + weight - owner.maximumSize, this, evicted);
         }
 
         // "Then we load the requested block X into the freed buffer and place
@@ -732,7 +838,7 @@ private void fullMiss(Set<HashEntry<K, V>> evicted) {
        */
       private void hot() {
         if (state != Recency.LIR_RESIDENT) {
-          owner.hotSize++;
+          owner.hotSize += weight;
         }
         state = Recency.LIR_RESIDENT;
       }
@@ -742,7 +848,7 @@ private void hot() {
        */
       private void cold() {
         if (state == Recency.LIR_RESIDENT) {
-          owner.hotSize--;
+          owner.hotSize -= weight;
         }
         state = Recency.HIR_RESIDENT;
         moveToQueueEnd();
@@ -755,15 +861,40 @@ private void cold() {
       private void nonResident() {
         switch (state) {
           case LIR_RESIDENT:
-            owner.hotSize--;
+            owner.hotSize -= weight;
             // fallthrough
           case HIR_RESIDENT:
-            owner.size--;
+            owner.size -= weight;
             break;
         }
         state = Recency.HIR_NONRESIDENT;
       }
       
+      /**
+       * Takes the place of the given entry in the stack and in the queue, when this entry replaces
+       * it after a rehash. The replaced entry is marked non-resident, so that pending accesses to
+       * it are ignored.
+       */
+      private void transplant(LIRSHashEntry<K, V> replaced) {
+        state = replaced.state;
+        if (replaced.nextInStack == null) {
+          previousInStack = null;
+          nextInStack = null;
+        } else if (replaced.nextInStack != replaced) {
+          addToStackBefore(replaced.nextInStack);
+        }
+        if (replaced.nextInQueue == null) {
+          previousInQueue = null;
+          nextInQueue = null;
+        } else if (replaced.nextInQueue != replaced) {
+          addToQueueBefore(replaced.nextInQueue);
+        }
+        replaced.removeFromStack();
+        replaced.removeFromQueue();
+        replaced.state = Recency.HIR_NONRESIDENT;
+        replaced.owner = null;
+      }
+
       /**
        * Returns true if this entry is resident in the cache, false otherwise.
        */
@@ -947,8 +1078,8 @@ private V remove() {
        * */
       private final int maxBatchQueueSize;     
       
-      /** The number of LIRS entries in a segment */
-      private int size;
+      /** The weight of the LIRS entries in a segment, which is their number unless entries are weighted */
+      private long size;
       
       private final float batchThresholdFactor;
       
@@ -973,18 +1104,18 @@ private V remove() {
        */
       private final LIRSHashEntry<K,V> header = new LIRSHashEntry<K,V>(null, null,0,null,null);
 
-      /** The maximum number of hot entries (L_lirs in the paper). */
-      private final int maximumHotSize;
+      /** The maximum weight of hot entries (L_lirs in the paper). */
+      private final long maximumHotSize;
 
-      /** The maximum number of resident entries (L in the paper). */
-      private final int maximumSize ;
+      /** The maximum weight of resident entries (L in the paper). */
+      private final long maximumSize ;
 
-      /** The actual number of hot entries. */
-      private int hotSize = 0;
+      /** The actual weight of hot entries. */
+      private long hotSize = 0;
 
             
 
-      public LIRS(Segment<K,V> s, int capacity, int maxBatchSize, float batchThresholdFactor) {
+      public LIRS(Segment<K,V> s, long capacity, int maxBatchSize, float batchThresholdFactor) {
          this.segment = s;
          this.maximumSize = capacity;
          this.maximumHotSize = calculateLIRSize(capacity);
@@ -993,8 +1124,8 @@ public LIRS(Segment<K,V> s, int capacity, int maxBatchSize, float batchThreshold
          this.accessQueue = new ConcurrentLinkedQueue<LIRSHashEntry<K, V>>();                         
       }
       
-      private static int calculateLIRSize(int maximumSize) {
-         int result = (int) (L_LIRS * maximumSize);
+      private static long calculateLIRSize(long maximumSize) {
+         long result = (long) (L_LIRS * maximumSize);
          return (result == maximumSize) ? maximumSize - 1 : result;
        }
 
@@ -1049,6 +1180,52 @@ public Set<HashEntry<K, V>> onEntryMiss(HashEntry<K, V> en) {
          return evicted;
       }
      
+      /**
+       * Collects entries to evict until their weight reaches <tt>weight</tt>, skipping <tt>excluded</tt>.
+       * Resident cold entries at the front of the queue go first; if they are not heavy enough, hot
+       * entries at the bottom of the stack are made cold and evicted as well.
+       */
+      private void collectEvictionCandidates(long weight, LIRSHashEntry<K, V> excluded, Set<HashEntry<K, V>> evicted) {
+         long collected = 0;
+         for (LIRSHashEntry<K, V> e = queueFront(); e != null && collected < weight; e = e.nextInQueue == header ? null : e.nextInQueue) {
+            if (e != excluded && evicted.add(e)) {
+               collected += e.weight;
+            }
+         }
+         LIRSHashEntry<K, V> bottom = stackBottom();
+         while (collected < weight && bottom != null && bottom != excluded) {
+            bottom.migrateToQueue();
+            evicted.add(bottom);
+            collected += bottom.weight;
+            pruneStack(evicted);
+            bottom = stackBottom();
+         }
+      }
+
+      @Override
+      public Set<HashEntry<K, V>> onEntryResize(HashEntry<K, V> en, int oldWeight) {
+         LIRSHashEntry<K, V> e = (LIRSHashEntry<K, V>) en;
+         if (!e.isResident()) {
+            return Collections.emptySet();
+         }
+         size += e.weight - oldWeight;
+         if (e.state == Recency.LIR_RESIDENT) {
+            hotSize += e.weight - oldWeight;
+         }
+         if (size <= maximumSize) {
+            return Collections.emptySet();
+         }
+         Set<HashEntry<K, V>> evicted = new HashSet<HashEntry<K, V>>();
+         collectEvictionCandidates(size - maximumSize, e, evicted);
+         removeFromSegment(evicted);
+         return evicted;
+      }
+
+      @Override
+      public void onEntryReplace(HashEntry<K, V> e, HashEntry<K, V> copy) {
+         ((LIRSHashEntry<K, V>) copy).transplant((LIRSHashEntry<K, V>) e);
+      }
+
       private void removeFromSegment(Set<HashEntry<K, V>> evicted) {
          for (HashEntry<K, V> e : evicted) {
             ((LIRSHashEntry<K, V>)e).evict();
@@ -1124,6 +1301,439 @@ public HashEntry<K, V> createNewEntry(K key, int hash, HashEntry<K, V> next, V v
       }
    }
 
+   /**
+    * A count-min sketch of the access frequency of the keys of a Segment, used by {@link TinyLFU} to
+    * decide whether a new entry is worth keeping in place of an older one. Each key is counted in four
+    * 4-bit counters spread over an array of longs, and its frequency is the minimum of them. To keep
+    * the history fresh, all counters are halved once a number of increments proportional to the
+    * capacity has been recorded.
+    *
+    * Only accessed while holding the Segment lock.
+    */
+   static final class FrequencySketch {
+
+      private static final long[] SEED = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+      private static final long RESET_MASK = 0x7777777777777777L;
+      private static final long ONE_MASK = 0x1111111111111111L;
+      private static final int SAMPLE_FACTOR = 10;
+
+      private long[] table;
+      private int tableMask;
+      private int sampleSize;
+      private int additions;
+
+      FrequencySketch(int capacity) {
+         ensureCapacity(capacity);
+      }
+
+      /**
+       * Resizes the sketch to track at least <tt>capacity</tt> keys. Frequencies recorded so far are
+       * lost when the sketch grows.
+       */
+      void ensureCapacity(int capacity) {
+         int maximum = Math.min(Math.max(capacity, 16), MAXIMUM_CAPACITY);
+         if (table != null && table.length >= maximum) {
+            return;
+         }
+         int length = 1;
+         while (length < maximum) {
+            length <<= 1;
+         }
+         table = new long[length];
+         tableMask = length - 1;
+         sampleSize = SAMPLE_FACTOR * length;
+         additions = 0;
+      }
+
+      /**
+       * Returns the estimated number of accesses to the key with the given hash, between 0 and 15.
+       */
+      int frequency(int hash) {
+         int start = (hash & 3) << 2;
+         int frequency = Integer.MAX_VALUE;
+         for (int i = 0; i < 4; i++) {
+            int offset = (start + i) << 2;
+            int count = (int) ((table[indexOf(hash, i)] >>> offset) & 0xfL);
+            frequency = Math.min(frequency, count);
+         }
+         return frequency;
+      }
+
+      /**
+       * Records an access to the key with the given hash.
+       */
+      void increment(int hash) {
+         int start = (hash & 3) << 2;
+         boolean added = false;
+         for (int i = 0; i < 4; i++) {
+            added |= incrementAt(indexOf(hash, i), start + i);
+         }
+         if (added && ++additions == sampleSize) {
+            reset();
+         }
+      }
+
+      private boolean incrementAt(int index, int counter) {
+         int offset = counter << 2;
+         long mask = 0xfL << offset;
+         if ((table[index] & mask) != mask) {
+            table[index] += 1L << offset;
+            return true;
+         }
+         return false;
+      }
+
+      /**
+       * Halves every counter, so that keys popular in the past eventually make room for new ones.
+       */
+      private void reset() {
+         int odd = 0;
+         for (int i = 0; i < table.length; i++) {
+            odd += Long.bitCount(table[i] & ONE_MASK);
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+         }
+         additions = (additions >>> 1) - (odd >>> 2);
+      }
+
+      private int indexOf(int hash, int i) {
+         long h = (hash + SEED[i]) * SEED[i];
+         h += h >>> 32;
+         return ((int) h) & tableMask;
+      }
+   }
+
+   private enum Region {
+      NONE, WINDOW, PROBATION, PROTECTED
+   }
+
+   private static final class TinyLFUHashEntry<K, V> extends HashEntry<K, V> {
+      private TinyLFUHashEntry<K, V> prevInRegion;
+      private TinyLFUHashEntry<K, V> nextInRegion;
+      private Region region = Region.NONE;
+
+      TinyLFUHashEntry(K key, int hash, HashEntry<K, V> next, V value) {
+         super(key, hash, next, value);
+      }
+
+      /**
+       * Inserts this entry before the specified existing entry of a region.
+       */
+      private void addBefore(TinyLFUHashEntry<K, V> existingEntry) {
+         prevInRegion = existingEntry.prevInRegion;
+         nextInRegion = existingEntry;
+         prevInRegion.nextInRegion = this;
+         nextInRegion.prevInRegion = this;
+      }
+
+      /**
+       * Removes this entry from its region, fixing up neighbor links.
+       */
+      private void unlink() {
+         prevInRegion.nextInRegion = nextInRegion;
+         nextInRegion.prevInRegion = prevInRegion;
+         prevInRegion = null;
+         nextInRegion = null;
+      }
+   }
+
+   /**
+    * Window TinyLFU eviction policy.
+    * <p>
+    * New entries enter a small LRU window, sized at {@link #WINDOW_PERCENTAGE} of the Segment. Entries
+    * leaving the window are candidates for the main region, a segmented LRU made of a probation and a
+    * protected part. A candidate is only admitted if it was accessed more often than the entry it would
+    * replace, the least recently used entry of the probation part, according to a {@link FrequencySketch}.
+    * Entries accessed while in probation move to the protected part, which holds
+    * {@link #PROTECTED_PERCENTAGE} of the main region.
+    * <p>
+    * The window lets bursts of new entries build up frequency, while admission keeps one-off accesses,
+    * such as scans, from flushing frequently used entries out of the main region.
+    * <p>
+    * Like {@link LRU}, hits are recorded in a queue and applied in batches while holding the Segment lock.
+    *
+    * See "TinyLFU: A Highly Efficient Cache Admission Policy" by Gil Einziger, Roy Friedman and Ben Manes.
+    */
+   static final class TinyLFU<K, V> implements EvictionPolicy<K, V> {
+
+      private static final float WINDOW_PERCENTAGE = 0.01f;
+      private static final float PROTECTED_PERCENTAGE = 0.8f;
+
+      private final ConcurrentLinkedQueue<TinyLFUHashEntry<K, V>> accessQueue;
+      private final Segment<K, V> segment;
+      private final int maxBatchQueueSize;
+      private final float batchThresholdFactor;
+      private final FrequencySketch sketch;
+
+      private final long maximumSize;
+      private final long maximumWindowSize;
+      private final long maximumProtectedSize;
+
+      /** Heads of the three circular lists, the first entry of each being the least recently used */
+      private final TinyLFUHashEntry<K, V> window = header();
+      private final TinyLFUHashEntry<K, V> probation = header();
+      private final TinyLFUHashEntry<K, V> protect = header();
+
+      private long windowSize;
+      private long probationSize;
+      private long protectedSize;
+
+      public TinyLFU(Segment<K, V> s, int capacity, long maximumSize, int maxBatchSize, float batchThresholdFactor) {
+         this.segment = s;
+         this.maximumSize = maximumSize;
+         this.maximumWindowSize = Math.max(1, (long) (maximumSize * WINDOW_PERCENTAGE));
+         this.maximumProtectedSize = (long) ((maximumSize - maximumWindowSize) * PROTECTED_PERCENTAGE);
+         this.maxBatchQueueSize = maxBatchSize > MAX_BATCH_SIZE ? MAX_BATCH_SIZE : maxBatchSize;
+         this.batchThresholdFactor = batchThresholdFactor;
+         this.accessQueue = new ConcurrentLinkedQueue<TinyLFUHashEntry<K, V>>();
+         this.sketch = new FrequencySketch(capacity);
+      }
+
+      private static <K, V> TinyLFUHashEntry<K, V> header() {
+         TinyLFUHashEntry<K, V> header = new TinyLFUHashEntry<K, V>(null, 0, null, null);
+         header.prevInRegion = header;
+         header.nextInRegion = header;
+         return header;
+      }
+
+      private static <K, V> TinyLFUHashEntry<K, V> first(TinyLFUHashEntry<K, V> header) {
+         return header.nextInRegion == header ? null : header.nextInRegion;
+      }
+
+      @Override
+      public Set<HashEntry<K, V>> execute() {
+         Set<HashEntry<K, V>> evicted = new HashSet<HashEntry<K, V>>();
+         try {
+            for (TinyLFUHashEntry<K, V> e : accessQueue) {
+               if (e.region != Region.NONE) {
+                  sketch.increment(e.hash);
+                  onAccess(e);
+               }
+            }
+         } finally {
+            accessQueue.clear();
+         }
+         return evicted;
+      }
+
+      private void onAccess(TinyLFUHashEntry<K, V> e) {
+         switch (e.region) {
+            case WINDOW:
+               e.unlink();
+               e.addBefore(window);
+               break;
+            case PROBATION:
+               e.unlink();
+               probationSize -= e.weight;
+               e.region = Region.PROTECTED;
+               e.addBefore(protect);
+               protectedSize += e.weight;
+               demoteProtected();
+               break;
+            case PROTECTED:
+               e.unlink();
+               e.addBefore(protect);
+               break;
+         }
+      }
+
+      /**
+       * Moves the least recently used protected entries back to probation while the protected part
+       * is over its share of the main region.
+       */
+      private void demoteProtected() {
+         TinyLFUHashEntry<K, V> e;
+         while (protectedSize > maximumProtectedSize && (e = first(protect)) != null) {
+            e.unlink();
+            protectedSize -= e.weight;
+            e.region = Region.PROBATION;
+            e.addBefore(probation);
+            probationSize += e.weight;
+         }
+      }
+
+      @Override
+      public Set<HashEntry<K, V>> onEntryMiss(HashEntry<K, V> en) {
+         TinyLFUHashEntry<K, V> e = (TinyLFUHashEntry<K, V>) en;
+         if (segment.sizeCalculator != null) {
+            // the number of entries is not known in advance, let the sketch grow with the segment
+            sketch.ensureCapacity(segment.count);
+         }
+         sketch.increment(e.hash);
+         e.region = Region.WINDOW;
+         e.addBefore(window);
+         windowSize += e.weight;
+         return evict();
+      }
+
+      @Override
+      public Set<HashEntry<K, V>> onEntryResize(HashEntry<K, V> en, int oldWeight) {
+         TinyLFUHashEntry<K, V> e = (TinyLFUHashEntry<K, V>) en;
+         int delta = e.weight - oldWeight;
+         switch (e.region) {
+            case WINDOW:
+               windowSize += delta;
+               break;
+            case PROBATION:
+               probationSize += delta;
+               break;
+            case PROTECTED:
+               protectedSize += delta;
+               demoteProtected();
+               break;
+            default:
+               return Collections.emptySet();
+         }
+         return evict();
+      }
+
+      /**
+       * Moves the entries overflowing the window to the main region, when they are admitted, and
+       * then evicts entries until the Segment is back within its bound.
+       */
+      private Set<HashEntry<K, V>> evict() {
+         Set<HashEntry<K, V>> evicted = Collections.emptySet();
+         TinyLFUHashEntry<K, V> candidate;
+         // the most recently added entry always stays in the window
+         while (windowSize > maximumWindowSize && (candidate = first(window)) != null && candidate.nextInRegion != window) {
+            candidate.unlink();
+            windowSize -= candidate.weight;
+            candidate.region = Region.PROBATION;
+            candidate.addBefore(probation);
+            probationSize += candidate.weight;
+            evicted = admit(candidate, evicted);
+         }
+         // an entry heavier than the window may leave the Segment above its bound
+         TinyLFUHashEntry<K, V> victim;
+         while (windowSize + probationSize + protectedSize > maximumSize && (victim = mainVictim(null)) != null) {
+            evicted = evict(victim, evicted);
+         }
+         return evicted;
+      }
+
+      /**
+       * Evicts either the candidate, or enough least recently used entries of the main region to make room
+       * for it, depending on which ones were accessed more often.
+       */
+      private Set<HashEntry<K, V>> admit(TinyLFUHashEntry<K, V> candidate, Set<HashEntry<K, V>> evicted) {
+         int candidateFrequency = -1;
+         TinyLFUHashEntry<K, V> victim;
+         while (probationSize + protectedSize > maximumSize - maximumWindowSize && (victim = mainVictim(candidate)) != null) {
+            if (candidateFrequency < 0) {
+               candidateFrequency = sketch.frequency(candidate.hash);
+            }
+            if (candidateFrequency > sketch.frequency(victim.hash)) {
+               evicted = evict(victim, evicted);
+            } else {
+               return evict(candidate, evicted);
+            }
+         }
+         return evicted;
+      }
+
+      /**
+       * Returns the least recently used entry of the main region other than <tt>excluded</tt>, preferring
+       * entries in probation.
+       */
+      private TinyLFUHashEntry<K, V> mainVictim(TinyLFUHashEntry<K, V> excluded) {
+         TinyLFUHashEntry<K, V> victim = first(probation);
+         if (victim == excluded && victim != null) {
+            victim = victim.nextInRegion == probation ? null : victim.nextInRegion;
+         }
+         if (victim == null) {
+            victim = first(protect);
+         }
+         return victim;
+      }
+
+      private Set<HashEntry<K, V>> evict(TinyLFUHashEntry<K, V> e, Set<HashEntry<K, V>> evicted) {
+         if (evicted.isEmpty()) {
+            evicted = new HashSet<HashEntry<K, V>>();
+         }
+         evicted.add(e);
+         segment.evictionListener.onEntryChosenForEviction(e.value);
+         // unlinks e, see onEntryRemove
+         segment.remove(e.key, e.hash, null);
+         return evicted;
+      }
+
+      /*
+       * Invoked without holding a lock on Segment
+       */
+      @Override
+      public boolean onEntryHit(HashEntry<K, V> e) {
+         accessQueue.add((TinyLFUHashEntry<K, V>) e);
+         return accessQueue.size() >= maxBatchQueueSize * batchThresholdFactor;
+      }
+
+      /*
+       * Invoked without holding a lock on Segment
+       */
+      @Override
+      public boolean thresholdExpired() {
+         return accessQueue.size() >= maxBatchQueueSize;
+      }
+
+      @Override
+      public void onEntryRemove(HashEntry<K, V> en) {
+         TinyLFUHashEntry<K, V> e = (TinyLFUHashEntry<K, V>) en;
+         switch (e.region) {
+            case WINDOW:
+               windowSize -= e.weight;
+               break;
+            case PROBATION:
+               probationSize -= e.weight;
+               break;
+            case PROTECTED:
+               protectedSize -= e.weight;
+               break;
+            default:
+               return;
+         }
+         e.unlink();
+         // pending accesses to e are ignored from now on
+         e.region = Region.NONE;
+      }
+
+      @Override
+      public void onEntryReplace(HashEntry<K, V> en, HashEntry<K, V> copy) {
+         TinyLFUHashEntry<K, V> e = (TinyLFUHashEntry<K, V>) en;
+         TinyLFUHashEntry<K, V> c = (TinyLFUHashEntry<K, V>) copy;
+         if (e.region == Region.NONE) {
+            return;
+         }
+         c.region = e.region;
+         c.addBefore(e);
+         e.unlink();
+         e.region = Region.NONE;
+      }
+
+      @Override
+      public void clear() {
+         for (TinyLFUHashEntry<K, V> header : Arrays.asList(window, probation, protect)) {
+            for (TinyLFUHashEntry<K, V> e = header.nextInRegion; e != header; e = e.nextInRegion) {
+               e.region = Region.NONE;
+            }
+            header.prevInRegion = header;
+            header.nextInRegion = header;
+         }
+         windowSize = 0;
+         probationSize = 0;
+         protectedSize = 0;
+         accessQueue.clear();
+      }
+
+      @Override
+      public Eviction strategy() {
+         return Eviction.TINY_LFU;
+      }
+
+      @Override
+      public HashEntry<K, V> createNewEntry(K key, int hash, HashEntry<K, V> next, V value) {
+         return new TinyLFUHashEntry<K, V>(key, hash, next, value);
+      }
+   }
+
    /**
     * Segments are specialized versions of hash tables.  This
     * subclasses from ReentrantLock opportunistically, just to
@@ -1206,13 +1816,34 @@ public HashEntry<K, V> createNewEntry(K key, int hash, HashEntry<K, V> next, V v
 
       final int evictCap;
 
+      /**
+       * The maximum weight of the entries in this segment, only used when entries are weighted
+       * by a {@link EntrySizeCalculator}.
+       */
+      final long maxWeight;
+
+      /**
+       * The sum of the weights of the entries in this segment. Equal to the number of entries
+       * unless entries are weighted by a {@link EntrySizeCalculator}.
+       */
+      transient volatile long weightedSize;
+
+      transient final EntrySizeCalculator<? super K, ? super V> sizeCalculator;
+
       transient final EvictionPolicy<K, V> eviction;
 
       transient final EvictionListener<K, V> evictionListener;
 
       Segment(int cap, int evictCap, float lf, Eviction es, EvictionListener<K, V> listener) {
+         this(cap, evictCap, evictCap, lf, es, listener, null);
+      }
+
+      Segment(int cap, int evictCap, long maxWeight, float lf, Eviction es, EvictionListener<K, V> listener,
+               EntrySizeCalculator<? super K, ? super V> sizeCalculator) {
          loadFactor = lf;
          this.evictCap = evictCap;
+         this.maxWeight = maxWeight;
+         this.sizeCalculator = sizeCalculator;
          eviction = es.make(this, evictCap, lf);
          evictionListener = listener;
          setTable(HashEntry.<K, V> newArray(cap));
@@ -1244,6 +1875,59 @@ HashEntry<K,V> getFirst(int hash) {
          return tab[hash & tab.length - 1];
       }
 
+      /**
+       * Returns the entry mapped to the given key, or null. Call only while holding lock.
+       */
+      HashEntry<K,V> findEntry(Object key, int hash) {
+         HashEntry<K, V> e = getFirst(hash);
+         while (e != null && (e.hash != hash || !key.equals(e.key))) {
+            e = e.next;
+         }
+         return e;
+      }
+
+      /**
+       * Calculates the weight of a mapping, which is 1 unless entries are weighted
+       * by a {@link EntrySizeCalculator}.
+       */
+      int weigh(K key, V value) {
+         if (sizeCalculator == null) {
+            return 1;
+         }
+         long weight = sizeCalculator.calculateSize(key, value);
+         if (weight < 0) {
+            throw new IllegalArgumentException("Negative size " + weight + " calculated for key " + key);
+         }
+         return weight > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) weight;
+      }
+
+      /**
+       * Updates the weight of an entry whose value was replaced. Call only while holding lock.
+       *
+       * @return entries evicted because of the new weight, or null
+       */
+      Set<HashEntry<K, V>> updateWeight(HashEntry<K, V> e, int weight) {
+         int oldWeight = e.weight;
+         if (oldWeight == weight) {
+            return null;
+         }
+         e.weight = weight;
+         weightedSize += weight - oldWeight;
+         Set<HashEntry<K, V>> evicted = eviction.onEntryResize(e, oldWeight);
+         return evicted.isEmpty() ? null : evicted;
+      }
+
+      private static <K, V> Set<HashEntry<K, V>> merge(Set<HashEntry<K, V>> evicted, Set<HashEntry<K, V>> newlyEvicted) {
+         if (newlyEvicted == null || newlyEvicted.isEmpty()) {
+            return evicted;
+         }
+         if (evicted == null) {
+            return newlyEvicted;
+         }
+         evicted.addAll(newlyEvicted);
+         return evicted;
+      }
+
       /**
        * Reads value field of an entry under lock. Called if value
        * field ever appears to be null. This is possible only if a
@@ -1325,6 +2009,7 @@ boolean containsValue(Object value) {
       }
 
       boolean replace(K key, int hash, V oldValue, V newValue) {
+         int weight = weigh(key, newValue);
          lock();
          Set<HashEntry<K, V>> evicted = null;
          try {
@@ -1340,6 +2025,7 @@ boolean replace(K key, int hash, V oldValue, V newValue) {
                if (eviction.onEntryHit(e)) {
                   evicted = attemptEviction(true);
                }
+               evicted = merge(evicted, updateWeight(e, weight));
             }
             return replaced;
          } finally {
@@ -1349,6 +2035,7 @@ boolean replace(K key, int hash, V oldValue, V newValue) {
       }
 
       V replace(K key, int hash, V newValue) {
+         int weight = weigh(key, newValue);
          lock();
          Set<HashEntry<K, V>> evicted = null;
          try {
@@ -1364,6 +2051,7 @@ V replace(K key, int hash, V newValue) {
                if (eviction.onEntryHit(e)) {
                   evicted = attemptEviction(true);
                }
+               evicted = merge(evicted, updateWeight(e, weight));
             }
             return oldValue;
          } finally {
@@ -1373,11 +2061,13 @@ V replace(K key, int hash, V newValue) {
       }
 
       V put(K key, int hash, V value, boolean onlyIfAbsent) {
+         int weight = weigh(key, value);
          lock();
          Set<HashEntry<K, V>> evicted = null;
          try {
             int c = count;
-            if (c++ > threshold && eviction.strategy() == Eviction.NONE) {
+            // segments bounded by weight hold an unknown number of entries, so their table grows
+            if (c++ > threshold && (eviction.strategy() == Eviction.NONE || sizeCalculator != null)) {
                rehash();
             }
             HashEntry<K, V>[] tab = table;
@@ -1394,13 +2084,15 @@ V put(K key, int hash, V value, boolean onlyIfAbsent) {
                if (!onlyIfAbsent) {
                   e.value = value;
                   eviction.onEntryHit(e);
+                  evicted = updateWeight(e, weight);
                }
             } else {
                oldValue = null;
                ++modCount;
                count = c; // write-volatile
+               weightedSize += weight;
                if (eviction.strategy() != Eviction.NONE) {
-                  if (c > evictCap) {
+                  if (sizeCalculator == null && c > evictCap) {
                      // remove entries;lower count
                      evicted = eviction.execute();
                      // re-read first
@@ -1408,6 +2100,7 @@ V put(K key, int hash, V value, boolean onlyIfAbsent) {
                   }
                   // add a new entry
                   tab[index] = eviction.createNewEntry(key, hash, first, value);
+                  tab[index].weight = weight;
                   // notify a miss
                   Set<HashEntry<K, V>> newlyEvicted = eviction.onEntryMiss(tab[index]);
                   if (!newlyEvicted.isEmpty()) {
@@ -1419,6 +2112,7 @@ V put(K key, int hash, V value, boolean onlyIfAbsent) {
                   }
                } else {
                   tab[index] = eviction.createNewEntry(key, hash, first, value);
+                  tab[index].weight = weight;
                }
             }
             return oldValue;
@@ -1483,7 +2177,10 @@ void rehash() {
                   for (HashEntry<K,V> p = e; p != lastRun; p = p.next) {
                      int k = p.hash & sizeMask;
                      HashEntry<K,V> n = newTable[k];
-                     newTable[k] = eviction.createNewEntry(p.key, p.hash, n, p.value);
+                     HashEntry<K,V> copy = eviction.createNewEntry(p.key, p.hash, n, p.value);
+                     copy.weight = p.weight;
+                     eviction.onEntryReplace(p, copy);
+                     newTable[k] = copy;
                   }
                }
             }
@@ -1518,13 +2215,25 @@ V remove(Object key, int hash, Object value) {
 
                   // e was removed
                   eviction.onEntryRemove(e);
+                  weightedSize -= e.weight;
 
                   HashEntry<K, V> newFirst = e.next;
+                  // a miss could evict entries of this very bucket, so policies which may evict on a miss
+                  // let the copies take the place of the entries they replace
+                  boolean replaceInPlace = sizeCalculator != null || eviction.strategy() == Eviction.TINY_LFU;
                   for (HashEntry<K, V> p = first; p != e; p = p.next) {
+                     if (replaceInPlace) {
+                        HashEntry<K, V> copy = eviction.createNewEntry(p.key, p.hash, newFirst, p.value);
+                        copy.weight = p.weight;
+                        eviction.onEntryReplace(p, copy);
+                        newFirst = copy;
+                        continue;
+                     }
                      // TODO A remove operation makes the map behave like all the other keys in the bucket were just added???
                      // allow p to be GC-ed
                      eviction.onEntryRemove(p);
                      newFirst = eviction.createNewEntry(p.key, p.hash, newFirst, p.value);
+                     newFirst.weight = p.weight;
                      // and notify eviction algorithm about new hash entries
                      eviction.onEntryMiss(newFirst);
                   }
@@ -1549,6 +2258,7 @@ void clear() {
                }
                ++modCount;
                eviction.clear();
+               weightedSize = 0;
                count = 0; // write-volatile
             } finally {
                unlock();
@@ -1668,6 +2378,64 @@ public BoundedConcurrentHashMap(int capacity, int concurrencyLevel,
       }
    }
 
+   /**
+    * Creates a new, empty map bounded by the total weight of its entries, as calculated by the
+    * given {@link EntrySizeCalculator}, rather than by the number of entries.
+    *
+    * @param maxWeight
+    *            is the upper bound for the sum of the weights of the elements in this map
+    *
+    * @param concurrencyLevel
+    *            the estimated number of concurrently updating threads. The implementation performs
+    *            internal sizing to try to accommodate this many threads.
+    *
+    * @param evictionStrategy
+    *            the algorithm used to evict elements from this map
+    *
+    * @param evictionListener
+    *            the evicton listener callback to be notified about evicted elements
+    *
+    * @param sizeCalculator
+    *            calculates the weight of each entry
+    *
+    * @throws IllegalArgumentException
+    *             if the maximum weight is not positive, the concurrencyLevel is nonpositive or
+    *             the eviction strategy is NONE.
+    */
+   public BoundedConcurrentHashMap(long maxWeight, int concurrencyLevel, Eviction evictionStrategy,
+         EvictionListener<K, V> evictionListener, EntrySizeCalculator<? super K, ? super V> sizeCalculator) {
+      if (maxWeight <= 0 || concurrencyLevel <= 0) {
+         throw new IllegalArgumentException();
+      }
+      if (evictionStrategy == null || evictionStrategy == Eviction.NONE || evictionListener == null
+            || sizeCalculator == null) {
+         throw new IllegalArgumentException();
+      }
+
+      if (concurrencyLevel > MAX_SEGMENTS) {
+         concurrencyLevel = MAX_SEGMENTS;
+      }
+
+      // Find power-of-two sizes best matching arguments
+      int sshift = 0;
+      int ssize = 1;
+      while (ssize < concurrencyLevel) {
+         ++sshift;
+         ssize <<= 1;
+      }
+      segmentShift = 32 - sshift;
+      segmentMask = ssize - 1;
+      this.segments = Segment.newArray(ssize);
+
+      // the number of entries is unknown, segment tables start small and grow
+      long segmentWeight = Math.max(maxWeight / ssize, 1);
+      int cap = 16;
+      for (int i = 0; i < this.segments.length; ++i) {
+         this.segments[i] = new Segment<K, V>(cap, cap, segmentWeight, DEFAULT_LOAD_FACTOR, evictionStrategy,
+               evictionListener, sizeCalculator);
+      }
+   }
+
    /**
     * Creates a new, empty map with the specified maximum capacity, load factor, concurrency
     * level and LRU eviction policy.
@@ -1772,6 +2540,21 @@ public boolean isEmpty() {
       return true;
    }
 
+   /**
+    * Returns the sum of the weights of the mappings in this map. Unless the map was created with an
+    * {@link EntrySizeCalculator} this is the number of mappings. The value is an estimate, as
+    * segments are not locked while summing their weights.
+    *
+    * @return the weighted size of this map
+    */
+   public long weightedSize() {
+      long sum = 0;
+      for (Segment<K, V> segment : segments) {
+         sum += segment.weightedSize;
+      }
+      return sum;
+   }
+
    /**
     * Returns the number of key-value mappings in this map.  If the
     * map contains more than <tt>Integer.MAX_VALUE</tt> elements, returns
@@ -0,0 +1,435 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.util.concurrent.locks;
+
+import net.jcip.annotations.ThreadSafe;
+import org.infinispan.marshall.MarshalledValue;
+
+import java.lang.ref.WeakReference;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.AbstractQueuedSynchronizer;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Profiles the contention on the locks of a {@link LockManager}: how long acquisitions wait, how many threads are
+ * queued behind them, how many time out and how long locks are held.  This is tracked for every lock stripe, when lock
+ * striping is used, and for a sample of the keys locked.
+ * <p />
+ * To keep the locking path cheap, every thread counts into buffers of its own, which it adds to the shared counters
+ * once it has {@link #SAMPLES_PER_FLUSH} key samples or {@link #FLUSH_INTERVAL_NANOS} after its previous flush.  The
+ * buffers of all the threads are also {@link #flush() flushed} before the results are read, so these always reflect
+ * every acquisition recorded so far.  Wait times are added to the lock manager's {@link LockWaitHistogram}.
+ *
+ * @since 5.2
+ */
+@ThreadSafe
+public class LockContentionProfiler {
+
+   static final int SAMPLES_PER_FLUSH = 64;
+   static final long FLUSH_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+   // per stripe counters, STRIPE_FIELDS of them for each stripe
+   private static final int ACQUISITIONS = 0;
+   private static final int CONTENDED = 1;
+   private static final int TIMEOUTS = 2;
+   private static final int WAIT_NANOS = 3;
+   private static final int MAX_QUEUE_LENGTH = 4;
+   private static final int HOLDS = 5;
+   private static final int HOLD_NANOS = 6;
+   private static final int STRIPE_FIELDS = 7;
+
+   private final int sampleRate;
+   private final int maxTrackedKeys;
+   private final int stripes;
+   private final LockWaitHistogram waitTimes;
+   private final AtomicLongArray stripeCounters;
+   private final ConcurrentMap<Object, KeyContention> keys = new ConcurrentHashMap<Object, KeyContention>();
+   private final ConcurrentMap<Object, Long> heldSince = new ConcurrentHashMap<Object, Long>();
+
+   // the recorders of all the threads that recorded something, so that readers can flush them
+   private final Set<Recorder> registeredRecorders = Collections.newSetFromMap(new ConcurrentHashMap<Recorder, Boolean>());
+
+   private final ThreadLocal<Recorder> recorders = new ThreadLocal<Recorder>() {
+      @Override
+      protected Recorder initialValue() {
+         Recorder r = new Recorder();
+         registeredRecorders.add(r);
+         return r;
+      }
+   };
+
+   /**
+    * @param sampleRate one in every <tt>sampleRate</tt> lock acquisitions of a thread is tracked per key, as well as
+    *                   every acquisition that times out
+    * @param maxTrackedKeys the number of keys to track at most; past that, the least contended half is forgotten
+    * @param stripes the number of lock stripes, or 0 if lock striping is not used
+    * @param waitTimes the histogram to add wait times to
+    */
+   public LockContentionProfiler(int sampleRate, int maxTrackedKeys, int stripes, LockWaitHistogram waitTimes) {
+      this.sampleRate = sampleRate;
+      this.maxTrackedKeys = maxTrackedKeys;
+      this.stripes = stripes;
+      this.waitTimes = waitTimes;
+      this.stripeCounters = new AtomicLongArray(stripes * STRIPE_FIELDS);
+   }
+
+   /**
+    * @return the number of lock stripes profiled, 0 if lock striping is not used
+    */
+   public int getStripes() {
+      return stripes;
+   }
+
+   /**
+    * Records an attempt to acquire the lock on a key.
+    *
+    * @param key the key locked
+    * @param stripe the stripe guarding the key, or -1 if lock striping is not used
+    * @param waitNanos the time the attempt took
+    * @param contended whether the lock was held by another owner when the attempt started
+    * @param queueLength the number of threads queued for the lock once it was acquired
+    * @param acquired whether the lock was acquired
+    */
+   public void recordAcquisition(Object key, int stripe, long waitNanos, boolean contended, int queueLength, boolean acquired) {
+      Recorder r = recorders.get();
+      synchronized (r) {
+         r.waitCounts[LockWaitHistogram.bucketOf(TimeUnit.NANOSECONDS.toMicros(waitNanos))]++;
+         r.waitNanos += waitNanos;
+         if (stripe >= 0) {
+            int base = stripe * STRIPE_FIELDS;
+            long[] counters = r.stripeCounters;
+            counters[base + ACQUISITIONS]++;
+            if (contended) counters[base + CONTENDED]++;
+            if (!acquired) counters[base + TIMEOUTS]++;
+            counters[base + WAIT_NANOS] += waitNanos;
+            if (queueLength > counters[base + MAX_QUEUE_LENGTH]) counters[base + MAX_QUEUE_LENGTH] = queueLength;
+         }
+         long now = System.nanoTime();
+         if (!acquired || ++r.acquisitions % sampleRate == 0) {
+            r.addSample(new KeySample(key, waitNanos, contended, queueLength, acquired));
+            if (acquired) heldSince.put(key, now);
+         }
+         r.flushIfNeeded(now);
+      }
+   }
+
+   /**
+    * Records the release of the lock on a key, before the lock is actually released.  Only the hold times of sampled
+    * acquisitions are tracked.
+    *
+    * @param key the key unlocked
+    * @param stripe the stripe guarding the key, or -1 if lock striping is not used
+    */
+   public void recordRelease(Object key, int stripe) {
+      // the caller still holds the lock, so no one else can add the key in between
+      if (heldSince.get(key) == null) return;
+      Long since = heldSince.remove(key);
+      if (since == null) return;
+
+      Recorder r = recorders.get();
+      synchronized (r) {
+         long now = System.nanoTime();
+         long holdNanos = now - since;
+         if (stripe >= 0) {
+            int base = stripe * STRIPE_FIELDS;
+            r.stripeCounters[base + HOLDS]++;
+            r.stripeCounters[base + HOLD_NANOS] += holdNanos;
+         }
+         r.addSample(new KeySample(key, holdNanos));
+         r.flushIfNeeded(now);
+      }
+   }
+
+   /**
+    * Adds the counters buffered by every thread to the shared counters and the wait time histogram.  The recorders of
+    * threads that have died are dropped once flushed.
+    */
+   public void flush() {
+      long now = System.nanoTime();
+      for (Iterator<Recorder> it = registeredRecorders.iterator(); it.hasNext(); ) {
+         Recorder r = it.next();
+         synchronized (r) {
+            r.flush(now);
+         }
+         Thread owner = r.owner.get();
+         if (owner == null || !owner.isAlive()) it.remove();
+      }
+   }
+
+   /**
+    * @param count the number of keys to list at most
+    * @return the sampled keys that waited the longest for their locks, most contended first
+    */
+   public String printMostContendedKeys(int count) {
+      flush();
+      List<Map.Entry<Object, KeyContention>> entries = sortedKeys();
+      StringBuilder sb = new StringBuilder();
+      for (int i = 0; i < Math.min(count, entries.size()); i++) {
+         Object key = entries.get(i).getKey();
+         if (key instanceof MarshalledValue) key = ((MarshalledValue) key).get();
+         sb.append(key).append(' ').append(entries.get(i).getValue()).append('\n');
+      }
+      return sb.toString();
+   }
+
+   /**
+    * @param count the number of stripes to list at most
+    * @return the lock stripes that waited the longest, most contended first
+    */
+   public String printMostContendedStripes(int count) {
+      if (stripes == 0) return "Lock striping is not used";
+      flush();
+      // sort a snapshot, as the counters keep changing
+      final long[] waits = new long[stripes];
+      Integer[] order = new Integer[stripes];
+      for (int i = 0; i < stripes; i++) {
+         waits[i] = stripeCounters.get(i * STRIPE_FIELDS + WAIT_NANOS);
+         order[i] = i;
+      }
+      Arrays.sort(order, new Comparator<Integer>() {
+         @Override
+         public int compare(Integer s1, Integer s2) {
+            long w1 = waits[s1], w2 = waits[s2];
+            return w1 > w2 ? -1 : (w1 == w2 ? 0 : 1);
+         }
+      });
+      StringBuilder sb = new StringBuilder();
+      for (int i = 0; i < Math.min(count, stripes); i++) {
+         int base = order[i] * STRIPE_FIELDS;
+         long acquisitions = stripeCounters.get(base + ACQUISITIONS);
+         if (acquisitions == 0) break;
+         long holds = stripeCounters.get(base + HOLDS);
+         sb.append("stripe ").append(order[i])
+               .append(" [acquisitions=").append(acquisitions)
+               .append(", contended=").append(stripeCounters.get(base + CONTENDED))
+               .append(", timeouts=").append(stripeCounters.get(base + TIMEOUTS))
+               .append(", avgWait=").append(averageMicros(stripeCounters.get(base + WAIT_NANOS), acquisitions)).append("us")
+               .append(", maxQueueLength=").append(stripeCounters.get(base + MAX_QUEUE_LENGTH))
+               .append(", sampledHolds=").append(holds)
+               .append(", avgHold=").append(averageMicros(stripeCounters.get(base + HOLD_NANOS), holds)).append("us")
+               .append("]\n");
+      }
+      return sb.toString();
+   }
+
+   /**
+    * @return the number of threads waiting for the given lock, if the lock can tell
+    */
+   static int queueLength(Lock lock) {
+      if (lock instanceof AbstractQueuedSynchronizer) return ((AbstractQueuedSynchronizer) lock).getQueueLength();
+      if (lock instanceof ReentrantLock) return ((ReentrantLock) lock).getQueueLength();
+      return 0;
+   }
+
+   private static long averageMicros(long nanos, long count) {
+      return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(nanos / count);
+   }
+
+   private KeyContention getKeyContention(Object key) {
+      KeyContention contention = keys.get(key);
+      if (contention == null) {
+         if (keys.size() >= maxTrackedKeys) forgetLeastContendedKeys();
+         contention = new KeyContention();
+         KeyContention existing = keys.putIfAbsent(key, contention);
+         if (existing != null) contention = existing;
+      }
+      return contention;
+   }
+
+   private synchronized void forgetLeastContendedKeys() {
+      if (keys.size() < maxTrackedKeys) return;
+      List<Map.Entry<Object, KeyContention>> entries = sortedKeys();
+      for (Map.Entry<Object, KeyContention> e : entries.subList(entries.size() / 2, entries.size())) {
+         keys.remove(e.getKey());
+      }
+   }
+
+   /**
+    * @return a snapshot of the tracked keys, most contended first
+    */
+   private List<Map.Entry<Object, KeyContention>> sortedKeys() {
+      List<Map.Entry<Object, KeyContention>> entries = new ArrayList<Map.Entry<Object, KeyContention>>(keys.size());
+      for (Map.Entry<Object, KeyContention> e : keys.entrySet()) {
+         entries.add(new AbstractMap.SimpleImmutableEntry<Object, KeyContention>(e.getKey(), e.getValue().copy()));
+      }
+      Collections.sort(entries, MOST_CONTENDED_FIRST);
+      return entries;
+   }
+
+   private static final Comparator<Map.Entry<Object, KeyContention>> MOST_CONTENDED_FIRST = new Comparator<Map.Entry<Object, KeyContention>>() {
+      @Override
+      public int compare(Map.Entry<Object, KeyContention> e1, Map.Entry<Object, KeyContention> e2) {
+         long w1 = e1.getValue().getWaitNanos();
+         long w2 = e2.getValue().getWaitNanos();
+         return w1 > w2 ? -1 : (w1 == w2 ? 0 : 1);
+      }
+   };
+
+   /**
+    * The counters of a single thread, only ever updated by that thread.  They are guarded by the recorder's monitor so
+    * that {@link LockContentionProfiler#flush()} can add them to the shared counters from another thread; the monitor is
+    * only ever contended while the results are being read.
+    */
+   private final class Recorder {
+      final WeakReference<Thread> owner = new WeakReference<Thread>(Thread.currentThread());
+      final long[] waitCounts = new long[LockWaitHistogram.BUCKETS];
+      long waitNanos;
+      final long[] stripeCounters = new long[stripes * STRIPE_FIELDS];
+      final KeySample[] samples = new KeySample[SAMPLES_PER_FLUSH];
+      int sampleCount;
+      long acquisitions;
+      long lastFlush = System.nanoTime();
+
+      void addSample(KeySample sample) {
+         samples[sampleCount++] = sample;
+      }
+
+      void flushIfNeeded(long now) {
+         if (sampleCount == SAMPLES_PER_FLUSH || now - lastFlush >= FLUSH_INTERVAL_NANOS) flush(now);
+      }
+
+      void flush(long now) {
+         waitTimes.add(waitCounts, waitNanos);
+         Arrays.fill(waitCounts, 0);
+         waitNanos = 0;
+
+         for (int i = 0; i < stripeCounters.length; i++) {
+            long value = stripeCounters[i];
+            if (value == 0) continue;
+            if (i % STRIPE_FIELDS == MAX_QUEUE_LENGTH) {
+               long current;
+               while ((current = LockContentionProfiler.this.stripeCounters.get(i)) < value
+                     && !LockContentionProfiler.this.stripeCounters.compareAndSet(i, current, value)) {
+               }
+            } else {
+               LockContentionProfiler.this.stripeCounters.addAndGet(i, value);
+            }
+            stripeCounters[i] = 0;
+         }
+
+         for (int i = 0; i < sampleCount; i++) {
+            getKeyContention(samples[i].key).add(samples[i]);
+            samples[i] = null;
+         }
+         sampleCount = 0;
+         lastFlush = now;
+      }
+   }
+
+   /**
+    * A sampled acquisition of a key's lock, or the release of a sampled acquisition.
+    */
+   private static final class KeySample {
+      final Object key;
+      final long waitNanos;
+      final boolean contended;
+      final int queueLength;
+      final boolean acquired;
+      final long holdNanos;
+
+      KeySample(Object key, long waitNanos, boolean contended, int queueLength, boolean acquired) {
+         this.key = key;
+         this.waitNanos = waitNanos;
+         this.contended = contended;
+         this.queueLength = queueLength;
+         this.acquired = acquired;
+         this.holdNanos = -1;
+      }
+
+      KeySample(Object key, long holdNanos) {
+         this.key = key;
+         this.waitNanos = 0;
+         this.contended = false;
+         this.queueLength = 0;
+         this.acquired = true;
+         this.holdNanos = holdNanos;
+      }
+   }
+
+   /**
+    * The aggregated samples of a key.
+    */
+   private static final class KeyContention {
+      private long acquisitions;
+      private long contended;
+      private long timeouts;
+      private long waitNanos;
+      private long maxQueueLength;
+      private long holds;
+      private long holdNanos;
+
+      synchronized void add(KeySample sample) {
+         if (sample.holdNanos >= 0) {
+            holds++;
+            holdNanos += sample.holdNanos;
+            return;
+         }
+         acquisitions++;
+         if (sample.contended) contended++;
+         if (!sample.acquired) timeouts++;
+         waitNanos += sample.waitNanos;
+         maxQueueLength = Math.max(maxQueueLength, sample.queueLength);
+      }
+
+      synchronized KeyContention copy() {
+         KeyContention copy = new KeyContention();
+         copy.acquisitions = acquisitions;
+         copy.contended = contended;
+         copy.timeouts = timeouts;
+         copy.waitNanos = waitNanos;
+         copy.maxQueueLength = maxQueueLength;
+         copy.holds = holds;
+         copy.holdNanos = holdNanos;
+         return copy;
+      }
+
+      synchronized long getWaitNanos() {
+         return waitNanos;
+      }
+
+      @Override
+      public synchronized String toString() {
+         return "[sampledAcquisitions=" + acquisitions +
+               ", contended=" + contended +
+               ", timeouts=" + timeouts +
+               ", avgWait=" + averageMicros(waitNanos, acquisitions) + "us" +
+               ", maxQueueLength=" + maxQueueLength +
+               ", sampledHolds=" + holds +
+               ", avgHold=" + averageMicros(holdNanos, holds) + "us" +
+               "]";
+      }
+   }
+}
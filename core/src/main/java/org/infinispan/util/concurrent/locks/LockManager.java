@@ -152,4 +152,20 @@ public interface LockManager {
     */
    boolean acquireLockNoCheck(InvocationContext ctx, Object key) throws InterruptedException, TimeoutException;
 
+   /**
+    * Locks several keys at once, recording the locks in the context.  Keys whose locks are already held in the current
+    * scope are skipped, and keys sharing a lock (with lock striping) only wait for it once.  Locks are acquired in an
+    * order that is the same for every caller, and the timeout applies to the acquisition as a whole rather than to each
+    * lock.  If any of the locks cannot be acquired, the ones acquired by this call are released again.
+    *
+    * @param ctx           context
+    * @param keys          keys to lock
+    * @param timeoutMillis time to wait for all the locks, or a negative value to use the configured lock acquisition
+    *                      timeout
+    * @throws InterruptedException if interrupted
+    * @throws org.infinispan.util.concurrent.TimeoutException
+    *                              if we are unable to acquire all the locks within the timeout.
+    */
+   void acquireLocks(InvocationContext ctx, Collection<Object> keys, long timeoutMillis) throws InterruptedException, TimeoutException;
+
 }
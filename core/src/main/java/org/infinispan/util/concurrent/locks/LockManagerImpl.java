@@ -22,30 +22,42 @@
  */
 package org.infinispan.util.concurrent.locks;
 
+import org.infinispan.commons.hash.MurmurHash3;
 import org.infinispan.configuration.cache.Configuration;
 import org.infinispan.container.entries.CacheEntry;
 import org.infinispan.context.Flag;
 import org.infinispan.context.InvocationContext;
 import org.infinispan.factories.annotations.Inject;
+import org.infinispan.factories.annotations.Start;
 import org.infinispan.jmx.annotations.MBean;
 import org.infinispan.jmx.annotations.ManagedAttribute;
+import org.infinispan.jmx.annotations.ManagedOperation;
 import org.infinispan.marshall.MarshalledValue;
+import org.infinispan.util.ByteArrayKey;
+import org.infinispan.util.TimSort;
 import org.infinispan.util.Util;
 import org.infinispan.util.concurrent.TimeoutException;
 import org.infinispan.util.concurrent.locks.containers.*;
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
 import org.rhq.helpers.pluginAnnotations.agent.DataType;
+import org.rhq.helpers.pluginAnnotations.agent.DisplayType;
 import org.rhq.helpers.pluginAnnotations.agent.Metric;
+import org.rhq.helpers.pluginAnnotations.agent.Operation;
+import org.rhq.helpers.pluginAnnotations.agent.Parameter;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.locks.Lock;
 
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 
 /**
  * Handles locks for the MVCC based LockingInterceptor
@@ -61,6 +73,16 @@ public class LockManagerImpl implements LockManager {
    private static final Log log = LogFactory.getLog(LockManagerImpl.class);
    protected static final boolean trace = log.isTraceEnabled();
    private static final String ANOTHER_THREAD = "(another thread)";
+   private static final MurmurHash3 HASH = new MurmurHash3();
+   private static final int MAX_PROFILED_KEYS = 1024;
+
+   private final LockWaitHistogram lockWaitTimes = new LockWaitHistogram();
+   private volatile boolean statisticsEnabled;
+   private Comparator<Object> lockOrder;
+   // null unless contention is being profiled, so that profiling costs a single volatile read when disabled
+   private volatile LockContentionProfiler activeProfiler;
+   // the current or last profiler, kept so that its results can still be read once profiling stops
+   private volatile LockContentionProfiler profiler;
 
    @Inject
    public void injectDependencies(Configuration configuration, LockContainer<?> lockContainer) {
@@ -68,6 +90,12 @@ public void injectDependencies(Configuration configuration, LockContainer<?> loc
       this.lockContainer = lockContainer;
    }
 
+   @Start
+   public void startStatistics() {
+      statisticsEnabled = configuration.jmxStatistics().enabled();
+      lockOrder = configuration.locking().useLockStriping() ? new StripeOrder() : new KeyHashOrder();
+   }
+
    @Override
    public boolean lockAndRecord(Object key, InvocationContext ctx, long timeoutMillis) throws InterruptedException {
       if (trace) log.tracef("Attempting to lock %s with acquisition timeout of %s millis", key, timeoutMillis);
@@ -101,7 +129,7 @@ protected long getLockAcquisitionTimeout(InvocationContext ctx) {
    @Override
    public void unlock(Collection<Object> lockedKeys, Object lockOwner) {
       log.tracef("Attempting to unlock keys %s", lockedKeys);
-      for (Object k : lockedKeys) lockContainer.releaseLock(lockOwner, k);
+      for (Object k : lockedKeys) releaseLock(lockOwner, k);
    }
 
    @Override
@@ -109,7 +137,7 @@ public void unlock(Collection<Object> lockedKeys, Object lockOwner) {
    public void unlockAll(InvocationContext ctx) {
       for (Object k : ctx.getLockedKeys()) {
          if (trace) log.tracef("Attempting to unlock %s", k);
-         lockContainer.releaseLock(ctx.getLockOwner(), k);
+         releaseLock(ctx.getLockOwner(), k);
       }
       ctx.clearLockedKeys();
    }
@@ -172,6 +200,121 @@ public int getLockId(Object key) {
       return lockContainer.getLockId(key);
    }
 
+   @ManagedAttribute(description = "Histogram of the time spent waiting for locks, in power of two buckets of microseconds")
+   @Metric(displayName = "Lock wait time histogram", dataType = DataType.TRAIT)
+   public String getLockWaitTimeHistogram() {
+      flushProfiler();
+      return lockWaitTimes.toString();
+   }
+
+   @ManagedAttribute(description = "Average time spent waiting for a lock, in microseconds")
+   @Metric(displayName = "Average lock wait time (microseconds)", displayType = DisplayType.SUMMARY)
+   public long getAverageLockWaitTime() {
+      flushProfiler();
+      return lockWaitTimes.getAverageMicros();
+   }
+
+   /**
+    * Adds the wait times the profiler's threads have not reported yet to {@link #lockWaitTimes}.
+    */
+   private void flushProfiler() {
+      LockContentionProfiler p = profiler;
+      if (p != null) p.flush();
+   }
+
+   @ManagedOperation(description = "Resets statistics gathered by this component")
+   @Operation(displayName = "Reset statistics")
+   public void resetStatistics() {
+      lockWaitTimes.reset();
+   }
+
+   public void setStatisticsEnabled(boolean statisticsEnabled) {
+      this.statisticsEnabled = statisticsEnabled;
+   }
+
+   @ManagedOperation(description = "Starts profiling lock contention, discarding the results of any previous profiling")
+   @Operation(displayName = "Start lock contention profiling")
+   public void startContentionProfiling(@Parameter(name = "sampleRate", description = "Track one in every sampleRate lock acquisitions per key") int sampleRate) {
+      if (sampleRate < 1) throw new IllegalArgumentException("Sample rate must be positive, was " + sampleRate);
+      int stripes = configuration.locking().useLockStriping() ? lockContainer.size() : 0;
+      profiler = new LockContentionProfiler(sampleRate, MAX_PROFILED_KEYS, stripes, lockWaitTimes);
+      activeProfiler = profiler;
+   }
+
+   @ManagedOperation(description = "Stops profiling lock contention, keeping the results gathered so far")
+   @Operation(displayName = "Stop lock contention profiling")
+   public void stopContentionProfiling() {
+      activeProfiler = null;
+   }
+
+   @ManagedAttribute(description = "Whether lock contention is being profiled")
+   @Metric(displayName = "Lock contention profiling enabled", dataType = DataType.TRAIT)
+   public boolean isContentionProfilingEnabled() {
+      return activeProfiler != null;
+   }
+
+   @ManagedOperation(description = "Lists the sampled keys that waited the longest for their lock, with wait and hold times in microseconds")
+   @Operation(displayName = "Most contended keys")
+   public String printMostContendedKeys(@Parameter(name = "count", description = "Number of keys to list") int count) {
+      LockContentionProfiler p = profiler;
+      return p == null ? "Lock contention has not been profiled" : p.printMostContendedKeys(count);
+   }
+
+   @ManagedOperation(description = "Lists the lock stripes that waited the longest, with wait and hold times in microseconds")
+   @Operation(displayName = "Most contended lock stripes")
+   public String printMostContendedStripes(@Parameter(name = "count", description = "Number of stripes to list") int count) {
+      LockContentionProfiler p = profiler;
+      return p == null ? "Lock contention has not been profiled" : p.printMostContendedStripes(count);
+   }
+
+   /**
+    * Orders keys by the lock stripe guarding them, so that keys sharing a stripe end up next to each other.
+    */
+   private class StripeOrder implements Comparator<Object> {
+      @Override
+      public int compare(Object o1, Object o2) {
+         int thisVal = lockContainer.getLockId(o1);
+         int anotherVal = lockContainer.getLockId(o2);
+         return (thisVal<anotherVal ? -1 : (thisVal==anotherVal ? 0 : 1));
+      }
+   }
+
+   /**
+    * Orders keys by their hash, the same way on every node, as each key has a lock of its own. Keys whose hashes
+    * collide are ordered by class name and then by value: byte arrays by content, other keys through
+    * {@link Comparable} or else their {@link Object#toString()}.
+    */
+   static class KeyHashOrder implements Comparator<Object> {
+      @Override
+      public int compare(Object o1, Object o2) {
+         int thisVal = HASH.hash(o1);
+         int anotherVal = HASH.hash(o2);
+         if (thisVal != anotherVal) return thisVal < anotherVal ? -1 : 1;
+         return compareColliding(o1, o2);
+      }
+
+      @SuppressWarnings("unchecked")
+      private static int compareColliding(Object o1, Object o2) {
+         if (o1.getClass() != o2.getClass())
+            return o1.getClass().getName().compareTo(o2.getClass().getName());
+         if (o1 instanceof byte[])
+            return compareBytes((byte[]) o1, (byte[]) o2);
+         if (o1 instanceof ByteArrayKey)
+            return compareBytes(((ByteArrayKey) o1).getData(), ((ByteArrayKey) o2).getData());
+         if (o1 instanceof Comparable)
+            return ((Comparable<Object>) o1).compareTo(o2);
+         return o1.toString().compareTo(o2.toString());
+      }
+
+      private static int compareBytes(byte[] b1, byte[] b2) {
+         int length = Math.min(b1.length, b2.length);
+         for (int i = 0; i < length; i++) {
+            if (b1[i] != b2[i]) return b1[i] < b2[i] ? -1 : 1;
+         }
+         return b1.length - b2.length;
+      }
+   }
+
    @Override
    public final boolean acquireLock(InvocationContext ctx, Object key) throws InterruptedException, TimeoutException {
       return acquireLock(ctx, key, -1);
@@ -201,19 +344,111 @@ public final boolean acquireLockNoCheck(InvocationContext ctx, Object key) throw
       return false;
    }
 
+   @Override
+   public void acquireLocks(InvocationContext ctx, Collection<Object> keys, long timeoutMillis) throws InterruptedException, TimeoutException {
+      if (ctx.hasFlag(Flag.SKIP_LOCKING)) {
+         logLockNotAcquired(ctx);
+         return;
+      }
+      Set<Object> notLocked = new HashSet<Object>(keys.size());
+      for (Object key : keys) {
+         if (!ctx.hasLockedKey(key)) notLocked.add(key);
+      }
+      if (timeoutMillis < 0) timeoutMillis = getLockAcquisitionTimeout(ctx);
+      if (notLocked.size() == 1) {
+         lock(ctx, notLocked.iterator().next(), timeoutMillis);
+         return;
+      } else if (notLocked.isEmpty()) {
+         return;
+      }
+
+      Object[] ordered = notLocked.toArray(new Object[notLocked.size()]);
+      TimSort.sort(ordered, lockOrder);
+      if (trace) log.tracef("Locking keys %s with acquisition timeout of %s millis", Arrays.asList(ordered), timeoutMillis);
+
+      Object owner = ctx.getLockOwner();
+      long deadline = System.nanoTime() + MILLISECONDS.toNanos(timeoutMillis);
+      int acquired = 0;
+      try {
+         for (int i = 0; i < ordered.length; i++) {
+            Object key = ordered[i];
+            if (i > 0 && sharesLock(ordered[i - 1], key)) {
+               // we already hold this stripe, so this is a reentrant acquisition that doesn't need to wait
+               if (lockContainer.acquireLock(owner, key, 0, MILLISECONDS) == null)
+                  throw newTimeoutException(ctx, key, timeoutMillis);
+            } else {
+               long remaining = Math.max(NANOSECONDS.toMillis(deadline - System.nanoTime()), 0);
+               if (!timedLockAndRecord(key, ctx, remaining))
+                  throw newTimeoutException(ctx, key, timeoutMillis);
+            }
+            acquired++;
+         }
+      } finally {
+         if (acquired < ordered.length) {
+            for (int i = 0; i < acquired; i++) releaseLock(owner, ordered[i]);
+         }
+      }
+      for (Object key : ordered) ctx.addLockedKey(key);
+   }
+
+   private boolean sharesLock(Object previousKey, Object key) {
+      return lockOrder instanceof StripeOrder && lockContainer.getLockId(previousKey) == lockContainer.getLockId(key);
+   }
+
    private boolean lock(InvocationContext ctx, Object key, long timeoutMillis) throws InterruptedException {
-      if (lockAndRecord(key, ctx, timeoutMillis)) {
+      if (timedLockAndRecord(key, ctx, timeoutMillis)) {
          ctx.addLockedKey(key);
          return true;
       } else {
-         Object owner = getOwner(key);
-         // if lock cannot be acquired, expose the key itself, not the marshalled value
-         if (key instanceof MarshalledValue) {
-            key = ((MarshalledValue) key).get();
-         }
-         throw new TimeoutException("Unable to acquire lock after [" + Util.prettyPrintTime(getLockAcquisitionTimeout(ctx)) + "] on key [" + key + "] for requestor [" +
-               ctx.getLockOwner() + "]! Lock held by [" + owner + "]");
+         throw newTimeoutException(ctx, key, getLockAcquisitionTimeout(ctx));
+      }
+   }
+
+   private boolean timedLockAndRecord(Object key, InvocationContext ctx, long timeoutMillis) throws InterruptedException {
+      LockContentionProfiler p = activeProfiler;
+      if (p != null) return profiledLockAndRecord(p, key, ctx, timeoutMillis);
+      if (!statisticsEnabled) return lockAndRecord(key, ctx, timeoutMillis);
+      long start = System.nanoTime();
+      try {
+         return lockAndRecord(key, ctx, timeoutMillis);
+      } finally {
+         lockWaitTimes.record(System.nanoTime() - start);
+      }
+   }
+
+   private boolean profiledLockAndRecord(LockContentionProfiler p, Object key, InvocationContext ctx, long timeoutMillis) throws InterruptedException {
+      boolean contended = lockContainer.isLocked(key) && !lockContainer.ownsLock(key, ctx.getLockOwner());
+      long start = System.nanoTime();
+      boolean acquired = false;
+      try {
+         acquired = lockAndRecord(key, ctx, timeoutMillis);
+         return acquired;
+      } finally {
+         long waitNanos = System.nanoTime() - start;
+         // only look the lock up once it is ours, as a per-entry lock container would create it otherwise
+         int queueLength = acquired ? LockContentionProfiler.queueLength(lockContainer.getLock(key)) : 0;
+         p.recordAcquisition(key, stripeOf(p, key), waitNanos, contended, queueLength, acquired);
+      }
+   }
+
+   private void releaseLock(Object owner, Object key) {
+      LockContentionProfiler p = activeProfiler;
+      if (p != null) p.recordRelease(key, stripeOf(p, key));
+      lockContainer.releaseLock(owner, key);
+   }
+
+   private int stripeOf(LockContentionProfiler p, Object key) {
+      return p.getStripes() > 0 ? lockContainer.getLockId(key) : -1;
+   }
+
+   private TimeoutException newTimeoutException(InvocationContext ctx, Object key, long timeoutMillis) {
+      Object owner = getOwner(key);
+      // if lock cannot be acquired, expose the key itself, not the marshalled value
+      if (key instanceof MarshalledValue) {
+         key = ((MarshalledValue) key).get();
       }
+      return new TimeoutException("Unable to acquire lock after [" + Util.prettyPrintTime(timeoutMillis) + "] on key [" + key + "] for requestor [" +
+            ctx.getLockOwner() + "]! Lock held by [" + owner + "]");
    }
 
    private void logLockNotAcquired(InvocationContext ctx) {
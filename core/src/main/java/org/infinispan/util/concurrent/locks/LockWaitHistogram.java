@@ -0,0 +1,126 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.util.concurrent.locks;
+
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of lock acquisition wait times, with power of two buckets of microseconds: the first bucket counts
+ * waits under 1 microsecond, bucket <tt>i</tt> counts waits between 2<sup>i-1</sup> (inclusive) and 2<sup>i</sup>
+ * microseconds, and the last bucket counts everything longer.
+ *
+ * @since 5.2
+ */
+@ThreadSafe
+public class LockWaitHistogram {
+
+   static final int BUCKETS = 32;
+
+   private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+   private final AtomicLong totalNanos = new AtomicLong();
+
+   /**
+    * Records a wait of the given length.
+    *
+    * @param waitNanos the time spent waiting, in nanoseconds
+    */
+   public void record(long waitNanos) {
+      counts.incrementAndGet(bucketOf(TimeUnit.NANOSECONDS.toMicros(waitNanos)));
+      totalNanos.addAndGet(waitNanos);
+   }
+
+   /**
+    * Adds waits that were counted elsewhere, e.g. in a thread local buffer.
+    *
+    * @param bucketCounts the number of waits to add to each bucket, as bucketed by {@link #bucketOf(long)}
+    * @param waitNanos the total time of those waits, in nanoseconds
+    */
+   void add(long[] bucketCounts, long waitNanos) {
+      for (int i = 0; i < BUCKETS; i++) {
+         if (bucketCounts[i] != 0) counts.addAndGet(i, bucketCounts[i]);
+      }
+      totalNanos.addAndGet(waitNanos);
+   }
+
+   /**
+    * @return the number of waits recorded in each bucket
+    */
+   public long[] getCounts() {
+      long[] result = new long[BUCKETS];
+      for (int i = 0; i < BUCKETS; i++) result[i] = counts.get(i);
+      return result;
+   }
+
+   /**
+    * @return the number of waits recorded
+    */
+   public long getCount() {
+      long count = 0;
+      for (int i = 0; i < BUCKETS; i++) count += counts.get(i);
+      return count;
+   }
+
+   /**
+    * @return the average wait, in microseconds, or 0 if nothing was recorded
+    */
+   public long getAverageMicros() {
+      long count = getCount();
+      return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(totalNanos.get()) / count;
+   }
+
+   public void reset() {
+      for (int i = 0; i < BUCKETS; i++) counts.set(i, 0);
+      totalNanos.set(0);
+   }
+
+   /**
+    * @return the non-empty buckets, e.g. <tt>{&lt;1us=10, 16-32us=2}</tt>
+    */
+   @Override
+   public String toString() {
+      StringBuilder sb = new StringBuilder("{");
+      for (int i = 0; i < BUCKETS; i++) {
+         long count = counts.get(i);
+         if (count == 0) continue;
+         if (sb.length() > 1) sb.append(", ");
+         if (i == 0) {
+            sb.append("<1us");
+         } else if (i == BUCKETS - 1) {
+            sb.append(">=").append(1L << (i - 1)).append("us");
+         } else {
+            sb.append(1L << (i - 1)).append('-').append(1L << i).append("us");
+         }
+         sb.append('=').append(count);
+      }
+      return sb.append('}').toString();
+   }
+
+   static int bucketOf(long micros) {
+      if (micros <= 0) return 0;
+      return Math.min(64 - Long.numberOfLeadingZeros(micros), BUCKETS - 1);
+   }
+}
@@ -862,4 +862,12 @@ void asyncStoreShutdownTimeoutTooHigh(long configuredAsyncStopTimeout,
    @Message(value = "While stopping a cache or cache manager, one of its components failed to stop", id = 189)
    void componentFailedToStop(@Cause Throwable e);
 
+   @LogMessage(level = WARN)
+   @Message(value = "Problems compacting log file %s", id = 190)
+   void problemCompactingLogFile(File file, @Cause Throwable t);
+
+   @LogMessage(level = WARN)
+   @Message(value = "Log file %s ends with an incomplete record at offset %d, ignoring it", id = 191)
+   void truncatedLogFile(File file, long offset);
+
 }
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2012 Red Hat, Inc. and/or its affiliates.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA
+ * 02110-1301 USA
+ */
+
+package org.infinispan.api.mvcc.repeatable_read;
+
+import org.infinispan.CacheException;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.configuration.cache.VersioningScheme;
+import org.infinispan.container.DataContainer;
+import org.infinispan.container.entries.CacheEntry;
+import org.infinispan.container.entries.InternalCacheEntry;
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.infinispan.test.SingleCacheManagerTest;
+import org.infinispan.test.TestingUtil;
+import org.infinispan.test.fwk.CleanupAfterMethod;
+import org.infinispan.test.fwk.TestCacheManagerFactory;
+import org.infinispan.transaction.LockingMode;
+import org.infinispan.transaction.TransactionTable;
+import org.infinispan.util.concurrent.IsolationLevel;
+import org.testng.annotations.Test;
+
+import javax.transaction.RollbackException;
+import javax.transaction.Transaction;
+
+/**
+ * Tests repeatable read with stamped reads, where reads keep a reference to the data container's entry instead of
+ * copying it.
+ *
+ * @since 5.2
+ */
+@Test(testName = "api.mvcc.repeatable_read.StampedReadsTest", groups = "functional")
+@CleanupAfterMethod
+public class StampedReadsTest extends SingleCacheManagerTest {
+
+   @Override
+   protected EmbeddedCacheManager createCacheManager() throws Exception {
+      ConfigurationBuilder builder = TestCacheManagerFactory.getDefaultCacheConfiguration(true);
+      builder
+            .locking()
+               .isolationLevel(IsolationLevel.REPEATABLE_READ)
+               .stampedReads(true)
+            .transaction()
+               .lockingMode(LockingMode.OPTIMISTIC);
+
+      EmbeddedCacheManager cm = TestCacheManagerFactory.createCacheManager(builder);
+      builder.locking().writeSkewCheck(true).versioning().enable().scheme(VersioningScheme.SIMPLE);
+      cm.defineConfiguration("ws-chk", builder.build());
+      return cm;
+   }
+
+   public void testReadIsNotCopied() throws Exception {
+      cache.put("k", "v1");
+
+      tm().begin();
+      assert "v1".equals(cache.get("k"));
+      InternalCacheEntry read = dataContainer().peek("k");
+      assert lookupEntry(tm().getTransaction(), "k") == read : "The entry read should not have been wrapped";
+      Transaction t = tm().suspend();
+
+      cache.put("k", "v2");
+      assert dataContainer().peek("k") != read;
+      assert "v1".equals(read.getValue());
+
+      tm().resume(t);
+      assert "v1".equals(cache.get("k"));
+      tm().commit();
+
+      assert "v2".equals(cache.get("k"));
+   }
+
+   public void testReadThenWrite() throws Exception {
+      cache.put("k", "v1");
+
+      tm().begin();
+      assert "v1".equals(cache.get("k"));
+      cache.put("k", "v2");
+      assert "v2".equals(cache.get("k"));
+      assert lookupEntry(tm().getTransaction(), "k").isChanged();
+      tm().commit();
+
+      assert "v2".equals(cache.get("k"));
+   }
+
+   public void testReadMissingKey() throws Exception {
+      tm().begin();
+      assert cache.get("k") == null;
+      Transaction t = tm().suspend();
+
+      cache.put("k", "v1");
+
+      tm().resume(t);
+      assert cache.get("k") == null;
+      tm().commit();
+
+      assert "v1".equals(cache.get("k"));
+   }
+
+   public void testEntriesAreReplaced() {
+      cache.put("k", "v1");
+      InternalCacheEntry first = dataContainer().peek("k");
+      cache.put("k", "v2");
+      InternalCacheEntry second = dataContainer().peek("k");
+
+      assert first != second;
+      assert "v1".equals(first.getValue());
+      assert "v2".equals(second.getValue());
+      assert second.getStamp() == first.getStamp() + 1;
+   }
+
+   public void testWriteSkewWithSameValueInstance() throws Exception {
+      cache = cacheManager.getCache("ws-chk");
+      String value = "v1";
+      cache.put("k", value);
+
+      tm().begin();
+      assert value == cache.get("k");
+      Transaction t = tm().suspend();
+
+      // an update that stores the very same instance still changes the stamp
+      cache.put("k", value);
+
+      tm().resume(t);
+      try {
+         cache.put("k", "v2");
+         assert false : "Should have detected write skew";
+      } catch (CacheException e) {
+         // expected
+      }
+
+      try {
+         tm().commit();
+         assert false : "Transaction should roll back";
+      } catch (RollbackException e) {
+         // expected
+      }
+
+      assert value == cache.get("k");
+   }
+
+   private DataContainer dataContainer() {
+      return TestingUtil.extractComponent(cache, DataContainer.class);
+   }
+
+   private CacheEntry lookupEntry(Transaction tx, Object key) {
+      return TestingUtil.extractComponent(cache, TransactionTable.class).getLocalTransaction(tx).lookupEntry(key);
+   }
+}
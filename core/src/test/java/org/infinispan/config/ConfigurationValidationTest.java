@@ -22,7 +22,9 @@
  */
 package org.infinispan.config;
 
+import org.infinispan.commands.ReplicableCommand;
 import org.infinispan.manager.EmbeddedCacheManager;
+import org.infinispan.remoting.ReplicationQueue;
 import org.infinispan.test.AbstractInfinispanTest;
 import org.infinispan.test.TestingUtil;
 import org.infinispan.test.fwk.TestCacheManagerFactory;
@@ -60,7 +62,6 @@ public void testCacheModeConfiguration() throws Exception {
       }
    }
 
-   @Test (expectedExceptions = ConfigurationException.class)
    public void testDistAndReplQueue() {
       EmbeddedCacheManager ecm = null;
       try {
@@ -68,6 +69,22 @@ public void testDistAndReplQueue() {
          c.setCacheMode(DIST_ASYNC);
          c.setUseReplQueue(true);
          ecm = TestCacheManagerFactory.createClusteredCacheManager(c);
+         // the default queue batches the commands of each destination separately
+         assert ecm.getCache().getCacheConfiguration().clustering().async().useReplQueue();
+      } finally {
+         TestingUtil.killCacheManagers(ecm);
+      }
+   }
+
+   @Test (expectedExceptions = ConfigurationException.class)
+   public void testDistAndReplQueueWithoutRecipients() {
+      EmbeddedCacheManager ecm = null;
+      try {
+         Configuration c = new Configuration();
+         c.setCacheMode(DIST_ASYNC);
+         c.setUseReplQueue(true);
+         c.setReplQueueClass(BroadcastOnlyReplQueue.class.getName());
+         ecm = TestCacheManagerFactory.createClusteredCacheManager(c);
          ecm.getCache();
       } finally {
          TestingUtil.killCacheManagers(ecm);
@@ -97,4 +114,40 @@ private EmbeddedCacheManager createCacheManager() throws Exception {
       cm.defineConfiguration("local", config);
       return cm;
    }
+
+   /**
+    * A replication queue which cannot send commands to some members only.
+    */
+   public static class BroadcastOnlyReplQueue implements ReplicationQueue {
+      @Override
+      public void start() {
+      }
+
+      @Override
+      public void stop() {
+      }
+
+      @Override
+      public boolean isEnabled() {
+         return true;
+      }
+
+      @Override
+      public void add(ReplicableCommand job) {
+      }
+
+      @Override
+      public int flush() {
+         return 0;
+      }
+
+      @Override
+      public int getElementsCount() {
+         return 0;
+      }
+
+      @Override
+      public void reset() {
+      }
+   }
 }
@@ -47,6 +47,7 @@
 import org.infinispan.test.CacheManagerCallable;
 import org.infinispan.test.fwk.TestCacheManagerFactory;
 import org.infinispan.test.fwk.TransportFlags;
+import org.infinispan.transaction.LockingMode;
 import org.infinispan.transaction.lookup.DummyTransactionManagerLookup;
 import org.infinispan.util.FileLookup;
 import org.infinispan.util.FileLookupFactory;
@@ -207,6 +208,39 @@ public void testClusterNameNull() {
       gc.transport().clusterName(null).build();
    }
 
+   public void testUse1PcForSingleOwnerTransactions() {
+      Configuration c = new ConfigurationBuilder()
+            .clustering().cacheMode(CacheMode.DIST_SYNC)
+            .transaction().lockingMode(LockingMode.OPTIMISTIC).use1PcForSingleOwnerTransactions(true)
+            .build();
+      assert c.transaction().use1PcForSingleOwnerTransactions();
+   }
+
+   @Test(expectedExceptions = ConfigurationException.class)
+   public void testUse1PcForSingleOwnerTransactionsNotDistSync() {
+      new ConfigurationBuilder()
+            .clustering().cacheMode(CacheMode.REPL_SYNC)
+            .transaction().lockingMode(LockingMode.OPTIMISTIC).use1PcForSingleOwnerTransactions(true)
+            .build();
+   }
+
+   @Test(expectedExceptions = ConfigurationException.class)
+   public void testUse1PcForSingleOwnerTransactionsPessimistic() {
+      new ConfigurationBuilder()
+            .clustering().cacheMode(CacheMode.DIST_SYNC)
+            .transaction().lockingMode(LockingMode.PESSIMISTIC).use1PcForSingleOwnerTransactions(true)
+            .build();
+   }
+
+   @Test(expectedExceptions = ConfigurationException.class)
+   public void testUse1PcForSingleOwnerTransactionsWithRecovery() {
+      new ConfigurationBuilder()
+            .clustering().cacheMode(CacheMode.DIST_SYNC)
+            .transaction().lockingMode(LockingMode.OPTIMISTIC).use1PcForSingleOwnerTransactions(true)
+               .recovery()
+            .build();
+   }
+
    @Test
    public void testSchema() throws Exception {
       FileLookup lookup = FileLookupFactory.newInstance();
@@ -0,0 +1,129 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.container;
+
+import org.infinispan.test.AbstractInfinispanTest;
+import org.testng.annotations.Test;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.infinispan.container.ExpirationWheel.TICK_MILLIS;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+/**
+ * Tests the {@link ExpirationWheel} expiration index.
+ *
+ * @since 5.2
+ */
+@Test(groups = "unit", testName = "container.ExpirationWheelTest")
+public class ExpirationWheelTest extends AbstractInfinispanTest {
+
+   private static final long START = 1000000L * TICK_MILLIS;
+
+   public void testKeyExpiresOnce() {
+      ExpirationWheel wheel = new ExpirationWheel(1, START);
+      wheel.schedule("k", START + 10 * TICK_MILLIS);
+      assertTrue(wheel.expire(START + 5 * TICK_MILLIS).isEmpty());
+      assertEquals(1, wheel.size());
+      Collection<Object> due = wheel.expire(START + 10 * TICK_MILLIS + 1);
+      assertEquals(1, due.size());
+      assertTrue(due.contains("k"));
+      assertEquals(0, wheel.size());
+      assertTrue(wheel.expire(START + 100 * TICK_MILLIS).isEmpty());
+   }
+
+   public void testExpiryInThePast() {
+      ExpirationWheel wheel = new ExpirationWheel(1, START);
+      wheel.schedule("k", START - 10 * TICK_MILLIS);
+      assertTrue(wheel.expire(START).contains("k"));
+   }
+
+   public void testCoarserWheels() {
+      ExpirationWheel wheel = new ExpirationWheel(1, START);
+      long[] delays = {1, 63, 64, 65, 4095, 4096, 4097, 262143, 262144, 300000};
+      for (long delay : delays) {
+         wheel.schedule(delay, START + delay * TICK_MILLIS);
+      }
+      for (long delay : delays) {
+         Collection<Object> early = wheel.expire(START + (delay - 1) * TICK_MILLIS);
+         assertTrue("Key " + delay + " expired early", !early.contains(delay));
+         Collection<Object> due = wheel.expire(START + delay * TICK_MILLIS);
+         assertTrue("Key " + delay + " not expired: " + due, due.contains(delay));
+      }
+      assertEquals(0, wheel.size());
+   }
+
+   public void testEarlierScheduleWins() {
+      ExpirationWheel wheel = new ExpirationWheel(1, START);
+      wheel.schedule("k", START + 100 * TICK_MILLIS);
+      wheel.schedule("k", START + 10 * TICK_MILLIS);
+      wheel.schedule("k", START + 50 * TICK_MILLIS);
+      assertTrue(wheel.expire(START + 10 * TICK_MILLIS).contains("k"));
+      // the later schedules were superseded
+      assertTrue(wheel.expire(START + 200 * TICK_MILLIS).isEmpty());
+   }
+
+   public void testCancel() {
+      ExpirationWheel wheel = new ExpirationWheel(1, START);
+      wheel.schedule("k1", START + 10 * TICK_MILLIS);
+      wheel.schedule("k2", START + 10 * TICK_MILLIS);
+      wheel.cancel("k1", START + 10 * TICK_MILLIS);
+      Collection<Object> due = wheel.expire(START + 10 * TICK_MILLIS);
+      assertEquals(1, due.size());
+      assertTrue(due.contains("k2"));
+   }
+
+   public void testCancelKeepsOtherSchedule() {
+      ExpirationWheel wheel = new ExpirationWheel(1, START);
+      wheel.schedule("k", START + 10 * TICK_MILLIS);
+      // the removed entry expired later than the one now scheduled
+      wheel.cancel("k", START + 20 * TICK_MILLIS);
+      assertTrue(wheel.expire(START + 10 * TICK_MILLIS).contains("k"));
+   }
+
+   public void testManyKeys() {
+      ExpirationWheel wheel = new ExpirationWheel(1, START);
+      for (int i = 0; i < 10000; i++) {
+         wheel.schedule(i, START + i * 7L);
+      }
+      Set<Object> expired = new HashSet<Object>();
+      for (long now = START; now < START + 80000; now += 333) {
+         for (Object key : wheel.expire(now)) {
+            assertTrue(START + (Integer) key * 7L < now + TICK_MILLIS);
+            assertTrue("Key " + key + " expired twice", expired.add(key));
+         }
+      }
+      assertEquals(10000, expired.size());
+   }
+
+   public void testClear() {
+      ExpirationWheel wheel = new ExpirationWheel(1, START);
+      wheel.schedule("k", START + 10 * TICK_MILLIS);
+      wheel.clear();
+      assertEquals(0, wheel.size());
+      assertTrue(wheel.expire(START + 20 * TICK_MILLIS).isEmpty());
+   }
+}
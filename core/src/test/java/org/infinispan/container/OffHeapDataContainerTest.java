@@ -0,0 +1,142 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.container;
+
+import org.infinispan.container.entries.InternalCacheEntry;
+import org.infinispan.container.offheap.OffHeapDataContainer;
+import org.infinispan.eviction.EvictionManager;
+import org.infinispan.eviction.PassivationManager;
+import org.infinispan.marshall.TestObjectStreamMarshaller;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyMap;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+/**
+ * Runs the {@link SimpleDataContainerTest} suite against the {@link OffHeapDataContainer}, plus off-heap specific
+ * checks.
+ *
+ * @since 5.2
+ */
+@Test(groups = "unit", testName = "container.OffHeapDataContainerTest")
+public class OffHeapDataContainerTest extends SimpleDataContainerTest {
+
+   @Override
+   protected DataContainer createContainer() {
+      OffHeapDataContainer dc = new OffHeapDataContainer(16, 1024, 4096);
+      dc.initialize(null, null, new InternalEntryFactoryImpl(), new TestObjectStreamMarshaller());
+      return dc;
+   }
+
+   @Override
+   public void testUpdatingLastUsed() throws Exception {
+      // entries are detached copies, so the last used stamp is only visible on a fresh read
+      long idle = 600000;
+      dc.put("k", "v", null, -1, idle);
+      long oldTime = System.currentTimeMillis();
+      Thread.sleep(100); // for time calc granularity
+      InternalCacheEntry ice = dc.get("k");
+      assert ice.getLastUsed() > oldTime;
+      assert ice.getMaxIdle() == idle;
+
+      oldTime = System.currentTimeMillis();
+      Thread.sleep(100); // for time calc granularity
+      assert dc.get("k").getLastUsed() > oldTime;
+      assert dc.peek("k").getLastUsed() > oldTime;
+   }
+
+   public void testOverwriteAndRemoveReleaseMemory() {
+      OffHeapDataContainer container = (OffHeapDataContainer) dc;
+      for (int i = 0; i < 100; i++) dc.put("k" + i, "v" + i, null, -1, -1);
+      long used = container.getUsedMemory();
+      assertTrue(used > 0);
+      for (int i = 0; i < 100; i++) dc.put("k" + i, "w" + i, null, -1, -1);
+      assertEquals(used, container.getUsedMemory());
+      assertEquals(100, dc.size());
+      assertEquals("w42", dc.get("k42").getValue());
+
+      for (int i = 0; i < 100; i++) assertEquals("w" + i, dc.remove("k" + i).getValue());
+      assertEquals(0, dc.size());
+      assertEquals(0, container.getUsedMemory());
+      assertNull(dc.get("k42"));
+   }
+
+   public void testValuesLargerThanSlab() {
+      byte[] large = new byte[10000];
+      Arrays.fill(large, (byte) 7);
+      dc.put("large", large, null, -1, -1);
+      assertTrue(Arrays.equals(large, (byte[]) dc.get("large").getValue()));
+      dc.remove("large");
+      assertEquals(0, ((OffHeapDataContainer) dc).getUsedMemory());
+   }
+
+   public void testClear() {
+      for (int i = 0; i < 100; i++) dc.put(i, "v" + i, null, -1, -1);
+      dc.clear();
+      assertEquals(0, dc.size());
+      assertEquals(0, ((OffHeapDataContainer) dc).getReservedMemory());
+      assertNull(dc.get(1));
+      dc.put(1, "v", null, -1, -1);
+      assertEquals("v", dc.get(1).getValue());
+   }
+
+   public void testConcurrentPutAndClear() throws Exception {
+      final int keys = 1000;
+      Thread writer = new Thread("OffHeapWriter") {
+         @Override
+         public void run() {
+            for (int round = 0; round < 20; round++) {
+               for (int i = 0; i < keys; i++) dc.put(i, "v" + i, null, -1, -1);
+            }
+         }
+      };
+      writer.start();
+      while (writer.isAlive()) dc.clear();
+      writer.join();
+
+      // every record still reachable was written after the last clear that could affect it
+      for (InternalCacheEntry entry : dc) {
+         assertEquals("v" + entry.getKey(), entry.getValue());
+      }
+   }
+
+   public void testBoundedContainer() {
+      DataContainer bounded = OffHeapDataContainer.boundedDataContainer(1, 10, 16, 4096);
+      EvictionManager evictionManager = mock(EvictionManager.class);
+      PassivationManager passivationManager = mock(PassivationManager.class);
+      ((OffHeapDataContainer) bounded).initialize(evictionManager, passivationManager, new InternalEntryFactoryImpl(),
+                                                   new TestObjectStreamMarshaller());
+      for (int i = 0; i < 100; i++) bounded.put(i, "v" + i, null, -1, -1);
+      assertEquals(10, bounded.size());
+      verify(passivationManager, times(90)).passivate(any(InternalCacheEntry.class));
+      verify(evictionManager, times(90)).onEntryEviction(anyMap());
+   }
+}
@@ -0,0 +1,178 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.container.versioning;
+
+import org.infinispan.Cache;
+import org.infinispan.configuration.cache.CacheMode;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.container.entries.InternalCacheEntry;
+import org.infinispan.interceptors.TotalOrderInterceptor;
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.infinispan.test.TestingUtil;
+import org.infinispan.test.fwk.CleanupAfterMethod;
+import org.infinispan.transaction.TransactionProtocol;
+import org.infinispan.transaction.TransactionTable;
+import org.testng.annotations.Test;
+
+import javax.transaction.RollbackException;
+import javax.transaction.Transaction;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+
+/**
+ * Write skew checks of replicated caches using the total order transaction protocol.  Cache 0 is the coordinator,
+ * so transactions started on cache 1 are forwarded to it to be sequenced, and the other nodes apply them with the
+ * versions it generated.
+ *
+ * @since 5.2
+ */
+@Test(testName = "container.versioning.TotalOrderReplWriteSkewTest", groups = "functional")
+@CleanupAfterMethod
+public class TotalOrderReplWriteSkewTest extends AbstractClusteredWriteSkewTest {
+
+   @Override
+   protected CacheMode getCacheMode() {
+      return CacheMode.REPL_SYNC;
+   }
+
+   @Override
+   protected int clusterSize() {
+      return 3;
+   }
+
+   @Override
+   protected void decorate(ConfigurationBuilder builder) {
+      builder.transaction().transactionProtocol(TransactionProtocol.TOTAL_ORDER);
+   }
+
+   public void testTotalOrderInterceptorInstalled() {
+      for (Cache<Object, Object> c : this.<Object, Object>caches()) {
+         assertNotNull(TestingUtil.findInterceptor(c, TotalOrderInterceptor.class));
+      }
+   }
+
+   public void testCommitOnCoordinator() throws Exception {
+      doTestCommit(0);
+   }
+
+   public void testCommitOnNonCoordinator() throws Exception {
+      doTestCommit(1);
+   }
+
+   public void testWriteSkewOnCoordinator() throws Exception {
+      doTestWriteSkew(0, 2);
+   }
+
+   public void testWriteSkewOnNonCoordinator() throws Exception {
+      doTestWriteSkew(1, 2);
+   }
+
+   public void testSameVersionsOnAllNodes() throws Exception {
+      doTestCommit(1);
+      doTestCommit(2);
+      assertSameVersions("k1");
+      assertSameVersions("k2");
+   }
+
+   public void testCommitAfterCoordinatorLeaves() throws Exception {
+      doTestCommit(1);
+
+      EmbeddedCacheManager coordinator = manager(0);
+      TestingUtil.killCacheManagers(coordinator);
+      cacheManagers.remove(coordinator);
+      TestingUtil.blockUntilViewsReceived(60000, false, cache(0), cache(1));
+
+      // the new coordinator sequences once it has delivered everything the old one sequenced
+      tm(1).begin();
+      cache(1).put("k1", "v3");
+      tm(1).commit();
+
+      assertValue("k1", "v3");
+      assertSameVersions("k1");
+      doTestWriteSkew(1, 0);
+   }
+
+   private void doTestCommit(int originator) throws Exception {
+      tm(originator).begin();
+      cache(originator).put("k1", "v1");
+      cache(originator).put("k2", "v2");
+      tm(originator).commit();
+
+      assertValue("k1", "v1");
+      assertValue("k2", "v2");
+      assertNoTransactions();
+   }
+
+   private void doTestWriteSkew(int originator, int other) throws Exception {
+      cache(originator).put("hello", "world 1");
+
+      tm(originator).begin();
+      assertEquals(cache(originator).get("hello"), "world 1");
+      Transaction t = tm(originator).suspend();
+
+      // Induce a write skew
+      cache(other).put("hello", "world 3");
+      assertValue("hello", "world 3");
+
+      tm(originator).resume(t);
+      cache(originator).put("hello", "world 2");
+
+      try {
+         tm(originator).commit();
+         assert false : "Transaction should roll back";
+      } catch (RollbackException expected) {
+         // expected
+      }
+
+      assertValue("hello", "world 3");
+      assertNoTransactions();
+   }
+
+   private void assertValue(Object key, Object value) {
+      for (Cache<Object, Object> c : this.<Object, Object>caches()) {
+         assertEquals(c.get(key), value, "Wrong value on " + c);
+      }
+   }
+
+   private void assertSameVersions(Object key) {
+      EntryVersion version = advancedCache(0).getDataContainer().get(key).getVersion();
+      for (int i = 1; i < caches().size(); i++) {
+         InternalCacheEntry entry = advancedCache(i).getDataContainer().get(key);
+         assertEquals(entry.getVersion().compareTo(version), InequalVersionComparisonResult.EQUAL,
+                      "Wrong version on " + cache(i));
+      }
+   }
+
+   private void assertNoTransactions() {
+      for (final Cache<Object, Object> c : this.<Object, Object>caches()) {
+         eventually(new Condition() {
+            @Override
+            public boolean isSatisfied() throws Exception {
+               TransactionTable txTable = TestingUtil.extractComponent(c, TransactionTable.class);
+               return txTable.getLocalTxCount() == 0 && txTable.getRemoteTxCount() == 0;
+            }
+         });
+      }
+   }
+}
@@ -0,0 +1,113 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.distribution;
+
+import org.testng.annotations.Test;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.infinispan.context.Flag.SKIP_REMOTE_LOOKUP;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+
+@Test(groups = "functional", testName = "distribution.DistGetAllTest")
+public class DistGetAllTest extends BaseDistFunctionalTest {
+
+   public DistGetAllTest() {
+      cleanup = CleanupPhase.AFTER_METHOD;
+   }
+
+   public void testGetAllFromSeveralOwners() {
+      MagicKey k1 = new MagicKey(c1, "k1");
+      MagicKey k2 = new MagicKey(c2, "k2");
+      MagicKey k3 = new MagicKey(c3, "k3");
+      MagicKey missing = new MagicKey(c1, "missing");
+      c1.put(k1, "v1");
+      c2.put(k2, "v2");
+      c3.put(k3, "v3");
+
+      assertIsNotInL1(c4, k1);
+      assertIsNotInL1(c4, k2);
+
+      Map<Object, String> values = c4.getAll(keys(k1, k2, k3, missing));
+      assertEquals(values.size(), 3);
+      assertEquals(values.get(k1), "v1");
+      assertEquals(values.get(k2), "v2");
+      assertEquals(values.get(k3), "v3");
+      assertFalse(values.containsKey(missing));
+
+      // the entries fetched from remote owners are now in L1
+      assertIsInL1(c4, k1);
+      assertIsInL1(c4, k2);
+      assertOwnershipAndNonOwnership(k3, true);
+   }
+
+   public void testGetAllWithSkipRemoteLookup() {
+      MagicKey remote = new MagicKey(c1, "remote");
+      MagicKey local = new MagicKey(c3, "local");
+      c1.put(remote, "remote");
+      c1.put(local, "local");
+
+      Map<Object, String> values = c4.getAdvancedCache().withFlags(SKIP_REMOTE_LOOKUP).getAll(keys(remote, local));
+      assertEquals(values.size(), 1);
+      assertEquals(values.get(local), "local");
+      assertIsNotInL1(c4, remote);
+   }
+
+   public void testGetAllAsync() throws Exception {
+      MagicKey k1 = new MagicKey(c1, "k1");
+      MagicKey k2 = new MagicKey(c2, "k2");
+      c1.put(k1, "v1");
+      c1.put(k2, "v2");
+
+      Map<Object, String> values = c3.getAllAsync(keys(k1, k2)).get();
+      assertEquals(values.size(), 2);
+      assertEquals(values.get(k1), "v1");
+      assertEquals(values.get(k2), "v2");
+   }
+
+   public void testGetAllOfNoKeys() {
+      assertEquals(c1.getAll(new HashSet<Object>()).size(), 0);
+   }
+
+   public void testGetAllAfterRemove() {
+      MagicKey k1 = new MagicKey(c1, "k1");
+      MagicKey k2 = new MagicKey(c2, "k2");
+      c1.put(k1, "v1");
+      c1.put(k2, "v2");
+      assertEquals(c4.getAll(keys(k1, k2)).size(), 2);
+
+      c1.remove(k1);
+      Map<Object, String> values = c4.getAll(keys(k1, k2));
+      assertEquals(values.size(), 1);
+      assertEquals(values.get(k2), "v2");
+   }
+
+   private static Set<Object> keys(Object... keys) {
+      Set<Object> set = new HashSet<Object>();
+      for (Object key : keys) set.add(key);
+      return set;
+   }
+}
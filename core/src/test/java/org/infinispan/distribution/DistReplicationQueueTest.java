@@ -0,0 +1,121 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.distribution;
+
+import org.infinispan.Cache;
+import org.infinispan.configuration.cache.CacheMode;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.remoting.ReplicationQueue;
+import org.infinispan.remoting.transport.Address;
+import org.infinispan.test.MultipleCacheManagersTest;
+import org.infinispan.test.TestingUtil;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+/**
+ * Tests the per-destination batching of the replication queue in DIST_ASYNC mode.
+ *
+ * @since 5.2
+ */
+@Test(groups = "functional", testName = "distribution.DistReplicationQueueTest")
+public class DistReplicationQueueTest extends MultipleCacheManagersTest {
+
+   private static final int REPL_QUEUE_MAX_ELEMENTS = 10;
+
+   @Override
+   protected void createCacheManagers() throws Throwable {
+      ConfigurationBuilder builder = getDefaultClusteredCacheConfig(CacheMode.DIST_ASYNC, false);
+      builder.clustering().async().useReplQueue(true).replQueueInterval(0).replQueueMaxElements(REPL_QUEUE_MAX_ELEMENTS);
+      builder.clustering().hash().numOwners(2).l1().disable();
+      createClusteredCaches(3, builder);
+   }
+
+   public void testCommandsOnlyReachTheirOwners() {
+      ReplicationQueue queue = TestingUtil.extractComponent(cache(0), ReplicationQueue.class);
+      queue.reset();
+
+      for (int i = 0; i < 5; i++) cache(0).put("k" + i, "v" + i);
+      assertEquals(queue.getElementsCount(), 5);
+      for (int i = 0; i < 5; i++) {
+         assertNotInDataContainer(1, "k" + i);
+         assertNotInDataContainer(2, "k" + i);
+      }
+
+      assertEquals(queue.flush(), 5);
+      assertEquals(queue.getElementsCount(), 0);
+      for (int i = 0; i < 5; i++) assertOnOwnersOnly("k" + i, "v" + i);
+   }
+
+   public void testUpdatesOfAKeyAreAppliedInOrder() {
+      ReplicationQueue queue = TestingUtil.extractComponent(cache(0), ReplicationQueue.class);
+      queue.reset();
+
+      cache(0).put("ordered", "v1");
+      cache(0).put("ordered", "v2");
+      cache(0).remove("ordered");
+      cache(0).put("ordered", "v3");
+      queue.flush();
+      assertOnOwnersOnly("ordered", "v3");
+   }
+
+   public void testFlushWhenMaxElementsReached() {
+      ReplicationQueue queue = TestingUtil.extractComponent(cache(0), ReplicationQueue.class);
+      queue.reset();
+
+      for (int i = 0; i < REPL_QUEUE_MAX_ELEMENTS; i++) cache(0).put("max" + i, "v" + i);
+      assertEquals(queue.getElementsCount(), 0);
+      for (int i = 0; i < REPL_QUEUE_MAX_ELEMENTS; i++) assertOnOwnersOnly("max" + i, "v" + i);
+   }
+
+   private void assertNotInDataContainer(int index, Object key) {
+      if (!isOwner(index, key)) return;
+      // the primary owner that issued the write has it, the other owner must wait for the flush
+      if (index != 0) assertNull(cache(index).getAdvancedCache().getDataContainer().get(key));
+   }
+
+   private void assertOnOwnersOnly(final Object key, final Object value) {
+      for (int i = 0; i < 3; i++) {
+         final Cache<Object, Object> c = cache(i);
+         if (isOwner(i, key)) {
+            eventually(new Condition() {
+               @Override
+               public boolean isSatisfied() throws Exception {
+                  return c.getAdvancedCache().getDataContainer().get(key) != null
+                        && value.equals(c.getAdvancedCache().getDataContainer().get(key).getValue());
+               }
+            });
+         } else {
+            assertNull(c.getAdvancedCache().getDataContainer().get(key));
+         }
+      }
+   }
+
+   private boolean isOwner(int index, Object key) {
+      List<Address> owners = TestingUtil.extractComponent(cache(0), DistributionManager.class).locate(key);
+      return owners.contains(address(index));
+   }
+}
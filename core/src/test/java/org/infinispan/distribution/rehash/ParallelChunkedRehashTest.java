@@ -0,0 +1,104 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.distribution.rehash;
+
+import org.infinispan.Cache;
+import org.infinispan.configuration.cache.CacheMode;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.distribution.DistributionManager;
+import org.infinispan.statetransfer.BaseStateTransferManagerImpl;
+import org.infinispan.statetransfer.StateTransferManager;
+import org.infinispan.test.MultipleCacheManagersTest;
+import org.infinispan.test.TestingUtil;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests a rehash that pushes state from several threads, in small chunks, with a limit on the chunks in flight.
+ *
+ * @since 5.2
+ */
+@Test(groups = "functional", testName = "distribution.rehash.ParallelChunkedRehashTest")
+public class ParallelChunkedRehashTest extends MultipleCacheManagersTest {
+
+   private static final int NUM_KEYS = 500;
+
+   private ConfigurationBuilder builder;
+
+   @Override
+   protected void createCacheManagers() throws Throwable {
+      builder = getDefaultClusteredCacheConfig(CacheMode.DIST_SYNC, false);
+      builder.clustering().hash().numOwners(1).l1().disable()
+            .stateTransfer().chunkSize(7).threadPoolSize(4).maxInFlightChunks(2);
+      createClusteredCaches(2, builder);
+   }
+
+   public void testJoinerReceivesAllItsKeys() {
+      for (int i = 0; i < NUM_KEYS; i++) cache(0).put("k" + i, "v" + i);
+
+      addClusterEnabledCacheManager(builder);
+      Cache<Object, Object> joiner = manager(2).getCache();
+      TestingUtil.waitForRehashToComplete(cache(0), cache(1), joiner);
+
+      DistributionManager dm = joiner.getAdvancedCache().getDistributionManager();
+      int ownedByJoiner = 0;
+      for (int i = 0; i < NUM_KEYS; i++) {
+         String key = "k" + i;
+         for (Cache<Object, Object> c : caches()) {
+            assertEquals(c.get(key), "v" + i);
+         }
+         if (dm.getLocality(key).isLocal()) {
+            ownedByJoiner++;
+            assertNotNull(joiner.getAdvancedCache().getDataContainer().get(key));
+         }
+      }
+      assertTrue(ownedByJoiner > 0);
+
+      // the progress is recorded when the pushes complete, which may be just after the rehash
+      final long expectedPushed = ownedByJoiner;
+      eventually(new Condition() {
+         @Override
+         public boolean isSatisfied() throws Exception {
+            long pushed = 0;
+            for (int i = 0; i < 2; i++) {
+               BaseStateTransferManagerImpl stm = (BaseStateTransferManagerImpl) TestingUtil.extractComponent(cache(i), StateTransferManager.class);
+               if (stm.getChunksInFlight() != 0) return false;
+               pushed += pushedTo(stm.getPushedEntries(), address(2).toString());
+            }
+            return pushed == expectedPushed;
+         }
+      });
+   }
+
+   private long pushedTo(String counters, String target) {
+      // counters look like {A=10, B=20}
+      for (String entry : counters.substring(1, counters.length() - 1).split(", ")) {
+         int eq = entry.lastIndexOf('=');
+         if (eq > 0 && entry.substring(0, eq).equals(target)) return Long.parseLong(entry.substring(eq + 1));
+      }
+      return 0;
+   }
+}
@@ -546,6 +546,56 @@ public void testLoadKeys() throws CacheLoaderException {
       assert !s.contains("k3");
    }
 
+   public void testVisitEntries() throws CacheLoaderException {
+      cs.store(TestInternalCacheEntryFactory.create("k1", "v1"));
+      cs.store(TestInternalCacheEntryFactory.create("k2", "v2"));
+      cs.store(TestInternalCacheEntryFactory.create("k3", "v3"));
+      cs.store(TestInternalCacheEntryFactory.create("k4", "v4"));
+
+      KeyFilter allButK3 = new KeyFilter() {
+         @Override
+         public boolean accept(Object key) {
+            return !"k3".equals(key);
+         }
+      };
+
+      final Set<Object> keys = new HashSet<Object>();
+      boolean complete = cs.visitEntries(allButK3, true, new EntryVisitor() {
+         @Override
+         public boolean visit(Object key, InternalCacheEntry entry) {
+            assertEquals(key, entry.getKey());
+            assertEquals("v" + ((String) key).substring(1), entry.getValue());
+            keys.add(key);
+            return true;
+         }
+      });
+      assert complete;
+      assertEquals(3, keys.size());
+      assert !keys.contains("k3");
+
+      keys.clear();
+      cs.visitEntries(null, false, new EntryVisitor() {
+         @Override
+         public boolean visit(Object key, InternalCacheEntry entry) {
+            assert entry == null : "Values should not be fetched, but got " + entry;
+            keys.add(key);
+            return true;
+         }
+      });
+      assertEquals(4, keys.size());
+
+      keys.clear();
+      complete = cs.visitEntries(null, true, new EntryVisitor() {
+         @Override
+         public boolean visit(Object key, InternalCacheEntry entry) {
+            keys.add(key);
+            return keys.size() < 2;
+         }
+      });
+      assert !complete;
+      assertEquals(2, keys.size());
+   }
+
    public void testStreamingAPI() throws IOException, CacheLoaderException {
       cs.store(TestInternalCacheEntryFactory.create("k1", "v1"));
       cs.store(TestInternalCacheEntryFactory.create("k2", "v2"));
@@ -45,10 +45,14 @@
 
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.ExecutorService;
@@ -369,6 +373,80 @@ protected void applyModificationsSync(ConcurrentMap<Object, Modification> mods)
       }
    }
 
+   public void testModificationsAreFlushedInBatches(Method m) throws Exception {
+      store.stop();
+      final List<Integer> storeAllSizes = new CopyOnWriteArrayList<Integer>();
+      final List<Integer> removeAllSizes = new CopyOnWriteArrayList<Integer>();
+      DummyInMemoryCacheStore underlying = new DummyInMemoryCacheStore() {
+         @Override
+         public void storeAll(Collection<InternalCacheEntry> entries) throws CacheLoaderException {
+            storeAllSizes.add(entries.size());
+            super.storeAll(entries);
+         }
+
+         @Override
+         public void removeAll(Set<Object> keys) throws CacheLoaderException {
+            removeAllSizes.add(keys.size());
+            super.removeAll(keys);
+         }
+      };
+      store = new AsyncStore(underlying, new AsyncStoreConfig().batchSize(5).maxBatchLatency(60000L));
+      store.init(new DummyInMemoryCacheStore.Cfg().storeName(m.getName()), null, null);
+      store.start();
+
+      List<InternalCacheEntry> entries = new ArrayList<InternalCacheEntry>();
+      Set<Object> keys = new HashSet<Object>();
+      for (int i = 0; i < 20; i++) {
+         entries.add(TestInternalCacheEntryFactory.create(k(m, i), v(m, i)));
+         keys.add(k(m, i));
+      }
+      long start = System.currentTimeMillis();
+      store.storeAll(entries);
+      while (sum(storeAllSizes) < 20) {
+         assert System.currentTimeMillis() - start < 30000 : "Batches were not flushed once full: " + storeAllSizes;
+         Thread.sleep(10);
+      }
+      for (int size : storeAllSizes) assert size <= 5 : "Batch too large: " + storeAllSizes;
+      assert store.getAverageBatchSize() > 1;
+      assert store.getFlushedBatches() == storeAllSizes.size();
+
+      store.removeAll(keys);
+      while (sum(removeAllSizes) < 20) {
+         assert System.currentTimeMillis() - start < 30000 : "Batches were not flushed once full: " + removeAllSizes;
+         Thread.sleep(10);
+      }
+      for (int size : removeAllSizes) assert size <= 5 : "Batch too large: " + removeAllSizes;
+      for (Object key : keys) assert !underlying.containsKey(key);
+      assert 0 == store.getQueueSize();
+
+      store.resetStatistics();
+      assert 0 == store.getFlushedBatches();
+   }
+
+   public void testIncompleteBatchIsFlushedAfterMaxLatency(Method m) throws Exception {
+      store.stop();
+      DummyInMemoryCacheStore underlying = new DummyInMemoryCacheStore();
+      store = new AsyncStore(underlying, new AsyncStoreConfig().batchSize(100).maxBatchLatency(200L));
+      store.init(new DummyInMemoryCacheStore.Cfg().storeName(m.getName()), null, null);
+      store.start();
+
+      store.store(TestInternalCacheEntryFactory.create(k(m), v(m)));
+      Thread.sleep(50);
+      assert !underlying.containsKey(k(m)) : "Incomplete batch should wait for maxBatchLatency";
+      long start = System.currentTimeMillis();
+      while (!underlying.containsKey(k(m))) {
+         assert System.currentTimeMillis() - start < 5000 : "Incomplete batch was never flushed";
+         Thread.sleep(10);
+      }
+      assert 1 == store.getFlushedBatches();
+   }
+
+   private static int sum(List<Integer> sizes) {
+      int sum = 0;
+      for (int size : sizes) sum += size;
+      return sum;
+   }
+
    private void doTestPut(int number, String key, String value) throws Exception {
       for (int i = 0; i < number; i++) {
          InternalCacheEntry cacheEntry = TestInternalCacheEntryFactory.create(key + i, value + i);
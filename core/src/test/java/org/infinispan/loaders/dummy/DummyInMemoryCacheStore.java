@@ -209,6 +209,17 @@ public Set<Object> loadAllKeys(Set<Object> keysToExclude) throws CacheLoaderExce
       return set;
    }
 
+   @Override
+   public boolean visitEntries(KeyFilter filter, boolean fetchValues, EntryVisitor visitor) throws CacheLoaderException {
+      record("visitEntries");
+      final long currentTimeMillis = System.currentTimeMillis();
+      for (InternalCacheEntry se : store.values()) {
+         if (se.isExpired(currentTimeMillis) || (filter != null && !filter.accept(se.getKey()))) continue;
+         if (!visitor.visit(se.getKey(), fetchValues ? se : null)) return false;
+      }
+      return true;
+   }
+
    @Override
    public Class<? extends CacheLoaderConfig> getConfigurationClass() {
       record("getConfigurationClass");
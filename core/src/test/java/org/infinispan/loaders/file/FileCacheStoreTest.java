@@ -29,6 +29,7 @@
 import org.infinispan.loaders.BaseCacheStoreTest;
 import org.infinispan.loaders.CacheLoaderException;
 import org.infinispan.loaders.CacheStore;
+import org.infinispan.loaders.EntryVisitor;
 import org.infinispan.loaders.bucket.Bucket;
 import org.infinispan.marshall.StreamingMarshaller;
 import org.infinispan.test.TestingUtil;
@@ -46,6 +47,7 @@
 import java.io.ObjectOutput;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Test(groups = "unit", testName = "loaders.file.FileCacheStoreTest")
 public class FileCacheStoreTest extends BaseCacheStoreTest {
@@ -67,7 +69,7 @@ protected void clearTempDir() {
    @Override
    protected CacheStore createCacheStore() throws CacheLoaderException {
       clearTempDir();
-      fcs = new FileCacheStore();
+      fcs = new PointLoadCountingFileCacheStore();
       FileCacheStoreConfig cfg = new FileCacheStoreConfig()
          .fetchPersistentState(true)
          .fsyncMode(getFsyncMode())
@@ -116,6 +118,49 @@ private void createUnrelatedFile() throws IOException {
       assert created;
    }
 
+   @Test(timeOut = 10000)
+   public void testVisitorWritesToStore() throws Exception {
+      cs.store(TestInternalCacheEntryFactory.create("k1", "v1"));
+      cs.store(TestInternalCacheEntryFactory.create("k2", "v2"));
+      cs.store(TestInternalCacheEntryFactory.create("k3", "v3"));
+      boolean complete = cs.visitEntries(null, true, new EntryVisitor() {
+         @Override
+         public boolean visit(Object key, InternalCacheEntry entry) throws CacheLoaderException {
+            // no lock must be held while visiting, otherwise these would deadlock
+            cs.remove(key);
+            cs.store(TestInternalCacheEntryFactory.create(key + "-copy", entry.getValue()));
+            return true;
+         }
+      });
+      assert complete;
+      for (int i = 1; i <= 3; i++) {
+         assert !cs.containsKey("k" + i);
+         assert ("v" + i).equals(cs.load("k" + i + "-copy").getValue());
+      }
+   }
+
+   public void testVisitDoesNotLoadEntriesOneByOne() throws Exception {
+      // enough entries to span several batches
+      int count = 250;
+      for (int i = 0; i < count; i++) {
+         cs.store(TestInternalCacheEntryFactory.create("k" + i, "v" + i));
+      }
+      PointLoadCountingFileCacheStore store = (PointLoadCountingFileCacheStore) fcs;
+      store.pointLoads.set(0);
+      final Set<Object> visited = new HashSet<Object>();
+      boolean complete = cs.visitEntries(null, true, new EntryVisitor() {
+         @Override
+         public boolean visit(Object key, InternalCacheEntry entry) {
+            assert ("v" + ((String) key).substring(1)).equals(entry.getValue());
+            assert visited.add(key) : key + " visited twice";
+            return true;
+         }
+      });
+      assert complete;
+      assert visited.size() == count;
+      assert store.pointLoads.get() == 0 : "Entries were loaded one by one: " + store.pointLoads.get();
+   }
+
    public void testBucketRemoval() throws Exception {
       Bucket b;
       InternalCacheEntry se = TestInternalCacheEntryFactory.create("test", "value");
@@ -224,4 +269,17 @@ public void testNumericNamedFilesFilter() {
       assert !FileCacheStore.NUMERIC_NAMED_FILES_FILTER.accept(dir, ".nfs1234");
       assert !FileCacheStore.NUMERIC_NAMED_FILES_FILTER.accept(dir, "12345678901");
    }
+
+   /**
+    * Counts the buckets loaded for a single key, rather than while looping over all the buckets.
+    */
+   static class PointLoadCountingFileCacheStore extends FileCacheStore {
+      final AtomicInteger pointLoads = new AtomicInteger();
+
+      @Override
+      protected Bucket loadBucket(Integer hash) throws CacheLoaderException {
+         pointLoads.incrementAndGet();
+         return super.loadBucket(hash);
+      }
+   }
 }
@@ -0,0 +1,184 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.loaders.file;
+
+import org.infinispan.container.entries.InternalCacheEntry;
+import org.infinispan.loaders.BaseCacheStoreTest;
+import org.infinispan.loaders.CacheLoaderException;
+import org.infinispan.loaders.CacheStore;
+import org.infinispan.test.TestingUtil;
+import org.infinispan.test.fwk.TestInternalCacheEntryFactory;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.RandomAccessFile;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+@Test(groups = "unit", testName = "loaders.file.LogFileCacheStoreTest")
+public class LogFileCacheStoreTest extends BaseCacheStoreTest {
+
+   LogFileCacheStore lfcs;
+   String tmpDirectory;
+
+   @BeforeClass
+   protected void setUpTempDir() {
+      tmpDirectory = TestingUtil.tmpDirectory(this);
+   }
+
+   @AfterClass(alwaysRun = true)
+   protected void clearTempDir() {
+      TestingUtil.recursiveFileRemove(tmpDirectory);
+      new File(tmpDirectory).mkdirs();
+   }
+
+   @Override
+   protected CacheStore createCacheStore() throws CacheLoaderException {
+      clearTempDir();
+      lfcs = new LogFileCacheStore();
+      LogFileCacheStoreConfig cfg = new LogFileCacheStoreConfig()
+         .location(tmpDirectory)
+         .maxFileSize(4096)
+         .mappedReads(isMappedReads())
+         .fetchPersistentState(true)
+         .purgeSynchronously(true); // for more accurate unit testing
+      lfcs.init(cfg, getCache(), getMarshaller());
+      lfcs.start();
+      return lfcs;
+   }
+
+   protected boolean isMappedReads() {
+      return false;
+   }
+
+   public void testOverwriteAndRemove() throws Exception {
+      lfcs.store(TestInternalCacheEntryFactory.create("k", "v1"));
+      lfcs.store(TestInternalCacheEntryFactory.create("k", "v2"));
+      assertEquals("v2", lfcs.load("k").getValue());
+      assertTrue(lfcs.remove("k"));
+      assertNull(lfcs.load("k"));
+      assertFalse(lfcs.remove("k"));
+   }
+
+   public void testRollOverAndCompaction() throws Exception {
+      for (int round = 0; round < 50; round++) {
+         for (int i = 0; i < 100; i++) {
+            lfcs.store(TestInternalCacheEntryFactory.create("k" + i, "v" + round));
+         }
+      }
+      lfcs.awaitCompaction();
+      // 100 live entries fit in a handful of 4k files, all other records are dead
+      assertTrue("Log files not compacted: " + lfcs.getLogFileCount(), lfcs.getLogFileCount() < 20);
+      for (int i = 0; i < 100; i++) {
+         assertEquals("v49", lfcs.load("k" + i).getValue());
+      }
+   }
+
+   public void testRestartWithHints() throws Exception {
+      populateAndRemoveHalf();
+      lfcs.stop();
+      assertTrue(logFiles(HINT_FILES).length > 0);
+      lfcs.start();
+      assertHalfRemoved();
+   }
+
+   public void testRestartWithoutHints() throws Exception {
+      populateAndRemoveHalf();
+      lfcs.stop();
+      for (File hint : logFiles(HINT_FILES)) {
+         assertTrue(hint.delete());
+      }
+      lfcs.start();
+      assertHalfRemoved();
+   }
+
+   public void testRestartWithTruncatedLog() throws Exception {
+      populateAndRemoveHalf();
+      lfcs.stop();
+      // simulate a crash in the middle of appending a record to the newest file
+      File newest = null;
+      for (File f : logFiles(LOG_FILES)) {
+         if (newest == null || LogFileCacheStore.parseFileId(f.getName()) > LogFileCacheStore.parseFileId(newest.getName()))
+            newest = f;
+      }
+      RandomAccessFile raf = new RandomAccessFile(newest, "rw");
+      try {
+         raf.seek(raf.length());
+         raf.writeInt(10);
+         raf.writeInt(1000);
+         raf.writeLong(-1);
+      } finally {
+         raf.close();
+      }
+      lfcs.start();
+      assertHalfRemoved();
+   }
+
+   private void populateAndRemoveHalf() throws CacheLoaderException, InterruptedException {
+      for (int round = 0; round < 5; round++) {
+         for (int i = 0; i < 100; i++) {
+            lfcs.store(TestInternalCacheEntryFactory.create("k" + i, "v" + round));
+         }
+      }
+      for (int i = 0; i < 100; i += 2) {
+         lfcs.remove("k" + i);
+      }
+      lfcs.awaitCompaction();
+   }
+
+   private void assertHalfRemoved() throws CacheLoaderException {
+      assertEquals(50, lfcs.loadAllKeys(null).size());
+      for (int i = 0; i < 100; i++) {
+         InternalCacheEntry ice = lfcs.load("k" + i);
+         if (i % 2 == 0) {
+            assertNull(ice);
+         } else {
+            assertEquals("v4", ice.getValue());
+         }
+      }
+   }
+
+   private File[] logFiles(FilenameFilter filter) {
+      return lfcs.getRoot().listFiles(filter);
+   }
+
+   private static final FilenameFilter LOG_FILES = new FilenameFilter() {
+      @Override
+      public boolean accept(File dir, String name) {
+         return name.endsWith(LogFileCacheStore.LOG_SUFFIX);
+      }
+   };
+
+   private static final FilenameFilter HINT_FILES = new FilenameFilter() {
+      @Override
+      public boolean accept(File dir, String name) {
+         return name.endsWith(LogFileCacheStore.HINT_SUFFIX);
+      }
+   };
+}
@@ -0,0 +1,135 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.lock;
+
+import org.infinispan.Cache;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.infinispan.test.SingleCacheManagerTest;
+import org.infinispan.test.TestingUtil;
+import org.infinispan.test.fwk.CleanupAfterMethod;
+import org.infinispan.test.fwk.TestCacheManagerFactory;
+import org.infinispan.transaction.LockingMode;
+import org.infinispan.util.concurrent.TimeoutException;
+import org.infinispan.util.concurrent.locks.LockManager;
+import org.infinispan.util.concurrent.locks.LockManagerImpl;
+import org.testng.annotations.Test;
+
+import javax.transaction.Transaction;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tests that putAll and explicit multi-key locking acquire their locks in a single batch, both with lock striping and
+ * with per-entry locks.
+ *
+ * @since 5.2
+ */
+@Test(testName = "lock.BatchedLockAcquisitionTest", groups = "functional")
+@CleanupAfterMethod
+public class BatchedLockAcquisitionTest extends SingleCacheManagerTest {
+
+   private static final int KEYS = 20;
+
+   @Override
+   protected EmbeddedCacheManager createCacheManager() throws Exception {
+      ConfigurationBuilder builder = TestCacheManagerFactory.getDefaultCacheConfiguration(true);
+      builder
+            .locking()
+               .useLockStriping(true)
+               .concurrencyLevel(4)
+               .lockAcquisitionTimeout(100)
+            .transaction()
+               .lockingMode(LockingMode.PESSIMISTIC)
+            .jmxStatistics()
+               .enable();
+
+      EmbeddedCacheManager cm = TestCacheManagerFactory.createCacheManager(builder);
+      builder.locking().useLockStriping(false);
+      cm.defineConfiguration("perEntry", builder.build());
+      return cm;
+   }
+
+   public void testPutAllWithSharedStripes() throws Exception {
+      doPutAll(cache);
+   }
+
+   public void testPutAllWithPerEntryLocks() throws Exception {
+      doPutAll(cacheManager.<Object, Object>getCache("perEntry"));
+   }
+
+   public void testExplicitLockOfSeveralKeys() throws Exception {
+      tm().begin();
+      assert cache.getAdvancedCache().lock("a", "b", "c", "d", "e", "f", "g", "h");
+      LockManager lm = TestingUtil.extractLockManager(cache);
+      for (String key : new String[]{"a", "b", "c", "d", "e", "f", "g", "h"}) assert lm.isLocked(key);
+      tm().commit();
+      TestingUtil.assertNoLocks(cache);
+   }
+
+   public void testTimeoutReleasesAcquiredLocks() throws Exception {
+      Cache<Object, Object> c = cacheManager.getCache("perEntry");
+      tm().begin();
+      c.put("k5", "locked");
+      Transaction holder = tm().suspend();
+
+      tm().begin();
+      try {
+         c.putAll(keys());
+         assert false : "The lock on k5 should not have been acquired";
+      } catch (TimeoutException expected) {
+      }
+      LockManager lm = TestingUtil.extractLockManager(c);
+      assert lm.getNumberOfLocksHeld() == 1 : "Only k5 should still be locked: " + lm.printLockInfo();
+      tm().rollback();
+
+      tm().resume(holder);
+      tm().commit();
+      TestingUtil.assertNoLocks(c);
+   }
+
+   public void testWaitTimesAreRecorded() throws Exception {
+      LockManagerImpl lm = (LockManagerImpl) TestingUtil.extractLockManager(cache);
+      lm.resetStatistics();
+      cache.putAll(keys());
+      assert lm.getLockWaitTimeHistogram().contains("=") : lm.getLockWaitTimeHistogram();
+      lm.resetStatistics();
+      assert "{}".equals(lm.getLockWaitTimeHistogram());
+   }
+
+   private void doPutAll(Cache<Object, Object> c) throws Exception {
+      LockManager lm = TestingUtil.extractLockManager(c);
+      tm().begin();
+      c.putAll(keys());
+      for (Object key : keys().keySet()) assert lm.isLocked(key) : "Not locked: " + key;
+      tm().commit();
+      TestingUtil.assertNoLocks(c);
+      for (Map.Entry<Object, Object> e : keys().entrySet()) assert e.getValue().equals(c.get(e.getKey()));
+   }
+
+   private static Map<Object, Object> keys() {
+      Map<Object, Object> map = new HashMap<Object, Object>();
+      for (int i = 0; i < KEYS; i++) map.put("k" + i, "v" + i);
+      return map;
+   }
+}
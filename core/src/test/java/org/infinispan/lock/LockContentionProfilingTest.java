@@ -0,0 +1,116 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.lock;
+
+import org.infinispan.Cache;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.infinispan.test.SingleCacheManagerTest;
+import org.infinispan.test.TestingUtil;
+import org.infinispan.test.fwk.CleanupAfterMethod;
+import org.infinispan.test.fwk.TestCacheManagerFactory;
+import org.infinispan.transaction.LockingMode;
+import org.infinispan.util.concurrent.TimeoutException;
+import org.infinispan.util.concurrent.locks.LockManagerImpl;
+import org.testng.annotations.Test;
+
+import javax.transaction.Transaction;
+
+/**
+ * Tests the lock contention profiler of {@link LockManagerImpl}.
+ *
+ * @since 5.2
+ */
+@Test(testName = "lock.LockContentionProfilingTest", groups = "functional")
+@CleanupAfterMethod
+public class LockContentionProfilingTest extends SingleCacheManagerTest {
+
+   @Override
+   protected EmbeddedCacheManager createCacheManager() throws Exception {
+      ConfigurationBuilder builder = TestCacheManagerFactory.getDefaultCacheConfiguration(true);
+      builder
+            .locking()
+               .useLockStriping(true)
+               .lockAcquisitionTimeout(100)
+            .transaction()
+               .lockingMode(LockingMode.PESSIMISTIC);
+
+      EmbeddedCacheManager cm = TestCacheManagerFactory.createCacheManager(builder);
+      builder.locking().useLockStriping(false);
+      cm.defineConfiguration("perEntry", builder.build());
+      return cm;
+   }
+
+   public void testContendedKeyAndStripeAreReported() throws Exception {
+      LockManagerImpl lm = lockManager(cache);
+      assert !lm.isContentionProfilingEnabled();
+      lm.startContentionProfiling(1);
+      assert lm.isContentionProfilingEnabled();
+
+      timeOutOn(cache, "k");
+
+      String keys = lm.printMostContendedKeys(1);
+      assert keys.startsWith("k [") && keys.contains("timeouts=1") : keys;
+      String stripes = lm.printMostContendedStripes(1);
+      assert stripes.startsWith("stripe " + lm.getLockId("k") + " [") && stripes.contains("timeouts=1") : stripes;
+
+      lm.stopContentionProfiling();
+      assert !lm.isContentionProfilingEnabled();
+      assert keys.equals(lm.printMostContendedKeys(1)) : "Results should be kept once profiling stops";
+      TestingUtil.assertNoLocks(cache);
+   }
+
+   public void testPerEntryLocks() throws Exception {
+      Cache<Object, Object> c = cacheManager.getCache("perEntry");
+      LockManagerImpl lm = lockManager(c);
+      lm.startContentionProfiling(1);
+
+      timeOutOn(c, "k");
+
+      String keys = lm.printMostContendedKeys(1);
+      assert keys.startsWith("k [") && keys.contains("timeouts=1") : keys;
+      assert "Lock striping is not used".equals(lm.printMostContendedStripes(1));
+      TestingUtil.assertNoLocks(c);
+   }
+
+   private void timeOutOn(Cache<Object, Object> c, Object key) throws Exception {
+      tm().begin();
+      c.put(key, "locked");
+      Transaction holder = tm().suspend();
+
+      tm().begin();
+      try {
+         c.put(key, "v");
+         assert false : "The lock on " + key + " should not have been acquired";
+      } catch (TimeoutException expected) {
+      }
+      tm().rollback();
+
+      tm().resume(holder);
+      tm().commit();
+   }
+
+   private LockManagerImpl lockManager(Cache<?, ?> c) {
+      return (LockManagerImpl) TestingUtil.extractLockManager(c);
+   }
+}
@@ -0,0 +1,135 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.lock.singlelock;
+
+import org.infinispan.configuration.cache.CacheMode;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.interceptors.TxInterceptor;
+import org.infinispan.lock.singlelock.SinglePhaseCommitForPessimisticCachesTest.TxCountInterceptor;
+import org.infinispan.test.MultipleCacheManagersTest;
+import org.infinispan.test.TestingUtil;
+import org.infinispan.transaction.LockingMode;
+import org.infinispan.transaction.tm.DummyTransaction;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Optimistic transactions started on the primary owner of all their keys are committed in a single phase when
+ * use1PcForSingleOwnerTransactions is enabled.
+ *
+ * @since 5.2
+ */
+@Test (groups = "functional", testName = "lock.singlelock.SinglePhaseCommitForSingleOwnerTransactionsTest")
+public class SinglePhaseCommitForSingleOwnerTransactionsTest extends MultipleCacheManagersTest {
+
+   private TxCountInterceptor interceptor1;
+
+   @Override
+   protected void createCacheManagers() throws Throwable {
+      ConfigurationBuilder builder = getDefaultClusteredCacheConfig(CacheMode.DIST_SYNC, true);
+      builder.clustering().hash().numOwners(2)
+            .transaction().lockingMode(LockingMode.OPTIMISTIC).use1PcForSingleOwnerTransactions(true)
+            .jmxStatistics().enable();
+      createCluster(builder, 2);
+      waitForClusterToForm();
+      interceptor1 = new TxCountInterceptor();
+      advancedCache(1).addInterceptor(interceptor1, 1);
+   }
+
+   public void testOnePhaseCommitOnPrimaryOwner() throws Exception {
+      final Object k0_1 = getKeyForCache(0);
+      final Object k0_2 = getKeyForCache(0);
+      TxInterceptor txInterceptor = resetCounters();
+
+      tm(0).begin();
+      cache(0).put(k0_1, "v1");
+      cache(0).put(k0_2, "v2");
+      tm(0).commit();
+
+      assertEquals(interceptor1.prepareCount, 1);
+      assertEquals(interceptor1.commitCount, 0);
+      assertEquals(txInterceptor.getOnePhaseCommits(), 1);
+      assertEquals(txInterceptor.getTwoPhaseCommits(), 0);
+      assertValue(k0_1, "v1");
+      assertValue(k0_2, "v2");
+      assertNotLocked(k0_1);
+      assertNotLocked(k0_2);
+   }
+
+   public void testLocksAcquiredOnPrepare() throws Exception {
+      final Object k0 = getKeyForCache(0);
+      resetCounters();
+
+      tm(0).begin();
+      cache(0).put(k0, "v0");
+      DummyTransaction tx = (DummyTransaction) tm(0).getTransaction();
+      tx.runPrepare();
+
+      // prepared on the primary owner only
+      assert lockManager(0).isLocked(k0);
+      assertEquals(interceptor1.prepareCount, 0);
+      assert advancedCache(1).getDataContainer().get(k0) == null;
+
+      tx.runCommitTx();
+      tm(0).suspend();
+
+      assertEquals(interceptor1.prepareCount, 1);
+      assertEquals(interceptor1.commitCount, 0);
+      assertValue(k0, "v0");
+      assertNotLocked(k0);
+   }
+
+   public void testTwoPhaseCommitWhenNotPrimaryOwner() throws Exception {
+      final Object k0 = getKeyForCache(0);
+      final Object k1 = getKeyForCache(1);
+      TxInterceptor txInterceptor = resetCounters();
+
+      tm(0).begin();
+      cache(0).put(k0, "v0");
+      cache(0).put(k1, "v1");
+      tm(0).commit();
+
+      assertEquals(interceptor1.prepareCount, 1);
+      assertEquals(interceptor1.commitCount, 1);
+      assertEquals(txInterceptor.getOnePhaseCommits(), 0);
+      assertEquals(txInterceptor.getTwoPhaseCommits(), 1);
+      assertValue(k0, "v0");
+      assertValue(k1, "v1");
+      assertNotLocked(k0);
+      assertNotLocked(k1);
+   }
+
+   private void assertValue(Object key, Object value) {
+      assertEquals(cache(0).get(key), value);
+      assertEquals(cache(1).get(key), value);
+   }
+
+   private TxInterceptor resetCounters() {
+      interceptor1.prepareCount = 0;
+      interceptor1.commitCount = 0;
+      TxInterceptor txInterceptor = TestingUtil.findInterceptor(cache(0), TxInterceptor.class);
+      txInterceptor.resetStatistics();
+      return txInterceptor;
+   }
+}
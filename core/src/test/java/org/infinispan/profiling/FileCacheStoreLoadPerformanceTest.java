@@ -0,0 +1,123 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.profiling;
+
+import org.infinispan.Cache;
+import org.infinispan.loaders.AbstractCacheStoreConfig;
+import org.infinispan.loaders.CacheStore;
+import org.infinispan.loaders.file.FileCacheStore;
+import org.infinispan.loaders.file.FileCacheStoreConfig;
+import org.infinispan.loaders.file.LogFileCacheStore;
+import org.infinispan.loaders.file.LogFileCacheStoreConfig;
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.infinispan.marshall.StreamingMarshaller;
+import org.infinispan.test.AbstractInfinispanTest;
+import org.infinispan.test.TestingUtil;
+import org.infinispan.test.fwk.TestCacheManagerFactory;
+import org.infinispan.test.fwk.TestInternalCacheEntryFactory;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+/**
+ * Compares the latency of {@link CacheStore#load(Object)} between the bucket based {@link FileCacheStore}, which
+ * reads whole bucket files through a stream, and {@link LogFileCacheStore} reading records through a file channel or
+ * from memory-mapped log files.  Each store is filled with {@link #DATA_SIZE} bytes worth of values of 1KB, 16KB and
+ * 256KB, and then loaded from at random.  The data set fits in the OS page cache, so this measures the read path
+ * rather than the disk.
+ *
+ * @since 5.2
+ */
+@Test(groups = "profiling", testName = "profiling.FileCacheStoreLoadPerformanceTest")
+public class FileCacheStoreLoadPerformanceTest extends AbstractInfinispanTest {
+
+   private static final int[] VALUE_SIZES = {1024, 16 * 1024, 256 * 1024};
+   private static final int DATA_SIZE = 64 * 1024 * 1024;
+   private static final int BYTES_LOADED = 256 * 1024 * 1024;
+   private static final int MAX_LOADS = 50000;
+
+   private EmbeddedCacheManager cacheManager;
+   private Cache<?, ?> cache;
+   private StreamingMarshaller marshaller;
+   private String tmpDirectory;
+
+   @BeforeClass
+   public void setUp() {
+      tmpDirectory = TestingUtil.tmpDirectory(this);
+      cacheManager = TestCacheManagerFactory.createLocalCacheManager(false);
+      cache = cacheManager.getCache();
+      marshaller = TestingUtil.extractCacheMarshaller(cache);
+   }
+
+   @AfterClass(alwaysRun = true)
+   public void tearDown() {
+      TestingUtil.killCacheManagers(cacheManager);
+      TestingUtil.recursiveFileRemove(tmpDirectory);
+   }
+
+   @Test(enabled = false, description = "Disabled by default, designed to be run manually.")
+   public void testLoadLatency() throws Exception {
+      for (int valueSize : VALUE_SIZES) {
+         benchmark("FileCacheStore", new FileCacheStore(), new FileCacheStoreConfig().location(tmpDirectory), valueSize);
+         benchmark("LogFileCacheStore", new LogFileCacheStore(),
+                   new LogFileCacheStoreConfig().location(tmpDirectory), valueSize);
+         benchmark("LogFileCacheStore (mapped)", new LogFileCacheStore(),
+                   new LogFileCacheStoreConfig().mappedReads(true).location(tmpDirectory), valueSize);
+      }
+   }
+
+   private void benchmark(String name, CacheStore store, AbstractCacheStoreConfig config, int valueSize) throws Exception {
+      TestingUtil.recursiveFileRemove(tmpDirectory);
+      store.init(config, cache, marshaller);
+      store.start();
+      try {
+         int numKeys = DATA_SIZE / valueSize;
+         Random random = new Random(valueSize);
+         for (int i = 0; i < numKeys; i++) {
+            byte[] value = new byte[valueSize];
+            random.nextBytes(value);
+            store.store(TestInternalCacheEntryFactory.create("key" + i, value));
+         }
+
+         int loads = Math.min(MAX_LOADS, BYTES_LOADED / valueSize);
+         // warm up
+         load(store, numKeys, loads / 2, random);
+         long start = System.nanoTime();
+         load(store, numKeys, loads, random);
+         long duration = System.nanoTime() - start;
+         System.out.printf("%-28s %4dKB values: %8.1f us/load (%d loads)%n", name, valueSize / 1024,
+                           duration / 1000.0 / loads, loads);
+      } finally {
+         store.clear();
+         store.stop();
+      }
+   }
+
+   private void load(CacheStore store, int numKeys, int loads, Random random) throws Exception {
+      for (int i = 0; i < loads; i++) {
+         assert store.load("key" + random.nextInt(numKeys)) != null;
+      }
+   }
+}
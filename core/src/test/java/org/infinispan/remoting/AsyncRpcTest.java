@@ -0,0 +1,154 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.remoting;
+
+import org.infinispan.commands.CommandsFactory;
+import org.infinispan.commands.remote.ClusteredGetCommand;
+import org.infinispan.configuration.cache.CacheMode;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.context.Flag;
+import org.infinispan.remoting.responses.ClusteredGetResponseValidityFilter;
+import org.infinispan.remoting.responses.Response;
+import org.infinispan.remoting.responses.SuccessfulResponse;
+import org.infinispan.remoting.rpc.ResponseFilter;
+import org.infinispan.remoting.rpc.ResponseMode;
+import org.infinispan.remoting.rpc.RpcManager;
+import org.infinispan.remoting.transport.Address;
+import org.infinispan.test.MultipleCacheManagersTest;
+import org.infinispan.test.TestingUtil;
+import org.infinispan.util.concurrent.TimeoutException;
+import org.infinispan.util.concurrent.FutureListener;
+import org.infinispan.util.concurrent.NotifyingFuture;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+/**
+ * Tests the future-based {@link RpcManager#invokeRemotelyAsync}.
+ *
+ * @since 5.2
+ */
+@Test(groups = "functional", testName = "remoting.AsyncRpcTest")
+public class AsyncRpcTest extends MultipleCacheManagersTest {
+
+   private static final long TIMEOUT = 10000;
+
+   @Override
+   protected void createCacheManagers() throws Throwable {
+      ConfigurationBuilder builder = getDefaultClusteredCacheConfig(CacheMode.DIST_SYNC, false);
+      builder.clustering().hash().numOwners(3).l1().disable();
+      createClusteredCaches(3, builder);
+   }
+
+   public void testResponsesFromAllMembers() throws Exception {
+      cache(0).put("k", "v");
+      RpcManager rpcManager = TestingUtil.extractComponent(cache(0), RpcManager.class);
+
+      final CountDownLatch notified = new CountDownLatch(1);
+      NotifyingFuture<Map<Address, Response>> future = rpcManager.invokeRemotelyAsync(null, buildClusteredGet("k"),
+            ResponseMode.SYNCHRONOUS, TIMEOUT, true, null);
+      future.attachListener(new FutureListener<Map<Address, Response>>() {
+         @Override
+         public void futureDone(Future<Map<Address, Response>> f) {
+            notified.countDown();
+         }
+      });
+
+      Map<Address, Response> responses = future.get(TIMEOUT, TimeUnit.MILLISECONDS);
+      assertTrue(notified.await(TIMEOUT, TimeUnit.MILLISECONDS));
+      assertEquals(responses.size(), 2);
+      assertTrue(responses.get(address(1)) instanceof SuccessfulResponse);
+      assertTrue(responses.get(address(2)) instanceof SuccessfulResponse);
+   }
+
+   public void testFilterCompletesOnFirstValidResponse() throws Exception {
+      cache(0).put("k", "v");
+      RpcManager rpcManager = TestingUtil.extractComponent(cache(0), RpcManager.class);
+
+      List<Address> targets = Arrays.asList(address(1), address(2));
+      NotifyingFuture<Map<Address, Response>> future = rpcManager.invokeRemotelyAsync(targets, buildClusteredGet("k"),
+            ResponseMode.WAIT_FOR_VALID_RESPONSE, TIMEOUT, true,
+            new ClusteredGetResponseValidityFilter(targets, address(0)));
+
+      Map<Address, Response> responses = future.get(TIMEOUT, TimeUnit.MILLISECONDS);
+      assertEquals(responses.size(), 1);
+      assertTrue(responses.values().iterator().next() instanceof SuccessfulResponse);
+   }
+
+   public void testNoValidResponseTimesOut() throws Exception {
+      RpcManager rpcManager = TestingUtil.extractComponent(cache(0), RpcManager.class);
+      NotifyingFuture<Map<Address, Response>> future = rpcManager.invokeRemotelyAsync(null, buildClusteredGet("k"),
+            ResponseMode.WAIT_FOR_VALID_RESPONSE, TIMEOUT, true, new ResponseFilter() {
+               @Override
+               public boolean isAcceptable(Response response, Address sender) {
+                  return false;
+               }
+
+               @Override
+               public boolean needMoreResponses() {
+                  return true;
+               }
+            });
+
+      try {
+         future.get(TIMEOUT, TimeUnit.MILLISECONDS);
+         fail("Expected the invocation to fail without valid responses");
+      } catch (ExecutionException e) {
+         assertTrue(e.getCause() instanceof TimeoutException, "Unexpected failure: " + e.getCause());
+      }
+   }
+
+   public void testAsynchronousModeIsDoneImmediately() throws Exception {
+      RpcManager rpcManager = TestingUtil.extractComponent(cache(0), RpcManager.class);
+      NotifyingFuture<Map<Address, Response>> future = rpcManager.invokeRemotelyAsync(null, buildClusteredGet("k"),
+            ResponseMode.ASYNCHRONOUS, TIMEOUT, false, null);
+      assertTrue(future.isDone());
+      assertTrue(future.get().isEmpty());
+   }
+
+   public void testAsyncPutCompletes() throws Exception {
+      for (int i = 0; i < 10; i++) {
+         cache(0).putAsync("k" + i, "v" + i).get(TIMEOUT, TimeUnit.MILLISECONDS);
+      }
+      for (int i = 0; i < 10; i++) {
+         assertEquals(cache(1).get("k" + i), "v" + i);
+         assertEquals(cache(2).get("k" + i), "v" + i);
+      }
+   }
+
+   private ClusteredGetCommand buildClusteredGet(Object key) {
+      CommandsFactory cf = TestingUtil.extractCommandsFactory(cache(0));
+      return cf.buildClusteredGetCommand(key, EnumSet.noneOf(Flag.class), false, null);
+   }
+}
@@ -0,0 +1,106 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.replication;
+
+import org.infinispan.Cache;
+import org.infinispan.configuration.cache.CacheMode;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.context.Flag;
+import org.infinispan.remoting.KeyOrderedCommandExecutor;
+import org.infinispan.test.MultipleCacheManagersTest;
+import org.infinispan.test.TestingUtil;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+
+/**
+ * Tests that remote write commands spread over several stripes are still applied in order for each key.
+ *
+ * @since 5.2
+ */
+@Test(groups = "functional", testName = "replication.KeyOrderedRemoteCommandsTest")
+public class KeyOrderedRemoteCommandsTest extends MultipleCacheManagersTest {
+
+   private static final int STRIPES = 4;
+
+   @Override
+   protected void createCacheManagers() throws Throwable {
+      ConfigurationBuilder builder = getDefaultClusteredCacheConfig(CacheMode.REPL_ASYNC, false);
+      builder.clustering().async().remoteCommandStripes(STRIPES);
+      createClusteredCaches(2, builder);
+   }
+
+   public void testExecutorCreated() {
+      KeyOrderedCommandExecutor executor = TestingUtil.extractComponent(cache(1), KeyOrderedCommandExecutor.class);
+      assertNotNull(executor);
+      assertEquals(executor.getNumberOfStripes(), STRIPES);
+   }
+
+   public void testUpdatesOfAKeyAreAppliedInOrder() {
+      for (int i = 0; i < 100; i++) {
+         for (int k = 0; k < 10; k++) cache(0).put("k" + k, i);
+      }
+      for (int k = 0; k < 10; k++) assertValueEventually(cache(1), "k" + k, 99);
+      assertQueuesDrained();
+   }
+
+   public void testClearIsOrderedAgainstAllKeys() {
+      for (int k = 0; k < 10; k++) cache(0).put("c" + k, "v" + k);
+      cache(0).clear();
+      cache(0).put("after", "clear");
+      assertValueEventually(cache(1), "after", "clear");
+      eventually(new Condition() {
+         @Override
+         public boolean isSatisfied() throws Exception {
+            return cache(1).size() == 1;
+         }
+      });
+      assertQueuesDrained();
+   }
+
+   public void testForceSynchronousWriteIsAppliedBeforeReturning() {
+      cache(0).put("sync", "v1");
+      cache(0).getAdvancedCache().withFlags(Flag.FORCE_SYNCHRONOUS).put("sync", "v2");
+      assertEquals(cache(1).get("sync"), "v2");
+   }
+
+   private void assertValueEventually(final Cache<Object, Object> cache, final Object key, final Object value) {
+      eventually(new Condition() {
+         @Override
+         public boolean isSatisfied() throws Exception {
+            return value.equals(cache.get(key));
+         }
+      });
+   }
+
+   private void assertQueuesDrained() {
+      final KeyOrderedCommandExecutor executor = TestingUtil.extractComponent(cache(1), KeyOrderedCommandExecutor.class);
+      eventually(new Condition() {
+         @Override
+         public boolean isSatisfied() throws Exception {
+            return executor.getTotalQueueLength() == 0;
+         }
+      });
+   }
+}
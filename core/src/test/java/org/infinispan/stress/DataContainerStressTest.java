@@ -22,11 +22,16 @@
  */
 package org.infinispan.stress;
 
+import org.infinispan.configuration.cache.ConfigurationBuilder;
 import org.infinispan.container.*;
 import org.infinispan.util.logging.Log;
 import org.infinispan.util.logging.LogFactory;
+import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.concurrent.ConcurrentSkipListMap;
@@ -58,32 +63,62 @@ public void testSimpleDataContainer() throws InterruptedException {
       doTest(DefaultDataContainer.unBoundedDataContainer(5000));
    }
 
+   @DataProvider(name = "getters")
+   public Object[][] gettersParams() {
+      return new Object[][]{{8}, {32}, {64}};
+   }
+
+   @Test(dataProvider = "getters", enabled = false)
+   public void testDataContainerWithGetters(int getters) throws InterruptedException {
+      doTest(createDataContainer(false), getters);
+   }
+
+   @Test(dataProvider = "getters", enabled = false)
+   public void testStampedDataContainerWithGetters(int getters) throws InterruptedException {
+      doTest(createDataContainer(true), getters);
+   }
+
+   private DataContainer createDataContainer(boolean stampedReads) {
+      DefaultDataContainer dc = (DefaultDataContainer) DefaultDataContainer.unBoundedDataContainer(5000);
+      dc.initialize(null, null, new InternalEntryFactoryImpl());
+      dc.injectConfiguration(new ConfigurationBuilder().locking().stampedReads(stampedReads).build());
+      return dc;
+   }
+
    private void doTest(final DataContainer dc) throws InterruptedException {
-      doTest(dc, true);
-      doTest(dc, false);
+      doTest(dc, 1);
+   }
+
+   private void doTest(final DataContainer dc, int getters) throws InterruptedException {
+      doTest(dc, true, getters);
+      doTest(dc, false, getters);
    }
 
-   private void doTest(final DataContainer dc, boolean warmup) throws InterruptedException {
+   private void doTest(final DataContainer dc, boolean warmup, int getters) throws InterruptedException {
       latch = new CountDownLatch(1);
       final String key = "key";
       final Map<String, String> perf = new ConcurrentSkipListMap<String, String>();
       final AtomicBoolean run = new AtomicBoolean(true);
       final int actual_num_loops = warmup ? warmup_num_loops : num_loops;
 
-      Thread getter = new Thread() {
-         public void run() {
-            waitForStart();
-            long start = System.nanoTime();
-            int runs = 0;
-            while (use_time && run.get() || runs < actual_num_loops) {
-               if (runs % 100000 == 0) log.info("GET run # " + runs);
-//               TestingUtil.sleepThread(10);
-               dc.get(key + R.nextInt(NUM_KEYS));
-               runs++;
+      Thread[] getterThreads = new Thread[getters];
+      for (int i = 0; i < getters; i++) {
+         final String name = getters == 1 ? "GET" : "GET" + i;
+         getterThreads[i] = new Thread() {
+            public void run() {
+               waitForStart();
+               long start = System.nanoTime();
+               int runs = 0;
+               while (use_time && run.get() || runs < actual_num_loops) {
+                  if (runs % 100000 == 0) log.info(name + " run # " + runs);
+//                  TestingUtil.sleepThread(10);
+                  dc.get(key + R.nextInt(NUM_KEYS));
+                  runs++;
+               }
+               perf.put(name, opsPerMS(System.nanoTime() - start, runs));
             }
-            perf.put("GET", opsPerMS(System.nanoTime() - start, runs));
-         }
-      };
+         };
+      }
 
       Thread putter = new Thread() {
          public void run() {
@@ -115,7 +150,9 @@ public void run() {
          }
       };
 
-      Thread[] threads = {getter, putter, remover};
+      List<Thread> threads = new ArrayList<Thread>(Arrays.asList(getterThreads));
+      threads.add(putter);
+      threads.add(remover);
       for (Thread t : threads) t.start();
       latch.countDown();
 
@@ -123,7 +160,7 @@ public void run() {
       Thread.sleep(warmup ? WARMUP_TIME_MILLIS : RUN_TIME_MILLIS);
       run.set(false);
       for (Thread t : threads) t.join();
-      if (!warmup) log.warnf("%s: Performance: %s", dc.getClass().getSimpleName(), perf);
+      if (!warmup) log.warnf("%s with %d getters: Performance: %s", dc.getClass().getSimpleName(), getters, perf);
    }
 
    private void waitForStart() {
@@ -0,0 +1,152 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.stress;
+
+import org.infinispan.util.concurrent.BoundedConcurrentHashMap;
+import org.infinispan.util.concurrent.BoundedConcurrentHashMap.Eviction;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Compares the hit rate and the throughput of the eviction policies of {@link BoundedConcurrentHashMap} on
+ * access traces. Synthetic traces are generated by default; a recorded trace, one key per line, can be
+ * replayed with <tt>-Dtrace=/path/to/trace</tt>.
+ *
+ * @since 5.2
+ */
+@Test(testName = "stress.EvictionHitRateTest", groups = "stress", enabled = false, description = "Disabled by default, designed to be run manually.")
+public class EvictionHitRateTest {
+   static final int CAPACITY = Integer.getInteger("size", 10000);
+   static final int TRACE_LENGTH = Integer.getInteger("length", 2000000);
+   static final String TRACE_FILE = System.getProperty("trace");
+
+   private static final Eviction[] POLICIES = {Eviction.LRU, Eviction.LIRS, Eviction.TINY_LFU};
+
+   @DataProvider(name = "traces")
+   public Object[][] traces() throws IOException {
+      if (TRACE_FILE != null) {
+         return new Object[][]{new Object[]{TRACE_FILE, readTrace(TRACE_FILE)}};
+      }
+      return new Object[][]{
+            new Object[]{"zipf(0.9)", zipf(CAPACITY * 100, 0.9, TRACE_LENGTH, new Random(12345))},
+            new Object[]{"zipf(0.9) with scans", zipfWithScans(CAPACITY * 100, 0.9, TRACE_LENGTH, new Random(12345))},
+            new Object[]{"loop", loop(CAPACITY * 3 / 2, TRACE_LENGTH)},
+      };
+   }
+
+   @Test(dataProvider = "traces")
+   public void testHitRate(String name, int[] trace) {
+      System.out.printf("%nTrace %s: %d accesses, capacity %d%n", name, trace.length, CAPACITY);
+      for (Eviction policy : POLICIES) {
+         BoundedConcurrentHashMap<Integer, Integer> map = new BoundedConcurrentHashMap<Integer, Integer>(CAPACITY, 1, policy);
+         long hits = 0;
+         long start = System.nanoTime();
+         for (int key : trace) {
+            if (map.get(key) != null) {
+               hits++;
+            } else {
+               map.put(key, key);
+            }
+         }
+         long duration = System.nanoTime() - start;
+         System.out.printf("%-10s hit rate %6.2f%%, %6.1f ns per access%n", policy, 100.0 * hits / trace.length,
+               (double) duration / trace.length);
+      }
+   }
+
+   private static int[] zipf(int keys, double skew, int length, Random random) {
+      double[] cumulative = new double[keys];
+      double sum = 0;
+      for (int i = 0; i < keys; i++) {
+         sum += 1 / Math.pow(i + 1, skew);
+         cumulative[i] = sum;
+      }
+      int[] trace = new int[length];
+      for (int i = 0; i < length; i++) {
+         double r = random.nextDouble() * sum;
+         int low = 0, high = keys - 1;
+         while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cumulative[mid] < r) low = mid + 1;
+            else high = mid;
+         }
+         // spread popular keys over the hash space
+         trace[i] = low * 0x9E3779B9;
+      }
+      return trace;
+   }
+
+   /**
+    * A Zipf trace interrupted by scans of keys which are never accessed again.
+    */
+   private static int[] zipfWithScans(int keys, double skew, int length, Random random) {
+      int[] trace = zipf(keys, skew, length, random);
+      int scanKey = keys;
+      for (int i = length / 10; i < length; i += length / 10) {
+         for (int j = 0; j < CAPACITY * 2 && i + j < length; j++) {
+            trace[i + j] = (scanKey++) * 0x9E3779B9;
+         }
+      }
+      return trace;
+   }
+
+   /**
+    * Loops over a key range larger than the capacity, where LRU never hits.
+    */
+   private static int[] loop(int keys, int length) {
+      int[] trace = new int[length];
+      for (int i = 0; i < length; i++) {
+         trace[i] = (i % keys) * 0x9E3779B9;
+      }
+      return trace;
+   }
+
+   private static int[] readTrace(String file) throws IOException {
+      BufferedReader reader = new BufferedReader(new FileReader(file));
+      try {
+         int[] trace = new int[1024];
+         int length = 0;
+         String line;
+         while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (line.length() == 0) continue;
+            if (length == trace.length) {
+               int[] grown = new int[length * 2];
+               System.arraycopy(trace, 0, grown, 0, length);
+               trace = grown;
+            }
+            trace[length++] = line.split("\\s+")[0].hashCode();
+         }
+         int[] result = new int[length];
+         System.arraycopy(trace, 0, result, 0, length);
+         return result;
+      } finally {
+         reader.close();
+      }
+   }
+}
@@ -25,9 +25,11 @@
 import org.infinispan.Cache;
 import org.infinispan.config.Configuration;
 import org.infinispan.config.GlobalConfiguration;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
 import org.infinispan.eviction.EvictionStrategy;
 import org.infinispan.manager.DefaultCacheManager;
 import org.infinispan.util.concurrent.BoundedConcurrentHashMap;
+import org.infinispan.util.concurrent.IsolationLevel;
 import org.testng.annotations.*;
 
 import java.util.*;
@@ -99,6 +101,18 @@ private Cache<String, Integer> configureAndBuildCache(int capacity) {
       return cm.getCache();
    }
 
+   private Cache<String, Integer> configureAndBuildRepeatableReadCache(int capacity, int concurrency, boolean stampedReads) {
+      ConfigurationBuilder builder = new ConfigurationBuilder();
+      builder
+         .eviction().maxEntries(capacity).strategy(EvictionStrategy.LRU)
+         .expiration().wakeUpInterval(5000L).maxIdle(120000L)
+         .locking().concurrencyLevel(concurrency).isolationLevel(IsolationLevel.REPEATABLE_READ).stampedReads(stampedReads);
+
+      DefaultCacheManager cm = new DefaultCacheManager(builder.build());
+      cm.start();
+      return cm.getCache();
+   }
+
    @DataProvider(name = "readWriteRemove")
    public Object[][] independentReadWriteRemoveParams() {
       return new Object[][]{
@@ -115,6 +129,18 @@ public Object[][] readWriteRatioParams() {
       };
    }
 
+   @DataProvider(name = "stampedReads")
+   public Object[][] stampedReadsParams() {
+      return new Object[][]{
+            new Object[]{CAPACITY, 3 * CAPACITY, 32, 8, 100},
+            new Object[]{CAPACITY, 3 * CAPACITY, 32, 32, 100},
+            new Object[]{CAPACITY, 3 * CAPACITY, 64, 64, 100},
+            new Object[]{CAPACITY, 3 * CAPACITY, 32, 8, 10},
+            new Object[]{CAPACITY, 3 * CAPACITY, 32, 32, 10},
+            new Object[]{CAPACITY, 3 * CAPACITY, 64, 64, 10},
+      };
+   }
+
    @DataProvider(name = "writeOnMiss")
    public Object[][] writeOnMissParams() {
       return new Object[][]{
@@ -211,6 +237,22 @@ public void testMixedReadWrite(int capacity, int numKeys, int concurrency, int t
       }
    }
 
+   @Test(dataProvider = "stampedReads", enabled = false)
+   public void testStampedReads(int capacity, int numKeys, int concurrency, int threads, int readToWriteRatio) throws Exception {
+      System.out.printf("Testing repeatable read caches with and without stamped reads with capacity %d, keys %d, concurrency level %d, threads %d, read:write ratio %d:1\n",
+            capacity, numKeys, concurrency, threads, readToWriteRatio);
+
+      generateKeyList(numKeys);
+      Map<String, Map<String, Integer>> maps = new TreeMap<String, Map<String, Integer>>();
+      maps.put("CACHE:RR", configureAndBuildRepeatableReadCache(capacity, concurrency, false));
+      maps.put("CACHE:RR-STAMPED", configureAndBuildRepeatableReadCache(capacity, concurrency, true));
+
+      for (Entry<String, Map<String, Integer>> e : maps.entrySet()) {
+         mapTestMixedReadWrite(e.getKey(), e.getValue(), numKeys, threads, readToWriteRatio);
+         e.setValue(null);
+      }
+   }
+
    private void mapTestMixedReadWrite(String name, Map<String, Integer> map, int numKeys, int threads, int readToWriteRatio) throws Exception {
       // warm up for 1 second
       runMapTestMixedReadWrite(map, threads, readToWriteRatio, 1000);
@@ -0,0 +1,153 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.stress;
+
+import org.infinispan.Cache;
+import org.infinispan.configuration.cache.CacheMode;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.configuration.cache.VersioningScheme;
+import org.infinispan.test.MultipleCacheManagersTest;
+import org.infinispan.transaction.LockingMode;
+import org.infinispan.transaction.TransactionProtocol;
+import org.infinispan.util.concurrent.IsolationLevel;
+import org.testng.annotations.Test;
+
+import javax.transaction.Status;
+import javax.transaction.TransactionManager;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares the throughput and the abort rate of the default two phase commit and of the total order commit protocol,
+ * on a replicated cache with write skew checks and contended keys.
+ *
+ * @since 5.2
+ */
+@Test(groups = "stress", testName = "stress.TotalOrderReplicationStressTest", enabled = false,
+      description = "Since this test is slow to run, it should be disabled by default and run by hand as necessary.")
+public class TotalOrderReplicationStressTest extends MultipleCacheManagersTest {
+
+   private static final int NUM_NODES = 4;
+   private static final int THREADS_PER_NODE = 4;
+   private static final int NUM_KEYS = 100;
+   private static final int KEYS_PER_TX = 3;
+   private static final long DURATION_SECONDS = 30;
+
+   private static final String TWO_PHASE_COMMIT_CACHE = "twoPhaseCommit";
+   private static final String TOTAL_ORDER_CACHE = "totalOrder";
+
+   @Override
+   protected void createCacheManagers() throws Throwable {
+      ConfigurationBuilder builder = getDefaultClusteredCacheConfig(CacheMode.REPL_SYNC, true);
+      builder.versioning().enable().scheme(VersioningScheme.SIMPLE)
+            .locking().isolationLevel(IsolationLevel.REPEATABLE_READ).writeSkewCheck(true)
+            .transaction().lockingMode(LockingMode.OPTIMISTIC);
+      createCluster(builder, NUM_NODES);
+      defineConfigurationOnAllManagers(TWO_PHASE_COMMIT_CACHE, builder);
+
+      builder.transaction().transactionProtocol(TransactionProtocol.TOTAL_ORDER);
+      defineConfigurationOnAllManagers(TOTAL_ORDER_CACHE, builder);
+      waitForClusterToForm(TWO_PHASE_COMMIT_CACHE, TOTAL_ORDER_CACHE);
+   }
+
+   public void testTwoPhaseCommit() throws Exception {
+      runTest(TWO_PHASE_COMMIT_CACHE);
+   }
+
+   public void testTotalOrder() throws Exception {
+      runTest(TOTAL_ORDER_CACHE);
+   }
+
+   private void runTest(String cacheName) throws Exception {
+      for (int i = 0; i < NUM_KEYS; i++) {
+         cache(0, cacheName).put("key" + i, 0);
+      }
+
+      final AtomicLong commits = new AtomicLong();
+      final AtomicLong aborts = new AtomicLong();
+      final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(DURATION_SECONDS);
+      final CountDownLatch done = new CountDownLatch(NUM_NODES * THREADS_PER_NODE);
+      for (int node = 0; node < NUM_NODES; node++) {
+         for (int t = 0; t < THREADS_PER_NODE; t++) {
+            final Cache<String, Integer> cache = cache(node, cacheName);
+            final TransactionManager tm = tm(node, cacheName);
+            final Random random = new Random(node * THREADS_PER_NODE + t);
+            Thread worker = new Thread("TotalOrderWorker-" + cacheName + "-" + node + "-" + t) {
+               @Override
+               public void run() {
+                  try {
+                     while (System.nanoTime() < deadline) {
+                        if (incrementRandomKeys(cache, tm, random)) {
+                           commits.incrementAndGet();
+                        } else {
+                           aborts.incrementAndGet();
+                        }
+                     }
+                  } finally {
+                     done.countDown();
+                  }
+               }
+            };
+            worker.start();
+         }
+      }
+      done.await();
+
+      long total = commits.get() + aborts.get();
+      System.out.printf("%s: %d transactions committed in %d seconds (%.1f tx/s), %d aborted (%.2f%%)%n",
+                        cacheName, commits.get(), DURATION_SECONDS, (double) commits.get() / DURATION_SECONDS,
+                        aborts.get(), total == 0 ? 0 : 100.0 * aborts.get() / total);
+
+      Cache<String, Integer> cache0 = cache(0, cacheName);
+      long sum = 0;
+      for (int i = 0; i < NUM_KEYS; i++) {
+         Integer value = cache0.get("key" + i);
+         for (int node = 1; node < NUM_NODES; node++) {
+            assert value.equals(cache(node, cacheName).get("key" + i)) : "Inconsistent value for key" + i;
+         }
+         sum += value;
+      }
+      assert sum == commits.get() * KEYS_PER_TX : "Expected " + commits.get() * KEYS_PER_TX + " increments but found " + sum;
+   }
+
+   private boolean incrementRandomKeys(Cache<String, Integer> cache, TransactionManager tm, Random random) {
+      try {
+         tm.begin();
+         int first = random.nextInt(NUM_KEYS);
+         for (int i = 0; i < KEYS_PER_TX; i++) {
+            String key = "key" + ((first + i) % NUM_KEYS);
+            cache.put(key, cache.get(key) + 1);
+         }
+         tm.commit();
+         return true;
+      } catch (Exception e) {
+         try {
+            if (tm.getStatus() != Status.STATUS_NO_TRANSACTION) tm.rollback();
+         } catch (Exception ignored) {
+         }
+         return false;
+      }
+   }
+}
@@ -0,0 +1,165 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.util.concurrent;
+
+import org.infinispan.test.AbstractInfinispanTest;
+import org.infinispan.util.concurrent.BoundedConcurrentHashMap.EntrySizeCalculator;
+import org.infinispan.util.concurrent.BoundedConcurrentHashMap.Eviction;
+import org.infinispan.util.concurrent.BoundedConcurrentHashMap.EvictionListener;
+import org.testng.annotations.Test;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+/**
+ * Tests eviction of a {@link BoundedConcurrentHashMap} bounded by the weight of its entries.
+ *
+ * @since 5.2
+ */
+@Test(groups = "unit", testName = "util.concurrent.BoundedConcurrentHashMapWeightTest")
+public class BoundedConcurrentHashMapWeightTest extends AbstractInfinispanTest {
+
+   private static final EntrySizeCalculator<String, String> VALUE_LENGTH = new EntrySizeCalculator<String, String>() {
+      @Override
+      public long calculateSize(String key, String value) {
+         return value.length();
+      }
+   };
+
+   public void testLRUBoundedByWeight() {
+      testBoundedByWeight(Eviction.LRU);
+   }
+
+   public void testLIRSBoundedByWeight() {
+      testBoundedByWeight(Eviction.LIRS);
+   }
+
+   public void testLRUResizeEvicts() {
+      testResizeEvicts(Eviction.LRU);
+   }
+
+   public void testLIRSResizeEvicts() {
+      testResizeEvicts(Eviction.LIRS);
+   }
+
+   public void testLRUWeightedSizeAfterRemoveAndClear() {
+      testWeightedSizeAfterRemoveAndClear(Eviction.LRU);
+   }
+
+   public void testLIRSWeightedSizeAfterRemoveAndClear() {
+      testWeightedSizeAfterRemoveAndClear(Eviction.LIRS);
+   }
+
+   public void testEntryLargerThanBoundIsKept() {
+      BoundedConcurrentHashMap<String, String> map = createMap(100, Eviction.LRU, new CountingListener());
+      map.put("small", value(10));
+      map.put("large", value(500));
+      assertEquals(1, map.size());
+      assertTrue(map.containsKey("large"));
+      assertEquals(500, map.weightedSize());
+   }
+
+   public void testWeightedSizeWithoutCalculator() {
+      BoundedConcurrentHashMap<String, String> map = new BoundedConcurrentHashMap<String, String>(64, 1, Eviction.LIRS);
+      for (int i = 0; i < 10; i++) {
+         map.put("k" + i, value(100));
+      }
+      map.remove("k0");
+      assertEquals(9, map.size());
+      assertEquals(9, map.weightedSize());
+   }
+
+   private void testBoundedByWeight(Eviction eviction) {
+      CountingListener listener = new CountingListener();
+      BoundedConcurrentHashMap<String, String> map = createMap(1000, eviction, listener);
+      for (int i = 0; i < 100; i++) {
+         map.put("k" + i, value(50));
+         assertTrue("Weighted size " + map.weightedSize() + " exceeds bound", map.weightedSize() <= 1000);
+         assertTrue(map.containsKey("k" + i));
+      }
+      assertEquals(20, map.size());
+      assertEquals(map.size() * 50, map.weightedSize());
+      assertEquals(80, listener.evicted.get());
+   }
+
+   private void testResizeEvicts(Eviction eviction) {
+      CountingListener listener = new CountingListener();
+      BoundedConcurrentHashMap<String, String> map = createMap(1000, eviction, listener);
+      for (int i = 0; i < 10; i++) {
+         map.put("k" + i, value(100));
+      }
+      assertEquals(10, map.size());
+      assertEquals(0, listener.evicted.get());
+
+      map.put("k9", value(400));
+      assertTrue(map.containsKey("k9"));
+      assertTrue("Weighted size " + map.weightedSize() + " exceeds bound", map.weightedSize() <= 1000);
+      assertEquals(3, listener.evicted.get());
+
+      map.replace("k9", value(10));
+      assertEquals(map.size() * 100 - 90, map.weightedSize());
+   }
+
+   private void testWeightedSizeAfterRemoveAndClear(Eviction eviction) {
+      BoundedConcurrentHashMap<String, String> map = createMap(1000, eviction, new CountingListener());
+      map.put("a", value(100));
+      map.put("b", value(200));
+      map.put("c", value(300));
+      assertEquals(600, map.weightedSize());
+      map.remove("b");
+      assertEquals(400, map.weightedSize());
+      map.put("a", value(50));
+      assertEquals(350, map.weightedSize());
+      map.clear();
+      assertEquals(0, map.weightedSize());
+   }
+
+   private BoundedConcurrentHashMap<String, String> createMap(long maxWeight, Eviction eviction,
+         EvictionListener<String, String> listener) {
+      return new BoundedConcurrentHashMap<String, String>(maxWeight, 1, eviction, listener, VALUE_LENGTH);
+   }
+
+   private static String value(int length) {
+      StringBuilder sb = new StringBuilder(length);
+      for (int i = 0; i < length; i++) {
+         sb.append('x');
+      }
+      return sb.toString();
+   }
+
+   private static class CountingListener implements EvictionListener<String, String> {
+      final AtomicInteger evicted = new AtomicInteger();
+
+      @Override
+      public void onEntryEviction(Map<String, String> evicted) {
+         this.evicted.addAndGet(evicted.size());
+      }
+
+      @Override
+      public void onEntryChosenForEviction(String internalCacheEntry) {
+      }
+   }
+}
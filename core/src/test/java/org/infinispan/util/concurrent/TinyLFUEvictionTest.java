@@ -0,0 +1,144 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.util.concurrent;
+
+import org.infinispan.test.AbstractInfinispanTest;
+import org.infinispan.util.concurrent.BoundedConcurrentHashMap.EntrySizeCalculator;
+import org.infinispan.util.concurrent.BoundedConcurrentHashMap.Eviction;
+import org.infinispan.util.concurrent.BoundedConcurrentHashMap.EvictionListener;
+import org.testng.annotations.Test;
+
+import java.util.Map;
+import java.util.Random;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
+
+/**
+ * Tests the {@link Eviction#TINY_LFU} eviction policy of {@link BoundedConcurrentHashMap}.
+ *
+ * @since 5.2
+ */
+@Test(groups = "unit", testName = "util.concurrent.TinyLFUEvictionTest")
+public class TinyLFUEvictionTest extends AbstractInfinispanTest {
+
+   public void testSizeIsBounded() {
+      BoundedConcurrentHashMap<Integer, Integer> map = new BoundedConcurrentHashMap<Integer, Integer>(128, 1, Eviction.TINY_LFU);
+      Random random = new Random(12345);
+      for (int i = 0; i < 100000; i++) {
+         int key = random.nextInt(1000);
+         if (random.nextBoolean()) {
+            map.put(key, i);
+         } else {
+            map.get(key);
+         }
+         assertTrue("Size " + map.size() + " exceeds capacity", map.size() <= 128);
+      }
+      assertEquals(map.size(), map.weightedSize());
+   }
+
+   public void testMostRecentEntryIsKept() {
+      BoundedConcurrentHashMap<Integer, Integer> map = new BoundedConcurrentHashMap<Integer, Integer>(64, 1, Eviction.TINY_LFU);
+      for (int i = 0; i < 1000; i++) {
+         map.put(i, i);
+         assertEquals((Integer) i, map.get(i));
+      }
+   }
+
+   public void testFrequentEntriesSurviveScan() {
+      BoundedConcurrentHashMap<Integer, Integer> map = new BoundedConcurrentHashMap<Integer, Integer>(100, 1, Eviction.TINY_LFU);
+      for (int i = 0; i < 50; i++) {
+         map.put(i, i);
+      }
+      for (int round = 0; round < 10; round++) {
+         for (int i = 0; i < 50; i++) {
+            map.get(i);
+         }
+      }
+      // a scan of keys never read again
+      for (int i = 1000; i < 11000; i++) {
+         map.put(i, i);
+      }
+      int retained = 0;
+      for (int i = 0; i < 50; i++) {
+         if (map.containsKey(i)) retained++;
+      }
+      assertEquals(50, retained);
+      assertTrue(map.size() <= 100);
+   }
+
+   public void testRemoveAndClear() {
+      BoundedConcurrentHashMap<Integer, Integer> map = new BoundedConcurrentHashMap<Integer, Integer>(64, 1, Eviction.TINY_LFU);
+      for (int i = 0; i < 200; i++) {
+         map.put(i, i);
+         map.get(i);
+         if (i % 3 == 0) {
+            map.remove(i);
+            assertFalse(map.containsKey(i));
+         }
+      }
+      assertTrue(map.size() <= 64);
+      map.clear();
+      assertEquals(0, map.size());
+      for (int i = 0; i < 200; i++) {
+         map.put(i, i);
+      }
+      assertEquals(64, map.size());
+   }
+
+   public void testBoundedByWeight() {
+      EntrySizeCalculator<Integer, String> calculator = new EntrySizeCalculator<Integer, String>() {
+         @Override
+         public long calculateSize(Integer key, String value) {
+            return value.length();
+         }
+      };
+      EvictionListener<Integer, String> listener = new EvictionListener<Integer, String>() {
+         @Override
+         public void onEntryEviction(Map<Integer, String> evicted) {
+         }
+
+         @Override
+         public void onEntryChosenForEviction(String internalCacheEntry) {
+         }
+      };
+      BoundedConcurrentHashMap<Integer, String> map = new BoundedConcurrentHashMap<Integer, String>(
+            10000, 1, Eviction.TINY_LFU, listener, calculator);
+      Random random = new Random(12345);
+      for (int i = 0; i < 50000; i++) {
+         int key = random.nextInt(2000);
+         if (random.nextInt(3) == 0) {
+            map.put(key, "value" + i + (i % 7 == 0 ? "-a-longer-value" : ""));
+         } else {
+            map.get(key);
+         }
+         assertTrue("Weighted size " + map.weightedSize() + " exceeds bound", map.weightedSize() <= 10000);
+      }
+      long sum = 0;
+      for (String value : map.values()) {
+         sum += value.length();
+      }
+      assertEquals(sum, map.weightedSize());
+   }
+}
@@ -0,0 +1,93 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.util.concurrent.locks;
+
+import org.infinispan.test.AbstractInfinispanTest;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+/**
+ * Tests that {@link LockManagerImpl.KeyHashOrder} orders keys whose hashes collide the same way whatever order they
+ * are given in.
+ *
+ * @since 5.2
+ */
+@Test(groups = "unit", testName = "util.concurrent.locks.KeyHashOrderTest")
+public class KeyHashOrderTest extends AbstractInfinispanTest {
+
+   private final LockManagerImpl.KeyHashOrder order = new LockManagerImpl.KeyHashOrder();
+
+   public void testCollidingKeysOfTheSameClass() {
+      CollidingKey a = new CollidingKey("a");
+      CollidingKey b = new CollidingKey("b");
+      assertTrue(order.compare(a, b) < 0);
+      assertTrue(order.compare(b, a) > 0);
+   }
+
+   public void testCollidingKeysOfDifferentClasses() {
+      // an Integer is hashed through its hash code, so it collides with the keys above
+      Object key = new CollidingKey("a");
+      Object other = CollidingKey.HASH_CODE;
+      int c = order.compare(key, other);
+      assertTrue(c != 0);
+      assertEquals(-Integer.signum(c), Integer.signum(order.compare(other, key)));
+   }
+
+   public void testSortIsIndependentOfInitialOrder() {
+      Object[] keys = {new CollidingKey("c"), CollidingKey.HASH_CODE, new CollidingKey("a"), "x", new CollidingKey("b")};
+      Object[] reversed = new Object[keys.length];
+      for (int i = 0; i < keys.length; i++) reversed[i] = keys[keys.length - 1 - i];
+      Arrays.sort(keys, order);
+      Arrays.sort(reversed, order);
+      assertEquals(Arrays.asList(keys), Arrays.asList(reversed));
+   }
+
+   private static final class CollidingKey {
+      static final Integer HASH_CODE = 42;
+
+      final String value;
+
+      CollidingKey(String value) {
+         this.value = value;
+      }
+
+      @Override
+      public boolean equals(Object o) {
+         return o instanceof CollidingKey && value.equals(((CollidingKey) o).value);
+      }
+
+      @Override
+      public int hashCode() {
+         return HASH_CODE;
+      }
+
+      @Override
+      public String toString() {
+         return value;
+      }
+   }
+}
@@ -29,10 +29,13 @@
 import org.infinispan.Cache;
 import org.infinispan.container.entries.ImmortalCacheEntry;
 import org.infinispan.container.entries.InternalCacheEntry;
+import org.infinispan.loaders.AbstractCacheLoader;
 import org.infinispan.loaders.CacheLoader;
 import org.infinispan.loaders.CacheLoaderConfig;
 import org.infinispan.loaders.CacheLoaderException;
 import org.infinispan.loaders.CacheLoaderMetadata;
+import org.infinispan.loaders.EntryVisitor;
+import org.infinispan.loaders.KeyFilter;
 import org.infinispan.lucene.IndexScopedKey;
 import org.infinispan.lucene.InfinispanDirectory;
 import org.infinispan.lucene.logging.Log;
@@ -128,6 +131,11 @@ public Set<Object> loadAllKeys(final Set keysToExclude) throws CacheLoaderExcept
       return allKeys;
    }
 
+   @Override
+   public boolean visitEntries(KeyFilter filter, boolean fetchValues, EntryVisitor visitor) throws CacheLoaderException {
+      return AbstractCacheLoader.visitEntries(this, filter, fetchValues, visitor);
+   }
+
    /**
     * There might be Directories we didn't store yet in the openDirectories Map.
     * Make sure they are all initialized before serving methods such as {@link #loadAll()}
@@ -34,17 +34,22 @@ import DecoderState._
 import org.infinispan.util.ClusterIdGenerator
 import logging.Log
 import java.lang.StringBuilder
-import org.jboss.netty.handler.codec.replay.ReplayingDecoder
+import org.jboss.netty.handler.codec.frame.FrameDecoder
 
 /**
  * Common abstract decoder for Memcached and Hot Rod protocols.
  *
+ * Decoding progresses through the request parts tracked by {@link DecoderState}. When a part has not fully arrived
+ * yet, reading it fails with {@link NotEnoughDataError} and the part is decoded again from its start once more bytes
+ * are received. Values, which are the only parts that can be large, are instead copied as they arrive, so that a
+ * value spanning many packets is never read twice.
+ *
  * @author Galder Zamarreño
  * @since 4.1
  */
 abstract class AbstractProtocolDecoder[K, V <: CacheValue](transport: NettyTransport)
-      extends ReplayingDecoder[DecoderState](DECODE_HEADER, true) with Log {
-   import AbstractProtocolDecoder._
+      extends FrameDecoder(true) with Log {
+   import AbstractProtocolDecoder.DefaultTimeUnit
 
    type SuitableParameters <: RequestParameters
    type SuitableHeader <: RequestHeader
@@ -59,18 +64,37 @@ abstract class AbstractProtocolDecoder[K, V <: CacheValue](transport: NettyTrans
    protected var rawValue: Array[Byte] = null.asInstanceOf[Array[Byte]]
    protected var cache: Cache[K, V] = null
 
-   override def decode(ctx: ChannelHandlerContext, ch: Channel, buffer: ChannelBuffer, state: DecoderState): AnyRef = {
+   private var state = DECODE_HEADER
+   // Where decoding of the current request part started, to go back to if the part has not been fully received
+   private var partStart = 0
+   // Number of value bytes already copied into rawValue
+   private var valueOffset = 0
+
+   override def decode(ctx: ChannelHandlerContext, ch: Channel, buffer: ChannelBuffer): AnyRef = {
       val ch = ctx.getChannel
       try {
          if (isTrace) // To aid debugging
             trace("Decode using instance @%x", System.identityHashCode(this))
-         state match {
-            case DECODE_HEADER => decodeHeader(ch, buffer, state)
-            case DECODE_KEY => decodeKey(ch, buffer, state)
-            case DECODE_PARAMETERS => decodeParameters(ch, buffer, state)
-            case DECODE_VALUE => decodeValue(ch, buffer, state)
-         }
+         var previous = state
+         var ret: AnyRef = null
+         // Carry on with the same request for as long as its parts can be decoded
+         do {
+            previous = state
+            partStart = buffer.readerIndex
+            ret = state match {
+               case DECODE_HEADER => decodeHeader(ch, buffer, state)
+               case DECODE_KEY => decodeKey(ch, buffer, state)
+               case DECODE_PARAMETERS => decodeParameters(ch, buffer, state)
+               case DECODE_VALUE => decodeValue(ch, buffer, state)
+            }
+         } while (ret == null && state != previous && state != DECODE_HEADER)
+         ret
       } catch {
+         case NotEnoughDataError => {
+            // Wait for the rest of the part, nothing read from it so far is kept
+            buffer.readerIndex(partStart)
+            null
+         }
          case e: Exception => {
             val (serverException, isClientError) = createServerException(e, buffer)
             // If decode returns an exception, decode won't be called again so,
@@ -88,6 +112,7 @@ abstract class AbstractProtocolDecoder[K, V <: CacheValue](transport: NettyTrans
    }
 
    private def decodeHeader(ch: Channel, buffer: ChannelBuffer, state: DecoderState): AnyRef = {
+      if (!isPartReceived(buffer)) return null
       header = createHeader
       val endOfOp = readHeader(buffer, header)
       if (endOfOp == None) {
@@ -108,6 +133,7 @@ abstract class AbstractProtocolDecoder[K, V <: CacheValue](transport: NettyTrans
    }
 
    private def decodeKey(ch: Channel, buffer: ChannelBuffer, state: DecoderState): AnyRef = {
+      if (!isPartReceived(buffer)) return null
       header.op match {
          // Get, put and remove are the most typical operations, so they're first
          case GetRequest => writeResponse(ch, get(buffer))
@@ -133,23 +159,35 @@ abstract class AbstractProtocolDecoder[K, V <: CacheValue](transport: NettyTrans
 
 
    private def decodeParameters(ch: Channel, buffer: ChannelBuffer, state: DecoderState): AnyRef = {
+      if (!isPartReceived(buffer)) return null
       val endOfOp = readParameters(ch, buffer)
       if (!endOfOp && params.valueLength > 0) {
          // Create value holder and checkpoint only if there's more to read
          rawValue = new Array[Byte](params.valueLength)
+         valueOffset = 0
          checkpointTo(DECODE_VALUE)
       } else if (params.valueLength == 0){
          rawValue = Array.empty
-         decodeValue(ch, buffer, state)
+         // Whatever follows the empty value might not have been received yet
+         checkpointTo(DECODE_VALUE)
       } else {
          decodeValue(ch, buffer, state)
       }
    }
 
    private def decodeValue(ch: Channel, buffer: ChannelBuffer, state: DecoderState): AnyRef = {
+      if (rawValue != null && valueOffset < rawValue.length) {
+         val length = math.min(buffer.readableBytes, rawValue.length - valueOffset)
+         buffer.readBytes(rawValue, valueOffset, length)
+         valueOffset += length
+         // The copied bytes are consumed for good, whatever comes after the value is waited for from here
+         partStart = buffer.readerIndex
+         if (valueOffset < rawValue.length) return null
+      }
+      if (rawValue != null && !isPartReceived(buffer)) return null
       val ret = header.op match {
          case PutRequest | PutIfAbsentRequest | ReplaceRequest | ReplaceIfUnmodifiedRequest  => {
-            readValue(buffer)
+            readValueTrailer(buffer)
             header.op match {
                case PutRequest => put
                case PutIfAbsentRequest => putIfAbsent
@@ -163,7 +201,7 @@ abstract class AbstractProtocolDecoder[K, V <: CacheValue](transport: NettyTrans
       writeResponse(ch, ret)
    }
 
-   override def decodeLast(ctx: ChannelHandlerContext, ch: Channel, buffer: ChannelBuffer, state: DecoderState): AnyRef = null // no-op
+   override def decodeLast(ctx: ChannelHandlerContext, ch: Channel, buffer: ChannelBuffer): AnyRef = null // no-op
 
    protected def writeResponse(ch: Channel, response: AnyRef): AnyRef = {
       try {
@@ -190,6 +228,7 @@ abstract class AbstractProtocolDecoder[K, V <: CacheValue](transport: NettyTrans
       // into a request that has no params
       params = null.asInstanceOf[SuitableParameters]
       rawValue = null.asInstanceOf[Array[Byte]] // Clear reference to value
+      valueOffset = 0
       null
    }
 
@@ -287,10 +326,17 @@ abstract class AbstractProtocolDecoder[K, V <: CacheValue](transport: NettyTrans
    }
 
    def checkpointTo(state: DecoderState): AnyRef = {
-      checkpoint(state)
+      this.state = state
       null // For netty's decoder that mandates a return
    }
 
+   /**
+    * Allows protocols to check that the request part about to be decoded has been fully received, instead of having
+    * its reading interrupted with {@link NotEnoughDataError}. When false is returned, decoding of the part is retried
+    * once more bytes are received.
+    */
+   protected def isPartReceived(b: ChannelBuffer): Boolean = true
+
    protected def createHeader: SuitableHeader
 
    protected def readHeader(b: ChannelBuffer, header: SuitableHeader): Option[Boolean]
@@ -307,7 +353,10 @@ abstract class AbstractProtocolDecoder[K, V <: CacheValue](transport: NettyTrans
 
    protected def readParameters(ch: Channel, b: ChannelBuffer): Boolean
 
-   protected def readValue(b: ChannelBuffer)
+   /**
+    * Reads whatever the protocol sends after a value, whose bytes have already been copied into rawValue by then.
+    */
+   protected def readValueTrailer(b: ChannelBuffer) {}
 
    protected def createValue(nextVersion: Long): V
 
@@ -338,6 +387,24 @@ abstract class AbstractProtocolDecoder[K, V <: CacheValue](transport: NettyTrans
       versionGenerator.newVersion(rpcManager != null)
    }
 
+   protected def toMillis(lifespan: Int): Long = AbstractProtocolDecoder.toMillis(lifespan)
+
+   override def writeComplete(ctx: ChannelHandlerContext, e: WriteCompletionEvent) {
+      transport.updateTotalBytesWritten(e)
+      ctx.sendUpstream(e)
+   }
+
+   override def messageReceived(ctx: ChannelHandlerContext, e: MessageEvent) {
+      transport.updateTotalBytesRead(e)
+      super.messageReceived(ctx, e)
+   }
+
+}
+
+object AbstractProtocolDecoder extends Log {
+   private val SecondsInAMonth = 60 * 60 * 24 * 30
+   private val DefaultTimeUnit = TimeUnit.MILLISECONDS
+
    /**
     * Transforms lifespan pass as seconds into milliseconds
     * following this rule:
@@ -350,7 +417,7 @@ abstract class AbstractProtocolDecoder[K, V <: CacheValue](transport: NettyTrans
     * Otherwise it's just considered number of seconds from
     * now and it's returned in milliseconds unit.
     */
-   protected def toMillis(lifespan: Int): Long = {
+   def toMillis(lifespan: Int): Long = {
       if (lifespan > SecondsInAMonth) {
          val unixTimeExpiry = TimeUnit.SECONDS.toMillis(lifespan) - System.currentTimeMillis
          if (unixTimeExpiry < 0) 0 else unixTimeExpiry
@@ -358,22 +425,6 @@ abstract class AbstractProtocolDecoder[K, V <: CacheValue](transport: NettyTrans
          TimeUnit.SECONDS.toMillis(lifespan)
       }
    }
-
-   override def writeComplete(ctx: ChannelHandlerContext, e: WriteCompletionEvent) {
-      transport.updateTotalBytesWritten(e)
-      ctx.sendUpstream(e)
-   }
-
-   override def messageReceived(ctx: ChannelHandlerContext, e: MessageEvent) {
-      transport.updateTotalBytesRead(e)
-      super.messageReceived(ctx, e)
-   }
-
-}
-
-object AbstractProtocolDecoder extends Log {
-   private val SecondsInAMonth = 60 * 60 * 24 * 30
-   private val DefaultTimeUnit = TimeUnit.MILLISECONDS
 }
 
 class RequestHeader {
@@ -43,6 +43,8 @@ abstract class AbstractProtocolServer(threadNamePrefix: String) extends Protocol
    protected var host: String = _
    protected var port: Int = _
    protected var workerThreads: Int = _
+   protected var businessThreads: Int = _
+   protected var businessQueueSize: Int = _
    protected var transport: NettyTransport = _
    protected var cacheManager: EmbeddedCacheManager = _
    protected var versionGenerator: ClusterIdGenerator = _
@@ -67,6 +69,14 @@ abstract class AbstractProtocolServer(threadNamePrefix: String) extends Protocol
          if (workerThreads < 0)
             throw new IllegalArgumentException("Worker threads can't be lower than 0: " + workerThreads)
 
+         this.businessThreads = typedProps.getIntProperty(PROP_KEY_BUSINESS_THREADS, BUSINESS_THREADS_DEFAULT, true)
+         if (businessThreads < 0)
+            throw new IllegalArgumentException("Business threads can't be lower than 0: " + businessThreads)
+
+         this.businessQueueSize = typedProps.getIntProperty(PROP_KEY_BUSINESS_QUEUE_SIZE, BUSINESS_QUEUE_SIZE_DEFAULT, true)
+         if (businessQueueSize < 0)
+            throw new IllegalArgumentException("Business queue size can't be lower than 0: " + businessQueueSize)
+
          this.cacheManager = cacheManager
          this.isGlobalStatsEnabled = cacheManager.getGlobalConfiguration.isExposeGlobalJmxStatistics
          val idleTimeout = typedProps.getIntProperty(PROP_KEY_IDLE_TIMEOUT, IDLE_TIMEOUT_DEFAULT, true)
@@ -87,8 +97,9 @@ abstract class AbstractProtocolServer(threadNamePrefix: String) extends Protocol
 
          if (isDebugEnabled) {
             debugf("Starting server with basic settings: host=%s, port=%d, masterThreads=%s, workerThreads=%d, " +
-                  "idleTimeout=%d, tcpNoDelay=%b, sendBufSize=%d, recvBufSize=%d", host, port,
-                  masterThreads, workerThreads, idleTimeout, tcpNoDelay, sendBufSize, recvBufSize)
+                  "businessThreads=%d, businessQueueSize=%d, idleTimeout=%d, tcpNoDelay=%b, sendBufSize=%d, " +
+                  "recvBufSize=%d", host, port, masterThreads, workerThreads, businessThreads, businessQueueSize,
+                  idleTimeout, tcpNoDelay, sendBufSize, recvBufSize)
          }
 
          // Start default cache
@@ -105,8 +116,8 @@ abstract class AbstractProtocolServer(threadNamePrefix: String) extends Protocol
          recvBufSize: Int, typedProps: TypedProperties) {
       val address = new InetSocketAddress(host, port)
       transport = new NettyTransport(this, getEncoder, address, workerThreads,
-         idleTimeout, threadNamePrefix, tcpNoDelay, sendBufSize, recvBufSize,
-         isGlobalStatsEnabled)
+         businessThreads, businessQueueSize, idleTimeout, threadNamePrefix, tcpNoDelay,
+         sendBufSize, recvBufSize, isGlobalStatsEnabled)
 
       if (isGlobalStatsEnabled) {
          val globalCfg = cacheManager.getCacheManagerConfiguration
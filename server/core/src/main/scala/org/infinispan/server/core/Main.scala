@@ -47,6 +47,8 @@ object Main extends Log {
    val PROP_KEY_HOST = "infinispan.server.host"
    val PROP_KEY_MASTER_THREADS = "infinispan.server.master_threads"
    val PROP_KEY_WORKER_THREADS = "infinispan.server.worker_threads"
+   val PROP_KEY_BUSINESS_THREADS = "infinispan.server.business_threads"
+   val PROP_KEY_BUSINESS_QUEUE_SIZE = "infinispan.server.business_queue_size"
    val PROP_KEY_CACHE_CONFIG = "infinispan.server.cache_config"
    val PROP_KEY_PROTOCOL = "infinispan.server.protocol"
    val PROP_KEY_IDLE_TIMEOUT = "infinispan.server.idle_timeout"
@@ -62,6 +64,8 @@ object Main extends Log {
    val PROP_KEY_CACHE_MANAGER_CLASS = "infinispan.server.cache_manager_class"
    val HOST_DEFAULT = "127.0.0.1"
    val WORKER_THREADS_DEFAULT = 2 * Runtime.getRuntime.availableProcessors()
+   val BUSINESS_THREADS_DEFAULT = 0
+   val BUSINESS_QUEUE_SIZE_DEFAULT = 1048576
    val IDLE_TIMEOUT_DEFAULT = -1
    val TCP_NO_DELAY_DEFAULT = true
    val SEND_BUF_SIZE_DEFAULT = 0
@@ -183,7 +187,7 @@ object Main extends Log {
    }
 
    private def processCommandLine(args: Array[String]) {
-      val sopts = "-:hD:Vp:l:m:t:c:r:i:n:s:e:o:x:k:u:a:f:d:"
+      val sopts = "-:hD:Vp:l:m:t:b:q:c:r:i:n:s:e:o:x:k:u:a:f:d:"
       val lopts = Array(
          new LongOpt("help", LongOpt.NO_ARGUMENT, null, 'h'),
          new LongOpt("version", LongOpt.NO_ARGUMENT, null, 'V'),
@@ -191,6 +195,8 @@ object Main extends Log {
          new LongOpt("host", LongOpt.REQUIRED_ARGUMENT, null, 'l'),
          new LongOpt("master_threads", LongOpt.REQUIRED_ARGUMENT, null, 'm'),
          new LongOpt("worker_threads", LongOpt.REQUIRED_ARGUMENT, null, 't'),
+         new LongOpt("business_threads", LongOpt.REQUIRED_ARGUMENT, null, 'b'),
+         new LongOpt("business_queue_size", LongOpt.REQUIRED_ARGUMENT, null, 'q'),
          new LongOpt("cache_config", LongOpt.REQUIRED_ARGUMENT, null, 'c'),
          new LongOpt("protocol", LongOpt.REQUIRED_ARGUMENT, null, 'r'),
          new LongOpt("idle_timeout", LongOpt.REQUIRED_ARGUMENT, null, 'i'),
@@ -219,6 +225,8 @@ object Main extends Log {
             case 'l' => props.setProperty(PROP_KEY_HOST, getopt.getOptarg)
             case 'm' => props.setProperty(PROP_KEY_MASTER_THREADS, getopt.getOptarg)
             case 't' => props.setProperty(PROP_KEY_WORKER_THREADS, getopt.getOptarg)
+            case 'b' => props.setProperty(PROP_KEY_BUSINESS_THREADS, getopt.getOptarg)
+            case 'q' => props.setProperty(PROP_KEY_BUSINESS_QUEUE_SIZE, getopt.getOptarg)
             case 'c' => props.setProperty(PROP_KEY_CACHE_CONFIG, getopt.getOptarg)
             case 'r' => props.setProperty(PROP_KEY_PROTOCOL, getopt.getOptarg)
             case 'i' => props.setProperty(PROP_KEY_IDLE_TIMEOUT, getopt.getOptarg)
@@ -276,6 +284,12 @@ object Main extends Log {
       println
       println("    -t, --worker_threads=<num>         Number of threads processing incoming requests and sending responses (default: 20 * number of processors)")
       println
+      println("    -b, --business_threads=<num>       Number of threads executing requests against the cache, so that worker threads never block on it (default: 0).")
+      println("                                       Passing 0 disables the separate pool and requests are executed by worker threads.")
+      println
+      println("    -q, --business_queue_size=<num>    Maximum size, in bytes, of the requests of a connection waiting for a business thread (default: 1048576).")
+      println("                                       Once reached, reading from the connection is suspended until requests are executed. Passing 0 removes the limit.")
+      println
       println("    -c, --cache_config=<filename>      Cache configuration file (default: creates cache with default values)")
       println
       println("    -r, --protocol=                    Protocol to understand by the server. This is a mandatory option and you should choose one of these options")
@@ -24,9 +24,16 @@
 package org.infinispan.server.core.transport
 
 import org.jboss.netty.buffer.{ChannelBuffers, ChannelBuffer}
+import java.nio.charset.Charset
 
+/**
+ * Buffer reading helpers. Those used for decoding requests throw {@link NotEnoughDataError} when the buffer does not
+ * hold all the bytes needed yet.
+ */
 object ExtendedChannelBuffer {
 
+   private val UTF8 = Charset.forName("UTF-8")
+
    def wrappedBuffer(array: Array[Byte]*) = ChannelBuffers.wrappedBuffer(array : _*)
    def buffer(capacity: Int) = ChannelBuffers.buffer(capacity)
    def dynamicBuffer = ChannelBuffers.dynamicBuffer()
@@ -35,9 +42,25 @@ object ExtendedChannelBuffer {
    def readUnsignedInt(bf: ChannelBuffer): Int = VInt.read(bf)
    def readUnsignedLong(bf: ChannelBuffer): Long = VLong.read(bf)
 
+   def readByte(bf: ChannelBuffer): Byte = {
+      ensureReadable(bf, 1)
+      bf.readByte
+   }
+
+   def readUnsignedByte(bf: ChannelBuffer): Short = {
+      ensureReadable(bf, 1)
+      bf.readUnsignedByte
+   }
+
+   def readLong(bf: ChannelBuffer): Long = {
+      ensureReadable(bf, 8)
+      bf.readLong
+   }
+
    def readRangedBytes(bf: ChannelBuffer): Array[Byte] = {
       val length = readUnsignedInt(bf)
       if (length > 0) {
+         ensureReadable(bf, length)
          val array = new Array[Byte](length)
          bf.readBytes(array)
          array;
@@ -51,8 +74,20 @@ object ExtendedChannelBuffer {
     * If the length is 0, an empty String is returned.
     */
    def readString(bf: ChannelBuffer): String = {
-      val bytes = readRangedBytes(bf)
-      if (!bytes.isEmpty) new String(bytes, "UTF8") else ""
+      val length = readUnsignedInt(bf)
+      if (length > 0) {
+         ensureReadable(bf, length)
+         // Decoded straight from the buffer, with no intermediate byte array
+         val s = bf.toString(bf.readerIndex, length, UTF8)
+         bf.skipBytes(length)
+         s
+      } else {
+         ""
+      }
+   }
+
+   def ensureReadable(bf: ChannelBuffer, length: Int) {
+      if (bf.readableBytes < length) throw NotEnoughDataError
    }
 
    def writeUnsignedShort(i: Int, bf: ChannelBuffer) = bf.writeShort(i)
@@ -66,4 +101,13 @@ object ExtendedChannelBuffer {
 
    def writeString(msg: String, bf: ChannelBuffer) = writeRangedBytes(msg.getBytes(), bf)
 
-}
\ No newline at end of file
+}
+
+/**
+ * Thrown when reading a request part that has not been fully received yet. Being an error, it is not caught by
+ * the exception handling of the protocol decoders, and since it's thrown whenever a request spans several packets,
+ * a single instance without stack trace is used.
+ */
+object NotEnoughDataError extends Error {
+   override def fillInStackTrace: Throwable = this
+}
@@ -40,6 +40,7 @@ class NettyChannelPipelineFactory(server: ProtocolServer,
 
    override def getPipeline: ChannelPipeline = {
       val pipeline = Channels.pipeline
+      addExecutionHandler(pipeline)
       pipeline.addLast("decoder", server.getDecoder)
       if (encoder != null)
          pipeline.addLast("encoder", encoder)
@@ -47,6 +48,24 @@ class NettyChannelPipelineFactory(server: ProtocolServer,
       return pipeline;
    }
 
+   /**
+    * Adds the execution handler that hands requests over to business threads, if the transport has one, so that
+    * decoding and executing requests happen in business threads.
+    */
+   protected def addExecutionHandler(pipeline: ChannelPipeline) {
+      val executionHandler = transport.executionHandler
+      if (executionHandler != null) {
+         if (transport.isGlobalStatsEnabled) {
+            val timer = new RequestTimer(transport)
+            pipeline.addLast("queueTimer", timer.onQueued)
+            pipeline.addLast("executionHandler", executionHandler)
+            pipeline.addLast("executionTimer", timer.onExecuted)
+         } else {
+            pipeline.addLast("executionHandler", executionHandler)
+         }
+      }
+   }
+
    def stop {
       // No-op
    }
@@ -25,14 +25,15 @@ package org.infinispan.server.core.transport
 import org.jboss.netty.channel.group.DefaultChannelGroup
 import org.jboss.netty.channel.socket.nio.NioServerSocketChannelFactory
 import org.jboss.netty.bootstrap.ServerBootstrap
-import java.util.concurrent.Executors
+import java.util.concurrent.{ThreadFactory, TimeUnit, Executors}
 import scala.collection.JavaConversions._
 import org.infinispan.server.core.ProtocolServer
 import org.infinispan.util.Util
 import org.jboss.netty.util.{ThreadNameDeterminer, ThreadRenamingRunnable}
 import org.jboss.netty.logging.{InternalLoggerFactory, Log4JLoggerFactory}
 import org.infinispan.server.core.logging.Log
-import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.{AtomicInteger, AtomicLong}
+import org.jboss.netty.handler.execution.{OrderedMemoryAwareThreadPoolExecutor, ExecutionHandler}
 import org.jboss.netty.channel.{WriteCompletionEvent, MessageEvent, ChannelDownstreamHandler}
 import org.jboss.netty.buffer.ChannelBuffer
 import java.net.{InetSocketAddress}
@@ -45,9 +46,11 @@ import java.net.{InetSocketAddress}
  */
 class NettyTransport(server: ProtocolServer, encoder: ChannelDownstreamHandler,
                      address: InetSocketAddress, workerThreads: Int,
+                     businessThreads: Int, businessQueueSize: Int,
                      idleTimeout: Int, threadNamePrefix: String, tcpNoDelay: Boolean,
-                     sendBufSize: Int, recvBufSize: Int, isGlobalStatsEnabled: Boolean)
+                     sendBufSize: Int, recvBufSize: Int, val isGlobalStatsEnabled: Boolean)
         extends Transport with Log {
+   import NettyTransport._
 
    private val serverChannels = new DefaultChannelGroup(threadNamePrefix + "-Channels")
    val acceptedChannels = new DefaultChannelGroup(threadNamePrefix + "-Accepted")
@@ -61,8 +64,21 @@ class NettyTransport(server: ProtocolServer, encoder: ChannelDownstreamHandler,
    private val workerExecutor = Executors.newCachedThreadPool
    private val factory = new NioServerSocketChannelFactory(masterExecutor, workerExecutor, workerThreads)
 
+   /**
+    * Hands requests over from worker threads to a separate pool of business threads, if configured, so that
+    * operations blocking on the cache, i.e. waiting for replication or locks, never block worker threads, which
+    * serve many connections each. Requests from the same channel are still executed in order.
+    */
+   private[server] val executionHandler =
+      if (businessThreads > 0)
+         new ExecutionHandler(new OrderedMemoryAwareThreadPoolExecutor(businessThreads, businessQueueSize, 0,
+            BusinessThreadKeepAlive, TimeUnit.SECONDS, new BusinessThreadFactory(threadNamePrefix)))
+      else null
+
    private val totalBytesWritten, totalBytesRead = new AtomicLong
    private val userBytesWritten, userBytesRead = new AtomicLong
+   private val pendingRequests, executedRequests = new AtomicLong
+   private val totalQueueTime, totalExecutionTime = new AtomicLong
    private val isTrace = isTraceEnabled
 
    override def start {
@@ -132,6 +148,7 @@ class NettyTransport(server: ProtocolServer, encoder: ChannelDownstreamHandler,
             }
          }
       }
+      if (executionHandler != null) executionHandler.releaseExternalResources()
       pipeline.stop
       if (isDebugEnabled) debug("Channel group completely closed, release external resources");
       factory.releaseExternalResources();
@@ -147,6 +164,19 @@ class NettyTransport(server: ProtocolServer, encoder: ChannelDownstreamHandler,
 
    override def getNumberWorkerThreads = workerThreads.toString
 
+   override def getNumberBusinessThreads = businessThreads.toString
+
+   override def getPendingRequests = pendingRequests.toString
+
+   override def getAverageQueueTime = average(totalQueueTime, executedRequests)
+
+   override def getAverageExecutionTime = average(totalExecutionTime, executedRequests)
+
+   private def average(totalNanos: AtomicLong, count: AtomicLong): String = {
+      val n = count.get
+      (if (n == 0) 0 else TimeUnit.NANOSECONDS.toMicros(totalNanos.get) / n).toString
+   }
+
    override def getIdleTimeout = idleTimeout.toString
 
    override def getTpcNoDelay = tcpNoDelay.toString
@@ -155,18 +185,38 @@ class NettyTransport(server: ProtocolServer, encoder: ChannelDownstreamHandler,
 
    override def getReceiveBufferSize = recvBufSize.toString
 
-   private[core] def updateTotalBytesWritten(e: WriteCompletionEvent) =
+   private[server] def updateTotalBytesWritten(e: WriteCompletionEvent) =
       incrementTotalBytesWritten(totalBytesWritten, e)
 
    private def incrementTotalBytesWritten(base: AtomicLong, e: WriteCompletionEvent) =
       if (isGlobalStatsEnabled)
          base.addAndGet(e.getWrittenAmount)
 
-   private[core] def updateTotalBytesRead(e: MessageEvent) =
+   private[server] def updateTotalBytesRead(e: MessageEvent) =
       incrementTotalBytesRead(totalBytesRead, e)
 
    private def incrementTotalBytesRead(base: AtomicLong, e: MessageEvent) =
       if (isGlobalStatsEnabled)
          base.addAndGet(e.getMessage.asInstanceOf[ChannelBuffer].readableBytes)
 
+   private[server] def requestQueued = pendingRequests.incrementAndGet
+
+   private[server] def requestExecuted(queueTime: Long, executionTime: Long) {
+      pendingRequests.decrementAndGet
+      totalQueueTime.addAndGet(queueTime)
+      totalExecutionTime.addAndGet(executionTime)
+      executedRequests.incrementAndGet
+   }
+
+}
+
+object NettyTransport {
+   private val BusinessThreadKeepAlive = 60L
+}
+
+private class BusinessThreadFactory(threadNamePrefix: String) extends ThreadFactory {
+   private val threadCounter = new AtomicInteger
+
+   override def newThread(r: Runnable): Thread =
+      new Thread(r, threadNamePrefix + "BusinessWorker-" + threadCounter.incrementAndGet)
 }
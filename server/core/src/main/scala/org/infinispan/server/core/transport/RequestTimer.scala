@@ -0,0 +1,61 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.server.core.transport
+
+import java.util.concurrent.ConcurrentLinkedQueue
+import org.jboss.netty.channel.{ChannelHandlerContext, MessageEvent, SimpleChannelUpstreamHandler}
+
+/**
+ * Times the requests of a channel handed over to business threads, measuring both the time they wait in the queue
+ * and the time they take to execute. A request here is whatever was read from the channel in one go, which is
+ * what gets queued. One instance is used per channel, with {@link #onQueued} added to the pipeline before the
+ * execution handler and {@link #onExecuted} right after it.
+ *
+ * @since 5.2
+ */
+class RequestTimer(transport: NettyTransport) {
+
+   // Requests of a channel are executed in the order they're queued, so their timestamps are taken off in order too
+   private val queued = new ConcurrentLinkedQueue[java.lang.Long]
+
+   val onQueued = new SimpleChannelUpstreamHandler {
+      override def messageReceived(ctx: ChannelHandlerContext, e: MessageEvent) {
+         queued.offer(System.nanoTime)
+         transport.requestQueued
+         ctx.sendUpstream(e)
+      }
+   }
+
+   val onExecuted = new SimpleChannelUpstreamHandler {
+      override def messageReceived(ctx: ChannelHandlerContext, e: MessageEvent) {
+         val start = System.nanoTime
+         val queueTime = start - queued.poll.longValue
+         try {
+            ctx.sendUpstream(e)
+         } finally {
+            transport.requestExecuted(queueTime, System.nanoTime - start)
+         }
+      }
+   }
+
+}
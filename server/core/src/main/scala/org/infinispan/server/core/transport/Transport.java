@@ -72,6 +72,25 @@ public interface Transport {
            displayType = DisplayType.SUMMARY)
    String getNumberWorkerThreads();
 
+   @ManagedAttribute(description = "Returns the number of business threads executing requests, or 0 if requests " +
+         "are executed by worker threads.")
+   @Metric(displayName = "Number of business threads", dataType = DataType.TRAIT,
+           displayType = DisplayType.SUMMARY)
+   String getNumberBusinessThreads();
+
+   @ManagedAttribute(description = "Returns the number of requests waiting for, or being executed by, a business thread.")
+   @Metric(displayName = "Number of pending requests", displayType = DisplayType.SUMMARY)
+   String getPendingRequests();
+
+   @ManagedAttribute(description = "Returns the average time, in microseconds, that requests wait for a business thread.")
+   @Metric(displayName = "Average queue time", displayType = DisplayType.SUMMARY)
+   String getAverageQueueTime();
+
+   @ManagedAttribute(description = "Returns the average time, in microseconds, that business threads take to " +
+         "execute requests.")
+   @Metric(displayName = "Average execution time", displayType = DisplayType.SUMMARY)
+   String getAverageExecutionTime();
+
    @ManagedAttribute(description = "Returns the idle timeout.")
    @Metric(displayName = "Idle timeout", dataType = DataType.TRAIT,
            displayType = DisplayType.SUMMARY)
@@ -45,7 +45,7 @@ object VInt {
    }
 
    def read(in: ChannelBuffer): Int = {
-      val b = in.readByte
+      val b = ExtendedChannelBuffer.readByte(in)
       read(in, b, 7, b & 0x7F, 1)
    }
 
@@ -56,7 +56,7 @@ object VInt {
             throw new IllegalStateException(
                "Stream corrupted.  A variable length integer cannot be longer than 5 bytes.")
 
-         val bb = in.readByte
+         val bb = ExtendedChannelBuffer.readByte(in)
          read(in, bb, shift + 7, i | ((bb & 0x7FL) << shift).toInt, count + 1)
       }
    }
@@ -43,7 +43,7 @@ object VLong {
    }
 
    def read(in: ChannelBuffer): Long = {
-      val b = in.readByte
+      val b = ExtendedChannelBuffer.readByte(in)
       read(in, b, 7, b & 0x7F, 1)
    }
 
@@ -54,7 +54,7 @@ object VLong {
             throw new IllegalStateException(
                "Stream corrupted.  A variable length long cannot be longer than 9 bytes.")
 
-         val bb = in.readByte
+         val bb = ExtendedChannelBuffer.readByte(in)
          read(in, bb, shift + 7, i | (bb & 0x7FL) << shift, count + 1)
       }
    }
@@ -52,6 +52,18 @@ class AbstractProtocolServerTest {
       expectIllegalArgument(p, createServer)
    }
 
+   def testValidateNegativeBusinessThreads {
+      val p = new Properties
+      p.setProperty(PROP_KEY_BUSINESS_THREADS, "-1")
+      expectIllegalArgument(p, createServer)
+   }
+
+   def testValidateNegativeBusinessQueueSize {
+      val p = new Properties
+      p.setProperty(PROP_KEY_BUSINESS_QUEUE_SIZE, "-1")
+      expectIllegalArgument(p, createServer)
+   }
+
    def testValidateNegativeIdleTimeout {
       val p = new Properties
       p.setProperty(PROP_KEY_IDLE_TIMEOUT, "-1")
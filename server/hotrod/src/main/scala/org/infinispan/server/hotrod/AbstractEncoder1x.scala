@@ -104,6 +104,15 @@ abstract class AbstractEncoder1x extends AbstractVersionedEncoder with Constants
                buf.writeByte(0) // Done
             }
          }
+         case g: MultiGetResponse => {
+            // Same stream format as the bulk get, only keys found are written
+            for (entry <- asScalaIterator(g.entries.entrySet.iterator)) {
+               buf.writeByte(1) // Not done
+               writeRangedBytes(entry.getKey.getData, buf)
+               writeRangedBytes(entry.getValue.data, buf)
+            }
+            buf.writeByte(0) // Done
+         }
          case g: GetResponse =>
             if (g.status == Success) writeRangedBytes(g.data.get, buf)
          case e: ErrorResponse => writeString(e.msg, buf)
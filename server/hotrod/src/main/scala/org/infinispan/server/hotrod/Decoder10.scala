@@ -42,18 +42,19 @@ import transport.NettyTransport
 
 /**
  * HotRod protocol decoder specific for specification version 1.0.
+ * Requests of versions 1.1 and 1.2 are decoded in the same way, 1.2 adding the multi-get and bulk put operations.
  *
  * @author Galder Zamarreño
  * @since 4.1
  */
-object Decoder10 extends AbstractVersionedDecoder with Log {
+object Decoder10 extends AbstractVersionedDecoder with Log with Constants {
    import OperationResponse._
    import ProtocolFlag._
    type SuitableHeader = HotRodHeader
    private val isTrace = isTraceEnabled
 
    override def readHeader(buffer: ChannelBuffer, version: Byte, messageId: Long, header: HotRodHeader): Boolean = {
-      val streamOp = buffer.readUnsignedByte
+      val streamOp = readUnsignedByte(buffer)
       val (op, endOfOp) = streamOp match {
          case 0x01 => (PutRequest, false)
          case 0x03 => (GetRequest, false)
@@ -68,6 +69,9 @@ object Decoder10 extends AbstractVersionedDecoder with Log {
          case 0x15 => (StatsRequest, true)
          case 0x17 => (PingRequest, true)
          case 0x19 => (BulkGetRequest, false)
+         // New in 1.2
+         case 0x1B if version >= VERSION_12 => (MultiGetRequest, false)
+         case 0x1D if version >= VERSION_12 => (PutAllRequest, false)
          case _ => throw new HotRodUnknownOperationException(
                "Unknown operation: " + streamOp, version, messageId)
       }
@@ -78,10 +82,10 @@ object Decoder10 extends AbstractVersionedDecoder with Log {
          case 0 => NoFlag
          case 1 => ForceReturnPreviousValue
       }
-      val clientIntelligence = buffer.readUnsignedByte
+      val clientIntelligence = readUnsignedByte(buffer)
       val topologyId = readUnsignedInt(buffer)
       // TODO: Use these once transaction support is added
-      val txId = buffer.readByte
+      val txId = readByte(buffer)
       if (txId != 0) throw new UnsupportedOperationException("Transaction types other than 0 (NO_TX) is not supported at this stage.  Saw TX_ID of " + txId)
 
       header.op = op
@@ -108,11 +112,11 @@ object Decoder10 extends AbstractVersionedDecoder with Log {
    override def readParameters(header: HotRodHeader, buffer: ChannelBuffer): (RequestParameters, Boolean) = {
       header.op match {
          case RemoveRequest => (null, true)
-         case RemoveIfUnmodifiedRequest => (new RequestParameters(-1, -1, -1, buffer.readLong), true)
+         case RemoveIfUnmodifiedRequest => (new RequestParameters(-1, -1, -1, readLong(buffer)), true)
          case ReplaceIfUnmodifiedRequest => {
             val lifespan = readLifespanOrMaxIdle(buffer)
             val maxIdle = readLifespanOrMaxIdle(buffer)
-            val version = buffer.readLong
+            val version = readLong(buffer)
             val valueLength = readUnsignedInt(buffer)
             (new RequestParameters(valueLength, lifespan, maxIdle, version), false)
          }
@@ -125,6 +129,14 @@ object Decoder10 extends AbstractVersionedDecoder with Log {
       }
    }
 
+   override def readEntries(header: HotRodHeader, buffer: ChannelBuffer): (RequestParameters, Seq[(ByteArrayKey, Array[Byte])]) = {
+      val lifespan = readLifespanOrMaxIdle(buffer)
+      val maxIdle = readLifespanOrMaxIdle(buffer)
+      val count = readUnsignedInt(buffer)
+      val entries = for (i <- 0 until count) yield (readKey(buffer), readRangedBytes(buffer))
+      (new RequestParameters(-1, lifespan, maxIdle, -1), entries)
+   }
+
    private def readLifespanOrMaxIdle(buffer: ChannelBuffer): Int = {
       val stream = readUnsignedInt(buffer)
       if (stream <= 0) -1 else stream
@@ -216,6 +228,15 @@ object Decoder10 extends AbstractVersionedDecoder with Log {
             new BulkGetResponse(h.version, h.messageId, h.cacheName, h.clientIntel,
                                 BulkGetResponse, Success, h.topologyId, count)
          }
+         case MultiGetRequest => {
+            val count = readUnsignedInt(buffer)
+            val keys = new java.util.HashSet[ByteArrayKey](count)
+            for (i <- 0 until count) keys.add(readKey(buffer))
+            // All keys are read before touching the cache, so that a replayed decode does not repeat the lookup
+            if (isTrace) trace("About to get %d keys", count)
+            new MultiGetResponse(h.version, h.messageId, h.cacheName, h.clientIntel,
+                                 MultiGetResponse, Success, h.topologyId, cache.getAll(keys))
+         }
       }
    }
 
@@ -275,6 +296,8 @@ object Decoder10 extends AbstractVersionedDecoder with Log {
          case StatsRequest => StatsResponse
          case PingRequest => PingResponse
          case BulkGetRequest => BulkGetResponse
+         case MultiGetRequest => MultiGetResponse
+         case PutAllRequest => PutAllResponse
       }
    }
 
@@ -295,6 +318,8 @@ object OperationResponse extends Enumeration {
    val StatsResponse = Value(0x16)
    val PingResponse = Value(0x18)
    val BulkGetResponse = Value(0x1A)
+   val MultiGetResponse = Value(0x1C)
+   val PutAllResponse = Value(0x1E)
    val ErrorResponse = Value(0x50)
 }
 
@@ -40,7 +40,7 @@ object Encoders {
    object Encoder10 extends AbstractEncoder1x
 
    /**
-    * Encoder for version 1.1 of the Hot Rod protocol.
+    * Encoder for versions 1.1 and 1.2 of the Hot Rod protocol.
     */
    object Encoder11 extends AbstractEncoder1x {
 
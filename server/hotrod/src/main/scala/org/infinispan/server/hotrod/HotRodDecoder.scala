@@ -35,6 +35,8 @@ import java.io.{IOException, StreamCorruptedException}
 import org.jboss.netty.buffer.ChannelBuffer
 import org.jboss.netty.channel.Channel
 import java.lang.StringBuilder
+import java.util.concurrent.TimeUnit
+import org.infinispan.context.Flag.{SKIP_REMOTE_LOOKUP, SKIP_CACHE_LOAD}
 
 /**
  * Top level Hot Rod decoder that after figuring out the version, delegates the rest of the reading to the
@@ -56,7 +58,7 @@ class HotRodDecoder(cacheManager: EmbeddedCacheManager, transport: NettyTranspor
 
    override def readHeader(buffer: ChannelBuffer, header: HotRodHeader): Option[Boolean] = {
       try {
-         val magic = buffer.readUnsignedByte
+         val magic = readUnsignedByte(buffer)
          if (magic != MAGIC_REQ) {
             if (!isError) {
                throw new InvalidMagicIdException("Error reading magic byte or message id: " + magic)
@@ -73,11 +75,11 @@ class HotRodDecoder(cacheManager: EmbeddedCacheManager, transport: NettyTranspor
       }
 
       val messageId = readUnsignedLong(buffer)
-      val version = buffer.readUnsignedByte.toByte
+      val version = readUnsignedByte(buffer).toByte
 
       try {
          val decoder = version match {
-            case VERSION_10 | VERSION_11 => Decoder10
+            case VERSION_10 | VERSION_11 | VERSION_12 => Decoder10
             case _ => throw new UnknownVersionException(
                "Unknown version:" + version, version, messageId)
          }
@@ -131,10 +133,6 @@ class HotRodDecoder(cacheManager: EmbeddedCacheManager, transport: NettyTranspor
       endOfOp
    }
 
-   override protected def readValue(b: ChannelBuffer) {
-      b.readBytes(rawValue)
-   }
-
    override def createValue(nextVersion: Long): CacheValue =
       header.decoder.createValue(params, nextVersion, rawValue)
 
@@ -156,8 +154,25 @@ class HotRodDecoder(cacheManager: EmbeddedCacheManager, transport: NettyTranspor
    override protected def customDecodeHeader(ch: Channel, buffer: ChannelBuffer): AnyRef =
       writeResponse(ch, header.decoder.customReadHeader(header, buffer, cache))
 
-   override protected def customDecodeKey(ch: Channel, buffer: ChannelBuffer): AnyRef =
-      writeResponse(ch, header.decoder.customReadKey(header, buffer, cache))
+   override protected def customDecodeKey(ch: Channel, buffer: ChannelBuffer): AnyRef = {
+      header.op match {
+         // Bulk puts need versions generated, which is this decoder's job
+         case HotRodOperation.PutAllRequest => writeResponse(ch, putAll(buffer))
+         case _ => writeResponse(ch, header.decoder.customReadKey(header, buffer, cache))
+      }
+   }
+
+   private def putAll(buffer: ChannelBuffer): AnyRef = {
+      val (p, entries) = header.decoder.readEntries(header, buffer)
+      val map = new java.util.HashMap[ByteArrayKey, CacheValue]
+      for ((k, v) <- entries) map.put(k, header.decoder.createValue(p, generateVersion(cache), v))
+      if (isTrace) trace("About to put %d entries", map.size)
+      // Previous values are never returned for a bulk put, so remote lookups and cache loads can always be skipped
+      cache.getAdvancedCache.withFlags(SKIP_REMOTE_LOOKUP, SKIP_CACHE_LOAD).putAll(map,
+         toMillis(p.lifespan), TimeUnit.MILLISECONDS, toMillis(p.maxIdle), TimeUnit.MILLISECONDS)
+      new Response(header.version, header.messageId, header.cacheName, header.clientIntel,
+                   OperationResponse.PutAllResponse, Success, header.topologyId)
+   }
 
    override protected def customDecodeValue(ch: Channel, buffer: ChannelBuffer): AnyRef =
       writeResponse(ch, header.decoder.customReadValue(header, buffer, cache))
@@ -37,5 +37,7 @@ object HotRodOperation extends Enumeration(20) {
    val QuitRequest = Value
    val PingRequest = Value
    val BulkGetRequest = Value
+   val MultiGetRequest = Value
+   val PutAllRequest = Value
 
 }
\ No newline at end of file
@@ -0,0 +1,92 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.server.hotrod
+
+import java.lang.reflect.Method
+import java.util.Arrays
+import org.infinispan.server.core.CacheValue
+import org.infinispan.server.hotrod.OperationStatus._
+import org.infinispan.util.ByteArrayKey
+import org.testng.Assert._
+import org.testng.annotations.Test
+import test.HotRodClient
+import test.HotRodTestingUtil._
+
+/**
+ * Tests the multi-get and bulk put operations added in version 1.2 of the Hot Rod protocol.
+ *
+ * @since 5.2
+ */
+@Test(groups = Array("functional"), testName = "server.hotrod.HotRod12FunctionalTest")
+class HotRod12FunctionalTest extends HotRodSingleNodeTest {
+
+   override protected def connectClient: HotRodClient =
+      new HotRodClient("127.0.0.1", server.getPort, cacheName, 60, 12)
+
+   def testMultiGet(m: Method) {
+      client.assertPut(m, "k1-", "v1-")
+      client.assertPut(m, "k2-", "v2-")
+      val resp = client.multiGet(Seq(k(m, "k1-"), k(m, "k2-"), k(m, "k3-")))
+      assertStatus(resp, Success)
+      // only the keys found are returned
+      assertEquals(resp.entries.size, 2)
+      assertTrue(Arrays.equals(resp.entries(new ByteArrayKey(k(m, "k1-"))), v(m, "v1-")))
+      assertTrue(Arrays.equals(resp.entries(new ByteArrayKey(k(m, "k2-"))), v(m, "v2-")))
+   }
+
+   def testMultiGetNoKeys() {
+      val resp = client.multiGet(Seq.empty)
+      assertStatus(resp, Success)
+      assertTrue(resp.entries.isEmpty)
+   }
+
+   def testPutAll(m: Method) {
+      val resp = client.putAll(Seq((k(m, "k1-"), v(m, "v1-")), (k(m, "k2-"), v(m, "v2-"))), 0, 0)
+      assertStatus(resp, Success)
+      val cache = cacheManager.getCache[ByteArrayKey, CacheValue](cacheName)
+      assertTrue(Arrays.equals(cache.get(new ByteArrayKey(k(m, "k1-"))).data, v(m, "v1-")))
+      assertTrue(Arrays.equals(cache.get(new ByteArrayKey(k(m, "k2-"))).data, v(m, "v2-")))
+      assertSuccess(client.get(k(m, "k1-"), 0), v(m, "v1-"))
+   }
+
+   def testPutAllThenMultiGet(m: Method) {
+      assertStatus(client.putAll(Seq((k(m), v(m))), 0, 0), Success)
+      val resp = client.multiGet(Seq(k(m)))
+      assertEquals(resp.entries.size, 1)
+      assertTrue(Arrays.equals(resp.entries(new ByteArrayKey(k(m))), v(m)))
+   }
+
+   def testMultiKeyOperationsUnknownBefore12(m: Method) {
+      for (code <- Seq[Byte](0x1B, 0x1D)) {
+         val client11 = new HotRodClient("127.0.0.1", server.getPort, cacheName, 60, 11)
+         try {
+            val status = client11.execute(0xA0, code, cacheName, k(m), 0, 0, v(m), 0, 1, 0).status
+            assertEquals(status, UnknownOperation,
+               "Status should have been 'UnknownOperation' but instead was: " + status)
+         } finally {
+            killClient(client11)
+         }
+      }
+   }
+
+}
@@ -0,0 +1,118 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.server.hotrod
+
+import org.testng.annotations.Test
+import java.lang.reflect.Method
+import test.HotRodTestingUtil._
+import org.testng.Assert._
+import java.net.Socket
+import java.io.DataInputStream
+import org.infinispan.server.core.transport.ExtendedChannelBuffer._
+import org.infinispan.server.hotrod.OperationStatus._
+import org.infinispan.test.TestingUtil.generateRandomString
+
+/**
+ * Tests requests whose bytes reach the server split across many packets, for which the decoder must wait for the
+ * missing bytes without losing track of the request.
+ *
+ * @since 5.2
+ */
+@Test(groups = Array("functional"), testName = "server.hotrod.HotRodFragmentedRequestTest")
+class HotRodFragmentedRequestTest extends HotRodSingleNodeTest {
+
+   import HotRodFragmentedRequestTest._
+
+   def testPutSentByteByByte(m: Method) {
+      val value = v(m)
+      val socket = connect(server)
+      try {
+         assertEquals(put(socket, cacheName, k(m), value, 1, 1), Success.id)
+      } finally {
+         socket.close()
+      }
+      assertSuccess(client.get(k(m), 0), value)
+   }
+
+   def testPutLargeValueAcrossPackets(m: Method) {
+      val value = generateRandomString(2 * 1024 * 1024).getBytes
+      val socket = connect(server)
+      try {
+         assertEquals(put(socket, cacheName, k(m), value, 1024, 0), Success.id)
+         // The connection must be usable for a following request
+         assertEquals(put(socket, cacheName, k(m, "k2-"), v(m), 3, 0), Success.id)
+      } finally {
+         socket.close()
+      }
+      assertSuccess(client.get(k(m), 0), value)
+      assertSuccess(client.get(k(m, "k2-"), 0), v(m))
+   }
+
+}
+
+object HotRodFragmentedRequestTest {
+
+   def connect(server: HotRodServer): Socket = {
+      val socket = new Socket(server.getHost, server.getPort)
+      socket.setTcpNoDelay(true)
+      socket
+   }
+
+   /**
+    * Sends a put request in chunks of the given size, pausing between them, and returns the response status.
+    */
+   def put(socket: Socket, cacheName: String, k: Array[Byte], v: Array[Byte], chunkSize: Int, pauseMillis: Long): Int = {
+      val buf = dynamicBuffer
+      buf.writeByte(0xA0) // Magic
+      writeUnsignedLong(1, buf) // Message id
+      buf.writeByte(11) // Version
+      buf.writeByte(0x01) // Put
+      writeString(cacheName, buf)
+      writeUnsignedInt(0, buf) // Flags
+      buf.writeByte(1) // Basic client intelligence
+      writeUnsignedInt(0, buf) // Topology id
+      buf.writeByte(0) // No transaction
+      writeRangedBytes(k, buf)
+      writeUnsignedInt(0, buf) // Lifespan
+      writeUnsignedInt(0, buf) // Max idle
+      writeRangedBytes(v, buf)
+
+      val out = socket.getOutputStream
+      val request = new Array[Byte](buf.readableBytes)
+      buf.readBytes(request)
+      var offset = 0
+      while (offset < request.length) {
+         val length = math.min(chunkSize, request.length - offset)
+         out.write(request, offset, length)
+         out.flush()
+         offset += length
+         if (pauseMillis > 0) Thread.sleep(pauseMillis)
+      }
+
+      // Magic, message id, operation, status and topology change marker
+      val response = new Array[Byte](5)
+      new DataInputStream(socket.getInputStream).readFully(response)
+      response(3)
+   }
+
+}
@@ -0,0 +1,64 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.server.hotrod.stress
+
+import java.lang.reflect.Method
+import org.infinispan.test.TestingUtil.generateRandomString
+import org.infinispan.server.hotrod.test.HotRodTestingUtil._
+import org.infinispan.server.hotrod.HotRodSingleNodeTest
+import org.infinispan.server.hotrod.HotRodFragmentedRequestTest._
+import org.infinispan.server.hotrod.OperationStatus._
+import org.testng.annotations.Test
+import org.testng.Assert._
+import java.util.concurrent.TimeUnit
+
+/**
+ * Measures how long the server takes to decode big values arriving in many small packets. Run it against different
+ * decoder implementations to compare them.
+ *
+ * @since 5.2
+ */
+@Test(groups = Array("stress"), testName = "server.hotrod.stress.HotRodFragmentedValueStressTest", enabled = false)
+class HotRodFragmentedValueStressTest extends HotRodSingleNodeTest {
+
+   def testPutFragmentedBigValues(m: Method) {
+      for (size <- List(200 * 1024, 1024 * 1024, 2 * 1024 * 1024)) {
+         val value = generateRandomString(size).getBytes
+         val socket = connect(server)
+         try {
+            // Warm up first
+            for (i <- 0 until 10) put(socket, cacheName, k(m), value, 1024, 0)
+            val puts = 50
+            val start = System.nanoTime
+            for (i <- 0 until puts)
+               assertEquals(put(socket, cacheName, k(m), value, 1024, 0), Success.id)
+            val duration = System.nanoTime - start
+            printf("%d puts of %d bytes sent in 1 KB packets took %d ms on average%n",
+               puts, size, TimeUnit.NANOSECONDS.toMillis(duration / puts))
+         } finally {
+            socket.close()
+         }
+      }
+   }
+
+}
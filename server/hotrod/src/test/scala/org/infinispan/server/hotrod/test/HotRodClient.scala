@@ -230,6 +230,16 @@ class HotRodClient(host: String, port: Int, defaultCacheName: String, rspTimeout
       val handler = ch.getPipeline.getLast.asInstanceOf[ClientHandler]
       handler.getResponse(op.id).asInstanceOf[TestBulkGetResponse]
    }
+
+   def multiGet(keys: Seq[Array[Byte]]): TestMultiGetResponse = {
+      val op = new MultiGetOp(0xA0, protocolVersion, 0x1B, defaultCacheName, 1, 0, keys)
+      execute(op, op.id).asInstanceOf[TestMultiGetResponse]
+   }
+
+   def putAll(entries: Seq[(Array[Byte], Array[Byte])], lifespan: Int, maxIdle: Int): TestResponse = {
+      val op = new PutAllOp(0xA0, protocolVersion, 0x1D, defaultCacheName, 1, 0, lifespan, maxIdle, entries)
+      execute(op, op.id)
+   }
 }
 
 private class ClientPipelineFactory(client: HotRodClient, rspTimeoutSeconds: Int) extends ChannelPipelineFactory {
@@ -272,7 +282,8 @@ private class Encoder extends OneToOneEncoder {
             buffer.writeByte(op.clientIntel) // client intelligence
             writeUnsignedInt(op.topologyId, buffer) // topology id
             writeRangedBytes(new Array[Byte](0), buffer)
-            if (op.code != 0x13 && op.code != 0x15 && op.code != 0x17 && op.code != 0x19) { // if it's a key based op...
+            if (op.code != 0x13 && op.code != 0x15 && op.code != 0x17 && op.code != 0x19
+                  && op.code != 0x1B && op.code != 0x1D) { // if it's a key based op...
                writeRangedBytes(op.key, buffer) // key length + key
                if (op.value != null) {
                   if (op.code != 0x0D) { // If it's not removeIfUnmodified...
@@ -288,6 +299,19 @@ private class Encoder extends OneToOneEncoder {
                }
             } else if (op.code == 0x19) {
                writeUnsignedInt(op.asInstanceOf[BulkGetOp].count, buffer) // Entry count
+            } else if (op.code == 0x1B) {
+               val keys = op.asInstanceOf[MultiGetOp].keys
+               writeUnsignedInt(keys.size, buffer) // Key count
+               keys.foreach(writeRangedBytes(_, buffer))
+            } else if (op.code == 0x1D) {
+               val putAll = op.asInstanceOf[PutAllOp]
+               writeUnsignedInt(putAll.lifespan, buffer) // lifespan
+               writeUnsignedInt(putAll.maxIdle, buffer) // maxIdle
+               writeUnsignedInt(putAll.entries.size, buffer) // Entry count
+               putAll.entries.foreach { case (key, value) =>
+                  writeRangedBytes(key, buffer)
+                  writeRangedBytes(value, buffer)
+               }
             }
             buffer
          }
@@ -330,7 +354,7 @@ private class Decoder(client: HotRodClient) extends ReplayingDecoder[VoidEnum] w
                op.version match {
                   case 10 => read10HashDistAwareHeader(buf, topologyId,
                         numOwners, hashFunction, hashSpace, numServersInTopo)
-                  case 11 => read11HashDistAwareHeader(buf, topologyId,
+                  case 11 | 12 => read11HashDistAwareHeader(buf, topologyId,
                         numOwners, hashFunction, hashSpace, numServersInTopo)
                }
 
@@ -404,7 +428,7 @@ private class Decoder(client: HotRodClient) extends ReplayingDecoder[VoidEnum] w
             } else new TestResponse(op.version, id, op.cacheName, op.clientIntel,
                      opCode, status, op.topologyId, topologyChangeResponse)
          }
-         case ContainsKeyResponse | ClearResponse | PingResponse =>
+         case ContainsKeyResponse | ClearResponse | PingResponse | PutAllResponse =>
             new TestResponse(op.version, id, op.cacheName, op.clientIntel, opCode,
                   status, op.topologyId, topologyChangeResponse)
          case GetWithVersionResponse  => {
@@ -441,6 +465,16 @@ private class Decoder(client: HotRodClient) extends ReplayingDecoder[VoidEnum] w
             new TestBulkGetResponse(op.version, id, op.cacheName, op.clientIntel,
                   bulk, op.topologyId, topologyChangeResponse)
          }
+         case MultiGetResponse => {
+            var done = buf.readByte
+            val entries = mutable.Map.empty[ByteArrayKey, Array[Byte]]
+            while (done == 1) {
+               entries += (new ByteArrayKey(readRangedBytes(buf)) -> readRangedBytes(buf))
+               done = buf.readByte
+            }
+            new TestMultiGetResponse(op.version, id, op.cacheName, op.clientIntel,
+                  immutable.Map[ByteArrayKey, Array[Byte]]() ++ entries, op.topologyId, topologyChangeResponse)
+         }
          case ErrorResponse => {
             if (op == null)
                new TestErrorResponse(10, id, "", 0, status, 0,
@@ -609,6 +643,28 @@ class BulkGetOp(override val magic: Int,
      extends Op(magic, version, code, cacheName, null, 0, 0, null, 0, 0,
                 clientIntel, topologyId)
 
+class MultiGetOp(override val magic: Int,
+                 override val version: Byte,
+                 override val code: Byte,
+                 override val cacheName: String,
+                 override val clientIntel: Byte,
+                 override val topologyId: Int,
+                 val keys: Seq[Array[Byte]])
+      extends Op(magic, version, code, cacheName, null, 0, 0, null, 0, 0,
+                 clientIntel, topologyId)
+
+class PutAllOp(override val magic: Int,
+               override val version: Byte,
+               override val code: Byte,
+               override val cacheName: String,
+               override val clientIntel: Byte,
+               override val topologyId: Int,
+               override val lifespan: Int,
+               override val maxIdle: Int,
+               val entries: Seq[(Array[Byte], Array[Byte])])
+      extends Op(magic, version, code, cacheName, null, lifespan, maxIdle, null, 0, 0,
+                 clientIntel, topologyId)
+
 class TestResponse(override val version: Byte, override val messageId: Long,
                    override val cacheName: String, override val clientIntel: Short,
                    override val operation: OperationResponse,
@@ -678,6 +734,12 @@ class TestBulkGetResponse(override val version: Byte, override val messageId: Lo
                           override val topologyId: Int, override val topologyResponse: Option[AbstractTopologyResponse])
       extends TestResponse(version, messageId, cacheName, clientIntel, BulkGetResponse, Success, topologyId, topologyResponse)
 
+class TestMultiGetResponse(override val version: Byte, override val messageId: Long,
+                           override val cacheName: String, override val clientIntel: Short,
+                           val entries: Map[ByteArrayKey, Array[Byte]],
+                           override val topologyId: Int, override val topologyResponse: Option[AbstractTopologyResponse])
+      extends TestResponse(version, messageId, cacheName, clientIntel, MultiGetResponse, Success, topologyId, topologyResponse)
+
 case class ServerNode(val host: String, val port: Int)
 
 case class TestTopologyAwareResponse(override val viewId: Int,
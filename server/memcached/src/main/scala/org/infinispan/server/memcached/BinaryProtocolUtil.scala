@@ -0,0 +1,90 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.server.memcached
+
+/**
+ * Memcached binary protocol constants.
+ *
+ * @since 5.2
+ */
+object BinaryProtocolUtil {
+
+   val MAGIC_REQ = 0x80
+   val MAGIC_RES = 0x81
+
+   val HEADER_LENGTH = 24
+
+   // Opcodes, quiet variants only differ from their loud counterparts in not replying on success
+   val GET = 0x00
+   val SET = 0x01
+   val ADD = 0x02
+   val REPLACE = 0x03
+   val DELETE = 0x04
+   val INCREMENT = 0x05
+   val DECREMENT = 0x06
+   val QUIT = 0x07
+   val FLUSH = 0x08
+   val GETQ = 0x09
+   val NOOP = 0x0A
+   val VERSION = 0x0B
+   val GETK = 0x0C
+   val GETKQ = 0x0D
+   val APPEND = 0x0E
+   val PREPEND = 0x0F
+   val STAT = 0x10
+   val SETQ = 0x11
+   val ADDQ = 0x12
+   val REPLACEQ = 0x13
+   val DELETEQ = 0x14
+   val INCREMENTQ = 0x15
+   val DECREMENTQ = 0x16
+   val QUITQ = 0x17
+   val FLUSHQ = 0x18
+   val APPENDQ = 0x19
+   val PREPENDQ = 0x1A
+
+   // Response statuses
+   val NO_ERROR = 0x0000
+   val KEY_NOT_FOUND = 0x0001
+   val KEY_EXISTS = 0x0002
+   val VALUE_TOO_LARGE = 0x0003
+   val INVALID_ARGUMENTS = 0x0004
+   val ITEM_NOT_STORED = 0x0005
+   val NON_NUMERIC_VALUE = 0x0006
+   val UNKNOWN_COMMAND = 0x0081
+   val INTERNAL_ERROR = 0x0084
+
+   val MAX_KEY_LENGTH = 250
+
+   /**
+    * Incr/decr requests carrying this expiration fail when the counter does not exist, instead of creating it.
+    */
+   val NO_INITIAL_COUNTER = 0xFFFFFFFF
+
+   def isQuiet(opcode: Int): Boolean = opcode match {
+      case GETQ | GETKQ | SETQ | ADDQ | REPLACEQ | DELETEQ | INCREMENTQ | DECREMENTQ | QUITQ | FLUSHQ
+           | APPENDQ | PREPENDQ => true
+      case _ => false
+   }
+
+}
@@ -0,0 +1,418 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.server.memcached
+
+import logging.Log
+import BinaryProtocolUtil._
+import TextProtocolUtil.{CHARSET, MAX_UNSIGNED_LONG, concat}
+import org.infinispan.{AdvancedCache, Cache, Version}
+import org.infinispan.context.Flag
+import org.infinispan.server.core.AbstractProtocolDecoder.toMillis
+import org.infinispan.server.core.transport.NettyTransport
+import org.infinispan.util.ClusterIdGenerator
+import org.jboss.netty.buffer.ChannelBuffer
+import org.jboss.netty.buffer.ChannelBuffers._
+import org.jboss.netty.channel._
+import org.jboss.netty.handler.codec.frame.FrameDecoder
+import java.util.concurrent.{ScheduledExecutorService, TimeUnit}
+import java.nio.charset.Charset
+import collection.mutable.ListBuffer
+
+/**
+ * A Memcached binary protocol decoder. Binary requests carry their total length in their header, so a request is
+ * only decoded once it has been fully received.
+ *
+ * Responses are not written straight away. Instead, they're gathered and written together once no further complete
+ * request has been received, so that a batch of quiet requests terminated by a noop, or any other pipelined requests,
+ * are answered with a single write.
+ *
+ * @since 5.2
+ */
+class MemcachedBinaryDecoder(cache: Cache[String, MemcachedValue], scheduler: ScheduledExecutorService,
+                             transport: NettyTransport) extends FrameDecoder(true) with Log {
+   import MemcachedBinaryDecoder._
+
+   var versionGenerator: ClusterIdGenerator = _
+
+   private val isTrace = isTraceEnabled
+   private val pending = new ListBuffer[ChannelBuffer]
+   private var pendingBytes = 0
+
+   override def decode(ctx: ChannelHandlerContext, ch: Channel, buffer: ChannelBuffer): AnyRef = {
+      if (buffer.readableBytes < HEADER_LENGTH)
+         return flush(ch)
+
+      val start = buffer.readerIndex
+      val magic = buffer.getUnsignedByte(start)
+      val bodyLength = buffer.getInt(start + 8)
+      if (magic != MAGIC_REQ || bodyLength < 0) {
+         // There's no way to find where the next request starts
+         debug("Unexpected binary request header, magic=%x, body length=%d, closing channel", magic, bodyLength)
+         buffer.skipBytes(buffer.readableBytes)
+         flush(ch)
+         ch.close
+         return null
+      }
+      if (buffer.readableBytes < HEADER_LENGTH + bodyLength)
+         return flush(ch)
+
+      buffer.skipBytes(1) // magic
+      val opcode = buffer.readUnsignedByte
+      val keyLength = buffer.readUnsignedShort
+      val extrasLength = buffer.readUnsignedByte
+      buffer.skipBytes(7) // data type, vbucket id and total body length
+      val opaque = buffer.readInt
+      val cas = buffer.readLong
+      val body = buffer.readSlice(bodyLength)
+      val r = new BinaryRequest(opcode, opaque, cas)
+      if (extrasLength + keyLength > bodyLength || keyLength > MAX_KEY_LENGTH
+            || !isValidRequest(opcode, extrasLength, keyLength, bodyLength - extrasLength - keyLength)) {
+         replyError(r, INVALID_ARGUMENTS, "Invalid arguments")
+      } else {
+         val extras = body.readSlice(extrasLength)
+         val key = body.toString(body.readerIndex, keyLength, UTF8)
+         body.skipBytes(keyLength)
+         if (isTrace) trace("Binary request %s with key '%s'", r, key)
+         try {
+            execute(ch, r, extras, key, body)
+         } catch {
+            case e: Exception => {
+               debug(e, "Exception processing binary request %s", r)
+               replyError(r, INTERNAL_ERROR, String.valueOf(e))
+            }
+         }
+      }
+      if (pendingBytes > MaxPendingBytes) flush(ch)
+      null
+   }
+
+   private def isValidRequest(opcode: Int, extrasLength: Int, keyLength: Int, valueLength: Int): Boolean = {
+      opcode match {
+         case GET | GETQ | GETK | GETKQ | DELETE | DELETEQ =>
+            extrasLength == 0 && keyLength > 0 && valueLength == 0
+         case SET | SETQ | ADD | ADDQ | REPLACE | REPLACEQ => extrasLength == 8 && keyLength > 0
+         case APPEND | APPENDQ | PREPEND | PREPENDQ => extrasLength == 0 && keyLength > 0
+         case INCREMENT | INCREMENTQ | DECREMENT | DECREMENTQ =>
+            extrasLength == 20 && keyLength > 0 && valueLength == 0
+         case FLUSH | FLUSHQ => (extrasLength == 0 || extrasLength == 4) && keyLength == 0 && valueLength == 0
+         case QUIT | QUITQ | NOOP | VERSION => extrasLength == 0 && keyLength == 0 && valueLength == 0
+         case STAT => extrasLength == 0 && valueLength == 0
+         case _ => true // Unknown commands are reported as such
+      }
+   }
+
+   private def execute(ch: Channel, r: BinaryRequest, extras: ChannelBuffer, key: String, value: ChannelBuffer) {
+      r.opcode match {
+         // Get and set are the most typical operations, so they're first
+         case GET | GETQ | GETK | GETKQ => get(r, key)
+         case SET | SETQ | ADD | ADDQ | REPLACE | REPLACEQ => store(r, extras, key, toArray(value))
+         case DELETE | DELETEQ => remove(r, key)
+         case INCREMENT | INCREMENTQ | DECREMENT | DECREMENTQ => incrDecr(r, extras, key)
+         case APPEND | APPENDQ | PREPEND | PREPENDQ => appendPrepend(r, key, toArray(value))
+         case NOOP => replySuccess(r, 0)
+         case VERSION => replyValue(r, Version.VERSION.getBytes(CHARSET))
+         case FLUSH | FLUSHQ => flushAll(r, if (extras.readable) extras.readInt else 0)
+         case STAT => stats(r, key)
+         case QUIT | QUITQ => {
+            replySuccess(r, 0)
+            flush(ch)
+            ch.close
+         }
+         case _ => replyError(r, UNKNOWN_COMMAND, "Unknown command")
+      }
+   }
+
+   private def get(r: BinaryRequest, key: String) {
+      val v = cache.get(key)
+      if (v != null) {
+         val k = if (r.opcode == GETK || r.opcode == GETKQ) key.getBytes(CHARSET) else Array.empty[Byte]
+         val buf = newResponse(r, NO_ERROR, v.version, 4, k.length, v.data.length)
+         buf.writeInt(v.flags.toInt)
+         buf.writeBytes(k)
+         buf.writeBytes(v.data)
+         reply(buf)
+      } else if (!isQuiet(r.opcode)) {
+         replyError(r, KEY_NOT_FOUND, "Not found")
+      }
+   }
+
+   private def store(r: BinaryRequest, extras: ChannelBuffer, key: String, data: Array[Byte]) {
+      val flags = extras.readUnsignedInt
+      val lifespan = toLifespan(extras.readInt)
+      val isAdd = r.opcode == ADD || r.opcode == ADDQ
+      val isSet = r.opcode == SET || r.opcode == SETQ
+      if (isSet && r.cas == 0) {
+         // Previous value not needed, so avoid looking it up remotely or loading it
+         val v = new MemcachedValue(data, generateVersion, flags)
+         cache.getAdvancedCache.withFlags(Flag.SKIP_REMOTE_LOOKUP, Flag.SKIP_CACHE_LOAD)
+               .put(key, v, toMillis(lifespan), TimeUnit.MILLISECONDS, toMillis(-1), TimeUnit.MILLISECONDS)
+         replySuccess(r, v.version)
+      } else {
+         val prev = cache.get(key)
+         if (isAdd) {
+            if (prev != null) {
+               replyError(r, KEY_EXISTS, "Data exists for key.")
+            } else {
+               val v = new MemcachedValue(data, generateVersion, flags)
+               val added = cache.putIfAbsent(key, v, toMillis(lifespan), TimeUnit.MILLISECONDS,
+                  toMillis(-1), TimeUnit.MILLISECONDS) == null
+               if (added) replySuccess(r, v.version) else replyError(r, KEY_EXISTS, "Data exists for key.")
+            }
+         } else if (prev == null) {
+            replyError(r, KEY_NOT_FOUND, "Not found")
+         } else if (r.cas != 0 && r.cas != prev.version) {
+            replyError(r, KEY_EXISTS, "Data exists for key.")
+         } else {
+            // Generate new version only if key present and version has not changed
+            val v = new MemcachedValue(data, generateVersion, flags)
+            val replaced = cache.replace(key, prev, v, toMillis(lifespan), TimeUnit.MILLISECONDS,
+               toMillis(-1), TimeUnit.MILLISECONDS)
+            if (replaced) replySuccess(r, v.version) else replyError(r, KEY_EXISTS, "Data exists for key.")
+         }
+      }
+   }
+
+   private def remove(r: BinaryRequest, key: String) {
+      if (r.cas == 0) {
+         if (cache.remove(key) != null) replySuccess(r, 0) else replyError(r, KEY_NOT_FOUND, "Not found")
+      } else {
+         val prev = cache.get(key)
+         if (prev == null)
+            replyError(r, KEY_NOT_FOUND, "Not found")
+         else if (prev.version != r.cas || !cache.remove(key, prev))
+            replyError(r, KEY_EXISTS, "Data exists for key.")
+         else
+            replySuccess(r, 0)
+      }
+   }
+
+   private def incrDecr(r: BinaryRequest, extras: ChannelBuffer, key: String) {
+      val isIncrement = r.opcode == INCREMENT || r.opcode == INCREMENTQ
+      val delta = toUnsigned(extras.readLong)
+      val initial = toUnsigned(extras.readLong)
+      val expiration = extras.readInt
+      var counter = initial
+      var next: MemcachedValue = null
+      var updated = false
+      // Counters are updated with a conditional replace, so retry until no concurrent update gets in the way
+      while (!updated) {
+         val prev = cache.get(key)
+         if (prev == null) {
+            if (expiration == NO_INITIAL_COUNTER) {
+               replyError(r, KEY_NOT_FOUND, "Not found")
+               return
+            }
+            counter = initial
+            next = new MemcachedValue(counter.toString.getBytes(CHARSET), generateVersion, 0)
+            updated = cache.putIfAbsent(key, next, toMillis(toLifespan(expiration)), TimeUnit.MILLISECONDS,
+               toMillis(-1), TimeUnit.MILLISECONDS) == null
+         } else if (r.cas != 0 && r.cas != prev.version) {
+            replyError(r, KEY_EXISTS, "Data exists for key.")
+            return
+         } else {
+            val prevCounter = toCounter(prev.data)
+            if (prevCounter == None) {
+               replyError(r, NON_NUMERIC_VALUE, "Non-numeric server-side value for incr or decr")
+               return
+            }
+            counter =
+               if (isIncrement) (prevCounter.get + delta) % (MAX_UNSIGNED_LONG + 1) // Wraps around like memcached
+               else (prevCounter.get - delta).max(0)
+            next = new MemcachedValue(counter.toString.getBytes(CHARSET), generateVersion, prev.flags)
+            updated = cache.replace(key, prev, next)
+         }
+      }
+      if (!isQuiet(r.opcode)) {
+         val buf = newResponse(r, NO_ERROR, next.version, 0, 0, 8)
+         buf.writeLong(counter.longValue)
+         reply(buf)
+      }
+   }
+
+   private def appendPrepend(r: BinaryRequest, key: String, data: Array[Byte]) {
+      val prev = cache.get(key)
+      if (prev == null) {
+         replyError(r, ITEM_NOT_STORED, "Not stored.")
+      } else if (r.cas != 0 && r.cas != prev.version) {
+         replyError(r, KEY_EXISTS, "Data exists for key.")
+      } else {
+         val concatenated = r.opcode match {
+            case APPEND | APPENDQ => concat(prev.data, data)
+            case PREPEND | PREPENDQ => concat(data, prev.data)
+         }
+         val next = new MemcachedValue(concatenated, generateVersion, prev.flags)
+         // If there's a concurrent modification on this key, treat it as we couldn't replace it
+         if (cache.replace(key, prev, next)) replySuccess(r, next.version)
+         else replyError(r, ITEM_NOT_STORED, "Not stored.")
+      }
+   }
+
+   private def flushAll(r: BinaryRequest, flushDelay: Int) {
+      val flushFunction = (cache: AdvancedCache[String, MemcachedValue]) => cache.withFlags(Flag.CACHE_MODE_LOCAL, Flag.SKIP_CACHE_STORE).clear
+      if (flushDelay == 0)
+         flushFunction(cache.getAdvancedCache)
+      else
+         scheduler.schedule(new DelayedFlushAll(cache, flushFunction), toMillis(flushDelay), TimeUnit.MILLISECONDS)
+      replySuccess(r, 0)
+   }
+
+   private def stats(r: BinaryRequest, key: String) {
+      val stats = cache.getAdvancedCache.getStats
+      val all = List[(String, Any)](
+         "uptime" -> stats.getTimeSinceStart,
+         "time" -> TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis),
+         "version" -> cache.getVersion,
+         "curr_items" -> stats.getCurrentNumberOfEntries,
+         "total_items" -> stats.getTotalNumberOfEntries,
+         "cmd_get" -> stats.getRetrievals,
+         "cmd_set" -> stats.getStores,
+         "get_hits" -> stats.getHits,
+         "get_misses" -> stats.getMisses,
+         "delete_misses" -> stats.getRemoveMisses,
+         "delete_hits" -> stats.getRemoveHits,
+         "evictions" -> stats.getEvictions,
+         "bytes_read" -> transport.getTotalBytesRead,
+         "bytes_written" -> transport.getTotalBytesWritten
+      )
+      for ((name, value) <- all if key.isEmpty || key == name) {
+         val k = name.getBytes(CHARSET)
+         val v = value.toString.getBytes(CHARSET)
+         val buf = newResponse(r, NO_ERROR, 0, 0, k.length, v.length)
+         buf.writeBytes(k)
+         buf.writeBytes(v)
+         reply(buf)
+      }
+      // An empty stat terminates the list
+      reply(newResponse(r, NO_ERROR, 0, 0, 0, 0))
+   }
+
+   private def newResponse(r: BinaryRequest, status: Int, cas: Long,
+                           extrasLength: Int, keyLength: Int, valueLength: Int): ChannelBuffer = {
+      val bodyLength = extrasLength + keyLength + valueLength
+      val buf = buffer(HEADER_LENGTH + bodyLength)
+      buf.writeByte(MAGIC_RES)
+      buf.writeByte(r.opcode)
+      buf.writeShort(keyLength)
+      buf.writeByte(extrasLength)
+      buf.writeByte(0) // raw bytes data type
+      buf.writeShort(status)
+      buf.writeInt(bodyLength)
+      buf.writeInt(r.opaque)
+      buf.writeLong(cas)
+      buf
+   }
+
+   private def replySuccess(r: BinaryRequest, cas: Long) {
+      if (!isQuiet(r.opcode)) reply(newResponse(r, NO_ERROR, cas, 0, 0, 0))
+   }
+
+   private def replyValue(r: BinaryRequest, value: Array[Byte]) {
+      val buf = newResponse(r, NO_ERROR, 0, 0, 0, value.length)
+      buf.writeBytes(value)
+      reply(buf)
+   }
+
+   private def replyError(r: BinaryRequest, status: Int, message: String) {
+      // Errors are replied to even for quiet requests
+      val msg = message.getBytes(CHARSET)
+      val buf = newResponse(r, status, 0, 0, 0, msg.length)
+      buf.writeBytes(msg)
+      reply(buf)
+   }
+
+   private def reply(buf: ChannelBuffer) {
+      pending += buf
+      pendingBytes += buf.readableBytes
+   }
+
+   private def flush(ch: Channel): AnyRef = {
+      if (!pending.isEmpty) {
+         if (isTrace) trace("Write %d binary responses", pending.size)
+         ch.write(wrappedBuffer(pending: _*))
+         pending.clear
+         pendingBytes = 0
+      }
+      null // For netty's decoder that mandates a return
+   }
+
+   private def generateVersion: Long = {
+      val rpcManager = cache.getAdvancedCache.getRpcManager
+      versionGenerator.newVersion(rpcManager != null)
+   }
+
+   private def toLifespan(expiration: Int): Int = if (expiration <= 0) -1 else expiration
+
+   private def toUnsigned(l: Long): BigInt = if (l >= 0) BigInt(l) else BigInt(l) + MAX_UNSIGNED_LONG + 1
+
+   private def toCounter(data: Array[Byte]): Option[BigInt] = {
+      try {
+         val counter = BigInt(new String(data, CHARSET))
+         if (counter < 0 || counter > MAX_UNSIGNED_LONG) None else Some(counter)
+      } catch {
+         case n: NumberFormatException => None
+      }
+   }
+
+   private def toArray(b: ChannelBuffer): Array[Byte] = {
+      val data = new Array[Byte](b.readableBytes)
+      b.readBytes(data)
+      data
+   }
+
+   override def decodeLast(ctx: ChannelHandlerContext, ch: Channel, buffer: ChannelBuffer): AnyRef = null // no-op
+
+   override def exceptionCaught(ctx: ChannelHandlerContext, e: ExceptionEvent) {
+      // Requests are framed by their length, so errors here come from the channel itself
+      debug(e.getCause, "Exception caught")
+      ctx.getChannel.close
+   }
+
+   override def writeComplete(ctx: ChannelHandlerContext, e: WriteCompletionEvent) {
+      transport.updateTotalBytesWritten(e)
+      ctx.sendUpstream(e)
+   }
+
+   override def messageReceived(ctx: ChannelHandlerContext, e: MessageEvent) {
+      transport.updateTotalBytesRead(e)
+      super.messageReceived(ctx, e)
+      // decode is not called again when the bytes received end on a request boundary, so answer what was decoded
+      flush(ctx.getChannel)
+   }
+
+}
+
+object MemcachedBinaryDecoder {
+   // Pipelined responses are written before they take up more than this
+   private val MaxPendingBytes = 64 * 1024
+   private val UTF8 = Charset.forName(CHARSET)
+}
+
+private class BinaryRequest(val opcode: Int, val opaque: Int, val cas: Long) {
+   override def toString = {
+      new java.lang.StringBuilder().append("BinaryRequest").append("{")
+         .append("opcode=").append(Integer.toHexString(opcode))
+         .append(", opaque=").append(opaque)
+         .append(", cas=").append(cas)
+         .append("}").toString
+   }
+}
@@ -204,11 +204,17 @@ class MemcachedDecoder(memcachedCache: Cache[String, MemcachedValue], scheduler:
       new MemcachedParameters(length, lifespan, -1, streamVersion, noReply, flags, "", 0)
    }
 
-   override protected def readValue(b: ChannelBuffer) {
-      b.readBytes(rawValue)
+   override protected def readValueTrailer(b: ChannelBuffer) {
       skipLine(b) // read the rest of line to clear CRLF after value Byte[]
    }
 
+   /**
+    * Text commands, as well as the line end following a value, are only decoded once the whole line has been
+    * received, so that reading the line never runs out of bytes.
+    */
+   override protected def isPartReceived(b: ChannelBuffer): Boolean =
+      b.indexOf(b.readerIndex, b.writerIndex, LF.toByte) >= 0
+
    override def createValue(nextVersion: Long): MemcachedValue =
       new MemcachedValue(rawValue, nextVersion, params.flags)
 
@@ -285,7 +291,7 @@ class MemcachedDecoder(memcachedCache: Cache[String, MemcachedValue], scheduler:
       val op = header.op
       op match {
          case AppendRequest | PrependRequest => {
-            readValue(buffer)
+            readValueTrailer(buffer)
             val prev = cache.get(key)
             val ret =
                if (prev != null) {
@@ -0,0 +1,63 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.server.memcached
+
+import logging.Log
+import BinaryProtocolUtil.MAGIC_REQ
+import org.infinispan.server.core.transport.NettyTransport
+import org.jboss.netty.buffer.ChannelBuffer
+import org.jboss.netty.channel._
+import org.jboss.netty.handler.codec.frame.FrameDecoder
+
+/**
+ * Detects whether a connection talks the Memcached text or binary protocol from the first byte received, which is
+ * always the request magic byte for binary clients and never for text ones. Once detected, this handler replaces
+ * itself with the decoder for the protocol, and hands it over the bytes received so far.
+ *
+ * @since 5.2
+ */
+class MemcachedProtocolDetector(server: MemcachedServer, transport: NettyTransport)
+      extends FrameDecoder(true) with Log {
+
+   private val isTrace = isTraceEnabled
+
+   override def decode(ctx: ChannelHandlerContext, ch: Channel, buffer: ChannelBuffer): AnyRef = {
+      if (buffer.readableBytes < 1) return null
+
+      val isBinary = buffer.getUnsignedByte(buffer.readerIndex) == MAGIC_REQ
+      if (isTrace) trace("Channel %s uses the Memcached %s protocol", ch, if (isBinary) "binary" else "text")
+      val decoder = if (isBinary) server.getBinaryDecoder else server.getTextDecoder
+      // Add the decoder after this handler before removing it, so that the bytes returned reach the decoder
+      val pipeline = ctx.getPipeline
+      pipeline.addAfter(ctx.getName, "protocolDecoder", decoder)
+      pipeline.remove(this)
+      buffer.readBytes(buffer.readableBytes)
+   }
+
+   override def channelOpen(ctx: ChannelHandlerContext, e: ChannelStateEvent) {
+      // The protocol decoder is only added afterwards, so it won't see the channel being opened
+      transport.acceptedChannels.add(e.getChannel)
+      super.channelOpen(ctx, e)
+   }
+
+}
@@ -28,6 +28,7 @@ import org.infinispan.manager.EmbeddedCacheManager
 import java.util.Properties
 import org.infinispan.config.Configuration
 import org.infinispan.Cache
+import org.jboss.netty.channel.ChannelHandler
 
 /**
  * Memcached server defining its decoder/encoder settings. In fact, Memcached does not use an encoder since there's
@@ -52,12 +53,25 @@ class MemcachedServer extends AbstractProtocolServer("Memcached") {
 
    override def getEncoder = null
 
-   override def getDecoder: MemcachedDecoder = {
-      val dec = new MemcachedDecoder(memcachedCache, scheduler, transport)
+   /**
+    * Text and binary clients are served on the same port, so which decoder is used is decided per connection.
+    */
+   override def getDecoder: ChannelHandler = new MemcachedProtocolDetector(this, transport)
+
+   def getTextDecoder: MemcachedDecoder = {
+      val dec = new MemcachedDecoder(getMemcachedCache, scheduler, transport)
+      dec.versionGenerator = this.versionGenerator
+      dec
+   }
+
+   def getBinaryDecoder: MemcachedBinaryDecoder = {
+      val dec = new MemcachedBinaryDecoder(getMemcachedCache, scheduler, transport)
       dec.versionGenerator = this.versionGenerator
       dec
    }
 
+   protected def getMemcachedCache: Cache[String, MemcachedValue] = memcachedCache
+
    override def stop {
       super.stop
       scheduler.shutdown
@@ -27,6 +27,7 @@ import java.lang.StringBuilder
 import collection.mutable.{Buffer, ListBuffer}
 import annotation.tailrec
 import java.io.{ByteArrayOutputStream, OutputStream}
+import java.nio.charset.Charset
 
 /**
  * Memcached text protocol utilities.
@@ -62,6 +63,7 @@ object TextProtocolUtil {
    val MIN_UNSIGNED = BigInt("0")
 
    val CHARSET = "UTF-8"
+   private val CHARSET_UTF8 = Charset.forName(CHARSET)
 
    /**
     * In the particular case of Memcached, the end of operation/command
@@ -186,22 +188,16 @@ object TextProtocolUtil {
       if (next == CR) { // CR
          next = buffer.readByte
          if (next == LF) { // LF
-            val bytes = new Array[Byte](length)
-            buffer.getBytes(start, bytes)
-            list += new String(bytes, CHARSET)
+            list += buffer.toString(start, length, CHARSET_UTF8)
             Seq[String]() ++ list
          } else {
             readSplitLine(buffer, list, start, length + 1)
          }
       } else if (next == LF) { // LF
-         val bytes = new Array[Byte](length)
-         buffer.getBytes(start, bytes)
-         list += new String(bytes, CHARSET)
+         list += buffer.toString(start, length, CHARSET_UTF8)
          Seq[String]() ++ list
       } else if (next == SP) {
-         val bytes = new Array[Byte](length)
-         buffer.getBytes(start, bytes)
-         list += new String(bytes, CHARSET)
+         list += buffer.toString(start, length, CHARSET_UTF8)
          readSplitLine(buffer, list, start + length + 1, 0)
       } else {
          readSplitLine(buffer, list, start, length + 1)
@@ -0,0 +1,216 @@
+/*
+ * JBoss, Home of Professional Open Source
+ * Copyright 2012 Red Hat Inc. and/or its affiliates and other
+ * contributors as indicated by the @author tags. All rights reserved.
+ * See the copyright.txt in the distribution for a full listing of
+ * individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.infinispan.server.memcached
+
+import java.lang.reflect.Method
+import org.testng.Assert._
+import org.testng.annotations.{AfterClass, Test}
+import net.spy.memcached.{CASResponse, MemcachedClient}
+import java.util.concurrent.TimeUnit
+import java.net.Socket
+import java.io.{BufferedOutputStream, DataInputStream, DataOutputStream}
+import org.infinispan.Version
+import BinaryProtocolUtil._
+
+/**
+ * Tests Memcached binary protocol functionality against Infinispan Memcached server, which serves binary and text
+ * clients on the same port.
+ *
+ * @since 5.2
+ */
+@Test(groups = Array("functional"), testName = "server.memcached.MemcachedBinaryFunctionalTest")
+class MemcachedBinaryFunctionalTest extends MemcachedSingleNodeTest {
+
+   private lazy val binaryClient: MemcachedClient = createMemcachedBinaryClient(60000, server.getPort)
+
+   @AfterClass(alwaysRun = true)
+   override def destroyAfterClass {
+      binaryClient.shutdown
+      super.destroyAfterClass
+   }
+
+   def testSetBasic(m: Method) {
+      val f = binaryClient.set(k(m), 0, v(m))
+      assertTrue(f.get(timeout, TimeUnit.SECONDS).booleanValue)
+      assertEquals(binaryClient.get(k(m)), v(m))
+   }
+
+   def testGetMultipleKeys(m: Method) {
+      for (i <- 1 to 3)
+         assertTrue(binaryClient.set(k(m, "k" + i + "-"), 0, v(m, "v" + i + "-")).get(timeout, TimeUnit.SECONDS).booleanValue)
+      // Multi gets are sent as quiet gets followed by a noop
+      val ret = binaryClient.getBulk(k(m, "k1-"), k(m, "k2-"), k(m, "k3-"), k(m, "k4-"))
+      assertEquals(ret.size, 3)
+      for (i <- 1 to 3)
+         assertEquals(ret.get(k(m, "k" + i + "-")), v(m, "v" + i + "-"))
+   }
+
+   def testAddExisting(m: Method) {
+      assertTrue(binaryClient.set(k(m), 0, v(m)).get(timeout, TimeUnit.SECONDS).booleanValue)
+      assertFalse(binaryClient.add(k(m), 0, v(m, "v1-")).get(timeout, TimeUnit.SECONDS).booleanValue)
+      assertEquals(binaryClient.get(k(m)), v(m))
+   }
+
+   def testReplaceNotExist(m: Method) {
+      assertFalse(binaryClient.replace(k(m), 0, v(m)).get(timeout, TimeUnit.SECONDS).booleanValue)
+      assertNull(binaryClient.get(k(m)))
+   }
+
+   def testCas(m: Method) {
+      assertTrue(binaryClient.set(k(m), 0, v(m)).get(timeout, TimeUnit.SECONDS).booleanValue)
+      val value = binaryClient.gets(k(m))
+      assertEquals(value.getValue, v(m))
+      assertEquals(binaryClient.cas(k(m), value.getCas, v(m, "v1-")), CASResponse.OK)
+      // The version changed with the previous update
+      assertEquals(binaryClient.cas(k(m), value.getCas, v(m, "v2-")), CASResponse.EXISTS)
+      assertEquals(binaryClient.get(k(m)), v(m, "v1-"))
+   }
+
+   def testCasNotExist(m: Method) {
+      assertEquals(binaryClient.cas(k(m), 1234, v(m)), CASResponse.NOT_FOUND)
+   }
+
+   def testDelete(m: Method) {
+      assertTrue(binaryClient.set(k(m), 0, v(m)).get(timeout, TimeUnit.SECONDS).booleanValue)
+      assertTrue(binaryClient.delete(k(m)).get(timeout, TimeUnit.SECONDS).booleanValue)
+      assertNull(binaryClient.get(k(m)))
+      assertFalse(binaryClient.delete(k(m)).get(timeout, TimeUnit.SECONDS).booleanValue)
+   }
+
+   def testIncrementDecrement(m: Method) {
+      // Counter created with the initial value when not present
+      assertEquals(binaryClient.incr(k(m), 1, 5), 5)
+      assertEquals(binaryClient.incr(k(m), 3, 5), 8)
+      assertEquals(binaryClient.decr(k(m), 10, 5), 0)
+      // Counters are stored as text, so they can be read by text clients too
+      assertEquals(client.get(k(m)), "0")
+   }
+
+   def testIncrementNotExist(m: Method) {
+      assertEquals(binaryClient.incr(k(m), 1), -1)
+   }
+
+   def testAppendPrepend(m: Method) {
+      assertTrue(binaryClient.set(k(m), 0, "b").get(timeout, TimeUnit.SECONDS).booleanValue)
+      assertTrue(binaryClient.append(0, k(m), "c").get(timeout, TimeUnit.SECONDS).booleanValue)
+      assertTrue(binaryClient.prepend(0, k(m), "a").get(timeout, TimeUnit.SECONDS).booleanValue)
+      assertEquals(binaryClient.get(k(m)), "abc")
+   }
+
+   def testTextAndBinaryClients(m: Method) {
+      assertTrue(client.set(k(m), 0, v(m)).get(timeout, TimeUnit.SECONDS).booleanValue)
+      assertEquals(binaryClient.get(k(m)), v(m))
+      assertTrue(binaryClient.set(k(m), 0, v(m, "v1-")).get(timeout, TimeUnit.SECONDS).booleanValue)
+      assertEquals(client.get(k(m)), v(m, "v1-"))
+   }
+
+   def testVersion {
+      val versions = binaryClient.getVersions
+      assertEquals(versions.size, 1)
+      assertEquals(versions.values.iterator.next, Version.VERSION)
+   }
+
+   def testQuietSetsAnsweredByNoop(m: Method) {
+      val socket = new Socket(server.getHost, server.getPort)
+      try {
+         val out = new DataOutputStream(socket.getOutputStream)
+         for (i <- 1 to 3)
+            writeRequest(out, SETQ, i, k(m, "k" + i + "-"), new Array[Byte](8), v(m).getBytes)
+         writeRequest(out, GETQ, 4, k(m, "k4-"), Array.empty, Array.empty)
+         writeRequest(out, NOOP, 5, "", Array.empty, Array.empty)
+         out.flush
+         // Neither the successful sets nor the get miss are answered, only the noop is
+         val in = new DataInputStream(socket.getInputStream)
+         assertEquals(in.readUnsignedByte, MAGIC_RES)
+         assertEquals(in.readUnsignedByte, NOOP)
+         in.skipBytes(4) // key length, extras length and data type
+         assertEquals(in.readUnsignedShort, NO_ERROR)
+         assertEquals(in.readInt, 0)
+         assertEquals(in.readInt, 5)
+      } finally {
+         socket.close
+      }
+      for (i <- 1 to 3)
+         assertEquals(binaryClient.get(k(m, "k" + i + "-")), v(m))
+   }
+
+   def testSingleRequestAnswered(m: Method) {
+      assertTrue(binaryClient.set(k(m), 0, v(m)).get(timeout, TimeUnit.SECONDS).booleanValue)
+      val socket = new Socket(server.getHost, server.getPort)
+      try {
+         socket.setSoTimeout(timeout.toInt * 1000)
+         // Send the get in a single write, so that the bytes received end exactly where the request ends
+         val out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream))
+         writeRequest(out, GET, 1, k(m), Array.empty, Array.empty)
+         out.flush
+         val in = new DataInputStream(socket.getInputStream)
+         assertEquals(in.readUnsignedByte, MAGIC_RES)
+         assertEquals(in.readUnsignedByte, GET)
+         in.skipBytes(4) // key length, extras length and data type
+         assertEquals(in.readUnsignedShort, NO_ERROR)
+         val bodyLength = in.readInt
+         assertEquals(in.readInt, 1)
+         in.skipBytes(8) // cas
+         in.skipBytes(4) // flags
+         val value = new Array[Byte](bodyLength - 4)
+         in.readFully(value)
+         assertEquals(new String(value), v(m))
+      } finally {
+         socket.close
+      }
+   }
+
+   def testUnknownCommand(m: Method) {
+      val socket = new Socket(server.getHost, server.getPort)
+      try {
+         val out = new DataOutputStream(socket.getOutputStream)
+         writeRequest(out, 0x7F, 1, "", Array.empty, Array.empty)
+         out.flush
+         val in = new DataInputStream(socket.getInputStream)
+         assertEquals(in.readUnsignedByte, MAGIC_RES)
+         assertEquals(in.readUnsignedByte, 0x7F)
+         in.skipBytes(4)
+         assertEquals(in.readUnsignedShort, UNKNOWN_COMMAND)
+      } finally {
+         socket.close
+      }
+   }
+
+   private def writeRequest(out: DataOutputStream, opcode: Int, opaque: Int, key: String,
+                            extras: Array[Byte], value: Array[Byte]) {
+      val k = key.getBytes
+      out.writeByte(MAGIC_REQ)
+      out.writeByte(opcode)
+      out.writeShort(k.length)
+      out.writeByte(extras.length)
+      out.writeByte(0) // data type
+      out.writeShort(0) // vbucket id
+      out.writeInt(extras.length + k.length + value.length)
+      out.writeInt(opaque)
+      out.writeLong(0) // cas
+      out.write(extras)
+      out.write(k)
+      out.write(value)
+   }
+
+}
@@ -35,6 +35,7 @@ import java.util.concurrent.{CountDownLatch, TimeUnit}
 import org.infinispan.test.fwk.TestCacheManagerFactory
 import org.infinispan.config.Configuration
 import org.infinispan.Version
+import java.net.Socket
 
 /**
  * Tests Memcached protocol functionality against Infinispan Memcached server.
@@ -314,6 +315,23 @@ class MemcachedFunctionalTest extends MemcachedSingleNodeTest {
       assertTrue(responses.tail.head == "END", "Instead response was: " + responses.tail.head)
    }
 
+   def testSetSentByteByByte(m: Method) {
+      val socket = new Socket(server.getHost, server.getPort)
+      try {
+         socket.setTcpNoDelay(true)
+         val out = socket.getOutputStream
+         for (b <- ("set " + k(m) + " 0 0 " + v(m).length + "\r\n" + v(m) + "\r\n").getBytes) {
+            out.write(b)
+            out.flush()
+            Thread.sleep(1)
+         }
+         assertEquals(readLine(socket.getInputStream, new java.lang.StringBuilder), "STORED")
+      } finally {
+         socket.close()
+      }
+      assertEquals(client.get(k(m)), v(m))
+   }
+
    def testIncrementBasic(m: Method) {
       val f = client.set(k(m), 0, "1")
       assertTrue(f.get(timeout, TimeUnit.SECONDS).booleanValue)